@@ -2,11 +2,13 @@ package App.Controllers;
 
 import Models.DataManager;
 import Models.Hotel;
+import Models.HotelSortOrder;
 import Models.Utils.SearchAndSort;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
+import javafx.geometry.Side;
 import javafx.scene.Parent;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
@@ -44,9 +46,16 @@ public class HotelsController {
     @FXML
     private ListView<Hotel> recentlyViewedListView;
 
+    // Maximum number of hotels suggested below the search field
+    private static final int MAX_SUGGESTIONS = 8;
+
     private MainController mainController;
     private DataManager dataManager;
     private ObservableList<Hotel> hotelsList = FXCollections.observableArrayList();
+    // Drop-down with the hotels suggested for the text typed so far
+    private final ContextMenu suggestionsMenu = new ContextMenu();
+    // Set while a chosen suggestion is written into the search field, so it does not suggest again
+    private boolean applyingSuggestion;
 
     @FXML
     private void initialize() {
@@ -57,7 +66,7 @@ public class HotelsController {
         descriptionColumn.setCellValueFactory(new PropertyValueFactory<>("description"));
 
         // Set up the sort combo box with sorting options
-        sortComboBox.getItems().addAll("Name (A-Z)", "Rating (High-Low)");
+        sortComboBox.getItems().addAll("Name (A-Z)", "Rating (High-Low)", "Relevance");
         // Add a listener to apply sorting when selection changes
         sortComboBox.getSelectionModel().selectedItemProperty().addListener((obs, oldVal, newVal) -> {
             if (newVal != null) {
@@ -68,6 +77,9 @@ public class HotelsController {
         // Set the default sort to Rating (High-Low) for better user experience
         sortComboBox.getSelectionModel().select("Rating (High-Low)");
 
+        // Suggest hotels while the user types
+        searchField.textProperty().addListener((obs, oldVal, newVal) -> showSuggestions(newVal));
+
         // Set up the recently viewed hotel list view
         recentlyViewedListView.setCellFactory(param -> new ListCell<Hotel>() {
             @Override
@@ -127,17 +139,13 @@ public class HotelsController {
     }
 
     private void loadHotels() {
-        hotelsList.clear();
-        // Get all hotels from the data manager
-        List<Hotel> hotels = dataManager.getAllHotels();
-        // Clear current list to avoid duplicates
-        // Add all hotels to the observable list
-        hotelsList.addAll(hotels);
+        // Read the hotels in the selected order from the data manager's ordered index, so no sort is needed
+        HotelSortOrder order = HotelSortOrder.fromLabel(sortComboBox.getValue());
+        List<Hotel> hotels = order != null ? dataManager.getHotelsSorted(order) : dataManager.getAllHotels();
+        // Replace the current list in one change
+        hotelsList.setAll(hotels);
         // Set the table to display the hotel list
         hotelsTable.setItems(hotelsList);
-
-        // Apply default sorting based on the current combo box selection
-        sortHotels(sortComboBox.getValue());
     }
 
     @FXML
@@ -149,15 +157,13 @@ public class HotelsController {
             return;
         }
 
-        // Get all hotels from the data manager
-        List<Hotel> allHotels = dataManager.getAllHotels();
         // Clear the current list before adding filtered results
         hotelsList.clear();
 
         // First, try exact name search using binary search if sorting by name
         if (sortComboBox.getValue() != null && sortComboBox.getValue().equals("Name (A-Z)")) {
-            // Sort the list by name for binary search
-            List<Hotel> sortedByName = SearchAndSort.sortHotelsByName(allHotels);
+            // The hotels sorted by name, read from the data manager's ordered index
+            List<Hotel> sortedByName = dataManager.getHotelsSorted(HotelSortOrder.NAME);
 
             // Perform binary search for the exact name match
             int index = SearchAndSort.searchHotelByName(sortedByName, searchTerm);
@@ -167,14 +173,20 @@ public class HotelsController {
                 hotelsList.add(sortedByName.get(index));
                 System.out.println("Found hotel using binary search: " + sortedByName.get(index).getName());
             } else {
-                // No exact match found, fall back contains search
-                System.out.println("No exact match found with binary search, falling back to contains search");
-                performContainsSearch(allHotels, searchTerm.toLowerCase());
+                // No exact match found, fall back to the full-text search
+                System.out.println("No exact match found with binary search, falling back to full-text search");
+                performTextSearch(searchTerm);
             }
         } else {
-            // If not sorted by name, use contains search
-            System.out.println("Not sorted by name, using contains search");
-            performContainsSearch(allHotels, searchTerm.toLowerCase());
+            // If not sorted by name, use the full-text search
+            System.out.println("Not sorted by name, using full-text search");
+            performTextSearch(searchTerm);
+        }
+
+        // Nothing found: the search may be misspelled, e.g. "Kharkov" for "Kharkiv"
+        if (hotelsList.isEmpty()) {
+            System.out.println("No matches found, falling back to fuzzy search");
+            performFuzzySearch(searchTerm);
         }
 
         // Apply current sorting to maintain the consistent display order
@@ -182,37 +194,71 @@ public class HotelsController {
     }
 
     /**
-     * Helper method to perform a contains search on hotel name or location
+     * Shows the hotels whose name or city has a word starting with the typed text.
+     * Choosing a suggestion searches for that hotel and selects it.
      *
-     * @param hotels the list of hotels to search
-     * @param searchTerm the term to search for
+     * @param text the text in the search field
      */
-    private void performContainsSearch(List<Hotel> hotels, String searchTerm) {
-        for (Hotel hotel : hotels) {
-            if (hotel.getName().toLowerCase().contains(searchTerm) ||
-                hotel.getLocation().toLowerCase().contains(searchTerm)) {
-                hotelsList.add(hotel);
-            }
+    private void showSuggestions(String text) {
+        if (applyingSuggestion || dataManager == null || text == null || text.isBlank()) {
+            suggestionsMenu.hide();
+            return;
+        }
+
+        List<Hotel> suggestions = dataManager.suggestHotels(text, MAX_SUGGESTIONS);
+        if (suggestions.isEmpty()) {
+            suggestionsMenu.hide();
+            return;
+        }
+
+        suggestionsMenu.getItems().clear();
+        for (Hotel hotel : suggestions) {
+            MenuItem item = new MenuItem(hotel.getName() + " (" + hotel.getRating() + "★) - " + hotel.getLocation());
+            item.setOnAction(event -> {
+                applyingSuggestion = true;
+                searchField.setText(hotel.getName());
+                applyingSuggestion = false;
+                handleSearch();
+                hotelsTable.getSelectionModel().select(hotel);
+                hotelsTable.scrollTo(hotel);
+            });
+            suggestionsMenu.getItems().add(item);
+        }
+        if (!suggestionsMenu.isShowing()) {
+            suggestionsMenu.show(searchField, Side.BOTTOM, 0, 0);
         }
     }
 
+    /**
+     * Helper method to search the words of hotel names, locations and descriptions
+     * using the data manager's full-text index. Results are added best match first.
+     *
+     * @param searchTerm the words to search for
+     */
+    private void performTextSearch(String searchTerm) {
+        hotelsList.addAll(dataManager.searchHotels(searchTerm));
+    }
+
+    /**
+     * Helper method to search hotel names and cities for words spelled like the search words,
+     * using the data manager's trigram index. Results are added closest spelling first.
+     *
+     * @param searchTerm the words to search for
+     */
+    private void performFuzzySearch(String searchTerm) {
+        hotelsList.addAll(dataManager.fuzzySearchHotels(searchTerm));
+    }
+
     private void sortHotels(String sortOption) {
-        // Return early if no sort option is selected
-        if (sortOption == null) return;
-
-        List<Hotel> sortedList;
-        // Choose sorting method based on selected option
-        if (sortOption.equals("Name (A-Z)")) {
-            // Sort alphabetically by name
-            sortedList = SearchAndSort.sortHotelsByName(hotelsList);
-        } else { // Rating (High-Low)
-            // Sort by rating in descending order
-            sortedList = SearchAndSort.sortHotelsByRating(hotelsList);
+        // Return early if no sort option is selected or the hotels are not loaded yet
+        HotelSortOrder order = HotelSortOrder.fromLabel(sortOption);
+        if (order == null || dataManager == null) {
+            // Relevance: keep the order of the search results, best match first
+            return;
         }
 
-        // Update the list with sorted results
-        hotelsList.clear();
-        hotelsList.addAll(sortedList);
+        // Put the listed hotels in order using the data manager's ordered indexes
+        hotelsList.setAll(dataManager.sortHotels(hotelsList, order));
     }
 
     @FXML
@@ -1,7 +1,9 @@
 package App.Controllers;
 
 import Models.Booking;
+import Models.BookingQuery;
 import Models.DataManager;
+import Models.Page;
 import Models.Utils.Logging.Log;
 import Models.Utils.Logging.LogLevel;
 import javafx.beans.property.SimpleStringProperty;
@@ -16,6 +18,7 @@ import java.util.HashMap;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -57,6 +60,15 @@ public class ManageBookingsController {
     @FXML
     private TableColumn<Booking, String> statusColumn;
 
+    @FXML
+    private Button previousPageButton;
+
+    @FXML
+    private Label pageLabel;
+
+    @FXML
+    private Button nextPageButton;
+
     @FXML
     private Label userLabel;
 
@@ -79,6 +91,14 @@ public class ManageBookingsController {
     private DataManager dataManager;
     private ObservableList<Booking> bookingsList = FXCollections.observableArrayList();
     private Booking selectedBooking;
+
+    // Number of bookings shown per page
+    private static final int PAGE_SIZE = 50;
+    // Cursors the pages before the current one were read after; null is the first page
+    private final List<String> previousCursors = new ArrayList<>();
+    private String pageCursor; // Cursor the current page was read after
+    private String nextCursor; // Cursor of the next page, null on the last page
+    private BookingQuery query = new BookingQuery(); // Selected status filter and search text
     private DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("MMM dd, yyyy");
 
     @FXML
@@ -126,52 +146,63 @@ public class ManageBookingsController {
     public void setMainController(MainController mainController) {
         this.mainController = mainController;
         this.dataManager = mainController.getDataManager();
-        loadBookings();
+        filterBookings();
     }
 
     private void loadBookings() {
-        List<Booking> bookings = dataManager.getAllBookings();
-        bookingsList.clear();
-        bookingsList.addAll(bookings);
-        filterBookings();
+        // Read only the current page of bookings ordered by check-in date, keeping those matching the filters
+        Page<Booking> page = dataManager.pageBookings(query, pageCursor, PAGE_SIZE);
+        bookingsList.setAll(page.getItems());
+        bookingsTable.setItems(bookingsList);
+        nextCursor = page.getNextCursor();
+        updatePageControls();
     }
 
     private void filterBookings() {
+        if (dataManager == null || filterComboBox.getValue() == null) return;
+
+        // Apply filter
         String filter = filterComboBox.getValue();
-        if (filter == null) return;
+        query = new BookingQuery();
+        if (filter.equals("Pending Bookings")) {
+            query.setConfirmed(false);
+        } else if (filter.equals("Confirmed Bookings")) {
+            query.setConfirmed(true);
+        }
 
-        ObservableList<Booking> filteredList = FXCollections.observableArrayList();
-        String searchTerm = searchField.getText().trim().toLowerCase();
+        // Apply search to users, hotels and rooms
+        String searchTerm = searchField.getText().trim();
+        if (!searchTerm.isEmpty()) {
+            query.setText(searchTerm);
+        }
 
-        for (Booking booking : bookingsList) {
-            boolean matchesFilter = true;
-            boolean matchesSearch = true;
+        // New filters start at the first page
+        previousCursors.clear();
+        pageCursor = null;
+        loadBookings();
+    }
 
-            // Apply filter
-            if (filter.equals("Pending Bookings") && booking.isConfirmed()) {
-                matchesFilter = false;
-            } else if (filter.equals("Confirmed Bookings") && !booking.isConfirmed()) {
-                matchesFilter = false;
-            }
+    @FXML
+    private void handleNextPage() {
+        if (nextCursor == null) return;
 
-            // Apply search
-            if (!searchTerm.isEmpty()) {
-                boolean userMatch = booking.getUser().getUsername().toLowerCase().contains(searchTerm) ||
-                                   booking.getUser().getFullName().toLowerCase().contains(searchTerm);
-                boolean hotelMatch = booking.getRoom().getHotel().getName().toLowerCase().contains(searchTerm) ||
-                                    booking.getRoom().getHotel().getLocation().toLowerCase().contains(searchTerm);
-                boolean roomMatch = booking.getRoom().getRoomNumber().toLowerCase().contains(searchTerm) ||
-                                   booking.getRoom().getType().toLowerCase().contains(searchTerm);
+        previousCursors.add(pageCursor);
+        pageCursor = nextCursor;
+        loadBookings();
+    }
 
-                matchesSearch = userMatch || hotelMatch || roomMatch;
-            }
+    @FXML
+    private void handlePreviousPage() {
+        if (previousCursors.isEmpty()) return;
 
-            if (matchesFilter && matchesSearch) {
-                filteredList.add(booking);
-            }
-        }
+        pageCursor = previousCursors.remove(previousCursors.size() - 1);
+        loadBookings();
+    }
 
-        bookingsTable.setItems(filteredList);
+    private void updatePageControls() {
+        previousPageButton.setDisable(previousCursors.isEmpty());
+        nextPageButton.setDisable(nextCursor == null);
+        pageLabel.setText("Page " + (previousCursors.size() + 1));
     }
 
     @FXML
@@ -258,11 +289,7 @@ public class ManageBookingsController {
 
         confirmAlert.showAndWait().ifPresent(response -> {
             if (response == ButtonType.OK) {
-                // Make room available again
-                selectedBooking.getRoom().setAvailable(true);
-                dataManager.updateRoom(selectedBooking.getRoom());
-
-                // Delete booking
+                // Delete booking, which frees its nights for other guests
                 dataManager.deleteBooking(selectedBooking.getId());
 
                 // Refresh the list
@@ -339,6 +366,17 @@ public class ManageBookingsController {
             return false;
         }
 
+        // The new dates must not overlap another booking of the same room
+        if (selectedBooking != null && selectedBooking.getRoom() != null) {
+            for (Booking other : dataManager.getOverlappingBookings(selectedBooking.getRoom().getId(), checkIn, checkOut)) {
+                if (other != selectedBooking) {
+                    showAlert("Room Not Available", "The room is already booked from " + other.getCheckInDate().format(dateFormatter) +
+                            " to " + other.getCheckOutDate().format(dateFormatter) + ".", Alert.AlertType.WARNING);
+                    return false;
+                }
+            }
+        }
+
         return true;
     }
 
@@ -2,13 +2,15 @@ package App.Controllers;
 
 import Models.DataManager;
 import Models.Hotel;
-import Models.Utils.SearchAndSort;
+import Models.HotelSortOrder;
+import Models.Page;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -41,6 +43,15 @@ public class ManageHotelsController {
     @FXML
     private TableColumn<Hotel, String> descriptionColumn;
 
+    @FXML
+    private Button previousPageButton;
+
+    @FXML
+    private Label pageLabel;
+
+    @FXML
+    private Button nextPageButton;
+
     @FXML
     private TextField nameField;
 
@@ -58,6 +69,14 @@ public class ManageHotelsController {
     private ObservableList<Hotel> hotelsList = FXCollections.observableArrayList();
     private Hotel selectedHotel;
 
+    // Number of hotels shown per page
+    private static final int PAGE_SIZE = 50;
+    // Cursors the pages before the current one were read after; null is the first page
+    private final List<String> previousCursors = new ArrayList<>();
+    private String pageCursor; // Cursor the current page was read after
+    private String nextCursor; // Cursor of the next page, null on the last page
+    private boolean showingSearchResults; // Search results are shown all at once, without pages
+
     @FXML
     private void initialize() {
         // Set up the table columns
@@ -68,7 +87,7 @@ public class ManageHotelsController {
         descriptionColumn.setCellValueFactory(new PropertyValueFactory<>("description"));
 
         // Set up the sort combo box
-        sortComboBox.getItems().addAll("Name (A-Z)", "Rating (High-Low)");
+        sortComboBox.getItems().addAll("Name (A-Z)", "Rating (High-Low)", "Relevance");
         sortComboBox.getSelectionModel().selectedItemProperty().addListener((obs, oldVal, newVal) -> {
             if (newVal != null) {
                 sortHotels(newVal);
@@ -97,50 +116,92 @@ public class ManageHotelsController {
     }
 
     private void loadHotels() {
-        List<Hotel> hotels = dataManager.getAllHotels();
-        hotelsList.clear();
-        hotelsList.addAll(hotels);
+        // Read only the current page, already in the selected order
+        Page<Hotel> page = dataManager.pageHotels(pageOrder(), pageCursor, PAGE_SIZE);
+        hotelsList.setAll(page.getItems());
         hotelsTable.setItems(hotelsList);
+        nextCursor = page.getNextCursor();
+        showingSearchResults = false;
+        updatePageControls();
+    }
 
-        // Apply default sorting
-        sortHotels(sortComboBox.getValue());
+    /**
+     * Gets the order of the hotel pages; without a search "Relevance" lists by rating.
+     */
+    private HotelSortOrder pageOrder() {
+        HotelSortOrder order = HotelSortOrder.fromLabel(sortComboBox.getValue());
+        return order != null ? order : HotelSortOrder.RATING;
+    }
+
+    @FXML
+    private void handleNextPage() {
+        if (nextCursor == null) return;
+
+        previousCursors.add(pageCursor);
+        pageCursor = nextCursor;
+        loadHotels();
+    }
+
+    @FXML
+    private void handlePreviousPage() {
+        if (previousCursors.isEmpty()) return;
+
+        pageCursor = previousCursors.remove(previousCursors.size() - 1);
+        loadHotels();
+    }
+
+    /**
+     * Goes back to the first page, e.g. when the order changes.
+     */
+    private void resetPages() {
+        previousCursors.clear();
+        pageCursor = null;
+    }
+
+    private void updatePageControls() {
+        previousPageButton.setDisable(showingSearchResults || previousCursors.isEmpty());
+        nextPageButton.setDisable(showingSearchResults || nextCursor == null);
+        pageLabel.setText(showingSearchResults ? hotelsList.size() + " results" : "Page " + (previousCursors.size() + 1));
     }
 
     @FXML
     private void handleSearch() {
-        String searchTerm = searchField.getText().trim().toLowerCase();
+        String searchTerm = searchField.getText().trim();
         if (searchTerm.isEmpty()) {
-            loadHotels(); // If the search is empty, load all hotels
+            resetPages();
+            loadHotels(); // If the search is empty, load the first page of hotels
             return;
         }
 
-        // Filter hotels by name or location containing the search term
-        List<Hotel> allHotels = dataManager.getAllHotels();
+        // Find hotels by the words of their name, location and description
         hotelsList.clear();
-
-        for (Hotel hotel : allHotels) {
-            if (hotel.getName().toLowerCase().contains(searchTerm) ||
-                hotel.getLocation().toLowerCase().contains(searchTerm)) {
-                hotelsList.add(hotel);
-            }
+        hotelsList.addAll(dataManager.searchHotels(searchTerm));
+        if (hotelsList.isEmpty()) {
+            // Nothing found: try words spelled like the search words
+            hotelsList.addAll(dataManager.fuzzySearchHotels(searchTerm));
         }
 
+        showingSearchResults = true;
+
         // Apply current sorting
         sortHotels(sortComboBox.getValue());
+        updatePageControls();
     }
 
     private void sortHotels(String sortOption) {
-        if (sortOption == null) return;
+        if (dataManager == null) return;
 
-        List<Hotel> sortedList;
-        if (sortOption.equals("Name (A-Z)")) {
-            sortedList = SearchAndSort.sortHotelsByName(hotelsList);
-        } else { // Rating (High-Low)
-            sortedList = SearchAndSort.sortHotelsByRating(hotelsList);
+        if (!showingSearchResults) {
+            // Cursors belong to one order, so a new order starts at its first page
+            resetPages();
+            loadHotels();
+            return;
         }
 
-        hotelsList.clear();
-        hotelsList.addAll(sortedList);
+        HotelSortOrder order = HotelSortOrder.fromLabel(sortOption);
+        if (order == null) return; // Relevance, keep the order of the search results
+
+        hotelsList.setAll(dataManager.sortHotels(hotelsList, order));
     }
 
     @FXML
@@ -2,6 +2,7 @@ package App.Controllers;
 
 import Models.Booking;
 import Models.DataManager;
+import Models.Page;
 import Models.User;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
@@ -46,6 +47,15 @@ public class ManageUsersController {
     @FXML
     private TableColumn<User, String> bookingsColumn;
 
+    @FXML
+    private Button previousPageButton;
+
+    @FXML
+    private Label pageLabel;
+
+    @FXML
+    private Button nextPageButton;
+
     @FXML
     private TextField usernameField;
 
@@ -69,6 +79,14 @@ public class ManageUsersController {
     private ObservableList<User> usersList = FXCollections.observableArrayList();
     private User selectedUser;
 
+    // Number of users shown per page
+    private static final int PAGE_SIZE = 50;
+    // Cursors the pages before the current one were read after; null is the first page
+    private final List<String> previousCursors = new ArrayList<>();
+    private String pageCursor; // Cursor the current page was read after
+    private String nextCursor; // Cursor of the next page, null on the last page
+    private String searchTerm = ""; // Lower-case search term, empty to list all users
+
     @FXML
     private void initialize() {
         // Set up the table columns
@@ -98,33 +116,48 @@ public class ManageUsersController {
     }
 
     private void loadUsers() {
-        List<User> users = dataManager.getAllUsers();
-        usersList.clear();
-        usersList.addAll(users);
+        // Read only the current page of users ordered by username, keeping those matching the search
+        String term = searchTerm;
+        Page<User> page = dataManager.pageUsers(pageCursor, PAGE_SIZE, term.isEmpty() ? null : user ->
+            user.getUsername().toLowerCase().contains(term) ||
+            user.getFullName().toLowerCase().contains(term) ||
+            user.getEmail().toLowerCase().contains(term));
+        usersList.setAll(page.getItems());
         usersTable.setItems(usersList);
+        nextCursor = page.getNextCursor();
+        updatePageControls();
     }
 
     @FXML
     private void handleSearch() {
-        String searchTerm = searchField.getText().trim().toLowerCase();
-        if (searchTerm.isEmpty()) {
-            loadUsers(); // If the search is empty, load all users
-            return;
-        }
+        // Filter users by username, full name, or email containing the search term, starting at the first page
+        searchTerm = searchField.getText().trim().toLowerCase();
+        previousCursors.clear();
+        pageCursor = null;
+        loadUsers();
+    }
+
+    @FXML
+    private void handleNextPage() {
+        if (nextCursor == null) return;
 
-        // Filter users by username, full name, or email containing the search term
-        List<User> allUsers = dataManager.getAllUsers();
-        usersList.clear();
+        previousCursors.add(pageCursor);
+        pageCursor = nextCursor;
+        loadUsers();
+    }
 
-        for (User user : allUsers) {
-            if (user.getUsername().toLowerCase().contains(searchTerm) ||
-                user.getFullName().toLowerCase().contains(searchTerm) ||
-                user.getEmail().toLowerCase().contains(searchTerm)) {
-                usersList.add(user);
-            }
-        }
+    @FXML
+    private void handlePreviousPage() {
+        if (previousCursors.isEmpty()) return;
 
-        usersTable.setItems(usersList);
+        pageCursor = previousCursors.remove(previousCursors.size() - 1);
+        loadUsers();
+    }
+
+    private void updatePageControls() {
+        previousPageButton.setDisable(previousCursors.isEmpty());
+        nextPageButton.setDisable(nextCursor == null);
+        pageLabel.setText("Page " + (previousCursors.size() + 1));
     }
 
     @FXML
@@ -307,13 +340,10 @@ public class ManageUsersController {
             return false;
         }
 
-        // Check if a username already exists (for new users)
-        if (isNewUser) {
-            User existingUser = dataManager.getUserByUsername(username);
-            if (existingUser != null) {
-                showAlert("Username Exists", "Username already exists. Please choose a different username.", Alert.AlertType.WARNING);
-                return false;
-            }
+        // Check if the username is already used (by another user when editing)
+        if (dataManager.isUsernameTaken(username, isNewUser ? null : selectedUser)) {
+            showAlert("Username Exists", "Username already exists. Please choose a different username.", Alert.AlertType.WARNING);
+            return false;
         }
 
         // Validate email format
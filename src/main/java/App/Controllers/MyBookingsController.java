@@ -112,11 +112,7 @@ public class MyBookingsController {
 
         confirmAlert.showAndWait().ifPresent(response -> {
             if (response == ButtonType.OK) {
-                // Make room available again
-                selectedBooking.getRoom().setAvailable(true);
-                dataManager.updateRoom(selectedBooking.getRoom());
-
-                // Delete booking
+                // Delete booking, which frees its nights for other guests
                 dataManager.deleteBooking(selectedBooking.getId());
 
                 // Refresh bookings list
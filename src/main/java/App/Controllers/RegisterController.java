@@ -77,8 +77,7 @@ public class RegisterController {
 
         // Check if the username already exists
         DataManager dataManager = mainController.getDataManager();
-        User existingUser = dataManager.getUserByUsername(username);
-        if (existingUser != null) {
+        if (dataManager.isUsernameTaken(username)) {
             errorLabel.setText("Username already exists");
             return;
         }
@@ -67,17 +67,24 @@ public class RoomsController {
         roomNumberColumn.setCellValueFactory(new PropertyValueFactory<>("roomNumber"));
         roomTypeColumn.setCellValueFactory(new PropertyValueFactory<>("type"));
         priceColumn.setCellValueFactory(new PropertyValueFactory<>("pricePerNight"));
+        // A room is available when it is in service and free for the selected dates
         availabilityColumn.setCellValueFactory(cellData ->
-            new SimpleStringProperty(cellData.getValue().isAvailable() ? "Yes" : "No"));
+            new SimpleStringProperty(isAvailableForSelectedDates(cellData.getValue()) ? "Yes" : "No"));
 
         // Set up date pickers
         LocalDate today = LocalDate.now();
         checkInDatePicker.setValue(today);
         checkOutDatePicker.setValue(today.plusDays(1));
 
-        // Add listeners to update the total price when dates change
-        checkInDatePicker.valueProperty().addListener((obs, oldVal, newVal) -> updateTotalPrice());
-        checkOutDatePicker.valueProperty().addListener((obs, oldVal, newVal) -> updateTotalPrice());
+        // Add listeners to update the total price and availability when dates change
+        checkInDatePicker.valueProperty().addListener((obs, oldVal, newVal) -> {
+            updateTotalPrice();
+            roomsTable.refresh();
+        });
+        checkOutDatePicker.valueProperty().addListener((obs, oldVal, newVal) -> {
+            updateTotalPrice();
+            roomsTable.refresh();
+        });
     }
 
     public void setMainController(MainController mainController) {
@@ -99,6 +106,18 @@ public class RoomsController {
         roomsTable.setItems(roomsList);
     }
 
+    private boolean isAvailableForSelectedDates(Room room) {
+        if (!room.isAvailable()) {
+            return false;
+        }
+        LocalDate checkIn = checkInDatePicker.getValue();
+        LocalDate checkOut = checkOutDatePicker.getValue();
+        if (dataManager == null || checkIn == null || checkOut == null || !checkOut.isAfter(checkIn)) {
+            return true;
+        }
+        return dataManager.isRoomAvailable(room.getId(), checkIn, checkOut);
+    }
+
     @FXML
     private void handleShowBookingForm() {
         Room selectedRoom = roomsTable.getSelectionModel().getSelectedItem();
@@ -163,14 +182,21 @@ public class RoomsController {
             return;
         }
 
+        // Check that none of the nights is booked yet, and suggest the next free dates if one is
+        if (!dataManager.isRoomAvailable(selectedRoom.getId(), checkIn, checkOut)) {
+            long nights = ChronoUnit.DAYS.between(checkIn, checkOut);
+            LocalDate nextFree = dataManager.findNextAvailableDate(selectedRoom.getId(), checkIn, nights);
+            showAlert("Room Not Available",
+                    "This room is already booked for some of the selected nights.\nIt is free again from " +
+                    nextFree + " to " + nextFree.plusDays(nights) + ".",
+                    Alert.AlertType.WARNING);
+            return;
+        }
+
         // Create booking
         Booking booking = dataManager.createBooking(currentUser.getId(), selectedRoom.getId(), checkIn, checkOut);
 
         if (booking != null) {
-            // Mark the room as unavailable
-            selectedRoom.setAvailable(false);
-            dataManager.updateRoom(selectedRoom);
-
             // Refresh rooms list
             loadRooms();
 
@@ -48,6 +48,14 @@ public class Main extends Application {
         }
     }
 
+    @Override
+    public void stop() {
+        // Write the queued changes before the JVM exits
+        if (dataManager != null) {
+            dataManager.close();
+        }
+    }
+
     public static DataManager getDataManager() {
         return dataManager;
     }
@@ -9,9 +9,13 @@ import java.time.temporal.ChronoUnit;
  * Has many-to-one relationships with both User and Room.
  */
 public class Booking implements Serializable {
+    private static final long serialVersionUID = 8220710926267340263L;
+
     private String id; // Unique identifier for the booking
     private User user; // User who made the booking (many-to-one relationship)
     private Room room; // Room that was booked (many-to-one relationship)
+    private String userId; // Id of the user, kept when the booking is stored without its user
+    private String roomId; // Id of the room, kept when the booking is stored without its room
     private LocalDate checkInDate; // Date when the guest will check in
     private LocalDate checkOutDate; // Date when the guest will check out
     private double totalPrice; // Total price for the entire stay
@@ -22,6 +26,8 @@ public class Booking implements Serializable {
         this.id = id;
         this.user = user;
         this.room = room;
+        this.userId = user != null ? user.getId() : null;
+        this.roomId = room != null ? room.getId() : null;
         this.checkInDate = checkInDate;
         this.checkOutDate = checkOutDate;
         // Calculate the total price based on room price and duration
@@ -45,6 +51,17 @@ public class Booking implements Serializable {
 
     public void setUser(User user) {
         this.user = user;
+        // Keep the foreign key in sync with the reference
+        this.userId = user != null ? user.getId() : null;
+    }
+
+    public String getUserId() {
+        return user != null ? user.getId() : userId;
+    }
+
+    public void setUserId(String userId) {
+        // Only the id is known, the user is linked later
+        this.userId = userId;
     }
 
     public Room getRoom() {
@@ -53,6 +70,17 @@ public class Booking implements Serializable {
 
     public void setRoom(Room room) {
         this.room = room;
+        // Keep the foreign key in sync with the reference
+        this.roomId = room != null ? room.getId() : null;
+    }
+
+    public String getRoomId() {
+        return room != null ? room.getId() : roomId;
+    }
+
+    public void setRoomId(String roomId) {
+        // Only the id is known, the room is linked later
+        this.roomId = roomId;
     }
 
     public LocalDate getCheckInDate() {
@@ -77,6 +105,10 @@ public class Booking implements Serializable {
         return totalPrice;
     }
 
+    public void setTotalPrice(double totalPrice) {
+        this.totalPrice = totalPrice;
+    }
+
     public boolean isConfirmed() {
         return confirmed;
     }
@@ -0,0 +1,95 @@
+package Models;
+
+import java.time.LocalDate;
+
+/**
+ * The filters of a booking query, e.g. from the admin bookings list.
+ * Every filter is optional; a filter that is not set matches every booking.
+ * DataManager reads the candidates from the most selective index the filters allow
+ * and checks the other filters only on those.
+ */
+public class BookingQuery {
+    private Boolean confirmed; // true for confirmed bookings, false for pending ones, null for both
+    private String userId; // Id of the user who made the booking
+    private String hotelId; // Id of the hotel of the booked room
+    private String location; // City of the hotel, matched ignoring case
+    private String roomType; // Type of the booked room, matched ignoring case
+    private LocalDate checkInFrom; // Earliest check-in date
+    private LocalDate checkInTo; // Latest check-in date
+    private String text; // Text in the username, full name, hotel name, city, room number or room type, ignoring case
+
+    public BookingQuery() {
+    }
+
+    // Getters and setters
+    public Boolean getConfirmed() {
+        return confirmed;
+    }
+
+    public void setConfirmed(Boolean confirmed) {
+        this.confirmed = confirmed;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public String getHotelId() {
+        return hotelId;
+    }
+
+    public void setHotelId(String hotelId) {
+        this.hotelId = hotelId;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public void setLocation(String location) {
+        this.location = location;
+    }
+
+    public String getRoomType() {
+        return roomType;
+    }
+
+    public void setRoomType(String roomType) {
+        this.roomType = roomType;
+    }
+
+    public LocalDate getCheckInFrom() {
+        return checkInFrom;
+    }
+
+    public void setCheckInFrom(LocalDate checkInFrom) {
+        this.checkInFrom = checkInFrom;
+    }
+
+    public LocalDate getCheckInTo() {
+        return checkInTo;
+    }
+
+    public void setCheckInTo(LocalDate checkInTo) {
+        this.checkInTo = checkInTo;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    @Override
+    public String toString() {
+        return "BookingQuery{confirmed=" + confirmed + ", user=" + userId + ", hotel=" + hotelId +
+               ", location=" + location + ", type=" + roomType + ", checkIn=" + checkInFrom + " to " + checkInTo +
+               ", text=" + text + "}";
+    }
+}
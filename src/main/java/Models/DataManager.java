@@ -1,20 +1,61 @@
 package Models;
 
+import Models.DataStructures.BloomFilter;
+import Models.DataStructures.IntervalIndex;
+import Models.DataStructures.InvertedIndex;
 import Models.DataStructures.LinkedList;
+import Models.DataStructures.MultiValueIndex;
+import Models.DataStructures.OccupancyCalendar;
+import Models.DataStructures.OrderedIndex;
+import Models.DataStructures.PrefixIndex;
+import Models.DataStructures.TrigramIndex;
+import Models.Persistence.BookingStore;
+import Models.Persistence.DurabilityMode;
+import Models.Persistence.EntityCodec;
+import Models.Persistence.EntityCodec.EntityType;
+import Models.Persistence.Journal;
+import Models.Persistence.WriteBehindQueue;
+import Models.Reporting.BookingAggregates;
+import Models.Reporting.BookingColumns;
+import Models.Reporting.BookingTotals;
 import Models.Utils.Logging.Log;
 import Models.Utils.Logging.LogLevel;
 import Models.Utils.Memoizer;
+import Models.Utils.SearchAndSort;
 import java.io.*;
 import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.YearMonth;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Random;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Handles data persistence for the application.
@@ -26,6 +67,38 @@ public class DataManager {
     private static final String ROOMS_FILE = "rooms.dat";
     private static final String BOOKINGS_FOLDER = "bookings";
     private static final String BOOKINGS_PREFIX = "resert";
+    private static final String JOURNAL_FILE = "journal.log";
+    // Number of journal records after which a full snapshot is written and the journal is emptied
+    private static final int CHECKPOINT_THRESHOLD = 5000;
+    // The booking store is compacted on startup once it holds this many records and at least twice as many as live bookings
+    private static final int BOOKING_COMPACTION_THRESHOLD = 1000;
+    // Sizing of the Bloom filter of usernames; it is rebuilt twice as large when it fills up
+    private static final int MIN_USERNAME_FILTER_SIZE = 1024;
+    private static final double USERNAME_FILTER_FALSE_POSITIVE_RATE = 0.01;
+    // Threads used to read the data files on startup
+    private static final int LOAD_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+    // Defaults of the write-behind stage in front of the journal
+    private static final DurabilityMode DEFAULT_DURABILITY_MODE = DurabilityMode.ASYNC;
+    private static final int FLUSH_BATCH_SIZE = 64;
+    // Time between flushes in ASYNC mode, and the longest a record waits for its batch in BATCH mode
+    private static final long FLUSH_INTERVAL_MILLIS = 100;
+    // Order of room search results: best hotel first, then cheapest room, then by name and room number
+    private static final Comparator<Room> SEARCH_RANKING = Comparator
+        .comparingInt((Room room) -> -room.getHotel().getRating())
+        .thenComparingDouble(Room::getPricePerNight)
+        .thenComparing(room -> room.getHotel().getName())
+        .thenComparing(Room::getRoomNumber);
+    private static final int MAX_RANKED_SEARCH_LISTS = 256;
+    // Separates the fields of a page cursor
+    private static final char CURSOR_SEPARATOR = '\u0000';
+    // A search term found in the name counts three times as much as one found in the description
+    private static final double HOTEL_NAME_WEIGHT = 3.0;
+    private static final double HOTEL_LOCATION_WEIGHT = 2.0;
+    private static final double HOTEL_DESCRIPTION_WEIGHT = 1.0;
+    // Nights covered by the occupancy calendars, about two years (twelve longs per room)
+    private static final int OCCUPANCY_HORIZON_DAYS = 768;
+    // The horizon is moved forward once it starts this many days in the past
+    private static final int OCCUPANCY_ROLL_DAYS = 30;
 
     private List<User> users;
     private List<Hotel> hotels;
@@ -35,15 +108,104 @@ public class DataManager {
 
     // Cache for hotel lookups by ID
     private final Map<String, Hotel> hotelCache = new ConcurrentHashMap<>();
+    // Primary-key indexes, kept in sync with the lists on every create, update, delete and load
+    private final Map<String, User> usersById = new HashMap<>();
+    private final Map<String, Room> roomsById = new HashMap<>();
+    private final Map<String, Booking> bookingsById = new HashMap<>();
+    // Secondary indexes, kept in sync with the one-to-many relationships on every mutation
+    private final MultiValueIndex<String, Booking> bookingsByUser = new MultiValueIndex<>();
+    private final MultiValueIndex<String, Booking> bookingsByRoom = new MultiValueIndex<>();
+    private final MultiValueIndex<String, Booking> bookingsByHotel = new MultiValueIndex<>();
+    private final MultiValueIndex<String, Room> roomsByHotel = new MultiValueIndex<>();
+    // Search indexes by normalized (trimmed, lower-case) location and room type
+    private final MultiValueIndex<String, Hotel> hotelsByLocation = new MultiValueIndex<>();
+    private final MultiValueIndex<String, Room> roomsByType = new MultiValueIndex<>();
+    // Full-text index over hotel name, location and description
+    private final InvertedIndex<Hotel> hotelTextIndex =
+        new InvertedIndex<>(HOTEL_NAME_WEIGHT, HOTEL_LOCATION_WEIGHT, HOTEL_DESCRIPTION_WEIGHT);
+    // Autocomplete over the words of hotel names and cities, best rated first
+    private final PrefixIndex<Hotel> hotelSuggestions = new PrefixIndex<>();
+    // Trigrams of the words of hotel names and cities, for searches with spelling mistakes
+    private final TrigramIndex<Hotel> hotelSpellingIndex = new TrigramIndex<>();
+    // Every hotel in each list order, kept sorted as hotels change
+    private final Map<HotelSortOrder, OrderedIndex<HotelSortOrder.Key, Hotel>> hotelsInOrder = new EnumMap<>(HotelSortOrder.class);
+    // Users by username, then id, and bookings by check-in date, then id, for reading them in pages.
+    // The keys are also the page cursors; NUL sorts before every other character, so shorter names come first
+    private final OrderedIndex<String, User> usersInOrder =
+        new OrderedIndex<>(user -> user.getUsername() + CURSOR_SEPARATOR + user.getId(), Comparator.naturalOrder());
+    private final OrderedIndex<BookingKey, Booking> bookingsInOrder = new OrderedIndex<>(BookingKey::new, BookingKey.ORDER);
+    // Set once the bookings-in-order index is filled; it is only built when bookings are first read in pages,
+    // as putting a million bookings in a tree adds seconds to every startup
+    private boolean bookingsInOrderBuilt;
+    // Revenue, room-nights and confirmed/pending counts per hotel and day, kept up to date with every booking
+    // change once built; like bookingsInOrder it is only built for the first report
+    private final BookingAggregates bookingAggregates = new BookingAggregates();
+    private boolean bookingAggregatesBuilt;
+    // The bookings column by column for analytic scans, kept up to date the same way once built
+    private final BookingColumns bookingColumns = new BookingColumns();
+    private boolean bookingColumnsBuilt;
+    // The index the last booking query read its candidates from
+    private volatile BookingSource lastBookingSource;
+    // Search candidates in ranking order by location and type; a room or hotel change drops only the lists
+    // of its location and the lists that are not limited to a location
+    private final Map<String, List<Room>> rankedSearchCandidates = new HashMap<>();
+    // Booked nights of each room as [check-in, check-out) epoch-day intervals, by room id
+    private final Map<String, IntervalIndex<Booking>> availabilityByRoom = new HashMap<>();
+    // Booked nights of each room within the occupancy horizon, one bit per night, by room id
+    private final Map<String, OccupancyCalendar> occupancyByRoom = new HashMap<>();
+    // First night of the occupancy horizon, as an epoch day
+    private long occupancyOrigin = LocalDate.now().toEpochDay();
+    // Users by normalized (lower-case) username; users whose names differ only in case share a key
+    private final MultiValueIndex<String, User> usersByUsername = new MultiValueIndex<>();
+    // Answers "definitely not taken" for a username without touching the index
+    private BloomFilter usernameFilter = new BloomFilter(MIN_USERNAME_FILTER_SIZE, USERNAME_FILTER_FALSE_POSITIVE_RATE);
+
+    // Folder holding the data files
+    private final File dataDir;
+    // Write-ahead journal; mutations append one record here instead of rewriting the .dat files
+    private final Journal journal;
+    // Coalesces journal records and writes them in batches off the caller's thread
+    private WriteBehindQueue writeBehind;
+    // Segmented append-only log holding the bookings
+    private final BookingStore bookingStore;
+    // Set when a .dat file was still in the Java serialization format and must be rewritten
+    private volatile boolean migrationNeeded;
+    // Changes collected by the running transaction, null outside of inTransaction
+    private Transaction transaction;
+    // Duration of each startup phase in milliseconds, in the order the phases finished
+    private final Map<String, Long> loadTimings = Collections.synchronizedMap(new LinkedHashMap<>());
 
     public DataManager() {
+        this(new File("."));
+    }
+
+    /**
+     * Creates a data manager that keeps its data files in the given folder.
+     * @param dataDir the folder holding the data files
+     */
+    public DataManager(File dataDir) {
+        this.dataDir = dataDir;
+        this.journal = new Journal(dataFile(JOURNAL_FILE).getPath());
+        this.writeBehind = new WriteBehindQueue(journal, DEFAULT_DURABILITY_MODE, FLUSH_BATCH_SIZE, FLUSH_INTERVAL_MILLIS);
+        this.bookingStore = new BookingStore(dataFile(BOOKINGS_FOLDER), BookingStore.DEFAULT_SEGMENT_SIZE);
         this.users = new ArrayList<>();
         this.hotels = new ArrayList<>();
+        for (HotelSortOrder order : HotelSortOrder.values()) {
+            hotelsInOrder.put(order, new OrderedIndex<>(HotelSortOrder.Key::new, order.getComparator()));
+        }
         this.rooms = new ArrayList<>();
         this.bookings = new ArrayList<>();
         this.recentlyViewedHotels = new LinkedList<>();
         loadData();
 
+        // Seed in one transaction so the sample data is persisted with a single write
+        inTransaction(data -> createDefaultData());
+    }
+
+    /**
+     * Creates the default users and the sample hotels and rooms when none exist.
+     */
+    private void createDefaultData() {
         // Create default users if no users exist
         if (users.size() == 0) {
             createUser("admin", "admin123", "Administrator", "admin@hotel.com", "123-456-7890", true);
@@ -306,53 +468,118 @@ public class DataManager {
         String id = UUID.randomUUID().toString();
         User user = new User(id, username, password, fullName, email, phoneNumber, isAdmin);
         users.add(user);
-        saveUsers();
+        usersById.put(id, user);
+        indexUsername(user);
+        persist(Journal.encodeUser(user));
         return user;
     }
 
     public User getUserById(String id) {
-        for (User user : users) {
-            if (user.getId().equals(id)) {
-                return user;
-            }
-        }
-        return null;
+        return usersById.get(id);
     }
 
+    /**
+     * Gets a user by username, ignoring case.
+     *
+     * @param username the username to look up
+     * @return the user, or null if no user has this username
+     */
     public User getUserByUsername(String username) {
-        for (User user : users) {
-            if (user.getUsername().equalsIgnoreCase(username)) {
-                return user;
+        if (username == null) {
+            return null;
+        }
+        String key = normalizeUsername(username);
+        // Most unknown usernames are rejected by the filter without a lookup
+        if (!usernameFilter.mightContain(key)) {
+            return null;
+        }
+        return usersByUsername.getFirst(key);
+    }
+
+    /**
+     * Checks whether a username is already used by a user, ignoring case.
+     *
+     * @param username the username to check
+     * @return true if the username is taken
+     */
+    public boolean isUsernameTaken(String username) {
+        return getUserByUsername(username) != null;
+    }
+
+    /**
+     * Checks whether a username is used by a user other than the given one, ignoring case.
+     * Every user indexed under the name is checked, so a user whose name differs from another
+     * user's only in case can still keep its own name when it is edited.
+     *
+     * @param username the username to check
+     * @param user the user that may keep the name, or null to check against every user
+     * @return true if another user has the username
+     */
+    public boolean isUsernameTaken(String username, User user) {
+        if (username == null) {
+            return false;
+        }
+        String key = normalizeUsername(username);
+        if (!usernameFilter.mightContain(key)) {
+            return false;
+        }
+        for (User holder : usersByUsername.get(key)) {
+            if (holder != user) {
+                return true;
             }
         }
-        return null;
+        return false;
     }
 
     public List<User> getAllUsers() {
         return new ArrayList<>(users);
     }
 
+    /**
+     * Reads one page of users ordered by username. Unlike getAllUsers this copies only the page,
+     * and a cursor stays valid when users are added or removed before it.
+     *
+     * @param afterCursor the next cursor of the previous page, or null for the first page
+     * @param limit the maximum number of users on the page
+     * @param filter keeps only the users it accepts, or null to keep all
+     * @return the page
+     */
+    public Page<User> pageUsers(String afterCursor, int limit, Predicate<User> filter) {
+        return page(usersInOrder, afterCursor, afterCursor, limit, filter, key -> key);
+    }
+
     public void updateUser(User user) {
-        for (int i = 0; i < users.size(); i++) {
-            if (users.get(i).getId().equals(user.getId())) {
-                users.set(i, user);
-                saveUsers();
-                return;
-            }
+        User existing = usersById.get(user.getId());
+        if (existing == null) {
+            return;
         }
+        // Callers usually pass the stored object itself, then the list is already up to date
+        if (existing != user) {
+            users.set(users.indexOf(existing), user);
+            usersById.put(user.getId(), user);
+        }
+        // The username may have changed (the stored object is often edited in place)
+        if (existing != user) {
+            unindexUsername(existing);
+        }
+        indexUsername(user);
+        persist(Journal.encodeUser(user));
     }
 
     public void deleteUser(String id) {
-        users.removeIf(user -> user.getId().equals(id));
-        saveUsers();
+        User user = usersById.remove(id);
+        if (user != null) {
+            users.remove(user);
+            unindexUsername(user);
+            persist(Journal.encodeDelete(EntityType.USER, id));
+        }
     }
 
     // CRUD operations for Hotel
     @Log(level = LogLevel.INFO)
     public Hotel createHotel(String name, String location, int rating, String description) {
         try {
-            return Log.Decorator.withLogging(
-                LogLevel.INFO,
+            return withLogging(
                 () -> {
                     // Check if a hotel with the same name already exists
                     Hotel existingHotel = getHotelByName(name);
@@ -366,11 +593,11 @@ public class DataManager {
                     hotels.add(hotel);
                     // Add to cache when created
                     hotelCache.put(id, hotel);
-                    saveHotels();
+                    indexHotel(hotel);
+                    persist(Journal.encodeHotel(hotel));
                     return hotel;
                 },
                 "createHotel",
-                "DataManager",
                 Map.of("name", name, "location", location, "rating", rating, "description", description)
             );
         } catch (Exception e) {
@@ -417,31 +644,229 @@ public class DataManager {
         return new ArrayList<>(hotels);
     }
 
+    /**
+     * Searches hotels by the words of their name, location and description, best match first.
+     * Every word of the query must match; the last one may be the start of a word.
+     * Case and accents are ignored.
+     *
+     * @param query the words to search for
+     * @return the matching hotels, empty if the query has no words
+     */
+    public List<Hotel> searchHotels(String query) {
+        return hotelTextIndex.search(query);
+    }
+
+    /**
+     * Searches hotels by words spelled like the words of their name or city, closest spelling first,
+     * e.g. "Kharkov" finds hotels in Kharkiv. Meant for queries the full-text search finds nothing for.
+     * Longer words may be more edits away: see TrigramIndex.maxDistance.
+     *
+     * @param query the words to search for
+     * @return the matching hotels, empty if the query has no words
+     */
+    public List<Hotel> fuzzySearchHotels(String query) {
+        return hotelSpellingIndex.search(query);
+    }
+
+    /**
+     * Gets all hotels in a list order, read from the ordered index without sorting.
+     *
+     * @param order the order
+     * @return a new list with every hotel, in order
+     */
+    public List<Hotel> getHotelsSorted(HotelSortOrder order) {
+        return hotelsInOrder.get(order).getAll();
+    }
+
+    /**
+     * Reads one page of hotels in a list order. Unlike getAllHotels this copies only the page,
+     * and a cursor stays valid when hotels are added or removed before it.
+     *
+     * @param order the order of the hotels
+     * @param afterCursor the next cursor of the previous page (read in the same order), or null for the first page
+     * @param limit the maximum number of hotels on the page
+     * @return the page
+     */
+    public Page<Hotel> pageHotels(HotelSortOrder order, String afterCursor, int limit) {
+        HotelSortOrder.Key after = null;
+        if (afterCursor != null) {
+            after = HotelSortOrder.Key.fromCursor(afterCursor);
+            if (after == null) {
+                System.err.println("Invalid hotel cursor, reading from the first page");
+            }
+        }
+        return page(hotelsInOrder.get(order), after, afterCursor, limit, null, HotelSortOrder.Key::toCursor);
+    }
+
+    /**
+     * Reads one page from an ordered index. One value more than the limit is read
+     * to know whether there is a next page; the cursor is the key of the last value on the page.
+     * A limit of 0 or less gives an empty page without a next cursor, as for topK.
+     */
+    private <K, V> Page<V> page(OrderedIndex<K, V> index, K after, String afterCursor, int limit,
+                                Predicate<V> filter, Function<K, String> cursorOf) {
+        if (limit <= 0) {
+            return new Page<>(new ArrayList<>(), null);
+        }
+        List<V> items = index.getPage(after, limit + 1, filter);
+        String nextCursor = null;
+        if (items.size() > limit) {
+            items.remove(limit);
+            nextCursor = cursorOf.apply(index.getKey(items.get(limit - 1)));
+        }
+        return new Page<>(items, nextCursor);
+    }
+
+    /**
+     * Puts some hotels, e.g. search results, in a list order.
+     * A few hotels are sorted by their indexed keys; when they are a large part of all hotels,
+     * the ordered index is read and filtered instead, which needs no sort.
+     *
+     * @param hotels the hotels to order
+     * @param order the order
+     * @return a new list with the hotels, in order
+     */
+    public List<Hotel> sortHotels(List<Hotel> hotels, HotelSortOrder order) {
+        OrderedIndex<HotelSortOrder.Key, Hotel> index = hotelsInOrder.get(order);
+        int count = hotels.size();
+        // Sorting costs about count * log2(count) comparisons, reading the index one step per hotel
+        if ((long) count * (32 - Integer.numberOfLeadingZeros(count)) >= index.size()) {
+            Set<Hotel> wanted = Collections.newSetFromMap(new IdentityHashMap<>());
+            wanted.addAll(hotels);
+            List<Hotel> sorted = index.getAll(wanted);
+            if (sorted.size() == wanted.size()) {
+                return sorted;
+            }
+        }
+        List<Hotel> sorted = new ArrayList<>(hotels);
+        sorted.sort(Comparator.comparing(hotel -> {
+            HotelSortOrder.Key key = index.getKey(hotel);
+            return key != null ? key : new HotelSortOrder.Key(hotel);
+        }, order.getComparator()));
+        return sorted;
+    }
+
+    /**
+     * Suggests hotels while a search is typed: hotels with a word in their name or city
+     * starting with the text, best rated first, then alphabetically.
+     *
+     * @param prefix the text typed so far
+     * @param limit the maximum number of suggestions
+     * @return the suggested hotels
+     */
+    public List<Hotel> suggestHotels(String prefix, int limit) {
+        return hotelSuggestions.suggest(prefix, limit);
+    }
+
+    /**
+     * Gets the k best hotels of a city: highest rating first, then the cheapest room in service,
+     * then by name. Only the k best are kept while the candidates are read (see SearchAndSort.topK),
+     * so nothing is fully sorted. Without a city, the rating index is read only as far as the
+     * rating of the k-th hotel, and just those hotels are compared by price.
+     *
+     * @param location the city, or null or blank for all hotels
+     * @param k the number of hotels wanted
+     * @return up to k hotels, best first
+     */
+    public List<Hotel> topHotels(String location, int k) {
+        if (k <= 0) {
+            return new ArrayList<>();
+        }
+
+        List<Hotel> candidates;
+        if (location != null && !location.isBlank()) {
+            candidates = hotelsByLocation.get(normalizeSearchKey(location));
+        } else {
+            // The k-th best rating is the lowest one any of the top k can have
+            OrderedIndex<HotelSortOrder.Key, Hotel> index = hotelsInOrder.get(HotelSortOrder.RATING);
+            candidates = index.getPage(null, k, null);
+            if (candidates.size() == k) {
+                int lowestRating = candidates.get(k - 1).getRating();
+                List<Hotel> more = candidates;
+                while (more.size() == k && more.get(k - 1).getRating() == lowestRating) {
+                    // Read on until the rating drops, so every hotel with the lowest rating is compared by price
+                    more = index.getPage(index.getKey(more.get(k - 1)), k, null);
+                    for (Hotel hotel : more) {
+                        if (hotel.getRating() != lowestRating) {
+                            break;
+                        }
+                        candidates.add(hotel);
+                    }
+                }
+            }
+        }
+
+        // Cheapest prices are looked up once per hotel, and only for hotels with tied ratings
+        Map<Hotel, Double> cheapestPrices = new IdentityHashMap<>();
+        Comparator<Hotel> ranking = Comparator
+            .comparingInt((Hotel hotel) -> -hotel.getRating())
+            .thenComparingDouble(hotel -> cheapestPrices.computeIfAbsent(hotel, this::getCheapestPrice))
+            .thenComparing(Hotel::getName, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+            .thenComparing(Hotel::getId);
+        return SearchAndSort.topK(candidates, k, ranking);
+    }
+
+    /**
+     * Gets the price of the cheapest room of a hotel that is in service.
+     */
+    private double getCheapestPrice(Hotel hotel) {
+        double cheapest = Double.POSITIVE_INFINITY; // Hotels without rooms come last
+        for (Room room : roomsByHotel.get(hotel.getId())) {
+            if (room.isAvailable()) {
+                cheapest = Math.min(cheapest, room.getPricePerNight());
+            }
+        }
+        return cheapest;
+    }
+
     public void updateHotel(Hotel hotel) {
         for (int i = 0; i < hotels.size(); i++) {
             if (hotels.get(i).getId().equals(hotel.getId())) {
-                hotels.set(i, hotel);
+                Hotel existing = hotels.set(i, hotel);
+                if (existing != hotel) {
+                    forgetRankedCandidates(hotelsByLocation.getKey(existing));
+                    hotelsByLocation.remove(existing);
+                    hotelTextIndex.remove(existing);
+                    hotelSuggestions.remove(existing);
+                    hotelSpellingIndex.remove(existing);
+                    for (OrderedIndex<HotelSortOrder.Key, Hotel> index : hotelsInOrder.values()) {
+                        index.remove(existing);
+                    }
+                }
                 // Update the cache with the new hotel
                 hotelCache.put(hotel.getId(), hotel);
-                saveHotels();
+                // The location may have changed
+                indexHotel(hotel);
+                persist(Journal.encodeHotel(hotel));
                 return;
             }
         }
     }
 
     public void deleteHotel(String id) {
-        hotels.removeIf(hotel -> hotel.getId().equals(id));
+        boolean removed = hotels.removeIf(hotel -> hotel.getId().equals(id));
         // Remove from cache when deleted
-        hotelCache.remove(id);
-        saveHotels();
+        Hotel hotel = hotelCache.remove(id);
+        if (hotel != null) {
+            forgetRankedCandidates(hotelsByLocation.getKey(hotel));
+            hotelsByLocation.remove(hotel);
+            hotelTextIndex.remove(hotel);
+            hotelSuggestions.remove(hotel);
+            hotelSpellingIndex.remove(hotel);
+            for (OrderedIndex<HotelSortOrder.Key, Hotel> index : hotelsInOrder.values()) {
+                index.remove(hotel);
+            }
+        }
+        if (removed) {
+            persist(Journal.encodeDelete(EntityType.HOTEL, id));
+        }
     }
 
     // CRUD operations for Room
     @Log(level = LogLevel.INFO)
     public Room createRoom(String hotelId, String roomNumber, String type, double pricePerNight) {
         try {
-            return Log.Decorator.withLogging(
-                LogLevel.INFO,
+            return withLogging(
                 () -> {
                     String id = UUID.randomUUID().toString();
                     Room room = new Room(id, roomNumber, type, pricePerNight);
@@ -450,11 +875,12 @@ public class DataManager {
                         hotel.addRoom(room);
                     }
                     rooms.add(room);
-                    saveRooms();
+                    roomsById.put(id, room);
+                    indexRoom(room);
+                    persist(Journal.encodeRoom(room));
                     return room;
                 },
                 "createRoom",
-                "DataManager",
                 Map.of("hotelId", hotelId, "roomNumber", roomNumber, "type", type, "pricePerNight", pricePerNight)
             );
         } catch (Exception e) {
@@ -463,49 +889,72 @@ public class DataManager {
     }
 
     public Room getRoomById(String id) {
-        for (Room room : rooms) {
-            if (room.getId().equals(id)) {
-                return room;
-            }
-        }
-        return null;
+        return roomsById.get(id);
     }
 
     public List<Room> getRoomsByHotel(String hotelId) {
-        List<Room> hotelRooms = new ArrayList<>();
-        for (Room room : rooms) {
-            if (room.getHotel() != null && room.getHotel().getId().equals(hotelId)) {
-                hotelRooms.add(room);
-            }
-        }
-        return hotelRooms;
+        return roomsByHotel.get(hotelId);
+    }
+
+    /**
+     * Gets the k cheapest rooms in service of a type, e.g. the ten cheapest suites.
+     * Equal prices are ranked by hotel rating (best first). Only the k cheapest rooms
+     * are kept while the rooms of the type are read, so nothing is fully sorted.
+     *
+     * @param roomType the room type, or null or blank for all types
+     * @param k the number of rooms wanted
+     * @return up to k rooms, cheapest first
+     */
+    public List<Room> cheapestRooms(String roomType, int k) {
+        List<Room> candidates = roomType != null && !roomType.isBlank()
+            ? roomsByType.get(normalizeSearchKey(roomType)) : rooms;
+        Comparator<Room> ranking = Comparator
+            .comparingDouble(Room::getPricePerNight)
+            .thenComparingInt(room -> room.getHotel() != null ? -room.getHotel().getRating() : 0)
+            .thenComparing(Room::getId);
+        return SearchAndSort.topK(() -> candidates.stream().filter(Room::isAvailable).iterator(), k, ranking);
     }
 
     public void updateRoom(Room room) {
-        for (int i = 0; i < rooms.size(); i++) {
-            if (rooms.get(i).getId().equals(room.getId())) {
-                rooms.set(i, room);
-                saveRooms();
-                return;
-            }
+        Room existing = roomsById.get(room.getId());
+        if (existing == null) {
+            return;
+        }
+        // Callers usually pass the stored object itself, then the list is already up to date
+        if (existing != room) {
+            rooms.set(rooms.indexOf(existing), room);
+            roomsById.put(room.getId(), room);
+            forgetRankedCandidates(existing);
+            roomsByHotel.remove(existing);
+            roomsByType.remove(existing);
         }
+        // The room may have moved to another hotel, its bookings move with it
+        indexRoom(room);
+        for (Booking booking : bookingsByRoom.get(room.getId())) {
+            indexBooking(booking);
+        }
+        persist(Journal.encodeRoom(room));
     }
 
     public void deleteRoom(String id) {
-        Room room = getRoomById(id);
+        Room room = roomsById.remove(id);
         if (room != null && room.getHotel() != null) {
             room.getHotel().removeRoom(room);
         }
-        rooms.removeIf(r -> r.getId().equals(id));
-        saveRooms();
+        if (room != null) {
+            rooms.remove(room);
+            forgetRankedCandidates(room);
+            roomsByHotel.remove(room);
+            roomsByType.remove(room);
+            persist(Journal.encodeDelete(EntityType.ROOM, id));
+        }
     }
 
     // CRUD operations for Booking
     @Log(level = LogLevel.INFO)
     public Booking createBooking(String userId, String roomId, java.time.LocalDate checkInDate, java.time.LocalDate checkOutDate) {
         try {
-            return Log.Decorator.withLogging(
-                LogLevel.INFO,
+            return withLogging(
                 () -> {
                     String id = UUID.randomUUID().toString();
                     User user = getUserById(userId);
@@ -514,6 +963,16 @@ public class DataManager {
                     if (user == null || room == null) {
                         return null;
                     }
+                    if (checkInDate == null || checkOutDate == null || !checkOutDate.isAfter(checkInDate)) {
+                        System.err.println("Booking rejected: check-out must be after check-in");
+                        return null;
+                    }
+                    // A room can only be booked once per night
+                    if (!isRoomAvailable(roomId, checkInDate, checkOutDate)) {
+                        System.err.println("Booking rejected: room " + roomId + " is already booked between "
+                            + checkInDate + " and " + checkOutDate);
+                        return null;
+                    }
 
                     // Calculate total price based on number of nights
                     long nights = ChronoUnit.DAYS.between(checkInDate, checkOutDate);
@@ -523,8 +982,9 @@ public class DataManager {
                     user.addBooking(booking);
                     room.addBooking(booking);
                     bookings.add(booking);
-                    saveBookings();
-                    saveBookingToFile(booking);
+                    bookingsById.put(id, booking);
+                    indexBooking(booking);
+                    saveBooking(booking);
 
                     // Check if we need to clear caches based on the number of bookings
                     // If there are more than 15 bookings in the system, clear caches using LRU strategy
@@ -533,7 +993,6 @@ public class DataManager {
                     return booking;
                 },
                 "createBooking",
-                "DataManager",
                 Map.of("userId", userId, "roomId", roomId, "checkInDate", checkInDate, "checkOutDate", checkOutDate)
             );
         } catch (Exception e) {
@@ -542,211 +1001,1676 @@ public class DataManager {
     }
 
     public Booking getBookingById(String id) {
-        for (Booking booking : bookings) {
-            if (booking.getId().equals(id)) {
-                return booking;
-            }
-        }
-        return null;
+        return bookingsById.get(id);
     }
 
     public List<Booking> getAllBookings() {
         return new ArrayList<>(bookings);
     }
 
-    public List<Booking> getBookingsByUser(String userId) {
-        List<Booking> userBookings = new ArrayList<>();
-        for (Booking booking : bookings) {
-            if (booking.getUser() != null && booking.getUser().getId().equals(userId)) {
-                userBookings.add(booking);
-            }
-        }
-        return userBookings;
+    /**
+     * Gets the bookings without copying them, e.g. for AnalyticsEngine.
+     * The view cannot be changed through and shows later changes, so it must be read
+     * before bookings are created or deleted.
+     *
+     * @return a read-only view of all bookings
+     */
+    public List<Booking> getBookingsView() {
+        return Collections.unmodifiableList(bookings);
     }
 
-    public List<Booking> getBookingsByRoom(String roomId) {
-        List<Booking> roomBookings = new ArrayList<>();
-        for (Booking booking : bookings) {
-            if (booking.getRoom() != null && booking.getRoom().getId().equals(roomId)) {
-                roomBookings.add(booking);
+    /**
+     * Reads one page of bookings ordered by check-in date. Unlike getAllBookings this copies only the page,
+     * and a cursor stays valid when bookings are added or removed before it.
+     *
+     * @param afterCursor the next cursor of the previous page, or null for the first page
+     * @param limit the maximum number of bookings on the page
+     * @param filter keeps only the bookings it accepts, or null to keep all
+     * @return the page
+     */
+    public Page<Booking> pageBookings(String afterCursor, int limit, Predicate<Booking> filter) {
+        BookingKey after = null;
+        if (afterCursor != null) {
+            after = BookingKey.fromCursor(afterCursor);
+            if (after == null) {
+                System.err.println("Invalid booking cursor, reading from the first page");
             }
         }
-        return roomBookings;
+        ensureBookingsInOrder();
+        return page(bookingsInOrder, after, afterCursor, limit, filter, BookingKey::toCursor);
     }
 
-    public void updateBooking(Booking booking) {
-        for (int i = 0; i < bookings.size(); i++) {
-            if (bookings.get(i).getId().equals(booking.getId())) {
-                bookings.set(i, booking);
-                saveBookings();
-                return;
-            }
-        }
+    /**
+     * Finds the bookings that match a query, ordered by check-in date.
+     * The candidates come from the index that the query narrows down most: bookings by user,
+     * by hotel, by the hotels of a city, by the rooms of a type, by the users and rooms containing
+     * the text, or by check-in date.
+     * The other filters are checked lazily, as the stream is read, so taking the first few
+     * matches does not look at every candidate.
+     *
+     * @param query the filters
+     * @return the matching bookings; read it before bookings are changed
+     */
+    public Stream<Booking> queryBookings(BookingQuery query) {
+        return planBookingQuery(query, null, Double.MAX_VALUE);
     }
 
-    public void deleteBooking(String id) {
-        Booking booking = getBookingById(id);
-        if (booking != null) {
-            if (booking.getUser() != null) {
-                booking.getUser().removeBooking(booking);
-            }
-            if (booking.getRoom() != null) {
-                booking.getRoom().removeBooking(booking);
+    /**
+     * Reads one page of the bookings that match a query, ordered by check-in date.
+     * Uses the same cursors as pageBookings.
+     *
+     * @param query the filters
+     * @param afterCursor the next cursor of the previous page, or null for the first page
+     * @param limit the maximum number of bookings on the page; 0 or less gives an empty page
+     * @return the page
+     */
+    public Page<Booking> pageBookings(BookingQuery query, String afterCursor, int limit) {
+        if (limit <= 0) {
+            return new Page<>(new ArrayList<>(), null);
+        }
+        BookingKey after = null;
+        if (afterCursor != null) {
+            after = BookingKey.fromCursor(afterCursor);
+            if (after == null) {
+                System.err.println("Invalid booking cursor, reading from the first page");
             }
         }
-        bookings.removeIf(b -> b.getId().equals(id));
-        saveBookings();
-
-        // Check if we need to clear caches based on the number of bookings
-        // This is less likely to be needed when deleting, but included for consistency
-        // Use LFU strategy to keep frequently used entries
-        Memoizer.checkAndClearCaches(bookings.size(), 15, Memoizer.CacheStrategy.LFU, 25);
+        // One booking more than the limit tells whether there is a next page
+        List<Booking> items = planBookingQuery(query, after, limit + 1.0).limit(limit + 1L).collect(Collectors.toCollection(ArrayList::new));
+        String nextCursor = null;
+        if (items.size() > limit) {
+            items.remove(limit);
+            nextCursor = new BookingKey(items.get(limit - 1)).toCursor();
+        }
+        return new Page<>(items, nextCursor);
     }
 
-    // File I/O operations
-    private void loadData() {
-        loadUsers();
-        loadHotels();
-        loadRooms();
-        loadBookings();
+    /**
+     * The indexes a booking query can read its candidates from.
+     */
+    enum BookingSource { ALL, USER, HOTEL, LOCATION, ROOM_TYPE, TEXT, CHECK_IN }
 
-        // Restore relationships
-        restoreRelationships();
+    /**
+     * Gets the index the last booking query read its candidates from, to see what the planner chose.
+     *
+     * @return the source, or null if no booking query was run yet
+     */
+    BookingSource getLastBookingSource() {
+        return lastBookingSource;
     }
 
-    private void restoreRelationships() {
-        // Restore Hotel-Room relationships
-        for (Room room : rooms) {
-            for (Hotel hotel : hotels) {
-                if (room.getHotel() != null && room.getHotel().getId().equals(hotel.getId())) {
-                    room.setHotel(hotel);
-                    if (!hotel.getRooms().contains(room)) {
-                        hotel.getRooms().add(room);
-                    }
-                    break;
+    /**
+     * Chooses the cheapest way to read the bookings of a query and streams them in check-in order,
+     * starting after a key, with the remaining filters applied.
+     * The number of bookings wanted matters: a few matches are found sooner by reading in order
+     * than by sorting every booking of an index.
+     */
+    private Stream<Booking> planBookingQuery(BookingQuery query, BookingKey after, double wanted) {
+        ensureBookingsInOrder();
+        String userId = query.getUserId();
+        String hotelId = query.getHotelId();
+        String location = query.getLocation() != null && !query.getLocation().isBlank()
+            ? normalizeSearchKey(query.getLocation()) : null;
+        String type = query.getRoomType() != null && !query.getRoomType().isBlank()
+            ? normalizeSearchKey(query.getRoomType()) : null;
+        LocalDate from = query.getCheckInFrom();
+        LocalDate to = query.getCheckInTo();
+
+        // The text is looked for once per user and room instead of once per booking
+        Set<User> usersWithText = null;
+        Set<Room> roomsWithText = null;
+        if (query.getText() != null && !query.getText().isBlank()) {
+            String text = normalizeSearchKey(query.getText());
+            usersWithText = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (User user : users) {
+                if (containsText(user.getUsername(), text) || containsText(user.getFullName(), text)) {
+                    usersWithText.add(user);
                 }
             }
-        }
-
-        // Restore User-Booking and Room-Booking relationships
-        for (Booking booking : bookings) {
-            // Restore the User-Booking relationship
-            for (User user : users) {
-                if (booking.getUser() != null && booking.getUser().getId().equals(user.getId())) {
-                    booking.setUser(user);
-                    if (!user.getBookings().contains(booking)) {
-                        user.getBookings().add(booking);
-                    }
-                    break;
+            Set<Hotel> hotelsWithText = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Hotel hotel : hotels) {
+                if (containsText(hotel.getName(), text) || containsText(hotel.getLocation(), text)) {
+                    hotelsWithText.add(hotel);
                 }
             }
-
-            // Restore Room-Booking relationship
+            // Room numbers and types repeat across hotels, so each distinct one is checked once
+            Map<String, Boolean> roomFieldsWithText = new HashMap<>();
+            roomsWithText = Collections.newSetFromMap(new IdentityHashMap<>());
             for (Room room : rooms) {
-                if (booking.getRoom() != null && booking.getRoom().getId().equals(room.getId())) {
-                    booking.setRoom(room);
-                    if (!room.getBookings().contains(booking)) {
-                        room.getBookings().add(booking);
-                    }
-                    break;
+                if ((room.getHotel() != null && hotelsWithText.contains(room.getHotel()))
+                        || (room.getRoomNumber() != null && roomFieldsWithText.computeIfAbsent(room.getRoomNumber(), field -> containsText(field, text)))
+                        || (room.getType() != null && roomFieldsWithText.computeIfAbsent(room.getType(), field -> containsText(field, text)))) {
+                    roomsWithText.add(room);
                 }
             }
         }
-    }
 
-    private void loadUsers() {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(USERS_FILE))) {
-            users = (List<User>) ois.readObject();
-        } catch (FileNotFoundException e) {
-            users = new ArrayList<>();
-        } catch (IOException | ClassNotFoundException e) {
-            e.printStackTrace();
-            users = new ArrayList<>();
+        // Count the candidates of every by-key index that applies; counting does not copy any bookings
+        Map<BookingSource, Double> counts = new EnumMap<>(BookingSource.class);
+        if (userId != null) {
+            counts.put(BookingSource.USER, (double) bookingsByUser.count(userId));
         }
-    }
-
-    private void saveUsers() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(USERS_FILE))) {
-            oos.writeObject(users);
-        } catch (IOException e) {
-            e.printStackTrace();
+        if (hotelId != null) {
+            counts.put(BookingSource.HOTEL, (double) bookingsByHotel.count(hotelId));
+        }
+        if (location != null) {
+            double count = 0;
+            for (Hotel hotel : hotelsByLocation.get(location)) {
+                count += bookingsByHotel.count(hotel.getId());
+            }
+            counts.put(BookingSource.LOCATION, count);
+        }
+        if (type != null) {
+            double count = 0;
+            for (Room room : roomsByType.get(type)) {
+                count += bookingsByRoom.count(room.getId());
+            }
+            counts.put(BookingSource.ROOM_TYPE, count);
+        }
+        if (usersWithText != null) {
+            // A booking of a matching user in a matching room is counted twice, which only overestimates
+            double count = 0;
+            for (User user : usersWithText) {
+                count += bookingsByUser.count(user.getId());
+            }
+            for (Room room : roomsWithText) {
+                count += bookingsByRoom.count(room.getId());
+            }
+            counts.put(BookingSource.TEXT, count);
         }
-    }
 
-    @SuppressWarnings("unchecked")
-    private void loadHotels() {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(HOTELS_FILE))) {
-            List<Hotel> loadedHotels = (List<Hotel>) ois.readObject();
-
-            // Filter out duplicate hotels (hotels with the same name)
-            hotels = new ArrayList<>();
-            for (Hotel hotel : loadedHotels) {
-                boolean isDuplicate = false;
-                for (Hotel existingHotel : hotels) {
-                    if (existingHotel.getName().equals(hotel.getName())) {
-                        isDuplicate = true;
-                        break;
-                    }
+        // A by-key index costs a sort of all its bookings. Reading in check-in order can stop once
+        // enough bookings match, after about wanted / (share of bookings matching) steps.
+        double total = Math.max(1, bookingsInOrder.size());
+        double fewestByKey = total;
+        BookingSource source = BookingSource.ALL;
+        double cheapest = Double.MAX_VALUE;
+        for (Map.Entry<BookingSource, Double> count : counts.entrySet()) {
+            double cost = count.getValue() * (1 + Math.log(count.getValue() + 1) / Math.log(2));
+            fewestByKey = Math.min(fewestByKey, count.getValue());
+            if (cost < cheapest) {
+                source = count.getKey();
+                cheapest = cost;
+            }
+        }
+        double checkIns = from != null || to != null ? estimateCheckIns(from, to) : total;
+        if (checkIns < total) {
+            double cost = Math.min(checkIns, wanted * total / Math.max(1, fewestByKey));
+            if (cost < cheapest) {
+                source = BookingSource.CHECK_IN;
+                cheapest = cost;
+            }
+        }
+        if (Math.min(total, wanted * total / Math.max(1, Math.min(fewestByKey, checkIns))) < cheapest) {
+            source = BookingSource.ALL;
+        }
+        lastBookingSource = source;
+
+        // Bookings from the by-key indexes are few and sorted here; the other sources are already in order
+        Stream<Booking> candidates;
+        List<Booking> unordered = null;
+        switch (source) {
+            case USER:
+                unordered = bookingsByUser.get(userId);
+                break;
+            case HOTEL:
+                unordered = bookingsByHotel.get(hotelId);
+                break;
+            case LOCATION:
+                unordered = new ArrayList<>();
+                for (Hotel hotel : hotelsByLocation.get(location)) {
+                    unordered.addAll(bookingsByHotel.get(hotel.getId()));
                 }
-                if (!isDuplicate) {
-                    hotels.add(hotel);
-                    // Add to cache when loaded
-                    hotelCache.put(hotel.getId(), hotel);
+                break;
+            case ROOM_TYPE:
+                unordered = new ArrayList<>();
+                for (Room room : roomsByType.get(type)) {
+                    unordered.addAll(bookingsByRoom.get(room.getId()));
                 }
+                break;
+            case TEXT:
+                Set<Booking> withText = Collections.newSetFromMap(new IdentityHashMap<>());
+                for (User user : usersWithText) {
+                    withText.addAll(bookingsByUser.get(user.getId()));
+                }
+                for (Room room : roomsWithText) {
+                    withText.addAll(bookingsByRoom.get(room.getId()));
+                }
+                unordered = new ArrayList<>(withText);
+                break;
+            default:
+                break;
+        }
+        if (unordered != null) {
+            unordered.sort(Comparator.comparing(bookingsInOrder::getKey, BookingKey.ORDER));
+            candidates = unordered.stream();
+            if (after != null) {
+                candidates = candidates.filter(booking -> BookingKey.ORDER.compare(bookingsInOrder.getKey(booking), after) > 0);
             }
-
-            System.out.println("Loaded " + hotels.size() + " unique hotels (filtered from " + loadedHotels.size() + " total)");
-        } catch (FileNotFoundException e) {
-            hotels = new ArrayList<>();
-        } catch (IOException | ClassNotFoundException e) {
-            e.printStackTrace();
-            hotels = new ArrayList<>();
+        } else if (source == BookingSource.CHECK_IN) {
+            // An empty id comes before every other id of the same day
+            BookingKey start = from != null ? new BookingKey(from.toEpochDay(), "") : null;
+            if (after != null && (start == null || BookingKey.ORDER.compare(after, start) > 0)) {
+                start = after;
+            }
+            BookingKey end = to != null ? new BookingKey(to.toEpochDay() + 1, "") : null;
+            candidates = bookingsInOrder.getRange(start, end).stream();
+        } else {
+            candidates = bookingsInOrder.getRange(after, null).stream();
         }
+        return candidates.filter(bookingFilter(query, location, type, usersWithText, roomsWithText));
     }
 
-    private void saveHotels() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(HOTELS_FILE))) {
-            oos.writeObject(hotels);
-        } catch (IOException e) {
-            e.printStackTrace();
+    /**
+     * Estimates the number of bookings with a check-in date in a range,
+     * assuming check-ins are spread evenly between the first and the last one.
+     */
+    private double estimateCheckIns(LocalDate from, LocalDate to) {
+        BookingKey first = bookingsInOrder.getFirstKey();
+        BookingKey last = bookingsInOrder.getLastKey();
+        if (first == null) {
+            return 0;
         }
-    }
-
-    @SuppressWarnings("unchecked")
-    private void loadRooms() {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(ROOMS_FILE))) {
-            rooms = (List<Room>) ois.readObject();
-        } catch (FileNotFoundException e) {
-            rooms = new ArrayList<>();
-        } catch (IOException | ClassNotFoundException e) {
-            e.printStackTrace();
-            rooms = new ArrayList<>();
+        double start = Math.max(first.checkInDay, from != null ? from.toEpochDay() : first.checkInDay);
+        double end = Math.min(last.checkInDay, to != null ? to.toEpochDay() : last.checkInDay);
+        if (end < start) {
+            return 0;
         }
+        return bookingsInOrder.size() * (end - start + 1) / ((double) last.checkInDay - first.checkInDay + 1);
     }
 
-    private void saveRooms() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(ROOMS_FILE))) {
-            oos.writeObject(rooms);
-        } catch (IOException e) {
-            e.printStackTrace();
+    /**
+     * Builds the check of every filter of a query, cheapest first.
+     * The text filter is given as the users and rooms that contain the text, or null without text.
+     */
+    private Predicate<Booking> bookingFilter(BookingQuery query, String location, String type,
+                                             Set<User> usersWithText, Set<Room> roomsWithText) {
+        Predicate<Booking> filter = booking -> true;
+        Boolean confirmed = query.getConfirmed();
+        if (confirmed != null) {
+            filter = filter.and(booking -> booking.isConfirmed() == confirmed);
+        }
+        if (query.getCheckInFrom() != null) {
+            LocalDate from = query.getCheckInFrom();
+            filter = filter.and(booking -> booking.getCheckInDate() != null && !booking.getCheckInDate().isBefore(from));
         }
+        if (query.getCheckInTo() != null) {
+            LocalDate to = query.getCheckInTo();
+            filter = filter.and(booking -> booking.getCheckInDate() != null && !booking.getCheckInDate().isAfter(to));
+        }
+        if (query.getUserId() != null) {
+            String userId = query.getUserId();
+            filter = filter.and(booking -> userId.equals(bookingsByUser.getKey(booking)));
+        }
+        if (query.getHotelId() != null) {
+            String hotelId = query.getHotelId();
+            filter = filter.and(booking -> hotelId.equals(bookingsByHotel.getKey(booking)));
+        }
+        if (location != null) {
+            filter = filter.and(booking -> booking.getRoom() != null && booking.getRoom().getHotel() != null
+                && location.equals(hotelsByLocation.getKey(booking.getRoom().getHotel())));
+        }
+        if (type != null) {
+            filter = filter.and(booking -> booking.getRoom() != null && type.equals(roomsByType.getKey(booking.getRoom())));
+        }
+        if (usersWithText != null) {
+            filter = filter.and(booking -> usersWithText.contains(booking.getUser()) || roomsWithText.contains(booking.getRoom()));
+        }
+        return filter;
     }
 
     /**
-     * Generates a random 5-digit number for booking file names.
-     * @return a random 5-digit number as a string
+     * Checks whether a value contains a lower-case text, ignoring case.
      */
-    private String generateRandomNumbers() {
-        Random random = new Random();
-        // Generate a random number between 10000 and 99999 (5 digits)
-        int randomNum = 10000 + random.nextInt(90000);
-        return String.valueOf(randomNum);
+    private static boolean containsText(String value, String text) {
+        return value != null && value.toLowerCase(Locale.ROOT).contains(text);
     }
 
     /**
-     * Generates a booking file name in the format "resert(username)(5 random numbers).txt".
-     * @param username the username of the booking user
-     * @return the generated file name
+     * Builds the bookings-in-order index on first use; until then it is not kept up to date,
+     * which keeps it out of startup.
+     */
+    private void ensureBookingsInOrder() {
+        if (!bookingsInOrderBuilt) {
+            for (Booking booking : bookings) {
+                bookingsInOrder.put(booking);
+            }
+            bookingsInOrderBuilt = true;
+        }
+    }
+
+    /**
+     * Gets the totals of all bookings: revenue, room-nights sold and confirmed and pending bookings.
+     * Read from totals kept up to date with every booking change, without looking at any booking.
+     *
+     * @return the totals
+     */
+    public BookingTotals getBookingTotals() {
+        return getBookingAggregates().getTotals();
+    }
+
+    /**
+     * Gets the totals of the bookings of one hotel, without looking at any booking.
+     *
+     * @param hotelId the id of the hotel
+     * @return the totals, all zero if the hotel has no bookings
+     */
+    public BookingTotals getBookingTotals(String hotelId) {
+        return getBookingAggregates().getTotals(hotelId);
+    }
+
+    /**
+     * Gets the totals of a range of days: the revenue and room-nights of the nights in the range,
+     * and the confirmed and pending bookings checking in during it. Costs one step per day with bookings.
+     *
+     * @param hotelId the id of the hotel, or null for all hotels
+     * @param from the first day
+     * @param to the day after the last day
+     * @return the totals
+     */
+    public BookingTotals getBookingTotals(String hotelId, LocalDate from, LocalDate to) {
+        return getBookingAggregates().getTotals(hotelId, from.toEpochDay(), to.toEpochDay());
+    }
+
+    /**
+     * Gets the totals of one month, e.g. the revenue of a hotel in March.
+     *
+     * @param hotelId the id of the hotel, or null for all hotels
+     * @param month the month
+     * @return the totals
+     */
+    public BookingTotals getBookingTotals(String hotelId, YearMonth month) {
+        return getBookingTotals(hotelId, month.atDay(1), month.plusMonths(1).atDay(1));
+    }
+
+    /**
+     * Gets the share of the room-nights of a range of days that are booked.
+     *
+     * @param hotelId the id of the hotel, or null for all hotels
+     * @param from the first night
+     * @param to the day after the last night
+     * @return the booked room-nights divided by the rooms times the nights, 0 without rooms
+     */
+    public double getOccupancyRate(String hotelId, LocalDate from, LocalDate to) {
+        long nights = ChronoUnit.DAYS.between(from, to);
+        int roomCount = hotelId != null ? roomsByHotel.count(hotelId) : roomsByHotel.size();
+        if (nights <= 0 || roomCount == 0) {
+            return 0;
+        }
+        return getBookingTotals(hotelId, from, to).getRoomNights() / ((double) roomCount * nights);
+    }
+
+    /**
+     * Gets the bookings stored column by column, for scans such as the revenue of a range of days
+     * by city and room type. Built on first use, then kept up to date with every booking change.
+     *
+     * @return the booking columns; read them only, they change with the bookings
+     */
+    public BookingColumns getBookingColumns() {
+        if (!bookingColumnsBuilt) {
+            for (Booking booking : bookings) {
+                bookingColumns.put(booking);
+            }
+            bookingColumnsBuilt = true;
+        }
+        return bookingColumns;
+    }
+
+    /**
+     * Builds the booking totals on first use; until then they are not kept up to date, which keeps them out of startup.
+     */
+    private BookingAggregates getBookingAggregates() {
+        if (!bookingAggregatesBuilt) {
+            for (Booking booking : bookings) {
+                bookingAggregates.put(booking);
+            }
+            bookingAggregatesBuilt = true;
+        }
+        return bookingAggregates;
+    }
+
+    public List<Booking> getBookingsByUser(String userId) {
+        return bookingsByUser.get(userId);
+    }
+
+    public List<Booking> getBookingsByRoom(String roomId) {
+        return bookingsByRoom.get(roomId);
+    }
+
+    /**
+     * Checks whether a room has no booking for any night between check-in and check-out.
+     * The check-out day itself is free, so a stay may start on the day another one ends.
+     *
+     * @param roomId the id of the room
+     * @param checkInDate the first night of the stay
+     * @param checkOutDate the day the stay ends
+     * @return true if none of the nights is booked
+     */
+    public boolean isRoomAvailable(String roomId, LocalDate checkInDate, LocalDate checkOutDate) {
+        IntervalIndex<Booking> booked = availabilityByRoom.get(roomId);
+        if (booked == null) {
+            return true;
+        }
+        long start = checkInDate.toEpochDay();
+        long end = checkOutDate.toEpochDay();
+        // Stays within the horizon are answered from the calendar bits, others from the intervals
+        rollOccupancyHorizon();
+        OccupancyCalendar calendar = occupancyByRoom.get(roomId);
+        if (calendar != null && calendar.covers(start, end)) {
+            return calendar.isFree(start, end);
+        }
+        return !booked.overlaps(start, end);
+    }
+
+    /**
+     * Counts the booked nights of a room between two dates, e.g. for occupancy reports.
+     * Nights booked by more than one (overlapping) booking are counted once.
+     *
+     * @param roomId the id of the room
+     * @param from the first night to count
+     * @param to the day after the last night to count
+     * @return the number of booked nights
+     */
+    public int countOccupiedNights(String roomId, LocalDate from, LocalDate to) {
+        IntervalIndex<Booking> booked = availabilityByRoom.get(roomId);
+        long start = from.toEpochDay();
+        long end = to.toEpochDay();
+        if (booked == null || end <= start) {
+            return 0;
+        }
+        rollOccupancyHorizon();
+        OccupancyCalendar calendar = occupancyByRoom.get(roomId);
+        if (calendar == null || !calendar.covers(start, end)) {
+            // Outside the horizon, build a calendar for just the requested range
+            calendar = new OccupancyCalendar(start, (int) Math.min(Integer.MAX_VALUE, end - start));
+            for (Booking booking : booked.findOverlapping(start, end)) {
+                long[] nights = booked.getInterval(booking);
+                calendar.mark(nights[0], nights[1]);
+            }
+        }
+        return calendar.countOccupied(start, end);
+    }
+
+    /**
+     * Gets the bookings of a room that share at least one night with the given stay.
+     *
+     * @param roomId the id of the room
+     * @param checkInDate the first night of the stay
+     * @param checkOutDate the day the stay ends
+     * @return the overlapping bookings ordered by check-in, empty if the room is free
+     */
+    public List<Booking> getOverlappingBookings(String roomId, LocalDate checkInDate, LocalDate checkOutDate) {
+        IntervalIndex<Booking> booked = availabilityByRoom.get(roomId);
+        if (booked == null) {
+            return new ArrayList<>();
+        }
+        return booked.findOverlapping(checkInDate.toEpochDay(), checkOutDate.toEpochDay());
+    }
+
+    /**
+     * Finds the earliest check-in date, on or after a given date, at which a room is free for a number of nights.
+     *
+     * @param roomId the id of the room
+     * @param from the earliest wanted check-in date
+     * @param nights the number of nights of the stay
+     * @return the first possible check-in date
+     */
+    public LocalDate findNextAvailableDate(String roomId, LocalDate from, long nights) {
+        IntervalIndex<Booking> booked = availabilityByRoom.get(roomId);
+        if (booked == null) {
+            return from;
+        }
+        return LocalDate.ofEpochDay(booked.nextFree(from.toEpochDay(), Math.max(1, nights)));
+    }
+
+    /**
+     * Gets the bookings of all rooms of a hotel.
+     *
+     * @param hotelId the id of the hotel
+     * @return the bookings, empty if there are none
+     */
+    public List<Booking> getBookingsByHotel(String hotelId) {
+        return bookingsByHotel.get(hotelId);
+    }
+
+    /**
+     * Searches the rooms of all hotels that match the criteria and are free for the whole stay.
+     * Candidates come from the hotels-by-location or rooms-by-type index, whichever filter is set,
+     * already in ranking order, so the search stops as soon as the requested page is full.
+     * Each candidate's dates are checked against its interval index.
+     * Rooms are ranked by hotel rating (best first), then by price (cheapest first).
+     *
+     * @param criteria the filters of the search
+     * @param page the number of the page, starting at 0
+     * @param pageSize the number of rooms per page
+     * @return the rooms of the requested page, empty if there are no more
+     */
+    public List<Room> searchAvailableRooms(RoomSearchCriteria criteria, int page, int pageSize) {
+        int wanted = (int) Math.min(Integer.MAX_VALUE, ((long) page + 1) * pageSize);
+        List<Room> matches = findAvailableRooms(criteria, wanted);
+        int from = (int) Math.min((long) page * pageSize, matches.size());
+        return new ArrayList<>(matches.subList(from, matches.size()));
+    }
+
+    /**
+     * Counts the rooms that match the criteria and are free for the whole stay.
+     *
+     * @param criteria the filters of the search
+     * @return the number of matching rooms over all pages
+     */
+    public int countAvailableRooms(RoomSearchCriteria criteria) {
+        return findAvailableRooms(criteria, Integer.MAX_VALUE).size();
+    }
+
+    /**
+     * Gets up to limit rooms that match the criteria, in ranking order.
+     */
+    private List<Room> findAvailableRooms(RoomSearchCriteria criteria, int limit) {
+        String location = criteria.getLocation() != null && !criteria.getLocation().isBlank()
+            ? normalizeSearchKey(criteria.getLocation()) : null;
+        String type = criteria.getRoomType() != null && !criteria.getRoomType().isBlank()
+            ? normalizeSearchKey(criteria.getRoomType()) : null;
+
+        List<Room> matches = new ArrayList<>();
+        for (Room room : getRankedCandidates(location, type)) {
+            if (matches.size() >= limit) {
+                break;
+            }
+            // Candidates are sorted by rating, so no later room can reach the minimum either
+            if (room.getHotel().getRating() < criteria.getMinRating()) {
+                break;
+            }
+            if (!room.isAvailable()
+                    || room.getPricePerNight() < criteria.getMinPrice()
+                    || room.getPricePerNight() > criteria.getMaxPrice()) {
+                continue;
+            }
+            // The date check is the most expensive filter, so it runs last
+            if (criteria.hasDates() && !isRoomAvailable(room.getId(), criteria.getCheckInDate(), criteria.getCheckOutDate())) {
+                continue;
+            }
+            matches.add(room);
+        }
+        return matches;
+    }
+
+    /**
+     * Gets the rooms of a location and type in ranking order, building and caching the list on first use.
+     * A null location or type matches every location or type. Rooms without a hotel are left out.
+     */
+    private List<Room> getRankedCandidates(String location, String type) {
+        String key = rankedCandidatesKey(location) + (type != null ? type : "");
+        List<Room> ranked = rankedSearchCandidates.get(key);
+        if (ranked != null) {
+            return ranked;
+        }
+
+        // Start from the most selective index that applies
+        if (location != null) {
+            ranked = new ArrayList<>();
+            for (Hotel hotel : hotelsByLocation.get(location)) {
+                ranked.addAll(roomsByHotel.get(hotel.getId()));
+            }
+        } else if (type != null) {
+            ranked = roomsByType.get(type);
+        } else {
+            ranked = new ArrayList<>(rooms);
+        }
+        ranked.removeIf(room -> room.getHotel() == null || (type != null && !type.equals(roomsByType.getKey(room))));
+        ranked.sort(SEARCH_RANKING);
+
+        // Every distinct search text adds a list, so the cache is bounded
+        if (rankedSearchCandidates.size() >= MAX_RANKED_SEARCH_LISTS) {
+            rankedSearchCandidates.clear();
+        }
+        rankedSearchCandidates.put(key, ranked);
+        return ranked;
+    }
+
+    /**
+     * Gets the start of the keys of the ranked candidate lists of a location, null for the lists of every location.
+     */
+    private static String rankedCandidatesKey(String location) {
+        return (location != null ? location : "") + "\n";
+    }
+
+    /**
+     * Drops the ranked candidate lists that can hold a room of the given location: the lists of that
+     * location and the lists that are not limited to a location. The lists of other locations stay.
+     *
+     * @param location the normalized location, or null if the hotel has none
+     */
+    private void forgetRankedCandidates(String location) {
+        String everyLocation = rankedCandidatesKey(null);
+        String ofLocation = location != null ? rankedCandidatesKey(location) : null;
+        rankedSearchCandidates.keySet().removeIf(key -> key.startsWith(everyLocation)
+            || (ofLocation != null && key.startsWith(ofLocation)));
+    }
+
+    /**
+     * Drops the ranked candidate lists that can hold a room, going by the hotel it is indexed under.
+     */
+    private void forgetRankedCandidates(Room room) {
+        String hotelId = roomsByHotel.getKey(room);
+        Hotel hotel = hotelId != null ? hotelCache.get(hotelId) : null;
+        forgetRankedCandidates(hotel != null ? hotelsByLocation.getKey(hotel) : null);
+    }
+
+    public void updateBooking(Booking booking) {
+        Booking existing = bookingsById.get(booking.getId());
+        if (existing == null) {
+            return;
+        }
+        // Callers usually pass the stored object itself, then the list is already up to date
+        if (existing != booking) {
+            bookings.set(bookings.indexOf(existing), booking);
+            bookingsById.put(booking.getId(), booking);
+            unindexBooking(existing);
+        }
+        indexBooking(booking);
+        saveBooking(booking);
+    }
+
+    public void deleteBooking(String id) {
+        Booking booking = bookingsById.remove(id);
+        if (booking != null) {
+            if (booking.getUser() != null) {
+                booking.getUser().removeBooking(booking);
+            }
+            if (booking.getRoom() != null) {
+                booking.getRoom().removeBooking(booking);
+            }
+            bookings.remove(booking);
+            unindexBooking(booking);
+            if (transaction != null) {
+                // A null value marks the booking as deleted
+                transaction.bookings.put(id, null);
+            } else {
+                bookingStore.delete(id, writeBehind.getMode() == DurabilityMode.SYNC);
+            }
+        }
+
+        // Check if we need to clear caches based on the number of bookings
+        // This is less likely to be needed when deleting, but included for consistency
+        // Use LFU strategy to keep frequently used entries
+        Memoizer.checkAndClearCaches(bookings.size(), 15, Memoizer.CacheStrategy.LFU, 25);
+    }
+
+    // File I/O operations
+
+    /**
+     * Loads all data files.
+     * The snapshots and the booking segments do not depend on each other, so they are read
+     * and decoded concurrently on a small thread pool. The journal is replayed once users,
+     * hotels and rooms are loaded, and the entities are linked once everything is loaded.
+     */
+    private void loadData() {
+        long start = System.nanoTime();
+        loadTimings.clear();
+
+        ExecutorService loader = Executors.newFixedThreadPool(LOAD_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "data-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            CompletableFuture<Void> usersLoaded = CompletableFuture.runAsync(timed("users", this::loadUsers), loader);
+            CompletableFuture<Void> hotelsLoaded = CompletableFuture.runAsync(timed("hotels", this::loadHotels), loader);
+            CompletableFuture<Void> roomsLoaded = CompletableFuture.runAsync(timed("rooms", this::loadRooms), loader);
+            // The booking segments are parsed on the same pool
+            CompletableFuture<Void> bookingsLoaded = CompletableFuture.runAsync(timed("bookings", () -> loadBookings(loader)), loader);
+
+            // The journal changes users, hotels and rooms, so it waits for their snapshots
+            CompletableFuture.allOf(usersLoaded, hotelsLoaded, roomsLoaded).join();
+            timed("journal", this::replayJournal).run();
+            bookingsLoaded.join();
+        } catch (CompletionException e) {
+            // Report the failure of the loading task itself, e.g. an unreadable data file
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        } finally {
+            loader.shutdown();
+        }
+
+        // Restore relationships
+        timed("relink", () -> {
+            rebuildIndexes();
+            restoreRelationships();
+            // Bookings whose user or room no longer exists are not loaded
+            if (bookings.removeIf(booking -> booking.getUser() == null || booking.getRoom() == null)) {
+                bookingsById.values().removeIf(booking -> booking.getUser() == null || booking.getRoom() == null);
+            }
+            rebuildSecondaryIndexes();
+        }).run();
+        System.out.println("Loaded data in " + (System.nanoTime() - start) / 1_000_000 + " ms " + loadTimings);
+
+        // Drop superseded booking records once they clearly outnumber the live ones
+        int storedRecords = bookingStore.getRecordCount();
+        if (storedRecords >= BOOKING_COMPACTION_THRESHOLD && storedRecords > 2 * bookings.size()) {
+            compactBookings();
+        }
+
+        // Rewrite legacy files in the binary format once
+        if (migrationNeeded && checkpoint()) {
+            migrationNeeded = false;
+            System.out.println("Migrated data files to the binary format");
+        }
+    }
+
+    /**
+     * Wraps a startup phase so its duration is recorded in the load timings.
+     */
+    private Runnable timed(String phase, Runnable task) {
+        return () -> {
+            long start = System.nanoTime();
+            task.run();
+            loadTimings.put(phase, (System.nanoTime() - start) / 1_000_000);
+        };
+    }
+
+    /**
+     * Gets the duration of each phase of the last startup.
+     * @return milliseconds per phase (users, hotels, rooms, bookings, journal, relink)
+     */
+    public Map<String, Long> getLoadTimings() {
+        synchronized (loadTimings) {
+            return new LinkedHashMap<>(loadTimings);
+        }
+    }
+
+    /**
+     * Rebuilds the id indexes (and the hotel cache) from the loaded lists.
+     */
+    private void rebuildIndexes() {
+        usersById.clear();
+        for (User user : users) {
+            usersById.put(user.getId(), user);
+        }
+        rebuildUsernameIndex();
+        hotelCache.clear();
+        for (Hotel hotel : hotels) {
+            hotelCache.put(hotel.getId(), hotel);
+        }
+        roomsById.clear();
+        for (Room room : rooms) {
+            roomsById.put(room.getId(), room);
+        }
+        bookingsById.clear();
+        for (Booking booking : bookings) {
+            bookingsById.put(booking.getId(), booking);
+        }
+    }
+
+    /**
+     * Normalizes a username for the case-insensitive username index.
+     */
+    private static String normalizeUsername(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Adds a user to the username index and the username filter, or moves the user to its current name.
+     * If another user already has the same name, the first one is found by it (as with the former linear search);
+     * the others stay indexed under the name, so the next one is found once the first is deleted or renamed.
+     */
+    private void indexUsername(User user) {
+        usersInOrder.put(user);
+        if (user.getUsername() == null) {
+            usersByUsername.remove(user);
+            return;
+        }
+        String key = normalizeUsername(user.getUsername());
+        usersByUsername.put(key, user);
+        usernameFilter.add(key);
+        if (usernameFilter.getInsertions() > usernameFilter.getExpectedInsertions()) {
+            // Renames also add keys, so the filter is rebuilt from the index once it is full
+            rebuildUsernameIndex();
+        }
+    }
+
+    /**
+     * Removes a user from the username index; the index remembers the key the user was indexed under.
+     * The filter keeps the old name; it only answers "possibly taken" for it, which the index then corrects.
+     */
+    private void unindexUsername(User user) {
+        usersInOrder.remove(user);
+        usersByUsername.remove(user);
+    }
+
+    /**
+     * Rebuilds the username index and a filter sized for twice the current number of users.
+     */
+    private void rebuildUsernameIndex() {
+        usersByUsername.clear();
+        usersInOrder.clear();
+        usernameFilter = new BloomFilter(Math.max(MIN_USERNAME_FILTER_SIZE, users.size() * 2),
+                USERNAME_FILTER_FALSE_POSITIVE_RATE);
+        for (User user : users) {
+            usersInOrder.put(user);
+            if (user.getUsername() != null) {
+                String key = normalizeUsername(user.getUsername());
+                usersByUsername.put(key, user);
+                usernameFilter.add(key);
+            }
+        }
+    }
+
+    /**
+     * The check-in day and id of a booking, copied when it is indexed in the bookings-in-order index.
+     * A small object instead of a string key, as there is one per booking.
+     */
+    private static final class BookingKey {
+        private static final Comparator<BookingKey> ORDER =
+            Comparator.comparingLong((BookingKey key) -> key.checkInDay).thenComparing(key -> key.id);
+
+        private final long checkInDay; // Epoch day of the check-in date, Long.MIN_VALUE without a date
+        private final String id;
+
+        private BookingKey(Booking booking) {
+            this(booking.getCheckInDate() != null ? booking.getCheckInDate().toEpochDay() : Long.MIN_VALUE, booking.getId());
+        }
+
+        private BookingKey(long checkInDay, String id) {
+            this.checkInDay = checkInDay;
+            this.id = id;
+        }
+
+        private String toCursor() {
+            return checkInDay + String.valueOf(CURSOR_SEPARATOR) + id;
+        }
+
+        /**
+         * Reads a key written by toCursor, or returns null if the text is not a booking cursor.
+         */
+        private static BookingKey fromCursor(String cursor) {
+            int separator = cursor.indexOf(CURSOR_SEPARATOR);
+            if (separator < 0) {
+                return null;
+            }
+            try {
+                return new BookingKey(Long.parseLong(cursor.substring(0, separator)), cursor.substring(separator + 1));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Normalizes a location or room type for the search indexes.
+     */
+    private static String normalizeSearchKey(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Adds or moves a hotel in the hotels-by-location index and re-indexes its text.
+     */
+    private void indexHotel(Hotel hotel) {
+        // Both the old and the new location lose their lists, the rating may have changed too
+        forgetRankedCandidates(hotelsByLocation.getKey(hotel));
+        if (hotel.getLocation() != null) {
+            hotelsByLocation.put(normalizeSearchKey(hotel.getLocation()), hotel);
+        } else {
+            hotelsByLocation.remove(hotel);
+        }
+        forgetRankedCandidates(hotelsByLocation.getKey(hotel));
+        hotelTextIndex.put(hotel, hotel.getName(), hotel.getLocation(), hotel.getDescription());
+        hotelSuggestions.put(hotel, hotel.getRating(), Arrays.asList(hotel.getName(), hotel.getLocation()));
+        hotelSpellingIndex.put(hotel, hotel.getName(), hotel.getLocation());
+        // Moves the hotel if its name or rating changed
+        for (OrderedIndex<HotelSortOrder.Key, Hotel> index : hotelsInOrder.values()) {
+            index.put(hotel);
+        }
+    }
+
+    /**
+     * Adds or moves a room in the rooms-by-hotel and rooms-by-type indexes.
+     * Rooms without a hotel are not in the rooms-by-hotel index.
+     */
+    private void indexRoom(Room room) {
+        // The room may have moved from a hotel in one location to a hotel in another
+        forgetRankedCandidates(room);
+        if (room.getHotel() != null) {
+            roomsByHotel.put(room.getHotel().getId(), room);
+        } else {
+            roomsByHotel.remove(room);
+        }
+        forgetRankedCandidates(room);
+        if (room.getType() != null) {
+            roomsByType.put(normalizeSearchKey(room.getType()), room);
+        } else {
+            roomsByType.remove(room);
+        }
+    }
+
+    /**
+     * Adds or moves a booking in the by-user, by-room and by-hotel indexes.
+     */
+    private void indexBooking(Booking booking) {
+        // Moves the booking if its check-in date changed
+        if (bookingsInOrderBuilt) {
+            bookingsInOrder.put(booking);
+        }
+        // Takes out what the booking added before it changed and adds it again
+        if (bookingAggregatesBuilt) {
+            bookingAggregates.put(booking);
+        }
+        // Copies the booking's current values into its row
+        if (bookingColumnsBuilt) {
+            bookingColumns.put(booking);
+        }
+        if (booking.getUser() != null) {
+            bookingsByUser.put(booking.getUser().getId(), booking);
+        } else {
+            bookingsByUser.remove(booking);
+        }
+        Room room = booking.getRoom();
+        // Dates may have changed in place, so the booking is always re-added with its current nights
+        unindexAvailability(booking);
+        if (room != null) {
+            bookingsByRoom.put(room.getId(), booking);
+            if (booking.getCheckInDate() != null && booking.getCheckOutDate() != null) {
+                long start = booking.getCheckInDate().toEpochDay();
+                long end = booking.getCheckOutDate().toEpochDay();
+                availabilityByRoom.computeIfAbsent(room.getId(), k -> new IntervalIndex<>()).add(start, end, booking);
+                occupancyByRoom.computeIfAbsent(room.getId(), k -> new OccupancyCalendar(occupancyOrigin, OCCUPANCY_HORIZON_DAYS))
+                    .mark(start, end);
+            }
+        } else {
+            bookingsByRoom.remove(booking);
+        }
+        if (room != null && room.getHotel() != null) {
+            bookingsByHotel.put(room.getHotel().getId(), booking);
+        } else {
+            bookingsByHotel.remove(booking);
+        }
+    }
+
+    private void unindexBooking(Booking booking) {
+        unindexAvailability(booking);
+        bookingsInOrder.remove(booking);
+        bookingAggregates.remove(booking);
+        bookingColumns.remove(booking);
+        bookingsByUser.remove(booking);
+        bookingsByRoom.remove(booking);
+        bookingsByHotel.remove(booking);
+    }
+
+    /**
+     * Removes a booking from the availability index of the room it is currently indexed under.
+     */
+    private void unindexAvailability(Booking booking) {
+        String roomId = bookingsByRoom.getKey(booking);
+        IntervalIndex<Booking> booked = roomId != null ? availabilityByRoom.get(roomId) : null;
+        if (booked == null) {
+            return;
+        }
+        // The interval holds the nights the booking was indexed with, its dates may have changed since
+        long[] nights = booked.getInterval(booking);
+        if (nights == null) {
+            return;
+        }
+        booked.remove(booking);
+        if (booked.size() == 0) {
+            availabilityByRoom.remove(roomId);
+            occupancyByRoom.remove(roomId);
+            return;
+        }
+        OccupancyCalendar calendar = occupancyByRoom.get(roomId);
+        if (calendar != null) {
+            calendar.clear(nights[0], nights[1]);
+            // Overlapping bookings from older data may share some of the freed nights
+            for (Booking other : booked.findOverlapping(nights[0], nights[1])) {
+                long[] otherNights = booked.getInterval(other);
+                calendar.mark(otherNights[0], otherNights[1]);
+            }
+        }
+    }
+
+    /**
+     * Moves the occupancy horizon forward once it starts too far in the past,
+     * rebuilding every calendar from the interval indexes.
+     */
+    private void rollOccupancyHorizon() {
+        long today = LocalDate.now().toEpochDay();
+        if (today - occupancyOrigin <= OCCUPANCY_ROLL_DAYS) {
+            return;
+        }
+        occupancyOrigin = today;
+        occupancyByRoom.clear();
+        for (Map.Entry<String, IntervalIndex<Booking>> entry : availabilityByRoom.entrySet()) {
+            IntervalIndex<Booking> booked = entry.getValue();
+            OccupancyCalendar calendar = new OccupancyCalendar(occupancyOrigin, OCCUPANCY_HORIZON_DAYS);
+            for (Booking booking : booked.findOverlapping(occupancyOrigin, occupancyOrigin + OCCUPANCY_HORIZON_DAYS)) {
+                long[] nights = booked.getInterval(booking);
+                calendar.mark(nights[0], nights[1]);
+            }
+            occupancyByRoom.put(entry.getKey(), calendar);
+        }
+    }
+
+    /**
+     * Rebuilds the secondary indexes from the linked entities.
+     */
+    private void rebuildSecondaryIndexes() {
+        rankedSearchCandidates.clear();
+        hotelsByLocation.clear();
+        hotelTextIndex.clear();
+        hotelSuggestions.clear();
+        hotelSpellingIndex.clear();
+        for (OrderedIndex<HotelSortOrder.Key, Hotel> index : hotelsInOrder.values()) {
+            index.clear();
+        }
+        for (Hotel hotel : hotels) {
+            indexHotel(hotel);
+        }
+        roomsByHotel.clear();
+        roomsByType.clear();
+        for (Room room : rooms) {
+            indexRoom(room);
+        }
+        bookingsByUser.clear();
+        bookingsByRoom.clear();
+        bookingsByHotel.clear();
+        bookingsInOrder.clear();
+        bookingsInOrderBuilt = false;
+        bookingAggregates.clear();
+        bookingAggregatesBuilt = false;
+        bookingColumns.clear();
+        bookingColumnsBuilt = false;
+        availabilityByRoom.clear();
+        occupancyByRoom.clear();
+        occupancyOrigin = LocalDate.now().toEpochDay();
+        for (Booking booking : bookings) {
+            indexBooking(booking);
+        }
+    }
+
+    /**
+     * Checks that every user is indexed under its current username, and that the index holds no other users.
+     * When several users share a name (ignoring case), all of them are indexed under it.
+     */
+    private boolean verifyUsernameIndex() {
+        boolean consistent = true;
+        int named = 0;
+        for (User user : users) {
+            if (user.getUsername() == null) {
+                continue;
+            }
+            named++;
+            String key = normalizeUsername(user.getUsername());
+            if (!key.equals(usersByUsername.getKey(user)) || !usernameFilter.mightContain(key)) {
+                System.err.println("Username index does not find " + user.getUsername());
+                consistent = false;
+            }
+        }
+        if (usersByUsername.size() != named) {
+            System.err.println("Username index has " + usersByUsername.size() + " users instead of " + named);
+            consistent = false;
+        }
+        if (usersInOrder.size() != users.size()) {
+            System.err.println("Users-in-order index has " + usersInOrder.size() + " users instead of " + users.size());
+            consistent = false;
+        }
+        return consistent;
+    }
+
+    /**
+     * Checks that every room and booking is indexed under the key of its current relationships.
+     */
+    private boolean verifySecondaryIndexes() {
+        boolean consistent = true;
+        for (Hotel hotel : hotels) {
+            String location = hotel.getLocation() != null ? normalizeSearchKey(hotel.getLocation()) : null;
+            if (!Objects.equals(hotelsByLocation.getKey(hotel), location)) {
+                System.err.println("Hotels-by-location index is wrong for hotel " + hotel.getId());
+                consistent = false;
+            }
+        }
+        if (hotelsByLocation.size() > hotels.size()) {
+            System.err.println("Hotels-by-location index holds hotels that no longer exist");
+            consistent = false;
+        }
+        if (hotelTextIndex.size() != hotels.size() || hotelSuggestions.size() != hotels.size()
+            || hotelSpellingIndex.size() != hotels.size()) {
+            System.err.println("Hotel text indexes have " + hotelTextIndex.size() + ", " + hotelSuggestions.size()
+                + " and " + hotelSpellingIndex.size() + " hotels instead of " + hotels.size());
+            consistent = false;
+        }
+        for (Map.Entry<HotelSortOrder, OrderedIndex<HotelSortOrder.Key, Hotel>> ordered : hotelsInOrder.entrySet()) {
+            OrderedIndex<HotelSortOrder.Key, Hotel> index = ordered.getValue();
+            if (index.size() != hotels.size()) {
+                System.err.println("Hotels-by-" + ordered.getKey() + " index has " + index.size() + " hotels instead of " + hotels.size());
+                consistent = false;
+            }
+            for (Hotel hotel : hotels) {
+                if (!new HotelSortOrder.Key(hotel).equals(index.getKey(hotel))) {
+                    System.err.println("Hotels-by-" + ordered.getKey() + " index is wrong for hotel " + hotel.getId());
+                    consistent = false;
+                }
+            }
+        }
+        int indexedRooms = 0;
+        for (Room room : rooms) {
+            String hotelId = room.getHotel() != null ? room.getHotel().getId() : null;
+            if (hotelId != null) {
+                indexedRooms++;
+            }
+            String type = room.getType() != null ? normalizeSearchKey(room.getType()) : null;
+            if (!Objects.equals(roomsByHotel.getKey(room), hotelId) || !Objects.equals(roomsByType.getKey(room), type)) {
+                System.err.println("Room indexes are wrong for room " + room.getId());
+                consistent = false;
+            }
+        }
+        if (roomsByHotel.size() != indexedRooms || roomsByType.size() > rooms.size()) {
+            System.err.println("Room indexes hold " + roomsByHotel.size() + " rooms by hotel instead of " + indexedRooms
+                + " and " + roomsByType.size() + " rooms by type");
+            consistent = false;
+        }
+        for (Booking booking : bookings) {
+            Room room = booking.getRoom();
+            String hotelId = room != null && room.getHotel() != null ? room.getHotel().getId() : null;
+            if (!Objects.equals(bookingsByUser.getKey(booking), booking.getUser() != null ? booking.getUser().getId() : null)
+                    || !Objects.equals(bookingsByRoom.getKey(booking), room != null ? room.getId() : null)
+                    || !Objects.equals(bookingsByHotel.getKey(booking), hotelId)) {
+                System.err.println("Booking indexes are wrong for booking " + booking.getId());
+                consistent = false;
+            }
+        }
+        int booked = 0;
+        for (Map.Entry<String, IntervalIndex<Booking>> entry : availabilityByRoom.entrySet()) {
+            IntervalIndex<Booking> index = entry.getValue();
+            booked += index.size();
+            // The calendar must hold exactly the nights of the intervals within the horizon
+            OccupancyCalendar calendar = occupancyByRoom.get(entry.getKey());
+            OccupancyCalendar expected = new OccupancyCalendar(occupancyOrigin, OCCUPANCY_HORIZON_DAYS);
+            List<Booking> inHorizon = index.findOverlapping(occupancyOrigin, occupancyOrigin + OCCUPANCY_HORIZON_DAYS);
+            for (Booking booking : inHorizon) {
+                long[] nights = index.getInterval(booking);
+                expected.mark(nights[0], nights[1]);
+            }
+            int occupied = expected.countOccupied(occupancyOrigin, occupancyOrigin + OCCUPANCY_HORIZON_DAYS);
+            boolean matches = calendar == null ? occupied == 0
+                : calendar.countOccupied(occupancyOrigin, occupancyOrigin + OCCUPANCY_HORIZON_DAYS) == occupied;
+            for (Booking booking : inHorizon) {
+                long[] nights = index.getInterval(booking);
+                matches &= calendar != null && calendar.countOccupied(nights[0], nights[1]) == expected.countOccupied(nights[0], nights[1]);
+            }
+            if (!matches) {
+                System.err.println("Occupancy calendar is wrong for room " + entry.getKey());
+                consistent = false;
+            }
+        }
+        if (occupancyByRoom.size() > availabilityByRoom.size()) {
+            System.err.println("Occupancy calendars exist for rooms without bookings");
+            consistent = false;
+        }
+        if (bookingsByUser.size() > bookings.size() || bookingsByRoom.size() > bookings.size()
+                || bookingsByHotel.size() > bookings.size() || booked > bookings.size()) {
+            System.err.println("Booking indexes hold bookings that no longer exist");
+            consistent = false;
+        }
+        if (bookingsInOrderBuilt && bookingsInOrder.size() != bookings.size()) {
+            System.err.println("Bookings-in-order index has " + bookingsInOrder.size() + " bookings instead of " + bookings.size());
+            consistent = false;
+        }
+        if (bookingAggregatesBuilt) {
+            // The maintained totals must equal totals computed again from every booking
+            BookingAggregates recomputed = new BookingAggregates();
+            for (Booking booking : bookings) {
+                recomputed.put(booking);
+            }
+            if (!bookingAggregates.sameTotals(recomputed)) {
+                System.err.println("Booking totals " + bookingAggregates.getTotals() + " differ from recomputed totals "
+                    + recomputed.getTotals());
+                consistent = false;
+            }
+        }
+        if (bookingColumnsBuilt) {
+            if (bookingColumns.size() != bookings.size()) {
+                System.err.println("Booking columns have " + bookingColumns.size() + " rows instead of " + bookings.size());
+                consistent = false;
+            }
+            for (Booking booking : bookings) {
+                if (!bookingColumns.matches(booking)) {
+                    System.err.println("Booking columns are out of date for booking " + booking.getId());
+                    consistent = false;
+                    break;
+                }
+            }
+        }
+        return consistent;
+    }
+
+    /**
+     * Checks that every id index holds exactly the entities of its list.
+     * Mismatches are printed to the error output.
+     *
+     * @return true if all indexes match their lists
+     */
+    public boolean verifyIndexes() {
+        boolean consistent = verifyIndex("users", users, usersById, User::getId);
+        consistent &= verifyUsernameIndex();
+        consistent &= verifyIndex("hotels", hotels, hotelCache, Hotel::getId);
+        consistent &= verifyIndex("rooms", rooms, roomsById, Room::getId);
+        consistent &= verifyIndex("bookings", bookings, bookingsById, Booking::getId);
+        consistent &= verifySecondaryIndexes();
+        return consistent;
+    }
+
+    private <T> boolean verifyIndex(String name, List<T> list, Map<String, T> index, Function<T, String> idOf) {
+        boolean consistent = true;
+        for (T entity : list) {
+            if (index.get(idOf.apply(entity)) != entity) {
+                System.err.println("Index of " + name + " does not point to " + idOf.apply(entity));
+                consistent = false;
+            }
+        }
+        if (index.size() != list.size()) {
+            System.err.println("Index of " + name + " has " + index.size() + " entries for " + list.size() + " entities");
+            consistent = false;
+        }
+        return consistent;
+    }
+
+    /**
+     * Links the loaded entities to each other using the foreign keys stored with them
+     * (Room.hotelId, Booking.userId, Booking.roomId).
+     * The one-to-many lists are derived from those keys and rebuilt from scratch.
+     */
+    private void restoreRelationships() {
+        for (Hotel hotel : hotels) {
+            hotel.getRooms().clear();
+        }
+        for (User user : users) {
+            user.getBookings().clear();
+        }
+        for (Room room : rooms) {
+            room.getBookings().clear();
+        }
+
+        // The id indexes are the hash side of the joins, so each link is a single lookup
+        // Restore Hotel-Room relationships
+        // The lists were cleared above and every room is visited once, so no contains check is needed
+        for (Room room : rooms) {
+            String hotelId = room.getHotelId();
+            Hotel hotel = hotelId != null ? hotelCache.get(hotelId) : null;
+            room.setHotel(hotel);
+            if (hotel != null) {
+                hotel.getRooms().add(room);
+            } else {
+                // Keep the id of a hotel that is missing
+                room.setHotelId(hotelId);
+            }
+        }
+
+        // Restore User-Booking and Room-Booking relationships
+        for (Booking booking : bookings) {
+            User user = booking.getUserId() != null ? usersById.get(booking.getUserId()) : null;
+            if (user != null) {
+                booking.setUser(user);
+                user.getBookings().add(booking);
+            }
+
+            Room room = booking.getRoomId() != null ? roomsById.get(booking.getRoomId()) : null;
+            if (room != null) {
+                booking.setRoom(room);
+                room.getBookings().add(booking);
+            }
+        }
+    }
+
+    /**
+     * Applies the changes recorded in the journal on top of the loaded snapshots.
+     * Each record is resolved through the id maps, and each list is rebuilt once at the end,
+     * so replaying costs O(entities + records) instead of a list scan per record.
+     */
+    private void replayJournal() {
+        usersById.clear();
+        for (User user : users) {
+            usersById.putIfAbsent(user.getId(), user);
+        }
+        roomsById.clear();
+        for (Room room : rooms) {
+            roomsById.putIfAbsent(room.getId(), room);
+        }
+        // hotelCache already holds the loaded hotels
+        // Ids of the replayed entities in the order of their first record, for the entities new to the lists
+        Set<String> replayedUsers = new LinkedHashSet<>();
+        Set<String> replayedHotels = new LinkedHashSet<>();
+        Set<String> replayedRooms = new LinkedHashSet<>();
+
+        int replayed = journal.replay(new Journal.Handler() {
+            @Override
+            public void onUser(User user) {
+                usersById.put(user.getId(), user);
+                replayedUsers.add(user.getId());
+            }
+
+            @Override
+            public void onHotel(Hotel hotel) {
+                hotelCache.put(hotel.getId(), hotel);
+                replayedHotels.add(hotel.getId());
+            }
+
+            @Override
+            public void onRoom(Room room) {
+                // The room carries its hotel id; it is linked in restoreRelationships
+                roomsById.put(room.getId(), room);
+                replayedRooms.add(room.getId());
+            }
+
+            @Override
+            public void onDelete(EntityType type, String id) {
+                switch (type) {
+                    case USER:
+                        usersById.remove(id);
+                        break;
+                    case HOTEL:
+                        hotelCache.remove(id);
+                        break;
+                    case ROOM:
+                        roomsById.remove(id);
+                        break;
+                }
+            }
+        });
+
+        if (replayed > 0) {
+            users = replayedList(users, usersById, replayedUsers, User::getId);
+            hotels = replayedList(hotels, hotelCache, replayedHotels, Hotel::getId);
+            rooms = replayedList(rooms, roomsById, replayedRooms, Room::getId);
+            System.out.println("Replayed " + replayed + " journal records");
+        }
+        checkpointIfNeeded();
+    }
+
+    /**
+     * Builds a list after a journal replay: the loaded entities in their order, each replaced by its latest state
+     * and left out if it was deleted, followed by the entities the journal added.
+     *
+     * @param loaded the entities of the snapshot
+     * @param byId the latest state of every entity by id
+     * @param replayedIds the ids the journal has records for, in the order of their first record
+     * @param idOf gets the id of an entity
+     * @return the new list
+     */
+    private static <T> List<T> replayedList(List<T> loaded, Map<String, T> byId, Set<String> replayedIds, Function<T, String> idOf) {
+        List<T> result = new ArrayList<>(loaded.size() + replayedIds.size());
+        Set<String> added = new HashSet<>(loaded.size() + replayedIds.size());
+        for (T entity : loaded) {
+            String id = idOf.apply(entity);
+            T current = byId.get(id);
+            if (current != null && added.add(id)) {
+                result.add(current);
+            }
+        }
+        for (String id : replayedIds) {
+            T current = byId.get(id);
+            if (current != null && added.add(id)) {
+                result.add(current);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Changes made inside {@link #inTransaction(Consumer)}, persisted together at commit.
+     */
+    private static class Transaction {
+        // Journal records by entity key; a later change of the same entity replaces the earlier one
+        private final Map<String, Journal.Record> records = new LinkedHashMap<>();
+        // Changed bookings by id, null for a deleted booking
+        private final Map<String, Booking> bookings = new LinkedHashMap<>();
+        // Depth of nested inTransaction calls
+        private int depth;
+    }
+
+    /**
+     * Runs several changes as one batch.
+     * The changes are applied in memory right away, but nothing is written until the work returns:
+     * then all journal records are written together and the changed bookings are appended in one batch.
+     * The per-call logging of createHotel, createRoom and createBooking is skipped inside a transaction.
+     * Nested calls join the outer transaction. There is no rollback: if the work throws,
+     * the changes made so far are still persisted and the exception is rethrown.
+     *
+     * @param work the changes to make, receives this data manager
+     */
+    public void inTransaction(Consumer<DataManager> work) {
+        if (transaction == null) {
+            transaction = new Transaction();
+        }
+        transaction.depth++;
+        try {
+            work.accept(this);
+        } finally {
+            if (--transaction.depth == 0) {
+                Transaction committed = transaction;
+                transaction = null;
+                commit(committed);
+            }
+        }
+    }
+
+    /**
+     * Persists the changes collected by a transaction.
+     * Large transactions are saved with a checkpoint; if it fails, their records are journaled instead.
+     */
+    private void commit(Transaction committed) {
+        boolean sync = writeBehind.getMode() == DurabilityMode.SYNC;
+        // A snapshot is cheaper than journaling this many records
+        boolean snapshotTaken = journal.getRecordCount() + writeBehind.getPendingCount() + committed.records.size() >= CHECKPOINT_THRESHOLD
+                && checkpoint();
+        // Without a snapshot the changes go to the journal; if the journal cannot take them either, a checkpoint tries again
+        if (!snapshotTaken && !writeBehind.submitAll(committed.records.values())) {
+            checkpoint();
+        }
+
+        List<Booking> changed = new ArrayList<>();
+        for (Map.Entry<String, Booking> entry : committed.bookings.entrySet()) {
+            if (entry.getValue() == null) {
+                bookingStore.delete(entry.getKey(), sync);
+            } else {
+                changed.add(entry.getValue());
+            }
+        }
+        bookingStore.append(changed, sync);
+    }
+
+    /**
+     * Persists one change of a user, hotel or room.
+     * Outside of a transaction the record goes to the journal right away.
+     * If the journal cannot be written, the change is saved with a checkpoint instead.
+     */
+    private void persist(Journal.Record record) {
+        if (transaction != null) {
+            transaction.records.put(record.getKey(), record);
+            return;
+        }
+        if (writeBehind.submit(record)) {
+            checkpointIfNeeded();
+        } else {
+            checkpoint();
+        }
+    }
+
+    /**
+     * Runs a DataManager method through the logging decorator, or directly inside a transaction.
+     */
+    private <T> T withLogging(Callable<T> body, String methodName, Map<String, Object> args) throws Exception {
+        if (transaction != null) {
+            return body.call();
+        }
+        return Log.Decorator.withLogging(LogLevel.INFO, body, methodName, "DataManager", args);
+    }
+
+    /**
+     * Writes full snapshots of users, hotels and rooms once the journal has grown
+     * past the threshold, then empties the journal.
+     */
+    private void checkpointIfNeeded() {
+        if (journal.getRecordCount() + writeBehind.getPendingCount() >= CHECKPOINT_THRESHOLD) {
+            checkpoint();
+        }
+    }
+
+    /**
+     * Writes full snapshots of users, hotels and rooms and empties the journal.
+     * The journal is only emptied once every snapshot is on disk; if one of them cannot be written,
+     * the journal keeps the changes and the next checkpoint tries again.
+     * Replaying a journal on top of a newer snapshot is harmless, so a crash between
+     * the two steps does not lose data.
+     *
+     * @return true if the snapshots were written and the journal emptied
+     */
+    public boolean checkpoint() {
+        // Queued records are covered by the snapshot, but flush them so none lands after the truncation
+        writeBehind.flush();
+        try {
+            saveUsers();
+            saveHotels();
+            saveRooms();
+        } catch (IOException e) {
+            System.err.println("Checkpoint failed, the journal is kept: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+        journal.truncate();
+        return true;
+    }
+
+    /**
+     * Changes when journal records are written to disk.
+     * Records queued under the previous mode are flushed first.
+     *
+     * @param mode the new durability mode
+     */
+    public void setDurabilityMode(DurabilityMode mode) {
+        if (mode == writeBehind.getMode()) {
+            return;
+        }
+        closeWriteBehind();
+        writeBehind = new WriteBehindQueue(journal, mode, FLUSH_BATCH_SIZE, FLUSH_INTERVAL_MILLIS);
+    }
+
+    public DurabilityMode getDurabilityMode() {
+        return writeBehind.getMode();
+    }
+
+    /**
+     * Writes all queued changes to disk and stops the background writer.
+     * Call this when the application exits.
+     */
+    public void close() {
+        closeWriteBehind();
+        bookingStore.close();
+    }
+
+    /**
+     * Flushes and stops the write-behind queue.
+     * Changes the journal could not take are saved with a checkpoint instead of being dropped with the queue.
+     */
+    private void closeWriteBehind() {
+        writeBehind.close();
+        if (writeBehind.getPendingCount() > 0) {
+            checkpoint();
+        }
+    }
+
+    /**
+     * Reads one snapshot file.
+     */
+    private interface SnapshotReader<T> {
+        List<T> read(File file) throws IOException;
+    }
+
+    /**
+     * Reads a snapshot file in the binary format, falling back to the legacy
+     * Java serialization format. Legacy files are rewritten after loading.
+     *
+     * A file that exists but cannot be read stops the startup: loading it as empty would
+     * add the sample data and overwrite the file at the next checkpoint.
+     *
+     * @param fileName the snapshot file
+     * @param reader reads the binary format
+     * @return the loaded entities, or an empty list if the file does not exist
+     * @throws UncheckedIOException if the file exists but cannot be read
+     */
+    private <T> List<T> readSnapshot(String fileName, SnapshotReader<T> reader) {
+        File file = dataFile(fileName);
+        if (!file.exists()) {
+            return new ArrayList<>();
+        }
+        try {
+            if (EntityCodec.isSnapshot(file)) {
+                return reader.read(file);
+            }
+            System.out.println("Reading legacy data file: " + fileName);
+            migrationNeeded = true;
+            return new ArrayList<>(EntityCodec.<T>readLegacy(file));
+        } catch (IOException e) {
+            System.err.println("Data file " + file.getPath() + " cannot be read; restore it from a backup or remove it to start without it");
+            throw new UncheckedIOException("Cannot read data file " + file.getPath(), e);
+        }
+    }
+
+    private void loadUsers() {
+        users = readSnapshot(USERS_FILE, EntityCodec::readUsers);
+    }
+
+    private void saveUsers() throws IOException {
+        EntityCodec.writeUsers(dataFile(USERS_FILE), users);
+    }
+
+    private void loadHotels() {
+        List<Hotel> loadedHotels = readSnapshot(HOTELS_FILE, EntityCodec::readHotels);
+
+        // Filter out duplicate hotels (hotels with the same name)
+        hotels = new ArrayList<>(loadedHotels.size());
+        Set<String> names = new HashSet<>(loadedHotels.size() * 2);
+        for (Hotel hotel : loadedHotels) {
+            // add returns false when a hotel with this name was already loaded
+            if (names.add(hotel.getName())) {
+                hotels.add(hotel);
+                // Add to cache when loaded
+                hotelCache.put(hotel.getId(), hotel);
+            }
+        }
+
+        if (!loadedHotels.isEmpty()) {
+            System.out.println("Loaded " + hotels.size() + " unique hotels (filtered from " + loadedHotels.size() + " total)");
+        }
+    }
+
+    private void saveHotels() throws IOException {
+        EntityCodec.writeHotels(dataFile(HOTELS_FILE), hotels);
+    }
+
+    private void loadRooms() {
+        rooms = readSnapshot(ROOMS_FILE, EntityCodec::readRooms);
+    }
+
+    private void saveRooms() throws IOException {
+        EntityCodec.writeRooms(dataFile(ROOMS_FILE), rooms);
+    }
+
+    /**
+     * Generates a random 5-digit number for booking file names.
+     * @return a random 5-digit number as a string
+     */
+    private String generateRandomNumbers() {
+        Random random = new Random();
+        // Generate a random number between 10000 and 99999 (5 digits)
+        int randomNum = 10000 + random.nextInt(90000);
+        return String.valueOf(randomNum);
+    }
+
+    /**
+     * Generates a booking file name in the format "resert(username)(5 random numbers).txt".
+     * @param username the username of the booking user
+     * @return the generated file name
      */
     private String generateBookingFileName(String username) {
         return BOOKINGS_PREFIX + username + generateRandomNumbers() + ".txt";
@@ -756,7 +2680,7 @@ public class DataManager {
      * Ensures the bookings folder exists.
      */
     private void ensureBookingsFolderExists() {
-        File folder = new File(BOOKINGS_FOLDER);
+        File folder = dataFile(BOOKINGS_FOLDER);
         if (!folder.exists()) {
             boolean created = folder.mkdir();
             if (!created) {
@@ -766,19 +2690,41 @@ public class DataManager {
     }
 
     /**
-     * Loads bookings from .txt files in the bookings folder.
+     * Loads bookings from the booking store, parsing the segments on the given executor.
+     * The first time, bookings saved as .txt files by older versions are imported into the store.
+     * The store's index remembers the import, so receipts of bookings deleted since are not imported again
+     * when the store becomes empty. A store that already holds bookings is only marked.
+     */
+    private void loadBookings(Executor executor) {
+        boolean legacyImported = bookingStore.isLegacyImported();
+        if (!legacyImported && bookingStore.isEmpty()) {
+            importLegacyBookings();
+        }
+        bookings = bookingStore.load(executor);
+        if (!legacyImported) {
+            bookingStore.markLegacyImported();
+        }
+
+        // Check if we need to clear caches based on the number of bookings after loading
+        // Use TIME_BASED strategy to clear oldest entries when loading bookings
+        Memoizer.checkAndClearCaches(bookings.size(), 15, Memoizer.CacheStrategy.TIME_BASED, 40);
+    }
+
+    /**
+     * Imports the bookings stored as .txt files in the bookings folder into the booking store.
+     * The .txt files are left in place.
      */
-    private void loadBookings() {
-        bookings = new ArrayList<>();
+    private void importLegacyBookings() {
         ensureBookingsFolderExists();
 
-        File folder = new File(BOOKINGS_FOLDER);
+        File folder = dataFile(BOOKINGS_FOLDER);
         File[] files = folder.listFiles((dir, name) -> name.startsWith(BOOKINGS_PREFIX) && name.endsWith(".txt"));
 
-        if (files == null) {
+        if (files == null || files.length == 0) {
             return;
         }
 
+        List<Booking> imported = new ArrayList<>();
         for (File file : files) {
             try {
                 List<String> lines = Files.readAllLines(file.toPath());
@@ -786,44 +2732,119 @@ public class DataManager {
                     String id = lines.get(0).split(": ")[1];
                     String userId = lines.get(1).split(": ")[1];
                     String roomId = lines.get(2).split(": ")[1];
-                    String checkInDateStr = lines.get(3).split(": ")[1];
-                    String checkOutDateStr = lines.get(4).split(": ")[1];
+                    java.time.LocalDate checkInDate = java.time.LocalDate.parse(lines.get(3).split(": ")[1]);
+                    java.time.LocalDate checkOutDate = java.time.LocalDate.parse(lines.get(4).split(": ")[1]);
+
+                    // The user and room are linked by id in restoreRelationships
+                    Booking booking = new Booking(id, null, null, checkInDate, checkOutDate);
+                    booking.setUserId(userId);
+                    booking.setRoomId(roomId);
+                    booking.setTotalPrice(Double.parseDouble(lines.get(5).split(": ")[1]));
+                    imported.add(booking);
+                }
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Error reading booking file: " + file.getName());
+                e.printStackTrace();
+            }
+        }
 
-                    User user = getUserById(userId);
-                    Room room = getRoomById(roomId);
+        bookingStore.append(imported, true);
+        System.out.println("Imported " + imported.size() + " bookings from " + files.length + " booking files");
+    }
 
-                    if (user != null && room != null) {
-                        java.time.LocalDate checkInDate = java.time.LocalDate.parse(checkInDateStr);
-                        java.time.LocalDate checkOutDate = java.time.LocalDate.parse(checkOutDateStr);
+    /**
+     * Writes the current state of one created or changed booking to the booking store.
+     * Only this booking is written; it replaces the earlier record with the same id.
+     * @param booking the booking to save
+     */
+    private void saveBooking(Booking booking) {
+        if (transaction != null) {
+            transaction.bookings.put(booking.getId(), booking);
+            return;
+        }
+        bookingStore.append(booking, writeBehind.getMode() == DurabilityMode.SYNC);
+    }
 
-                        Booking booking = new Booking(id, user, room, checkInDate, checkOutDate);
-                        bookings.add(booking);
-                    }
+    /**
+     * Compacts the booking storage once:
+     * rewrites the booking store with one record per current booking and removes
+     * duplicate .txt booking files (several files for the same booking id), keeping the newest one.
+     *
+     * @return the number of records and files removed
+     */
+    public int compactBookings() {
+        int removedRecords = bookingStore.compact(bookings);
+        int removedFiles = deduplicateBookingFiles();
+        System.out.println("Compacted bookings: removed " + removedRecords + " records and " + removedFiles + " duplicate files");
+        return removedRecords + removedFiles;
+    }
+
+    /**
+     * Removes .txt booking files that describe the same booking as a newer file.
+     * @return the number of deleted files
+     */
+    private int deduplicateBookingFiles() {
+        File folder = dataFile(BOOKINGS_FOLDER);
+        File[] files = folder.listFiles((dir, name) -> name.startsWith(BOOKINGS_PREFIX) && name.endsWith(".txt"));
+
+        if (files == null) {
+            return 0;
+        }
+
+        // Newest file per booking id
+        Map<String, File> newest = new HashMap<>();
+        List<File> duplicates = new ArrayList<>();
+        for (File file : files) {
+            String id;
+            try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+                String firstLine = reader.readLine();
+                if (firstLine == null || !firstLine.contains(": ")) {
+                    continue;
                 }
-            } catch (IOException | ArrayIndexOutOfBoundsException e) {
+                id = firstLine.split(": ")[1];
+            } catch (IOException e) {
                 System.err.println("Error reading booking file: " + file.getName());
-                e.printStackTrace();
+                continue;
+            }
+
+            File kept = newest.get(id);
+            if (kept == null) {
+                newest.put(id, file);
+            } else if (file.lastModified() > kept.lastModified()) {
+                duplicates.add(kept);
+                newest.put(id, file);
+            } else {
+                duplicates.add(file);
             }
         }
 
-        // Check if we need to clear caches based on the number of bookings after loading
-        // Use TIME_BASED strategy to clear oldest entries when loading bookings
-        Memoizer.checkAndClearCaches(bookings.size(), 15, Memoizer.CacheStrategy.TIME_BASED, 40);
+        int deleted = 0;
+        for (File file : duplicates) {
+            if (file.delete()) {
+                deleted++;
+            } else {
+                System.out.println("Failed to delete booking file: " + file.getName());
+            }
+        }
+        return deleted;
     }
 
     /**
-     * Saves a booking to a .txt file.
-     * @param booking the booking to save
+     * Exports a human-readable receipt of a booking as a .txt file in the bookings folder.
+     * Receipts are not read back; the booking store holds the bookings.
+     *
+     * @param booking the booking to export
+     * @return the written file, or null if the booking has no user or could not be written
      */
-    private void saveBookingToFile(Booking booking) {
+    public File exportBookingReceipt(Booking booking) {
         if (booking.getUser() == null) {
-            return;
+            return null;
         }
 
         ensureBookingsFolderExists();
 
         String fileName = generateBookingFileName(booking.getUser().getUsername());
-        File file = new File(BOOKINGS_FOLDER, fileName);
+        File file = new File(dataFile(BOOKINGS_FOLDER), fileName);
 
         try (PrintWriter writer = new PrintWriter(new FileWriter(file))) {
             writer.println("Booking ID: " + booking.getId());
@@ -843,19 +2864,9 @@ public class DataManager {
         } catch (IOException e) {
             System.err.println("Error writing booking to file: " + fileName);
             e.printStackTrace();
+            return null;
         }
-    }
-
-    /**
-     * Saves all bookings to .txt files.
-     * Only confirmed bookings are saved to .txt files.
-     */
-    private void saveBookings() {
-        for (Booking booking : bookings) {
-            if (booking.isConfirmed()) {
-                saveBookingToFile(booking);
-            }
-        }
+        return file;
     }
 
     /**
@@ -863,11 +2874,19 @@ public class DataManager {
      * Use this when there's an issue with missing rooms in hotels.
      */
     public void resetAndCreateSampleData() {
+        // Persist pending journal records so the files below can be dropped safely
+        checkpoint();
+
         // Clear all data from memory
         users.clear();
         hotels.clear();
         rooms.clear();
         bookings.clear();
+        usersById.clear();
+        roomsById.clear();
+        bookingsById.clear();
+        rebuildUsernameIndex();
+        rebuildSecondaryIndexes();
 
         // Clear the cache
         hotelCache.clear();
@@ -877,38 +2896,41 @@ public class DataManager {
         deleteFile(ROOMS_FILE);
         deleteBookingFiles();
 
-        // Create sample hotels in US cities
-        Hotel grandHotel = createHotel("Grand Hotel", "New York", 5, "A luxury hotel in the heart of Manhattan");
-        Hotel seasideResort = createHotel("Seaside Resort", "Miami", 4, "Beautiful beachfront resort with ocean views");
-        Hotel mountainLodge = createHotel("Mountain Lodge", "Aspen", 4, "Cozy lodge with stunning mountain views");
-        Hotel cityInn = createHotel("City Inn", "Chicago", 3, "Affordable hotel in downtown Chicago");
-        Hotel sunsetHotel = createHotel("Sunset Hotel", "Los Angeles", 5, "Elegant hotel with sunset views over the Pacific");
-
-        // Add rooms to the Grand Hotel
-        createRoom(grandHotel.getId(), "101", "Single", 150.0);
-        createRoom(grandHotel.getId(), "102", "Double", 200.0);
-        createRoom(grandHotel.getId(), "201", "Suite", 350.0);
-
-        // Add rooms to Seaside Resort
-        createRoom(seasideResort.getId(), "101", "Double", 180.0);
-        createRoom(seasideResort.getId(), "102", "Double", 180.0);
-        createRoom(seasideResort.getId(), "201", "Suite", 300.0);
-
-        // Add rooms to Mountain Lodge
-        createRoom(mountainLodge.getId(), "101", "Single", 120.0);
-        createRoom(mountainLodge.getId(), "102", "Double", 160.0);
-        createRoom(mountainLodge.getId(), "201", "Family", 220.0);
-
-        // Add rooms to City Inn
-        createRoom(cityInn.getId(), "101", "Single", 90.0);
-        createRoom(cityInn.getId(), "102", "Double", 120.0);
-        createRoom(cityInn.getId(), "201", "Double", 120.0);
-
-        // Add rooms to Sunset Hotel
-        createRoom(sunsetHotel.getId(), "101", "Double", 250.0);
-        createRoom(sunsetHotel.getId(), "102", "Double", 250.0);
-        createRoom(sunsetHotel.getId(), "201", "Suite", 400.0);
-        createRoom(sunsetHotel.getId(), "202", "Presidential Suite", 800.0);
+        // Persist the sample data with a single write
+        inTransaction(data -> {
+            // Create sample hotels in US cities
+            Hotel grandHotel = createHotel("Grand Hotel", "New York", 5, "A luxury hotel in the heart of Manhattan");
+            Hotel seasideResort = createHotel("Seaside Resort", "Miami", 4, "Beautiful beachfront resort with ocean views");
+            Hotel mountainLodge = createHotel("Mountain Lodge", "Aspen", 4, "Cozy lodge with stunning mountain views");
+            Hotel cityInn = createHotel("City Inn", "Chicago", 3, "Affordable hotel in downtown Chicago");
+            Hotel sunsetHotel = createHotel("Sunset Hotel", "Los Angeles", 5, "Elegant hotel with sunset views over the Pacific");
+
+            // Add rooms to the Grand Hotel
+            createRoom(grandHotel.getId(), "101", "Single", 150.0);
+            createRoom(grandHotel.getId(), "102", "Double", 200.0);
+            createRoom(grandHotel.getId(), "201", "Suite", 350.0);
+
+            // Add rooms to Seaside Resort
+            createRoom(seasideResort.getId(), "101", "Double", 180.0);
+            createRoom(seasideResort.getId(), "102", "Double", 180.0);
+            createRoom(seasideResort.getId(), "201", "Suite", 300.0);
+
+            // Add rooms to Mountain Lodge
+            createRoom(mountainLodge.getId(), "101", "Single", 120.0);
+            createRoom(mountainLodge.getId(), "102", "Double", 160.0);
+            createRoom(mountainLodge.getId(), "201", "Family", 220.0);
+
+            // Add rooms to City Inn
+            createRoom(cityInn.getId(), "101", "Single", 90.0);
+            createRoom(cityInn.getId(), "102", "Double", 120.0);
+            createRoom(cityInn.getId(), "201", "Double", 120.0);
+
+            // Add rooms to Sunset Hotel
+            createRoom(sunsetHotel.getId(), "101", "Double", 250.0);
+            createRoom(sunsetHotel.getId(), "102", "Double", 250.0);
+            createRoom(sunsetHotel.getId(), "201", "Suite", 400.0);
+            createRoom(sunsetHotel.getId(), "202", "Presidential Suite", 800.0);
+        });
 
         // Log success message
         System.out.println("Sample data recreated successfully with " + hotels.size() + " hotels and " + rooms.size() + " rooms");
@@ -921,7 +2943,7 @@ public class DataManager {
      */
     private void deleteFile(String filePath) {
         // Create the file object
-        File file = new File(filePath);
+        File file = dataFile(filePath);
         // Check if the file exists before trying to delete
         if (file.exists()) {
             boolean deleted = file.delete();
@@ -936,12 +2958,22 @@ public class DataManager {
     }
 
     /**
-     * Deletes all booking files in the bookings folder.
+     * Gets a file in the data folder.
+     * @param name the file name
+     * @return the file
+     */
+    private File dataFile(String name) {
+        return new File(dataDir, name);
+    }
+
+    /**
+     * Deletes the booking store and all booking receipt files in the bookings folder.
      */
     private void deleteBookingFiles() {
+        bookingStore.clear();
         ensureBookingsFolderExists();
 
-        File folder = new File(BOOKINGS_FOLDER);
+        File folder = dataFile(BOOKINGS_FOLDER);
         File[] files = folder.listFiles((dir, name) -> name.startsWith(BOOKINGS_PREFIX) && name.endsWith(".txt"));
 
         if (files != null) {
@@ -0,0 +1,99 @@
+package Models.DataStructures;
+
+/**
+ * A Bloom filter for strings.
+ * Answers "definitely not added" or "possibly added" using a fixed-size bit set,
+ * without storing the strings themselves. Elements cannot be removed.
+ */
+public class BloomFilter {
+    private final long[] bits;
+    private final int bitCount;
+    private final int hashCount;
+    private final int expectedInsertions;
+    private int insertions;
+
+    /**
+     * Creates a Bloom filter sized for the given number of elements.
+     * @param expectedInsertions The number of elements the filter is sized for
+     * @param falsePositiveRate The wanted probability of a false "possibly added" answer once that many elements are added
+     */
+    public BloomFilter(int expectedInsertions, double falsePositiveRate) {
+        this.expectedInsertions = Math.max(1, expectedInsertions);
+        // Optimal number of bits: m = -n * ln(p) / (ln 2)^2
+        long optimalBits = (long) Math.ceil(-this.expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bitCount = (int) Math.max(64, Math.min(Integer.MAX_VALUE - 63, optimalBits));
+        this.bits = new long[(bitCount + 63) / 64];
+        // Optimal number of hash functions: k = m / n * ln 2
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / this.expectedInsertions * Math.log(2)));
+    }
+
+    /**
+     * Adds an element to the filter.
+     * @param value The element to add
+     */
+    public void add(String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            int bit = index(h1 + i * h2);
+            bits[bit >>> 6] |= 1L << bit;
+        }
+        insertions++;
+    }
+
+    /**
+     * Checks whether an element may have been added.
+     * @param value The element to check
+     * @return false if the element was definitely never added, true if it possibly was
+     */
+    public boolean mightContain(String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            int bit = index(h1 + i * h2);
+            if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the number of elements added so far.
+     * @return The number of add calls
+     */
+    public int getInsertions() {
+        return insertions;
+    }
+
+    /**
+     * Gets the number of elements the filter was sized for.
+     * Past this number the false positive rate grows.
+     * @return The expected number of elements
+     */
+    public int getExpectedInsertions() {
+        return expectedInsertions;
+    }
+
+    private int index(int combinedHash) {
+        // Flip negative values so the index is always in range
+        return (combinedHash < 0 ? ~combinedHash : combinedHash) % bitCount;
+    }
+
+    /**
+     * 64-bit FNV-1a hash followed by a final mix, so both 32-bit halves are well distributed.
+     */
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,172 @@
+package Models.DataStructures;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An index of half-open intervals [start, end) over long values (e.g. epoch days),
+ * each carrying a value. Intervals are kept in a TreeMap sorted by start, so overlap
+ * and free-window queries only look at the intervals near the requested range.
+ * Overlapping intervals are allowed; values are compared by identity.
+ */
+public class IntervalIndex<V> {
+    /**
+     * One stored interval.
+     */
+    private static class Interval<V> {
+        private final long start;
+        private final long end;
+        private final V value;
+
+        private Interval(long start, long end, V value) {
+            this.start = start;
+            this.end = end;
+            this.value = value;
+        }
+    }
+
+    // Intervals by start; several intervals may share a start
+    private final TreeMap<Long, List<Interval<V>>> byStart = new TreeMap<>();
+    private final Map<V, Interval<V>> byValue = new IdentityHashMap<>();
+    // Number of stored intervals of each length. An interval overlapping [s, e) starts after s - the longest length,
+    // and removing the longest interval shrinks that window again
+    private final TreeMap<Long, Integer> lengthCounts = new TreeMap<>();
+
+    /**
+     * Adds an interval. A value that is already in the index is moved to the new interval.
+     * @param start The first point of the interval
+     * @param end The first point after the interval
+     * @param value The value of the interval
+     */
+    public void add(long start, long end, V value) {
+        remove(value);
+        Interval<V> interval = new Interval<>(start, end, value);
+        byStart.computeIfAbsent(start, k -> new ArrayList<>(1)).add(interval);
+        byValue.put(value, interval);
+        lengthCounts.merge(end - start, 1, Integer::sum);
+    }
+
+    /**
+     * Removes the interval of a value.
+     * @param value The value
+     * @return true if the value was in the index
+     */
+    public boolean remove(V value) {
+        Interval<V> interval = byValue.remove(value);
+        if (interval == null) {
+            return false;
+        }
+        List<Interval<V>> sameStart = byStart.get(interval.start);
+        sameStart.remove(interval);
+        if (sameStart.isEmpty()) {
+            byStart.remove(interval.start);
+        }
+        lengthCounts.computeIfPresent(interval.end - interval.start, (length, count) -> count == 1 ? null : count - 1);
+        return true;
+    }
+
+    /**
+     * Gets the interval a value was added with.
+     * @param value The value
+     * @return The start and end of the interval, or null if the value is not in the index
+     */
+    public long[] getInterval(V value) {
+        Interval<V> interval = byValue.get(value);
+        return interval == null ? null : new long[] {interval.start, interval.end};
+    }
+
+    /**
+     * Checks whether any interval overlaps [start, end).
+     * @param start The first point of the range
+     * @param end The first point after the range
+     * @return true if at least one interval overlaps the range
+     */
+    public boolean overlaps(long start, long end) {
+        for (List<Interval<V>> sameStart : candidates(start, end).values()) {
+            for (Interval<V> interval : sameStart) {
+                if (interval.end > start) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the values of all intervals overlapping [start, end), ordered by start.
+     * @param start The first point of the range
+     * @param end The first point after the range
+     * @return The overlapping values
+     */
+    public List<V> findOverlapping(long start, long end) {
+        List<V> overlapping = new ArrayList<>();
+        for (List<Interval<V>> sameStart : candidates(start, end).values()) {
+            for (Interval<V> interval : sameStart) {
+                if (interval.end > start) {
+                    overlapping.add(interval.value);
+                }
+            }
+        }
+        return overlapping;
+    }
+
+    /**
+     * Finds the first range of the given length, starting at or after a point, that overlaps no interval.
+     * @param from The earliest start of the range
+     * @param length The length of the range
+     * @return The start of the first free range
+     */
+    public long nextFree(long from, long length) {
+        long candidate = from;
+        // Walk the intervals in start order from the first one that could overlap the candidate
+        for (List<Interval<V>> sameStart : byStart.tailMap(from - maxLength(), false).values()) {
+            for (Interval<V> interval : sameStart) {
+                if (interval.start >= candidate + length) {
+                    return candidate;
+                }
+                if (interval.end > candidate) {
+                    candidate = interval.end;
+                }
+            }
+        }
+        return candidate;
+    }
+
+    /**
+     * Gets the number of intervals in the index.
+     * @return The number of intervals
+     */
+    public int size() {
+        return byValue.size();
+    }
+
+    /**
+     * Removes all intervals.
+     */
+    public void clear() {
+        byStart.clear();
+        byValue.clear();
+        lengthCounts.clear();
+    }
+
+    /**
+     * Gets the length of the longest stored interval.
+     * @return The longest length, or 0 if the index is empty
+     */
+    long maxLength() {
+        return lengthCounts.isEmpty() ? 0 : lengthCounts.lastKey();
+    }
+
+    /**
+     * Gets the intervals that start early enough to overlap [start, end).
+     */
+    private Map<Long, List<Interval<V>>> candidates(long start, long end) {
+        if (end <= start) {
+            return new TreeMap<>();
+        }
+        return byStart.subMap(start - maxLength(), false, end, false);
+    }
+}
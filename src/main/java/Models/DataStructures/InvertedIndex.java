@@ -0,0 +1,375 @@
+package Models.DataStructures;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * A full-text index that maps each term of some text fields to the values containing it (its posting list).
+ * Terms are lower-case words with accents removed, so an accented "e" matches a plain one.
+ * A query matches the values that contain all of its terms; the last term also matches as a prefix,
+ * so results can be shown while a word is still being typed.
+ * Matches are ranked by TF-IDF: rare terms and terms in heavily weighted fields count more.
+ * Each value gets a document number, and posting lists are sorted arrays of document numbers,
+ * so queries work on primitive arrays. Values are compared by identity.
+ * Once more than half of the document numbers belong to removed values, the live documents are
+ * renumbered in their old order, so removals do not leave the index growing.
+ */
+public class InvertedIndex<V> {
+    // Removed documents are only renumbered away once there are at least this many numbers
+    private static final int MIN_COMPACT_SIZE = 64;
+    private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    /**
+     * The documents containing one term, sorted by document number, with the term's weight in each.
+     */
+    private static class Postings {
+        private int[] documents = new int[4];
+        private float[] weights = new float[4];
+        private int size;
+
+        private void add(int document, float weight) {
+            int index = Arrays.binarySearch(documents, 0, size, document);
+            if (index >= 0) {
+                weights[index] = weight;
+                return;
+            }
+            index = -index - 1;
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            // Documents are numbered in insertion order, so this is usually an append
+            System.arraycopy(documents, index, documents, index + 1, size - index);
+            System.arraycopy(weights, index, weights, index + 1, size - index);
+            documents[index] = document;
+            weights[index] = weight;
+            size++;
+        }
+
+        private void remove(int document) {
+            int index = Arrays.binarySearch(documents, 0, size, document);
+            if (index >= 0) {
+                System.arraycopy(documents, index + 1, documents, index, size - index - 1);
+                System.arraycopy(weights, index + 1, weights, index, size - index - 1);
+                size--;
+            }
+        }
+    }
+
+    /**
+     * The indexed terms of one value.
+     */
+    private static class Document<V> {
+        private final V value;
+        private final String[] terms;
+        private final float[] weights; // Weighted number of occurrences of each term
+
+        private Document(V value, String[] terms, float[] weights) {
+            this.value = value;
+            this.terms = terms;
+            this.weights = weights;
+        }
+    }
+
+    private final double[] fieldWeights;
+    // Posting lists by term, sorted so that all terms with a prefix are next to each other
+    private final TreeMap<String, Postings> postings = new TreeMap<>();
+    // Documents by number; removed documents leave a null
+    private final List<Document<V>> documents = new ArrayList<>();
+    private final Map<V, Integer> numbers = new IdentityHashMap<>();
+
+    /**
+     * Creates an empty index.
+     * @param fieldWeights The weight of each field, in the order the fields are passed to put
+     */
+    public InvertedIndex(double... fieldWeights) {
+        this.fieldWeights = fieldWeights.clone();
+    }
+
+    /**
+     * Adds a value with the text of its fields, replacing the terms it was indexed with before.
+     * @param value The value
+     * @param fields The text of each field; null fields are skipped
+     */
+    public void put(V value, String... fields) {
+        Map<String, Float> weights = new LinkedHashMap<>();
+        for (int i = 0; i < fields.length; i++) {
+            float weight = i < fieldWeights.length ? (float) fieldWeights[i] : 1.0f;
+            for (String term : tokenize(fields[i])) {
+                weights.merge(term, weight, Float::sum);
+            }
+        }
+        String[] terms = weights.keySet().toArray(new String[0]);
+        float[] termWeights = new float[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            termWeights[i] = weights.get(terms[i]);
+        }
+
+        // A value keeps its number, so it keeps its place among equally good matches
+        Integer number = numbers.get(value);
+        if (number != null) {
+            removePostings(number, documents.get(number));
+        } else {
+            number = documents.size();
+            documents.add(null);
+            numbers.put(value, number);
+        }
+        documents.set(number, new Document<>(value, terms, termWeights));
+        for (int i = 0; i < terms.length; i++) {
+            postings.computeIfAbsent(terms[i], k -> new Postings()).add(number, termWeights[i]);
+        }
+    }
+
+    /**
+     * Removes a value from the index.
+     * @param value The value
+     * @return true if the value was in the index
+     */
+    public boolean remove(V value) {
+        Integer number = numbers.remove(value);
+        if (number == null) {
+            return false;
+        }
+        removePostings(number, documents.get(number));
+        documents.set(number, null);
+        if (documents.size() >= MIN_COMPACT_SIZE && numbers.size() < documents.size() / 2) {
+            compact();
+        }
+        return true;
+    }
+
+    /**
+     * Gives the live documents the numbers 0 to size() - 1, keeping their order.
+     * The new numbers grow with the old ones, so every posting list stays sorted.
+     */
+    private void compact() {
+        int[] renumbered = new int[documents.size()];
+        List<Document<V>> live = new ArrayList<>(numbers.size());
+        for (int i = 0; i < documents.size(); i++) {
+            Document<V> document = documents.get(i);
+            if (document != null) {
+                renumbered[i] = live.size();
+                numbers.put(document.value, live.size());
+                live.add(document);
+            }
+        }
+        for (Postings list : postings.values()) {
+            for (int i = 0; i < list.size; i++) {
+                list.documents[i] = renumbered[list.documents[i]];
+            }
+        }
+        documents.clear();
+        documents.addAll(live);
+    }
+
+    /**
+     * Finds the values that contain every term of the query, best match first.
+     * @param query The words to search for
+     * @return The matching values, empty if the query has no terms
+     */
+    public List<V> search(String query) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // One posting list per term; the last term's list merges all terms it is a prefix of
+        Postings[] lists = new Postings[terms.size()];
+        double[] idfs = new double[terms.size()];
+        int last = terms.size() - 1;
+        for (int i = 0; i < last; i++) {
+            lists[i] = postings.get(terms.get(i));
+            if (lists[i] == null) {
+                return new ArrayList<>();
+            }
+            idfs[i] = idf(lists[i].size);
+        }
+        Map<String, Postings> range = postings.subMap(terms.get(last), true, terms.get(last) + Character.MAX_VALUE, false);
+        if (range.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (range.size() == 1) {
+            lists[last] = range.values().iterator().next();
+            idfs[last] = idf(lists[last].size);
+        } else {
+            lists[last] = mergePrefixRange(range);
+            idfs[last] = 1.0;
+        }
+
+        // Walk the shortest list and look its documents up in the others
+        int shortest = 0;
+        for (int i = 1; i < lists.length; i++) {
+            if (lists[i].size < lists[shortest].size) {
+                shortest = i;
+            }
+        }
+        // Each match is packed into a long: the score's float bits (which sort like the score
+        // for positive floats) in the high half, the inverted document number in the low half
+        long[] matches = new long[lists[shortest].size];
+        int count = 0;
+        // Documents are visited in ascending order, so each list is searched from where the last search ended
+        int[] positions = new int[lists.length];
+        for (int i = 0; i < lists[shortest].size; i++) {
+            int document = lists[shortest].documents[i];
+            double score = 0;
+            boolean found = true;
+            for (int j = 0; j < lists.length && found; j++) {
+                int index = j == shortest ? i : gallop(lists[j], positions[j], document);
+                if (index < 0) {
+                    positions[j] = -index - 1;
+                    found = false;
+                } else {
+                    positions[j] = index;
+                    score += lists[j].weights[index] * idfs[j];
+                }
+            }
+            if (found) {
+                matches[count++] = pack(score, document);
+            }
+        }
+
+        // Ascending order of the packed longs is worst match first, so read them backwards
+        Arrays.sort(matches, 0, count);
+        List<V> results = new ArrayList<>(count);
+        for (int i = count - 1; i >= 0; i--) {
+            results.add(documents.get(Integer.MAX_VALUE - (int) matches[i]).value);
+        }
+        return results;
+    }
+
+    /**
+     * Gets the number of values in the index.
+     * @return The number of values
+     */
+    public int size() {
+        return numbers.size();
+    }
+
+    /**
+     * Gets the number of distinct terms in the index.
+     * @return The number of terms
+     */
+    public int getTermCount() {
+        return postings.size();
+    }
+
+    /**
+     * Gets the number of document numbers in use, including those of removed values not yet renumbered away.
+     * @return The number of document numbers
+     */
+    int getDocumentSlots() {
+        return documents.size();
+    }
+
+    /**
+     * Removes all values.
+     */
+    public void clear() {
+        postings.clear();
+        documents.clear();
+        numbers.clear();
+    }
+
+    /**
+     * Splits text into lower-case terms without accents.
+     * @param text The text, may be null
+     * @return The terms in the order they appear
+     */
+    public static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String folded = ACCENTS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        List<String> terms = new ArrayList<>();
+        for (String term : SEPARATORS.split(folded.toLowerCase(Locale.ROOT))) {
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    private void removePostings(int number, Document<V> document) {
+        for (String term : document.terms) {
+            Postings list = postings.get(term);
+            list.remove(number);
+            if (list.size == 0) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    /**
+     * Finds a document in a posting list at or after a position, probing 1, 2, 4, ... entries ahead
+     * before a binary search, so walking a list in order costs about log of the distance moved.
+     * @return The index of the document, or (-(insertion point) - 1) if it is not in the list
+     */
+    private static int gallop(Postings list, int from, int document) {
+        int step = 1;
+        int high = from;
+        while (high < list.size && list.documents[high] < document) {
+            from = high;
+            high += step;
+            step *= 2;
+        }
+        return Arrays.binarySearch(list.documents, from, Math.min(high + 1, list.size), document);
+    }
+
+    /**
+     * Merges the posting lists of several terms into one, with each document's best weight times idf.
+     */
+    private Postings mergePrefixRange(Map<String, Postings> range) {
+        int total = 0;
+        for (Postings list : range.values()) {
+            total += list.size;
+        }
+        // Pack as document (high half) and weighted score (low half), so sorting groups each document
+        long[] entries = new long[total];
+        int count = 0;
+        for (Postings list : range.values()) {
+            double idf = idf(list.size);
+            for (int i = 0; i < list.size; i++) {
+                entries[count++] = ((long) list.documents[i] << 32) | Float.floatToIntBits((float) (list.weights[i] * idf));
+            }
+        }
+        Arrays.sort(entries);
+        Postings merged = new Postings();
+        merged.documents = new int[Math.max(1, total)];
+        merged.weights = new float[Math.max(1, total)];
+        for (int i = 0; i < total; i++) {
+            // The last entry of a document has its best score
+            if (i + 1 < total && entries[i] >>> 32 == entries[i + 1] >>> 32) {
+                continue;
+            }
+            merged.documents[merged.size] = (int) (entries[i] >>> 32);
+            merged.weights[merged.size] = Float.intBitsToFloat((int) entries[i]);
+            merged.size++;
+        }
+        return merged;
+    }
+
+    /**
+     * Packs a score and a document number so that sorting the longs sorts by score,
+     * then puts lower document numbers (added earlier) after higher ones.
+     */
+    private static long pack(double score, int document) {
+        return ((long) Float.floatToIntBits((float) score) << 32) | (Integer.MAX_VALUE - document);
+    }
+
+    /**
+     * Inverse document frequency: terms found in fewer values weigh more.
+     */
+    private double idf(int documentFrequency) {
+        return Math.log(1.0 + (double) numbers.size() / documentFrequency);
+    }
+}
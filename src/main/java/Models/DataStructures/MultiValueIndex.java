@@ -0,0 +1,116 @@
+package Models.DataStructures;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A secondary index that maps a key to many values, e.g. a user id to the user's bookings.
+ * Every value is stored under exactly one key, and the index remembers that key,
+ * so a value can be moved or removed without knowing its old key.
+ * Values are compared by identity; looking up a key costs time proportional to the number of its values.
+ */
+public class MultiValueIndex<K, V> {
+    private final Map<K, Set<V>> valuesByKey = new HashMap<>();
+    private final Map<V, K> keyByValue = new IdentityHashMap<>();
+
+    /**
+     * Stores a value under a key. A value already stored under another key is moved.
+     * @param key The key
+     * @param value The value
+     */
+    public void put(K key, V value) {
+        K oldKey = keyByValue.get(value);
+        if (oldKey != null) {
+            if (oldKey.equals(key)) {
+                return;
+            }
+            removeFromKey(oldKey, value);
+        }
+        valuesByKey.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(value);
+        keyByValue.put(value, key);
+    }
+
+    /**
+     * Removes a value from the index.
+     * @param value The value to remove
+     * @return true if the value was in the index
+     */
+    public boolean remove(V value) {
+        K key = keyByValue.remove(value);
+        if (key == null) {
+            return false;
+        }
+        removeFromKey(key, value);
+        return true;
+    }
+
+    /**
+     * Gets the values stored under a key, in the order they were added.
+     * @param key The key
+     * @return A new list with the values, empty if there are none
+     */
+    public List<V> get(K key) {
+        Set<V> values = valuesByKey.get(key);
+        return values == null ? new ArrayList<>() : new ArrayList<>(values);
+    }
+
+    /**
+     * Gets the value added first under a key, without copying the values.
+     * @param key The key
+     * @return The first value, or null if there are none
+     */
+    public V getFirst(K key) {
+        Set<V> values = valuesByKey.get(key);
+        return values == null ? null : values.iterator().next();
+    }
+
+    /**
+     * Counts the values stored under a key without copying them.
+     * @param key The key
+     * @return The number of values, 0 if there are none
+     */
+    public int count(K key) {
+        Set<V> values = valuesByKey.get(key);
+        return values == null ? 0 : values.size();
+    }
+
+    /**
+     * Gets the key a value is stored under.
+     * @param value The value
+     * @return The key, or null if the value is not in the index
+     */
+    public K getKey(V value) {
+        return keyByValue.get(value);
+    }
+
+    /**
+     * Gets the number of values in the index.
+     * @return The number of values
+     */
+    public int size() {
+        return keyByValue.size();
+    }
+
+    /**
+     * Removes all keys and values.
+     */
+    public void clear() {
+        valuesByKey.clear();
+        keyByValue.clear();
+    }
+
+    private void removeFromKey(K key, V value) {
+        Set<V> values = valuesByKey.get(key);
+        if (values != null) {
+            values.remove(value);
+            if (values.isEmpty()) {
+                valuesByKey.remove(key);
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package Models.DataStructures;
+
+/**
+ * The occupied nights of one room over a fixed horizon, one bit per night.
+ * Night n (an epoch day) is bit n - origin; two years fit in twelve longs.
+ * Range checks and counts work on whole 64-night words instead of single nights.
+ * Nights outside the horizon are ignored by mark and clear; check covers() before relying on isFree.
+ */
+public class OccupancyCalendar {
+    private final long origin;
+    private final int days;
+    private final long[] words;
+
+    /**
+     * Creates an empty calendar.
+     * @param origin The first night of the horizon, as an epoch day
+     * @param days The number of nights in the horizon
+     */
+    public OccupancyCalendar(long origin, int days) {
+        this.origin = origin;
+        this.days = days;
+        this.words = new long[(days + 63) / 64];
+    }
+
+    /**
+     * Gets the first night of the horizon.
+     * @return The epoch day of the first night
+     */
+    public long getOrigin() {
+        return origin;
+    }
+
+    /**
+     * Gets the number of nights in the horizon.
+     * @return The number of nights
+     */
+    public int getDays() {
+        return days;
+    }
+
+    /**
+     * Checks whether all nights of [start, end) are inside the horizon.
+     * @param start The first night
+     * @param end The day after the last night
+     * @return true if the calendar knows about every night of the range
+     */
+    public boolean covers(long start, long end) {
+        return start >= origin && end <= origin + days;
+    }
+
+    /**
+     * Marks the nights of [start, end) as occupied.
+     * @param start The first night
+     * @param end The day after the last night
+     */
+    public void mark(long start, long end) {
+        long from = Math.max(start, origin) - origin;
+        long to = Math.min(end, origin + days) - origin;
+        for (long word = from >>> 6; from < to && word <= (to - 1) >>> 6; word++) {
+            words[(int) word] |= mask(word, from, to);
+        }
+    }
+
+    /**
+     * Marks the nights of [start, end) as free.
+     * @param start The first night
+     * @param end The day after the last night
+     */
+    public void clear(long start, long end) {
+        long from = Math.max(start, origin) - origin;
+        long to = Math.min(end, origin + days) - origin;
+        for (long word = from >>> 6; from < to && word <= (to - 1) >>> 6; word++) {
+            words[(int) word] &= ~mask(word, from, to);
+        }
+    }
+
+    /**
+     * Checks whether no night of [start, end) inside the horizon is occupied.
+     * @param start The first night
+     * @param end The day after the last night
+     * @return true if none of the nights is marked
+     */
+    public boolean isFree(long start, long end) {
+        long from = Math.max(start, origin) - origin;
+        long to = Math.min(end, origin + days) - origin;
+        for (long word = from >>> 6; from < to && word <= (to - 1) >>> 6; word++) {
+            if ((words[(int) word] & mask(word, from, to)) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Counts the occupied nights of [start, end) inside the horizon.
+     * @param start The first night
+     * @param end The day after the last night
+     * @return The number of marked nights
+     */
+    public int countOccupied(long start, long end) {
+        long from = Math.max(start, origin) - origin;
+        long to = Math.min(end, origin + days) - origin;
+        int count = 0;
+        for (long word = from >>> 6; from < to && word <= (to - 1) >>> 6; word++) {
+            count += Long.bitCount(words[(int) word] & mask(word, from, to));
+        }
+        return count;
+    }
+
+    /**
+     * Gets the bits of a word that fall inside [from, to), both relative to the origin.
+     */
+    private static long mask(long word, long from, long to) {
+        long mask = -1L;
+        if (word == from >>> 6) {
+            mask &= -1L << (from & 63);
+        }
+        if (word == (to - 1) >>> 6) {
+            mask &= -1L >>> (63 - ((to - 1) & 63));
+        }
+        return mask;
+    }
+}
@@ -0,0 +1,190 @@
+package Models.DataStructures;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A sorted view of values that is kept up to date instead of being sorted again.
+ * Values are stored in a red-black tree (TreeMap) under a key copied from the value when it is put,
+ * so adding, moving and removing a value costs O(log n) and reading the values in order costs O(n).
+ * The index remembers each value's key, so a value that was changed in place can be moved
+ * by putting it again. Keys must be unique, e.g. by ending with an id; values are compared by identity.
+ */
+public class OrderedIndex<K, V> {
+    private final Function<V, K> keyOf;
+    private final TreeMap<K, V> valuesByKey;
+    private final Map<V, K> keyByValue = new IdentityHashMap<>();
+
+    /**
+     * Creates an empty index.
+     * @param keyOf Copies the key of a value
+     * @param order The order of the keys
+     */
+    public OrderedIndex(Function<V, K> keyOf, Comparator<? super K> order) {
+        this.keyOf = keyOf;
+        this.valuesByKey = new TreeMap<>(order);
+    }
+
+    /**
+     * Adds a value, or moves it to its place for its current key.
+     * @param value The value
+     */
+    public void put(V value) {
+        K key = keyOf.apply(value);
+        K oldKey = keyByValue.get(value);
+        if (oldKey != null) {
+            if (valuesByKey.comparator().compare(oldKey, key) == 0) {
+                // Same place in the order, but fields the order ignores may have changed; keep the new copy
+                keyByValue.put(value, key);
+                return;
+            }
+            valuesByKey.remove(oldKey);
+        }
+        V displaced = valuesByKey.put(key, value);
+        if (displaced != null && displaced != value) {
+            // Another value had an equal key; it is no longer in the index
+            keyByValue.remove(displaced);
+        }
+        keyByValue.put(value, key);
+    }
+
+    /**
+     * Removes a value from the index.
+     * @param value The value
+     * @return true if the value was in the index
+     */
+    public boolean remove(V value) {
+        K key = keyByValue.remove(value);
+        if (key == null) {
+            return false;
+        }
+        valuesByKey.remove(key);
+        return true;
+    }
+
+    /**
+     * Gets all values in order.
+     * @return A new list with the values
+     */
+    public List<V> getAll() {
+        return new ArrayList<>(valuesByKey.values());
+    }
+
+    /**
+     * Gets the values in order, keeping only those in a given set.
+     * Cheaper than sorting the set when it holds a large part of the index.
+     * @param wanted The values to keep
+     * @return A new list with the wanted values that are in the index, in order
+     */
+    public List<V> getAll(Set<V> wanted) {
+        List<V> values = new ArrayList<>(Math.min(wanted.size(), valuesByKey.size()));
+        for (V value : valuesByKey.values()) {
+            if (wanted.contains(value)) {
+                values.add(value);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Gets the values that come after a key, in order: one page of a list read with a cursor.
+     * Costs O(log n) to find the start plus one step per value looked at.
+     * @param after The key to start after (it does not need to be in the index), or null to start at the first value
+     * @param limit The maximum number of values to return
+     * @param filter Keeps only the values it accepts, or null to keep all
+     * @return A new list with up to limit values
+     */
+    public List<V> getPage(K after, int limit, Predicate<? super V> filter) {
+        List<V> values = new ArrayList<>(Math.min(limit, 1024));
+        Map<K, V> tail = after == null ? valuesByKey : valuesByKey.tailMap(after, false);
+        for (V value : tail.values()) {
+            if (values.size() >= limit) {
+                break;
+            }
+            if (filter == null || filter.test(value)) {
+                values.add(value);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Gets the values with keys between two keys, in order, without copying them.
+     * The returned collection is a view of the index and must be read before the index changes.
+     * @param after The key the values come after, or null to start at the first value
+     * @param before The key the values come before, or null to go on to the last value
+     * @return The values whose keys come after the first key and before the second
+     */
+    public Collection<V> getRange(K after, K before) {
+        if (after != null && before != null && valuesByKey.comparator().compare(after, before) >= 0) {
+            return Collections.emptyList();
+        }
+        NavigableMap<K, V> range = valuesByKey;
+        if (after != null) {
+            range = range.tailMap(after, false);
+        }
+        if (before != null) {
+            range = range.headMap(before, false);
+        }
+        return Collections.unmodifiableCollection(range.values());
+    }
+
+    /**
+     * Gets the smallest key in the index.
+     * @return The first key, or null if the index is empty
+     */
+    public K getFirstKey() {
+        return valuesByKey.isEmpty() ? null : valuesByKey.firstKey();
+    }
+
+    /**
+     * Gets the largest key in the index.
+     * @return The last key, or null if the index is empty
+     */
+    public K getLastKey() {
+        return valuesByKey.isEmpty() ? null : valuesByKey.lastKey();
+    }
+
+    /**
+     * Gets the key a value was last put with.
+     * @param value The value
+     * @return The key, or null if the value is not in the index
+     */
+    public K getKey(V value) {
+        return keyByValue.get(value);
+    }
+
+    /**
+     * Gets the order of the keys.
+     * @return The comparator of the keys
+     */
+    public Comparator<? super K> getOrder() {
+        return valuesByKey.comparator();
+    }
+
+    /**
+     * Gets the number of values in the index.
+     * @return The number of values
+     */
+    public int size() {
+        return keyByValue.size();
+    }
+
+    /**
+     * Removes all values.
+     */
+    public void clear() {
+        valuesByKey.clear();
+        keyByValue.clear();
+    }
+}
@@ -0,0 +1,158 @@
+package Models.DataStructures;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * An autocomplete index: finds the best values whose text has a word starting with a prefix.
+ * Each text is stored under every suffix that starts at a word, so "Lviv Castle Hotel"
+ * is found by "lv", "cas" and "hot". Keys are kept in sorted maps, one per rank,
+ * so the keys with a prefix are one contiguous range, found in O(log n).
+ * Suggestions are read from the best rank down and stop once enough values are found.
+ * Values are compared by identity.
+ */
+public class PrefixIndex<V> {
+    private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    /**
+     * The rank and keys a value was stored with, needed to remove it again.
+     */
+    private static class Entry {
+        private final int rank;
+        private final List<String> keys;
+
+        private Entry(int rank, List<String> keys) {
+            this.rank = rank;
+            this.keys = keys;
+        }
+    }
+
+    // Keys by rank, highest rank first; each key maps to the values stored under it
+    private final TreeMap<Integer, TreeMap<String, List<V>>> keysByRank = new TreeMap<>(Comparator.reverseOrder());
+    private final Map<V, Entry> entries = new IdentityHashMap<>();
+
+    /**
+     * Stores a value under the words of its texts, replacing the texts it was stored with before.
+     * @param value The value
+     * @param rank The rank of the value; values with a higher rank are suggested first
+     * @param texts The texts to complete, e.g. a name and a city; null texts are skipped
+     */
+    public void put(V value, int rank, Collection<String> texts) {
+        remove(value);
+        List<String> keys = new ArrayList<>();
+        for (String text : texts) {
+            String normalized = normalize(text);
+            // Every word of the text starts a key
+            int start = 0;
+            while (start < normalized.length()) {
+                keys.add(normalized.substring(start));
+                int space = normalized.indexOf(' ', start);
+                if (space < 0) {
+                    break;
+                }
+                start = space + 1;
+            }
+        }
+        TreeMap<String, List<V>> keysOfRank = keysByRank.computeIfAbsent(rank, k -> new TreeMap<>());
+        for (String key : keys) {
+            keysOfRank.computeIfAbsent(key, k -> new ArrayList<>(1)).add(value);
+        }
+        entries.put(value, new Entry(rank, keys));
+    }
+
+    /**
+     * Removes a value and all its keys.
+     * @param value The value
+     * @return true if the value was in the index
+     */
+    public boolean remove(V value) {
+        Entry entry = entries.remove(value);
+        if (entry == null) {
+            return false;
+        }
+        TreeMap<String, List<V>> keysOfRank = keysByRank.get(entry.rank);
+        for (String key : entry.keys) {
+            List<V> values = keysOfRank.get(key);
+            if (values != null) {
+                values.removeIf(other -> other == value);
+                if (values.isEmpty()) {
+                    keysOfRank.remove(key);
+                }
+            }
+        }
+        if (keysOfRank.isEmpty()) {
+            keysByRank.remove(entry.rank);
+        }
+        return true;
+    }
+
+    /**
+     * Gets the best values with a word starting with the prefix, highest rank first,
+     * then in alphabetical order of the matching text.
+     * @param prefix The text typed so far
+     * @param limit The maximum number of values to return
+     * @return The suggested values, empty if the prefix has no letters or digits
+     */
+    public List<V> suggest(String prefix, int limit) {
+        String normalized = normalize(prefix);
+        List<V> suggestions = new ArrayList<>();
+        if (normalized.isEmpty() || limit <= 0) {
+            return suggestions;
+        }
+        // A value can match through several of its words, it is suggested once
+        Set<V> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (TreeMap<String, List<V>> keysOfRank : keysByRank.values()) {
+            for (List<V> values : keysOfRank.subMap(normalized, true, normalized + Character.MAX_VALUE, false).values()) {
+                for (V value : values) {
+                    if (seen.add(value)) {
+                        suggestions.add(value);
+                        if (suggestions.size() == limit) {
+                            return suggestions;
+                        }
+                    }
+                }
+            }
+        }
+        return suggestions;
+    }
+
+    /**
+     * Gets the number of values in the index.
+     * @return The number of values
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Removes all values.
+     */
+    public void clear() {
+        keysByRank.clear();
+        entries.clear();
+    }
+
+    /**
+     * Lower-cases text, removes accents and replaces every run of other characters with one space.
+     * @param text The text, may be null
+     * @return The normalized text, empty if it has no letters or digits
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String folded = ACCENTS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return SEPARATORS.matcher(folded.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+}
@@ -0,0 +1,347 @@
+package Models.DataStructures;
+
+import Models.Utils.SearchAndSort;
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * A typo-tolerant index: finds values with words spelled like the words of a query,
+ * e.g. "Kharkov" finds "Kharkiv" and "Odessa" finds "Odesa".
+ * Every distinct word (term) is split into trigrams, its three-letter pieces padded with spaces
+ * ("kyiv" gives "  k", " ky", "kyi", "yiv", "iv "). A query word only looks at the terms that share
+ * a trigram with it and have a similar length, and only those are checked with a bounded edit distance.
+ * Values are compared by identity.
+ */
+public class TrigramIndex<V> {
+    private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    /**
+     * A sorted list of term numbers.
+     */
+    private static class TermList {
+        private int[] terms = new int[4];
+        private int size;
+
+        private void add(int term) {
+            int index = Arrays.binarySearch(terms, 0, size, term);
+            if (index >= 0) {
+                return;
+            }
+            index = -index - 1;
+            if (size == terms.length) {
+                terms = Arrays.copyOf(terms, size * 2);
+            }
+            System.arraycopy(terms, index, terms, index + 1, size - index);
+            terms[index] = term;
+            size++;
+        }
+
+        private void remove(int term) {
+            int index = Arrays.binarySearch(terms, 0, size, term);
+            if (index >= 0) {
+                System.arraycopy(terms, index + 1, terms, index, size - index - 1);
+                size--;
+            }
+        }
+    }
+
+    /**
+     * The terms of one value and the order it was added in, which breaks ties between equally close matches.
+     */
+    private static class Entry {
+        private final int[] terms;
+        private final long order;
+
+        private Entry(int[] terms, long order) {
+            this.terms = terms;
+            this.order = order;
+        }
+    }
+
+    /**
+     * A matching value and its sort key.
+     */
+    private static class Match<V> {
+        private final V value;
+        private final long key;
+
+        private Match(V value, long key) {
+            this.value = value;
+            this.key = key;
+        }
+    }
+
+    // Terms by number and the values containing them; unused numbers hold null and are reused
+    private final List<String> terms = new ArrayList<>();
+    private final List<Set<V>> valuesByTerm = new ArrayList<>();
+    private final Map<String, Integer> termNumbers = new HashMap<>();
+    private final Deque<Integer> freeNumbers = new ArrayDeque<>();
+    // Term numbers by trigram
+    private final Map<String, TermList> termsByTrigram = new HashMap<>();
+    private final Map<V, Entry> entries = new IdentityHashMap<>();
+    private long nextOrder;
+
+    /**
+     * Stores a value under the words of its texts, replacing the words it was stored with before.
+     * @param value The value
+     * @param texts The texts to search, e.g. a name and a city; null texts are skipped
+     */
+    public void put(V value, String... texts) {
+        remove(value);
+        Set<String> words = new LinkedHashSet<>();
+        for (String text : texts) {
+            words.addAll(tokenize(text));
+        }
+        int[] numbers = new int[words.size()];
+        int i = 0;
+        for (String word : words) {
+            Integer number = termNumbers.get(word);
+            if (number == null) {
+                number = addTerm(word);
+            }
+            valuesByTerm.get(number).add(value);
+            numbers[i++] = number;
+        }
+        entries.put(value, new Entry(numbers, nextOrder++));
+    }
+
+    /**
+     * Removes a value; words no other value uses are removed too.
+     * @param value The value
+     * @return true if the value was in the index
+     */
+    public boolean remove(V value) {
+        Entry entry = entries.remove(value);
+        if (entry == null) {
+            return false;
+        }
+        for (int number : entry.terms) {
+            Set<V> values = valuesByTerm.get(number);
+            values.remove(value);
+            if (values.isEmpty()) {
+                removeTerm(number);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds the values that have, for every word of the query, a word within the allowed edit distance.
+     * Values are ordered by the sum of the distances, closest first, then in the order they were added.
+     * @param query The words to search for
+     * @return The matching values, empty if the query has no words
+     */
+    public List<V> search(String query) {
+        List<String> words = tokenize(query);
+        if (words.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<V, Integer> distances = null;
+        for (String word : words) {
+            Map<V, Integer> closest = findClosest(word);
+            if (distances == null) {
+                distances = closest;
+            } else {
+                // Every word must match; a value's distance is the sum over the words
+                Map<V, Integer> both = new IdentityHashMap<>();
+                for (Map.Entry<V, Integer> match : closest.entrySet()) {
+                    Integer previous = distances.get(match.getKey());
+                    if (previous != null) {
+                        both.put(match.getKey(), previous + match.getValue());
+                    }
+                }
+                distances = both;
+            }
+            if (distances.isEmpty()) {
+                return new ArrayList<>();
+            }
+        }
+
+        // Sort on one packed key per match: the distance in the high bits, the order it was added below
+        List<Match<V>> matches = new ArrayList<>(distances.size());
+        for (Map.Entry<V, Integer> match : distances.entrySet()) {
+            long key = ((long) match.getValue() << 40) | entries.get(match.getKey()).order;
+            matches.add(new Match<>(match.getKey(), key));
+        }
+        matches.sort((a, b) -> Long.compare(a.key, b.key));
+        List<V> results = new ArrayList<>(matches.size());
+        for (Match<V> match : matches) {
+            results.add(match.value);
+        }
+        return results;
+    }
+
+    /**
+     * Gets the number of values in the index.
+     * @return The number of values
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the number of distinct words in the index.
+     * @return The number of words
+     */
+    public int getTermCount() {
+        return termNumbers.size();
+    }
+
+    /**
+     * Removes all values.
+     */
+    public void clear() {
+        terms.clear();
+        valuesByTerm.clear();
+        termNumbers.clear();
+        freeNumbers.clear();
+        termsByTrigram.clear();
+        entries.clear();
+        nextOrder = 0;
+    }
+
+    /**
+     * Gets the number of edits allowed for a word: none up to two letters, one up to five, two for longer words.
+     * Two edits on a short word reach too many other words: "kyiv" would find "lviv".
+     * The budget also keeps the trigram filter exact: a word of n letters has n + 1 trigrams and an edit
+     * changes at most three, so every word within n / 3 edits shares a trigram with it and is looked at.
+     * @param length The length of the word
+     * @return The largest allowed edit distance
+     */
+    public static int maxDistance(int length) {
+        if (length <= 2) {
+            return 0;
+        }
+        if (length <= 5) {
+            return 1;
+        }
+        return 2;
+    }
+
+    /**
+     * Splits text into lower-case words without accents.
+     * @param text The text, may be null
+     * @return The words in the order they appear
+     */
+    public static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String folded = ACCENTS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        List<String> words = new ArrayList<>();
+        for (String word : SEPARATORS.split(folded.toLowerCase(Locale.ROOT))) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Gets the trigrams of a word, padded with two spaces in front and one behind,
+     * so even a one-letter word has one and the start of a word counts twice.
+     * @param word The word
+     * @return The distinct trigrams
+     */
+    public static Set<String> trigrams(String word) {
+        String padded = "  " + word + " ";
+        Set<String> trigrams = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    /**
+     * Finds the values with a word close to the query word, with the distance of their closest word.
+     */
+    private Map<V, Integer> findClosest(String word) {
+        int maxDistance = maxDistance(word.length());
+        Set<String> trigrams = trigrams(word);
+        // An edit changes at most three trigrams, so a close term shares at least this many
+        int minShared = Math.max(1, trigrams.size() - 3 * maxDistance);
+
+        // Count the trigrams each term shares with the word
+        int[] shared = new int[terms.size()];
+        int[] touched = new int[16];
+        int touchedCount = 0;
+        for (String trigram : trigrams) {
+            TermList list = termsByTrigram.get(trigram);
+            if (list == null) {
+                continue;
+            }
+            for (int i = 0; i < list.size; i++) {
+                int number = list.terms[i];
+                if (shared[number]++ == 0) {
+                    if (touchedCount == touched.length) {
+                        touched = Arrays.copyOf(touched, touchedCount * 2);
+                    }
+                    touched[touchedCount++] = number;
+                }
+            }
+        }
+
+        // Only the candidates are checked with the edit distance
+        Map<V, Integer> closest = new IdentityHashMap<>();
+        for (int i = 0; i < touchedCount; i++) {
+            int number = touched[i];
+            String term = terms.get(number);
+            if (shared[number] < minShared || Math.abs(term.length() - word.length()) > maxDistance) {
+                continue;
+            }
+            int distance = SearchAndSort.editDistance(word, term, maxDistance);
+            if (distance <= maxDistance) {
+                for (V value : valuesByTerm.get(number)) {
+                    closest.merge(value, distance, Math::min);
+                }
+            }
+        }
+        return closest;
+    }
+
+    private int addTerm(String word) {
+        int number;
+        if (freeNumbers.isEmpty()) {
+            number = terms.size();
+            terms.add(word);
+            valuesByTerm.add(Collections.newSetFromMap(new IdentityHashMap<>()));
+        } else {
+            number = freeNumbers.pop();
+            terms.set(number, word);
+            valuesByTerm.set(number, Collections.newSetFromMap(new IdentityHashMap<>()));
+        }
+        termNumbers.put(word, number);
+        for (String trigram : trigrams(word)) {
+            termsByTrigram.computeIfAbsent(trigram, k -> new TermList()).add(number);
+        }
+        return number;
+    }
+
+    private void removeTerm(int number) {
+        String word = terms.get(number);
+        for (String trigram : trigrams(word)) {
+            TermList list = termsByTrigram.get(trigram);
+            list.remove(number);
+            if (list.size == 0) {
+                termsByTrigram.remove(trigram);
+            }
+        }
+        termNumbers.remove(word);
+        terms.set(number, null);
+        valuesByTerm.set(number, null);
+        freeNumbers.push(number);
+    }
+}
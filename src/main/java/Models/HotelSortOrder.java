@@ -0,0 +1,110 @@
+package Models;
+
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ * The orders hotels can be listed in. DataManager keeps every hotel in each of these orders,
+ * so a sorted list is read from an index instead of being sorted again.
+ * Ties are broken by hotel id, so every hotel has exactly one place in each order.
+ */
+public enum HotelSortOrder {
+    NAME("Name (A-Z)", Comparator.comparing((Key key) -> key.name, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+            .thenComparing(key -> key.id)),
+    RATING("Rating (High-Low)", Comparator.comparingInt((Key key) -> -key.rating)
+            .thenComparing(key -> key.name, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+            .thenComparing(key -> key.id));
+
+    /**
+     * The values of a hotel an order depends on, copied when the hotel is indexed.
+     * A copy is needed because hotels are edited in place before DataManager.updateHotel is called.
+     */
+    public static final class Key {
+        private static final String CURSOR_SEPARATOR = "\u0000";
+
+        private final int rating;
+        private final String name;
+        private final String id;
+
+        public Key(Hotel hotel) {
+            this(hotel.getRating(), hotel.getName(), hotel.getId());
+        }
+
+        private Key(int rating, String name, String id) {
+            this.rating = rating;
+            this.name = name;
+            this.id = id;
+        }
+
+        /**
+         * Writes the key as a page cursor: the rating, id and name separated by NUL characters.
+         *
+         * @return the cursor
+         */
+        public String toCursor() {
+            return rating + CURSOR_SEPARATOR + id + CURSOR_SEPARATOR + (name != null ? name : "");
+        }
+
+        /**
+         * Reads a key written by toCursor.
+         *
+         * @param cursor the cursor
+         * @return the key, or null if the text is not a hotel cursor
+         */
+        public static Key fromCursor(String cursor) {
+            String[] parts = cursor.split(CURSOR_SEPARATOR, 3);
+            if (parts.length != 3) {
+                return null;
+            }
+            try {
+                return new Key(Integer.parseInt(parts[0]), parts[2], parts[1]);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return rating == other.rating && Objects.equals(name, other.name) && id.equals(other.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(rating, name, id);
+        }
+    }
+
+    private final String label; // Text shown in the sort combo boxes
+    private final Comparator<Key> comparator;
+
+    HotelSortOrder(String label, Comparator<Key> comparator) {
+        this.label = label;
+        this.comparator = comparator;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public Comparator<Key> getComparator() {
+        return comparator;
+    }
+
+    /**
+     * Finds the order shown with a label in a sort combo box.
+     *
+     * @param label the text of the combo box option
+     * @return the order, or null if the option is not a hotel order (e.g. "Relevance")
+     */
+    public static HotelSortOrder fromLabel(String label) {
+        for (HotelSortOrder order : values()) {
+            if (order.label.equals(label)) {
+                return order;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,39 @@
+package Models;
+
+import java.util.List;
+
+/**
+ * One page of a list read with a cursor. The cursor names the last item of the page,
+ * so the next page starts right after it even if items were added or removed in the meantime.
+ */
+public class Page<T> {
+    private final List<T> items; // Items of this page, in order
+    private final String nextCursor; // Cursor to read the next page with, null on the last page
+
+    public Page(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    // Getters
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Checks whether there are items after this page.
+     * @return true if getNextCursor() can be used to read another page
+     */
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    @Override
+    public String toString() {
+        return "Page{items=" + items.size() + ", hasNext=" + hasNext() + "}";
+    }
+}
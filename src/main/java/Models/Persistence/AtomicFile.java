@@ -0,0 +1,66 @@
+package Models.Persistence;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Replaces files so a crash never leaves them half-written.
+ * The content goes to "name.tmp" first, is forced to the storage device,
+ * and only then is renamed over the target in one step. A crash before the rename
+ * leaves the old file in place; a crash after it leaves the complete new file.
+ */
+final class AtomicFile {
+
+    /**
+     * Writes the content of a file.
+     */
+    interface Content {
+        void writeTo(DataOutputStream out) throws IOException;
+    }
+
+    private AtomicFile() {
+    }
+
+    /**
+     * Writes a file through a temporary file that replaces it once it is complete and on disk.
+     *
+     * @param target the file to replace
+     * @param content writes the new content
+     * @throws IOException if the file could not be written; the old file is then unchanged
+     */
+    static void write(File target, Content content) throws IOException {
+        File temp = new File(target.getPath() + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(temp)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 64 * 1024));
+            content.writeTo(out);
+            out.flush();
+            fileOut.getFD().sync();
+        }
+
+        try {
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            // Some file systems cannot rename in one step; the temporary file is still complete and synced
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        syncFolder(target.getAbsoluteFile().getParentFile());
+    }
+
+    /**
+     * Forces the rename itself to disk. Not every platform can open a folder, so this is best effort.
+     */
+    private static void syncFolder(File folder) {
+        if (folder == null) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(folder.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // The file content is already on disk; only the rename may be replayed by the file system
+        }
+    }
+}
@@ -0,0 +1,516 @@
+package Models.Persistence;
+
+import Models.Booking;
+import Models.Persistence.Journal.Operation;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, segmented log of bookings.
+ * Bookings are appended to the newest segment file; when a segment reaches its maximum size
+ * it is sealed and a new one is started. A small index file lists the sealed segments and
+ * their lengths, so loading is one sequential read per segment.
+ * Records are keyed by booking id: when a booking is stored more than once the last record wins,
+ * and a delete record (tombstone) removes it. {@link #compact(Collection)} rewrites the live bookings
+ * so the superseded records do not pile up.
+ *
+ * Segment files: segment-00001.log, segment-00002.log, ...
+ * Record layout: [int length][byte operation][short version][row...][int crc32]
+ * UPSERT rows use the {@link EntityCodec} booking format with inline strings, DELETE rows hold only the id.
+ * Index layout: [int magic][short version][int count] then per sealed segment [int number][long length][int records],
+ * then [int flags] (bit 0: legacy .txt bookings were imported); indexes written before the flags have none.
+ */
+public class BookingStore implements Closeable {
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String INDEX_FILE = "segments.idx";
+    private static final int INDEX_MAGIC = 0x464F4849; // "FOHI"
+    private static final int FLAG_LEGACY_IMPORTED = 1;
+    public static final long DEFAULT_SEGMENT_SIZE = 4L * 1024 * 1024;
+    // Largest record body accepted while loading; a larger length can only come from a corrupted file
+    private static final int MAX_RECORD_LENGTH = 1024 * 1024;
+
+    /**
+     * Position of one segment in the store.
+     */
+    private static class Segment {
+        private final int number;
+        private long length;
+        private int records;
+        private boolean sealed; // Listed in the index, no more records are appended
+        private Map<String, Booking> bookings; // Parsed content, only set while loading
+
+        private Segment(int number, long length, int records) {
+            this.number = number;
+            this.length = length;
+            this.records = records;
+        }
+    }
+
+    private final File folder;
+    private final long maxSegmentSize;
+    // Sealed segments first, the active segment last
+    private final List<Segment> segments = new ArrayList<>();
+    private FileOutputStream fileOut;
+    private OutputStream out;
+    // Whether the legacy .txt bookings were imported once, stored in the index
+    private boolean legacyImported;
+
+    /**
+     * Creates a store in the given folder. The folder is created if needed.
+     *
+     * @param folder the folder holding the segment files
+     * @param maxSegmentSize size in bytes after which a segment is sealed
+     */
+    public BookingStore(File folder, long maxSegmentSize) {
+        this.folder = folder;
+        this.maxSegmentSize = Math.max(1024, maxSegmentSize);
+        if (!folder.exists() && !folder.mkdirs()) {
+            System.err.println("Failed to create bookings folder: " + folder.getPath());
+        }
+    }
+
+    /**
+     * Checks whether the store holds no segments yet.
+     * @return true if nothing was ever written to the store
+     */
+    public synchronized boolean isEmpty() {
+        return segmentFiles().length == 0;
+    }
+
+    /**
+     * Checks whether the legacy .txt bookings were already imported into this store.
+     * @return true once {@link #markLegacyImported()} was called, even if every booking was deleted since
+     */
+    public synchronized boolean isLegacyImported() {
+        readIndex();
+        return legacyImported;
+    }
+
+    /**
+     * Records in the index that the legacy .txt bookings were imported, so they are never imported again.
+     * Call it after {@link #load()}, as the index is rewritten from the loaded segments.
+     */
+    public synchronized void markLegacyImported() {
+        legacyImported = true;
+        try {
+            writeIndex(segments);
+        } catch (IOException e) {
+            System.err.println("Error writing the booking index: " + folder.getPath());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Reads every segment in order and returns the latest state of each booking.
+     * A torn record at the end of the active segment (e.g. after a crash) is cut off.
+     *
+     * @return the stored bookings, in the order they were first written
+     */
+    public List<Booking> load() {
+        return load(Runnable::run);
+    }
+
+    /**
+     * Reads every segment and returns the latest state of each booking.
+     * The segments are parsed in parallel on the given executor and merged in write order.
+     *
+     * @param executor runs the parsing of each segment
+     * @return the stored bookings, in the order they were first written
+     */
+    public synchronized List<Booking> load(Executor executor) {
+        close();
+        segments.clear();
+        Map<Integer, Segment> sealed = readIndex();
+
+        List<CompletableFuture<Segment>> parsed = new ArrayList<>();
+        for (File file : segmentFiles()) {
+            int number = segmentNumber(file);
+            Segment segment = sealed.get(number);
+            // Sealed segments are read up to their indexed length, the active one to its end
+            long limit = segment != null ? segment.length : file.length();
+            parsed.add(CompletableFuture.supplyAsync(() -> readSegment(file, number, limit), executor));
+        }
+
+        Map<String, Booking> latest = new LinkedHashMap<>();
+        for (CompletableFuture<Segment> future : parsed) {
+            Segment loaded = future.join();
+            // A later segment replaces (or, with a null value, deletes) the bookings of earlier ones
+            for (Map.Entry<String, Booking> entry : loaded.bookings.entrySet()) {
+                if (entry.getValue() == null) {
+                    latest.remove(entry.getKey());
+                } else {
+                    latest.put(entry.getKey(), entry.getValue());
+                }
+            }
+            loaded.bookings = null;
+            loaded.sealed = sealed.containsKey(loaded.number);
+            segments.add(loaded);
+        }
+        return new ArrayList<>(latest.values());
+    }
+
+    private Segment readSegment(File file, int number, long limit) {
+        // Latest state of each booking in this segment, null for a deleted one
+        Map<String, Booking> latest = new LinkedHashMap<>();
+        long validLength = 0;
+        int records = 0;
+        long end = Math.min(limit, file.length());
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024))) {
+            while (validLength < limit) {
+                int length = in.readInt();
+                // The body and its checksum must fit in the rest of the segment; anything else is a torn or corrupted tail
+                if (length < 0 || length > MAX_RECORD_LENGTH || length + 4L > end - validLength - 4) {
+                    System.err.println("Booking record " + records + " in " + file.getName()
+                            + " is incomplete or corrupted, ignoring the rest of the segment");
+                    break;
+                }
+                byte[] body = new byte[length];
+                in.readFully(body);
+                int checksum = in.readInt();
+                if (checksum != checksum(body)) {
+                    System.err.println("Booking record " + records + " in " + file.getName()
+                            + " is corrupted, ignoring the rest of the segment");
+                    break;
+                }
+
+                apply(body, latest);
+                records++;
+                validLength += 4 + length + 4;
+            }
+        } catch (EOFException e) {
+            System.err.println(file.getName() + " ends with an incomplete record, it will be discarded");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        // Drop a torn tail so new records are appended after the last valid one
+        if (file.length() > validLength) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(validLength);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        Segment segment = new Segment(number, validLength, records);
+        segment.bookings = latest;
+        return segment;
+    }
+
+    /**
+     * Appends a delete record for a booking.
+     *
+     * @param id the id of the deleted booking
+     * @param sync whether to force the data to the storage device before returning
+     */
+    public synchronized void delete(String id, boolean sync) {
+        write(List.of(encodeDelete(id)), sync);
+    }
+
+    /**
+     * Appends one booking.
+     *
+     * @param booking the created or updated booking
+     * @param sync whether to force the data to the storage device before returning
+     */
+    public void append(Booking booking, boolean sync) {
+        append(List.of(booking), sync);
+    }
+
+    /**
+     * Appends a batch of bookings with a single write per segment.
+     *
+     * @param bookings the bookings to append, in order
+     * @param sync whether to force the data to the storage device before returning
+     */
+    public synchronized void append(Collection<Booking> bookings, boolean sync) {
+        List<byte[]> frames = new ArrayList<>(bookings.size());
+        for (Booking booking : bookings) {
+            frames.add(encode(booking));
+        }
+        write(frames, sync);
+    }
+
+    private void write(List<byte[]> frames, boolean sync) {
+        if (frames.isEmpty()) {
+            return;
+        }
+        try {
+            for (byte[] frame : frames) {
+                Segment active = activeSegment(frame.length);
+                out.write(frame);
+                active.length += frame.length;
+                active.records++;
+            }
+            out.flush();
+            if (sync) {
+                fileOut.getChannel().force(false);
+            }
+        } catch (IOException e) {
+            System.err.println("Error appending to the booking store: " + folder.getPath());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Gets the segment the next record goes to, sealing the current one if the record does not fit.
+     */
+    private Segment activeSegment(int frameLength) throws IOException {
+        Segment active = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (active != null && !active.sealed && active.length > 0 && active.length + frameLength > maxSegmentSize) {
+            // Seal the full segment and start the next one
+            out.flush();
+            fileOut.getChannel().force(false);
+            close();
+            active.sealed = true;
+            writeIndex(segments);
+        }
+        if (active != null && active.sealed) {
+            active = null;
+        }
+        if (active == null) {
+            int number = segments.isEmpty() ? 1 : segments.get(segments.size() - 1).number + 1;
+            active = new Segment(number, 0, 0);
+            segments.add(active);
+        }
+        if (out == null) {
+            fileOut = new FileOutputStream(segmentFile(active.number), true);
+            out = new BufferedOutputStream(fileOut, 64 * 1024);
+        }
+        return active;
+    }
+
+    /**
+     * Rewrites the store so it holds exactly one record per live booking.
+     * The live bookings are written to new segments first and the old segments are deleted afterwards,
+     * so a crash in between still loads the same bookings.
+     *
+     * @param live the current bookings
+     * @return the number of records dropped
+     */
+    public synchronized int compact(Collection<Booking> live) {
+        int before = getRecordCount();
+        // Close the active segment and seal every existing one, so the first append opens a new segment file
+        // instead of writing the live bookings to a file that is deleted below
+        close();
+        for (Segment segment : segments) {
+            segment.sealed = true;
+        }
+        int oldCount = segments.size();
+        append(live, true);
+        close();
+
+        List<Segment> old = new ArrayList<>(segments.subList(0, oldCount));
+        segments.subList(0, oldCount).clear();
+        try {
+            writeIndex(segments);
+        } catch (IOException e) {
+            System.err.println("Error writing the booking index, the old segments are kept");
+            e.printStackTrace();
+            segments.addAll(0, old);
+            return 0;
+        }
+        for (Segment segment : old) {
+            File file = segmentFile(segment.number);
+            if (!file.delete()) {
+                System.out.println("Failed to delete booking segment: " + file.getName());
+            }
+        }
+        return before - getRecordCount();
+    }
+
+    /**
+     * Gets the number of records in all segments, including superseded and delete records.
+     * @return the number of stored records
+     */
+    public synchronized int getRecordCount() {
+        int count = 0;
+        for (Segment segment : segments) {
+            count += segment.records;
+        }
+        return count;
+    }
+
+    /**
+     * Gets the number of segment files in the store.
+     * @return the number of segments
+     */
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Deletes every segment and the index.
+     */
+    public synchronized void clear() {
+        close();
+        for (File file : segmentFiles()) {
+            if (!file.delete()) {
+                System.out.println("Failed to delete booking segment: " + file.getName());
+            }
+        }
+        File index = new File(folder, INDEX_FILE);
+        if (index.exists() && !index.delete()) {
+            System.out.println("Failed to delete booking index: " + index.getName());
+        }
+        segments.clear();
+        legacyImported = false;
+    }
+
+    /**
+     * Closes the active segment. The store reopens it on the next append.
+     */
+    @Override
+    public synchronized void close() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            out = null;
+            fileOut = null;
+        }
+    }
+
+    // Index
+
+    private Map<Integer, Segment> readIndex() {
+        Map<Integer, Segment> sealed = new LinkedHashMap<>();
+        legacyImported = false;
+        File index = new File(folder, INDEX_FILE);
+        if (!index.exists()) {
+            return sealed;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(index)))) {
+            if (in.readInt() != INDEX_MAGIC || in.readShort() > EntityCodec.VERSION) {
+                System.err.println("Unknown booking index format, the segments will be scanned");
+                return sealed;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                Segment segment = new Segment(in.readInt(), in.readLong(), in.readInt());
+                sealed.put(segment.number, segment);
+            }
+            // Older indexes end here
+            if (in.available() >= 4) {
+                legacyImported = (in.readInt() & FLAG_LEGACY_IMPORTED) != 0;
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading the booking index, the segments will be scanned");
+            sealed.clear();
+        }
+        return sealed;
+    }
+
+    /**
+     * Writes the index of the sealed segments.
+     * The index replaces the old one only once it is complete and on disk, so a crash never leaves it half-written.
+     */
+    private void writeIndex(List<Segment> all) throws IOException {
+        List<Segment> sealed = new ArrayList<>();
+        for (Segment segment : all) {
+            if (segment.sealed) {
+                sealed.add(segment);
+            }
+        }
+        AtomicFile.write(new File(folder, INDEX_FILE), index -> {
+            index.writeInt(INDEX_MAGIC);
+            index.writeShort(EntityCodec.VERSION);
+            index.writeInt(sealed.size());
+            for (Segment segment : sealed) {
+                index.writeInt(segment.number);
+                index.writeLong(segment.length);
+                index.writeInt(segment.records);
+            }
+            index.writeInt(legacyImported ? FLAG_LEGACY_IMPORTED : 0);
+        });
+    }
+
+    private File[] segmentFiles() {
+        File[] files = folder.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        if (files == null) {
+            return new File[0];
+        }
+        // Zero-padded numbers sort in write order
+        java.util.Arrays.sort(files);
+        return files;
+    }
+
+    private File segmentFile(int number) {
+        return new File(folder, String.format("%s%05d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    private static int segmentNumber(File file) {
+        String name = file.getName();
+        return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    // Records
+
+    /**
+     * Writes the fields of one record.
+     */
+    private interface FieldWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static byte[] encode(Booking booking) {
+        return frame(Operation.UPSERT, out -> EntityCodec.writeBooking(out, booking, EntityCodec.INLINE));
+    }
+
+    private static byte[] encodeDelete(String id) {
+        return frame(Operation.DELETE, out -> EntityCodec.INLINE.write(out, id));
+    }
+
+    private static byte[] frame(Operation operation, FieldWriter fields) {
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(128);
+            DataOutputStream body = new DataOutputStream(buffer);
+            body.writeByte(operation.ordinal());
+            body.writeShort(EntityCodec.VERSION);
+            fields.write(body);
+            byte[] bytes = buffer.toByteArray();
+
+            // Frame the body with its length and checksum
+            ByteArrayOutputStream frame = new ByteArrayOutputStream(bytes.length + 8);
+            DataOutputStream framed = new DataOutputStream(frame);
+            framed.writeInt(bytes.length);
+            framed.write(bytes);
+            framed.writeInt(checksum(bytes));
+            return frame.toByteArray();
+        } catch (IOException e) {
+            // Writing to an in-memory buffer does not fail
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void apply(byte[] body, Map<String, Booking> latest) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        Operation operation = Operation.values()[in.readByte()];
+        int version = in.readShort();
+        if (version > EntityCodec.VERSION) {
+            throw new IOException("Unsupported booking record version " + version);
+        }
+        if (operation == Operation.DELETE) {
+            // Keep the delete so it also removes the booking from earlier segments
+            latest.put(EntityCodec.INLINE.read(in), null);
+            return;
+        }
+        Booking booking = EntityCodec.readBooking(in, EntityCodec.INLINE);
+        latest.put(booking.getId(), booking);
+    }
+
+    private static int checksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+}
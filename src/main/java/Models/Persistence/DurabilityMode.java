@@ -0,0 +1,13 @@
+package Models.Persistence;
+
+/**
+ * Defines when queued journal records are written to disk.
+ * Bookings do not go through the journal: they are appended to the booking store on the caller's thread
+ * in every mode, so they reach the operating system right away. Only SYNC also forces them to disk,
+ * so in ASYNC and BATCH mode a power loss can lose the last bookings, but a crash of the application cannot.
+ */
+public enum DurabilityMode {
+    ASYNC, // Flush on a background thread every N milliseconds
+    BATCH, // Flush on a background thread every N operations, and at the latest after N milliseconds
+    SYNC   // Write and fsync every operation on the caller's thread
+}
@@ -0,0 +1,418 @@
+package Models.Persistence;
+
+import Models.Booking;
+import Models.Hotel;
+import Models.Room;
+import Models.User;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hand-written binary format for users, hotels, rooms and bookings.
+ * Replaces Java serialization for the .dat snapshot files: no class descriptors,
+ * no reflection, and repeated strings (locations, room types, ids of related entities)
+ * are stored once in a string table.
+ *
+ * Snapshot layout:
+ * [int magic][short version][byte entity type]
+ * [varint string count][varint length + UTF-8 bytes]...
+ * [varint row count][rows...]
+ *
+ * Inside a row every string is a varint reference into the string table (0 means null).
+ * Related entities are stored by id only (Room.hotelId, Booking.userId, Booking.roomId),
+ * so each file holds just its own table. DataManager relinks the objects after loading.
+ * Snapshots are written through {@link AtomicFile}, so a crash never leaves a half-written file.
+ */
+public final class EntityCodec {
+    private static final int MAGIC = 0x464F4844; // "FOHD"
+    public static final int VERSION = 1;
+
+    /**
+     * Kind of entity stored in a snapshot.
+     */
+    public enum EntityType {
+        USER,
+        HOTEL,
+        ROOM,
+        BOOKING
+    }
+
+    private EntityCodec() {
+    }
+
+    /**
+     * Writes the strings of a row.
+     * Snapshots use a shared string table; journal records store strings inline.
+     */
+    public interface StringEncoder {
+        void write(DataOutputStream out, String value) throws IOException;
+    }
+
+    /**
+     * Reads the strings of a row written by the matching {@link StringEncoder}.
+     */
+    public interface StringDecoder {
+        String read(DataInputStream in) throws IOException;
+    }
+
+    /**
+     * Strings stored inline as a varint length (plus one, 0 means null) followed by the UTF-8 bytes.
+     * Needs no state, so one instance both writes and reads.
+     */
+    public static final InlineStrings INLINE = new InlineStrings();
+
+    /**
+     * The inline string format, see {@link #INLINE}.
+     */
+    public static final class InlineStrings implements StringEncoder, StringDecoder {
+        private InlineStrings() {
+        }
+
+        @Override
+        public void write(DataOutputStream out, String value) throws IOException {
+            if (value == null) {
+                writeVarInt(out, 0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(out, bytes.length + 1);
+            out.write(bytes);
+        }
+
+        @Override
+        public String read(DataInputStream in) throws IOException {
+            int length = readVarInt(in);
+            if (length == 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length - 1];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * String table collected while a snapshot is written.
+     */
+    private static class StringTableWriter implements StringEncoder {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        @Override
+        public void write(DataOutputStream out, String value) throws IOException {
+            if (value == null) {
+                writeVarInt(out, 0);
+                return;
+            }
+            Integer id = ids.get(value);
+            if (id == null) {
+                values.add(value);
+                id = values.size();
+                ids.put(value, id);
+            }
+            writeVarInt(out, id);
+        }
+    }
+
+    /**
+     * String table read from the header of a snapshot.
+     */
+    private static class StringTableReader implements StringDecoder {
+        private final String[] values;
+
+        StringTableReader(String[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public String read(DataInputStream in) throws IOException {
+            int id = readVarInt(in);
+            return id == 0 ? null : values[id - 1];
+        }
+    }
+
+    /**
+     * Writes one entity as a row.
+     */
+    private interface RowWriter<T> {
+        void write(DataOutputStream out, T entity, StringEncoder strings) throws IOException;
+    }
+
+    /**
+     * Reads one row as an entity.
+     */
+    private interface RowReader<T> {
+        T read(DataInputStream in, StringDecoder strings) throws IOException;
+    }
+
+    // Snapshots
+
+    public static void writeUsers(File file, List<User> users) throws IOException {
+        writeSnapshot(file, EntityType.USER, users, EntityCodec::writeUser);
+    }
+
+    public static void writeHotels(File file, List<Hotel> hotels) throws IOException {
+        writeSnapshot(file, EntityType.HOTEL, hotels, EntityCodec::writeHotel);
+    }
+
+    public static void writeRooms(File file, List<Room> rooms) throws IOException {
+        writeSnapshot(file, EntityType.ROOM, rooms, EntityCodec::writeRoom);
+    }
+
+    public static void writeBookings(File file, List<Booking> bookings) throws IOException {
+        writeSnapshot(file, EntityType.BOOKING, bookings, EntityCodec::writeBooking);
+    }
+
+    public static List<User> readUsers(File file) throws IOException {
+        return readSnapshot(file, EntityType.USER, EntityCodec::readUser);
+    }
+
+    public static List<Hotel> readHotels(File file) throws IOException {
+        return readSnapshot(file, EntityType.HOTEL, EntityCodec::readHotel);
+    }
+
+    public static List<Room> readRooms(File file) throws IOException {
+        return readSnapshot(file, EntityType.ROOM, EntityCodec::readRoom);
+    }
+
+    public static List<Booking> readBookings(File file) throws IOException {
+        return readSnapshot(file, EntityType.BOOKING, EntityCodec::readBooking);
+    }
+
+    /**
+     * Checks whether a file starts with the header of this format.
+     * Files written with Java serialization are read with {@link #readLegacy(File)} instead.
+     *
+     * @param file the file to check
+     * @return true if the file is a snapshot in this format
+     */
+    public static boolean isSnapshot(File file) {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return in.readInt() == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * One-time migration reader for .dat files written with Java serialization.
+     *
+     * @param file the legacy file
+     * @return the list stored in the file
+     * @throws IOException if the file cannot be read
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> List<T> readLegacy(File file) throws IOException {
+        try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            return (List<T>) ois.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unknown class in legacy data file: " + file.getName(), e);
+        }
+    }
+
+    /**
+     * Reads a snapshot of any entity type, or a legacy file.
+     * Used by tools that display the content of a data file.
+     *
+     * @param file the file to read
+     * @return the entities stored in the file
+     * @throws IOException if the file cannot be read
+     */
+    public static List<?> readAny(File file) throws IOException {
+        if (!isSnapshot(file)) {
+            return readLegacy(file);
+        }
+        switch (readHeader(file)) {
+            case USER:
+                return readUsers(file);
+            case HOTEL:
+                return readHotels(file);
+            case ROOM:
+                return readRooms(file);
+            default:
+                return readBookings(file);
+        }
+    }
+
+    private static EntityType readHeader(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            in.readInt();
+            in.readShort();
+            return EntityType.values()[in.readByte()];
+        }
+    }
+
+    private static <T> void writeSnapshot(File file, EntityType type, List<T> entities, RowWriter<T> writer)
+            throws IOException {
+        // Encode the rows first so the string table is complete before the header is written
+        StringTableWriter strings = new StringTableWriter();
+        ByteArrayOutputStream rowBuffer = new ByteArrayOutputStream(Math.max(256, entities.size() * 32));
+        DataOutputStream rows = new DataOutputStream(rowBuffer);
+        for (T entity : entities) {
+            writer.write(rows, entity, strings);
+        }
+
+        // The snapshot replaces the file only once it is complete and on disk
+        AtomicFile.write(file, out -> {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeByte(type.ordinal());
+            writeVarInt(out, strings.values.size());
+            for (String value : strings.values) {
+                INLINE.write(out, value);
+            }
+            writeVarInt(out, entities.size());
+            rowBuffer.writeTo(out);
+        });
+    }
+
+    private static <T> List<T> readSnapshot(File file, EntityType type, RowReader<T> reader) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a data snapshot: " + file.getName());
+            }
+            int version = in.readShort();
+            if (version > VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + " in " + file.getName());
+            }
+            EntityType storedType = EntityType.values()[in.readByte()];
+            if (storedType != type) {
+                throw new IOException("Expected " + type + " snapshot but found " + storedType + " in " + file.getName());
+            }
+
+            String[] table = new String[readVarInt(in)];
+            for (int i = 0; i < table.length; i++) {
+                table[i] = INLINE.read(in);
+            }
+            StringDecoder strings = new StringTableReader(table);
+
+            int count = readVarInt(in);
+            List<T> entities = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                entities.add(reader.read(in, strings));
+            }
+            return entities;
+        }
+    }
+
+    // Rows
+
+    public static void writeUser(DataOutputStream out, User user, StringEncoder strings) throws IOException {
+        strings.write(out, user.getId());
+        strings.write(out, user.getUsername());
+        strings.write(out, user.getPassword());
+        strings.write(out, user.getFullName());
+        strings.write(out, user.getEmail());
+        strings.write(out, user.getPhoneNumber());
+        out.writeBoolean(user.isAdmin());
+    }
+
+    public static User readUser(DataInputStream in, StringDecoder strings) throws IOException {
+        return new User(strings.read(in), strings.read(in), strings.read(in), strings.read(in),
+                strings.read(in), strings.read(in), in.readBoolean());
+    }
+
+    public static void writeHotel(DataOutputStream out, Hotel hotel, StringEncoder strings) throws IOException {
+        strings.write(out, hotel.getId());
+        strings.write(out, hotel.getName());
+        strings.write(out, hotel.getLocation());
+        writeVarInt(out, hotel.getRating());
+        strings.write(out, hotel.getDescription());
+    }
+
+    public static Hotel readHotel(DataInputStream in, StringDecoder strings) throws IOException {
+        return new Hotel(strings.read(in), strings.read(in), strings.read(in), readVarInt(in), strings.read(in));
+    }
+
+    public static void writeRoom(DataOutputStream out, Room room, StringEncoder strings) throws IOException {
+        strings.write(out, room.getId());
+        strings.write(out, room.getHotelId());
+        strings.write(out, room.getRoomNumber());
+        strings.write(out, room.getType());
+        out.writeDouble(room.getPricePerNight());
+        out.writeBoolean(room.isAvailable());
+    }
+
+    public static Room readRoom(DataInputStream in, StringDecoder strings) throws IOException {
+        String id = strings.read(in);
+        String hotelId = strings.read(in);
+        Room room = new Room(id, strings.read(in), strings.read(in), in.readDouble());
+        room.setAvailable(in.readBoolean());
+        room.setHotelId(hotelId);
+        return room;
+    }
+
+    public static void writeBooking(DataOutputStream out, Booking booking, StringEncoder strings) throws IOException {
+        strings.write(out, booking.getId());
+        strings.write(out, booking.getUserId());
+        strings.write(out, booking.getRoomId());
+        writeVarLong(out, booking.getCheckInDate().toEpochDay());
+        writeVarLong(out, booking.getCheckOutDate().toEpochDay());
+        out.writeDouble(booking.getTotalPrice());
+        out.writeBoolean(booking.isConfirmed());
+    }
+
+    public static Booking readBooking(DataInputStream in, StringDecoder strings) throws IOException {
+        String id = strings.read(in);
+        String userId = strings.read(in);
+        String roomId = strings.read(in);
+        LocalDate checkIn = LocalDate.ofEpochDay(readVarLong(in));
+        LocalDate checkOut = LocalDate.ofEpochDay(readVarLong(in));
+
+        Booking booking = new Booking(id, null, null, checkIn, checkOut);
+        booking.setUserId(userId);
+        booking.setRoomId(roomId);
+        booking.setTotalPrice(in.readDouble());
+        booking.setConfirmed(in.readBoolean());
+        return booking;
+    }
+
+    // Variable-length integers (7 bits per byte, high bit set on all but the last byte)
+
+    public static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    public static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    public static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        // Zigzag encoding keeps small negative values short
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            out.writeByte((int) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        out.writeByte((int) zigzag);
+    }
+
+    public static long readVarLong(DataInputStream in) throws IOException {
+        long zigzag = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.readUnsignedByte();
+            zigzag |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+}
@@ -0,0 +1,357 @@
+package Models.Persistence;
+
+import Models.Hotel;
+import Models.Persistence.EntityCodec.EntityType;
+import Models.Room;
+import Models.User;
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead journal for entity mutations.
+ * Every create, update or delete is written as one small record at the end of the file,
+ * so the cost of a write does not depend on how many entities are stored.
+ * On startup the journal is replayed on top of the last snapshot (.dat files).
+ * Records are encoded by the caller and written in batches, see {@link WriteBehindQueue}.
+ *
+ * Record layout: [int length][byte operation][byte entity type][short version][row...][int crc32]
+ * Rows use the {@link EntityCodec} format with inline strings.
+ */
+public class Journal implements Closeable {
+    // Largest record body accepted while replaying; a larger length can only come from a corrupted file
+    static final int MAX_RECORD_LENGTH = 16 * 1024 * 1024;
+
+    /**
+     * Kind of change stored in a record.
+     */
+    public enum Operation {
+        UPSERT, // Entity was created or updated (the record holds its full state)
+        DELETE  // Entity was deleted (the record holds only its id)
+    }
+
+    /**
+     * One encoded journal record, ready to be written.
+     */
+    public static class Record {
+        private final EntityType type;
+        private final String id;
+        private final byte[] frame;
+
+        private Record(EntityType type, String id, byte[] frame) {
+            this.type = type;
+            this.id = id;
+            this.frame = frame;
+        }
+
+        public EntityType getType() {
+            return type;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        /**
+         * Gets the key of the entity this record belongs to.
+         * Later records with the same key replace earlier ones.
+         * @return the entity key
+         */
+        public String getKey() {
+            return type + ":" + id;
+        }
+    }
+
+    /**
+     * Receives the records of the journal while it is replayed.
+     */
+    public interface Handler {
+        void onUser(User user);
+
+        void onHotel(Hotel hotel);
+
+        void onRoom(Room room);
+
+        void onDelete(EntityType type, String id);
+    }
+
+    private final File file;
+    private FileOutputStream fileOut;
+    private OutputStream out;
+    private int recordCount;
+
+    /**
+     * Creates a journal backed by the given file.
+     * The file is created on the first append.
+     *
+     * @param fileName path to the journal file
+     */
+    public Journal(String fileName) {
+        this.file = new File(fileName);
+    }
+
+    /**
+     * Replays every complete record of the journal in the order they were written.
+     * A torn record at the end of the file (e.g. after a crash) or a record whose checksum
+     * does not match is cut off. A record with a valid checksum that cannot be decoded
+     * (e.g. written by a newer version) is not a torn tail: the journal is left as it is
+     * and replaying stops, so no change after it is lost.
+     *
+     * @param handler receives the decoded records
+     * @return the number of records replayed
+     * @throws UncheckedIOException if the journal cannot be read or a record cannot be decoded
+     */
+    public synchronized int replay(Handler handler) {
+        recordCount = 0;
+        if (!file.exists()) {
+            return 0;
+        }
+
+        long fileLength = file.length();
+        long validLength = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break; // Clean end of the journal
+                }
+
+                // The body and its checksum must fit in the rest of the file; anything else is a torn or corrupted tail
+                long remaining = fileLength - validLength - 4;
+                if (length < 0 || length > MAX_RECORD_LENGTH || length + 4L > remaining) {
+                    System.err.println("Journal record " + recordCount + " is incomplete or corrupted, ignoring the rest of the journal");
+                    break;
+                }
+                byte[] body = new byte[length];
+                in.readFully(body);
+                int checksum = in.readInt();
+                if (checksum != checksum(body)) {
+                    System.err.println("Journal record " + recordCount + " is corrupted, ignoring the rest of the journal");
+                    break;
+                }
+
+                try {
+                    applyRecord(body, handler);
+                } catch (IOException e) {
+                    System.err.println("Journal record " + recordCount + " cannot be decoded; the journal is kept as it is");
+                    throw new UncheckedIOException("Cannot decode journal record " + recordCount + " in " + file.getPath(), e);
+                }
+                recordCount++;
+                validLength += 4 + length + 4;
+            }
+        } catch (EOFException e) {
+            System.err.println("Journal ends with an incomplete record, it will be discarded");
+        } catch (IOException e) {
+            // Not a torn tail, so nothing is cut off
+            throw new UncheckedIOException("Cannot read journal " + file.getPath(), e);
+        }
+
+        // Drop a torn tail so new records are appended after the last valid one
+        if (file.length() > validLength) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(validLength);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return recordCount;
+    }
+
+    private void applyRecord(byte[] body, Handler handler) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        int operationIndex = in.readByte();
+        int typeIndex = in.readByte();
+        if (operationIndex < 0 || operationIndex >= Operation.values().length
+                || typeIndex < 0 || typeIndex >= EntityType.values().length) {
+            throw new IOException("Unknown journal operation " + operationIndex + " or entity type " + typeIndex);
+        }
+        Operation operation = Operation.values()[operationIndex];
+        EntityType type = EntityType.values()[typeIndex];
+        int version = in.readShort();
+        if (version > EntityCodec.VERSION) {
+            throw new IOException("Unsupported journal record version " + version);
+        }
+
+        if (operation == Operation.DELETE) {
+            handler.onDelete(type, EntityCodec.INLINE.read(in));
+            return;
+        }
+
+        switch (type) {
+            case USER:
+                handler.onUser(EntityCodec.readUser(in, EntityCodec.INLINE));
+                break;
+            case HOTEL:
+                handler.onHotel(EntityCodec.readHotel(in, EntityCodec.INLINE));
+                break;
+            case ROOM:
+                handler.onRoom(EntityCodec.readRoom(in, EntityCodec.INLINE));
+                break;
+            default:
+                throw new IOException("Unexpected journal record for " + type);
+        }
+    }
+
+    /**
+     * Encodes the full state of a user.
+     * @param user the created or updated user
+     * @return the encoded record
+     */
+    public static Record encodeUser(User user) {
+        return encode(Operation.UPSERT, EntityType.USER, user.getId(),
+                out -> EntityCodec.writeUser(out, user, EntityCodec.INLINE));
+    }
+
+    /**
+     * Encodes the full state of a hotel (without its rooms).
+     * @param hotel the created or updated hotel
+     * @return the encoded record
+     */
+    public static Record encodeHotel(Hotel hotel) {
+        return encode(Operation.UPSERT, EntityType.HOTEL, hotel.getId(),
+                out -> EntityCodec.writeHotel(out, hotel, EntityCodec.INLINE));
+    }
+
+    /**
+     * Encodes the full state of a room. The owning hotel is stored by id.
+     * @param room the created or updated room
+     * @return the encoded record
+     */
+    public static Record encodeRoom(Room room) {
+        return encode(Operation.UPSERT, EntityType.ROOM, room.getId(),
+                out -> EntityCodec.writeRoom(out, room, EntityCodec.INLINE));
+    }
+
+    /**
+     * Encodes a delete marker for an entity.
+     * @param type the type of the deleted entity
+     * @param id the id of the deleted entity
+     * @return the encoded record
+     */
+    public static Record encodeDelete(EntityType type, String id) {
+        return encode(Operation.DELETE, type, id, out -> EntityCodec.INLINE.write(out, id));
+    }
+
+    /**
+     * Appends a batch of records with a single write.
+     * If the write fails, the part of the batch already written is cut off again,
+     * so records appended later do not follow a torn one.
+     *
+     * @param records the records to append, in order
+     * @param sync whether to force the data to the storage device before returning
+     * @throws IOException if the records could not be written; none of them is then in the journal
+     */
+    public synchronized void append(Collection<Record> records, boolean sync) throws IOException {
+        if (records.isEmpty()) {
+            return;
+        }
+        if (out == null) {
+            fileOut = new FileOutputStream(file, true);
+            out = new BufferedOutputStream(fileOut, 64 * 1024);
+        }
+        long start = fileOut.getChannel().size();
+        try {
+            for (Record record : records) {
+                out.write(record.frame);
+            }
+            out.flush();
+            if (sync) {
+                fileOut.getChannel().force(false);
+            }
+        } catch (IOException e) {
+            // Cut off the part of the batch that reached the file
+            close();
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(start);
+            } catch (IOException truncateError) {
+                e.addSuppressed(truncateError);
+            }
+            throw e;
+        }
+        recordCount += records.size();
+    }
+
+    /**
+     * Gets the number of records in the journal since the last truncation.
+     * @return the number of records
+     */
+    public synchronized int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Empties the journal. Called after a snapshot has been written,
+     * because the snapshot already contains every journaled change.
+     * The new length is forced to disk, so the records are not replayed again after a crash.
+     */
+    public synchronized void truncate() {
+        close();
+        if (!file.exists()) {
+            recordCount = 0;
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            channel.truncate(0);
+            channel.force(true);
+            recordCount = 0;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Closes the underlying file stream. The journal reopens it on the next append.
+     */
+    @Override
+    public synchronized void close() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            out = null;
+            fileOut = null;
+        }
+    }
+
+    /**
+     * Writes the fields of one record.
+     */
+    private interface FieldWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static Record encode(Operation operation, EntityType type, String id, FieldWriter fields) {
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(128);
+            DataOutputStream body = new DataOutputStream(buffer);
+            body.writeByte(operation.ordinal());
+            body.writeByte(type.ordinal());
+            body.writeShort(EntityCodec.VERSION);
+            fields.write(body);
+            byte[] bytes = buffer.toByteArray();
+
+            // Frame the body with its length and checksum
+            ByteArrayOutputStream frame = new ByteArrayOutputStream(bytes.length + 8);
+            DataOutputStream framed = new DataOutputStream(frame);
+            framed.writeInt(bytes.length);
+            framed.write(bytes);
+            framed.writeInt(checksum(bytes));
+            return new Record(type, id, frame.toByteArray());
+        } catch (IOException e) {
+            // Writing to an in-memory buffer does not fail
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int checksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,181 @@
+package Models.Persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind stage in front of the {@link Journal}.
+ * Records are collected per entity, so an entity that changes several times before a flush
+ * is written only once, and flushed in batches on a background thread.
+ * The {@link DurabilityMode} decides when a flush happens.
+ * Records the journal could not take stay queued, and the next flush tries again.
+ */
+public class WriteBehindQueue implements Closeable {
+    private final Journal journal;
+    private final DurabilityMode mode;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+
+    // Pending records by entity key, in the order the entities were first changed
+    private final Map<String, Journal.Record> pending = new LinkedHashMap<>();
+    // Number of operations submitted since the last flush (before coalescing)
+    private int pendingOperations;
+    // Guards the drain-and-write sequence so batches reach the journal in order
+    private final Object flushLock = new Object();
+    private final ScheduledExecutorService flusher;
+
+    /**
+     * Creates a queue in front of the given journal.
+     *
+     * @param journal the journal the records are written to
+     * @param mode when to flush the queued records
+     * @param batchSize number of operations that triggers a flush in BATCH mode
+     * @param flushIntervalMillis time between flushes in ASYNC mode, and the longest a record waits for its batch in BATCH mode
+     */
+    public WriteBehindQueue(Journal journal, DurabilityMode mode, int batchSize, long flushIntervalMillis) {
+        this.journal = journal;
+        this.mode = mode;
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalMillis = Math.max(1, flushIntervalMillis);
+
+        if (mode == DurabilityMode.SYNC) {
+            flusher = null;
+        } else {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "journal-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            // BATCH mode flushes on the same timer, so a batch that does not fill up is still written
+            flusher.scheduleWithFixedDelay(this::flush, this.flushIntervalMillis,
+                    this.flushIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Queues a record. In SYNC mode the record is written and forced to disk before returning.
+     * @param record the encoded record
+     * @return false if the record could not be written in SYNC mode; it then stays queued for the next flush
+     */
+    public boolean submit(Journal.Record record) {
+        return submitAll(List.of(record));
+    }
+
+    /**
+     * Queues several records at once. In SYNC mode they are written and forced to disk
+     * with a single write before returning.
+     * @param records the encoded records, in order
+     * @return false if the records could not be written in SYNC mode; they then stay queued for the next flush
+     */
+    public boolean submitAll(Collection<Journal.Record> records) {
+        if (records.isEmpty()) {
+            return true;
+        }
+
+        boolean batchFull;
+        synchronized (pending) {
+            // A newer record for the same entity replaces the queued one
+            for (Journal.Record record : records) {
+                pending.put(record.getKey(), record);
+            }
+            pendingOperations += records.size();
+            batchFull = mode == DurabilityMode.BATCH && pendingOperations >= batchSize;
+            if (batchFull) {
+                pendingOperations = 0;
+            }
+        }
+        if (mode == DurabilityMode.SYNC) {
+            // Records left over from a failed write go first, so the journal keeps the order of the changes
+            return write(true);
+        }
+        if (batchFull) {
+            flusher.execute(this::flush);
+        }
+        return true;
+    }
+
+    /**
+     * Writes every queued record to the journal with a single write.
+     * @return false if the journal could not be written; the records then stay queued and the next flush tries again
+     */
+    public boolean flush() {
+        return write(mode == DurabilityMode.SYNC);
+    }
+
+    private boolean write(boolean sync) {
+        synchronized (flushLock) {
+            List<Journal.Record> batch;
+            synchronized (pending) {
+                if (pending.isEmpty()) {
+                    return true;
+                }
+                batch = new ArrayList<>(pending.values());
+                pending.clear();
+                pendingOperations = 0;
+            }
+            try {
+                journal.append(batch, sync);
+                return true;
+            } catch (IOException e) {
+                System.err.println("Error appending to journal, " + batch.size() + " records stay queued: " + e.getMessage());
+                requeue(batch);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Puts a batch that could not be written back in front of the queue.
+     * Records queued while the batch was being written are newer, so they replace the ones of the batch.
+     */
+    private void requeue(List<Journal.Record> batch) {
+        synchronized (pending) {
+            Map<String, Journal.Record> newer = new LinkedHashMap<>(pending);
+            pending.clear();
+            for (Journal.Record record : batch) {
+                pending.put(record.getKey(), record);
+            }
+            pending.putAll(newer);
+        }
+    }
+
+    /**
+     * Gets the number of records waiting to be written.
+     * @return the number of queued records
+     */
+    public int getPendingCount() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    public DurabilityMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Flushes the remaining records and stops the background thread.
+     * Records that could not be written are still counted by {@link #getPendingCount()}.
+     */
+    @Override
+    public void close() {
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+        journal.close();
+    }
+}
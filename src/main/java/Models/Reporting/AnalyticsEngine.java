@@ -0,0 +1,188 @@
+package Models.Reporting;
+
+import Models.Booking;
+import Models.Room;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Ad-hoc statistics over all bookings, e.g. revenue by city and room type or the average length of stay.
+ * The bookings are split into ranges that are counted in parallel on a fork-join pool,
+ * each into its own partial result (e.g. a BookingStatistics per group), and the partial results are merged.
+ * The list is read in place, so it must not change while a query runs; queries block until they are done.
+ */
+public class AnalyticsEngine {
+    // Below this many bookings a range is counted on one thread
+    private static final int SEQUENTIAL_THRESHOLD = 16_384;
+    // Group name of bookings whose room, hotel or room type is unknown
+    public static final String UNKNOWN = "(unknown)";
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates an engine that runs on the common fork-join pool, with one thread per core.
+     */
+    public AnalyticsEngine() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates an engine that runs on a given pool, e.g. to limit the number of threads.
+     * @param pool The pool
+     */
+    public AnalyticsEngine(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Computes the statistics of all bookings.
+     * @param bookings The bookings, e.g. DataManager.getBookingsView()
+     * @param referenceDate The date lead times are counted from, e.g. today
+     * @return The statistics
+     */
+    public BookingStatistics summarize(List<Booking> bookings, LocalDate referenceDate) {
+        BookingStatistics statistics = groupBy(bookings, booking -> "", referenceDate).get("");
+        return statistics != null ? statistics : new BookingStatistics();
+    }
+
+    /**
+     * Computes the statistics of the bookings per group.
+     * @param bookings The bookings, e.g. DataManager.getBookingsView()
+     * @param groupOf Gives the group of a booking; must not return null and must be safe to call from several threads
+     * @param referenceDate The date lead times are counted from, e.g. today
+     * @return The statistics of every group with at least one booking
+     */
+    public <K> Map<K, BookingStatistics> groupBy(List<Booking> bookings, Function<Booking, K> groupOf, LocalDate referenceDate) {
+        long referenceDay = referenceDate.toEpochDay();
+        return this.<Map<K, BookingStatistics>>aggregate(bookings, HashMap::new,
+            (groups, booking) -> groups.computeIfAbsent(groupOf.apply(booking), k -> new BookingStatistics()).add(booking, referenceDay),
+            AnalyticsEngine::mergeGroups);
+    }
+
+    /**
+     * Computes the statistics of the bookings per city and room type.
+     * @param bookings The bookings, e.g. DataManager.getBookingsView()
+     * @param referenceDate The date lead times are counted from, e.g. today
+     * @return The statistics by city, then by room type, both in alphabetical order
+     */
+    public Map<String, Map<String, BookingStatistics>> byCityAndRoomType(List<Booking> bookings, LocalDate referenceDate) {
+        long referenceDay = referenceDate.toEpochDay();
+        // Nested maps need no key object per booking
+        Map<String, Map<String, BookingStatistics>> groups = this.<Map<String, Map<String, BookingStatistics>>>aggregate(bookings, HashMap::new,
+            (byCity, booking) -> byCity.computeIfAbsent(cityOf(booking), k -> new HashMap<>())
+                .computeIfAbsent(roomTypeOf(booking), k -> new BookingStatistics()).add(booking, referenceDay),
+            (first, second) -> {
+                for (Map.Entry<String, Map<String, BookingStatistics>> city : second.entrySet()) {
+                    first.merge(city.getKey(), city.getValue(), AnalyticsEngine::mergeGroups);
+                }
+                return first;
+            });
+        Map<String, Map<String, BookingStatistics>> byCity = new TreeMap<>();
+        for (Map.Entry<String, Map<String, BookingStatistics>> city : groups.entrySet()) {
+            byCity.put(city.getKey(), new TreeMap<>(city.getValue()));
+        }
+        return byCity;
+    }
+
+    /**
+     * Folds the bookings into a result in parallel: every range of bookings is added to its own
+     * new result, and the results of neighbouring ranges are merged until one is left.
+     * @param bookings The bookings, e.g. DataManager.getBookingsView()
+     * @param create Creates an empty result
+     * @param add Adds one booking to a result
+     * @param merge Adds the second result to the first and returns the combined one
+     * @return The result of all bookings
+     */
+    public <A> A aggregate(List<Booking> bookings, Supplier<A> create, BiConsumer<A, Booking> add, BinaryOperator<A> merge) {
+        return pool.invoke(new AggregateTask<>(bookings, 0, bookings.size(), create, add, merge));
+    }
+
+    /**
+     * Adds the statistics of the second groups to the first groups.
+     */
+    private static <K> Map<K, BookingStatistics> mergeGroups(Map<K, BookingStatistics> first, Map<K, BookingStatistics> second) {
+        for (Map.Entry<K, BookingStatistics> group : second.entrySet()) {
+            BookingStatistics existing = first.putIfAbsent(group.getKey(), group.getValue());
+            if (existing != null) {
+                existing.merge(group.getValue());
+            }
+        }
+        return first;
+    }
+
+    /**
+     * Gets the city of the hotel of a booking.
+     * @param booking The booking
+     * @return The city, or UNKNOWN
+     */
+    public static String cityOf(Booking booking) {
+        Room room = booking.getRoom();
+        if (room == null || room.getHotel() == null || room.getHotel().getLocation() == null) {
+            return UNKNOWN;
+        }
+        return room.getHotel().getLocation();
+    }
+
+    /**
+     * Gets the room type of a booking.
+     * @param booking The booking
+     * @return The room type, or UNKNOWN
+     */
+    public static String roomTypeOf(Booking booking) {
+        Room room = booking.getRoom();
+        return room != null && room.getType() != null ? room.getType() : UNKNOWN;
+    }
+
+    /**
+     * Folds a range of the bookings, splitting it in two while it is large.
+     * ForkJoinTask is Serializable, but a task is never serialized: it only lives while the pool runs it,
+     * so its fields are transient.
+     */
+    private static class AggregateTask<A> extends RecursiveTask<A> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient List<Booking> bookings;
+        private final int from;
+        private final int to;
+        private final transient Supplier<A> create;
+        private final transient BiConsumer<A, Booking> add;
+        private final transient BinaryOperator<A> merge;
+
+        private AggregateTask(List<Booking> bookings, int from, int to,
+                              Supplier<A> create, BiConsumer<A, Booking> add, BinaryOperator<A> merge) {
+            this.bookings = bookings;
+            this.from = from;
+            this.to = to;
+            this.create = create;
+            this.add = add;
+            this.merge = merge;
+        }
+
+        @Override
+        protected A compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                A result = create.get();
+                for (int i = from; i < to; i++) {
+                    add.accept(result, bookings.get(i));
+                }
+                return result;
+            }
+
+            // Fold the second half on another thread while this one folds the first
+            int middle = (from + to) >>> 1;
+            AggregateTask<A> second = new AggregateTask<>(bookings, middle, to, create, add, merge);
+            second.fork();
+            A first = new AggregateTask<>(bookings, from, middle, create, add, merge).compute();
+            return merge.apply(first, second.join());
+        }
+    }
+}
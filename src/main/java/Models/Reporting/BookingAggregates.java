@@ -0,0 +1,245 @@
+package Models.Reporting;
+
+import Models.Booking;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Revenue and occupancy totals of bookings, kept up to date as bookings are added, changed and removed
+ * instead of being computed from every booking when a report is shown.
+ * Each night of a booking adds its share of the total price and one room-night to the day of the night,
+ * for its hotel and for all hotels; a booking is counted as confirmed or pending on its check-in day.
+ * What a booking added is remembered, so it can be taken out again after the booking was changed in place.
+ * Bookings are compared by identity.
+ */
+public class BookingAggregates {
+    // Positions in the totals arrays
+    private static final int REVENUE = 0;
+    private static final int NIGHTS = 1;
+    private static final int CONFIRMED = 2;
+    private static final int PENDING = 3;
+
+    /**
+     * What one booking added to the totals.
+     */
+    private static class Contribution {
+        private final String hotelId; // null if the room has no hotel
+        private final long checkInDay; // Epoch day of the first night, Long.MIN_VALUE without dates
+        private final int nights;
+        private final long revenueCents;
+        private final boolean confirmed;
+
+        private Contribution(Booking booking) {
+            this.hotelId = booking.getRoom() != null && booking.getRoom().getHotel() != null
+                ? booking.getRoom().getHotel().getId() : null;
+            boolean hasDates = booking.getCheckInDate() != null && booking.getCheckOutDate() != null;
+            this.checkInDay = hasDates ? booking.getCheckInDate().toEpochDay() : Long.MIN_VALUE;
+            this.nights = hasDates ? (int) Math.max(0, booking.getCheckOutDate().toEpochDay() - checkInDay) : 0;
+            this.revenueCents = Math.round(booking.getTotalPrice() * 100);
+            this.confirmed = booking.isConfirmed();
+        }
+
+        /**
+         * Gets the revenue of one night; the cents that do not divide evenly go to the first nights.
+         */
+        private long nightRevenue(int night) {
+            return revenueCents / nights + (night < revenueCents % nights ? 1 : 0);
+        }
+    }
+
+    // Totals per day (epoch day) per hotel, and of all hotels together; days without anything are removed
+    private final Map<String, TreeMap<Long, long[]>> daysByHotel = new HashMap<>();
+    private final TreeMap<Long, long[]> allDays = new TreeMap<>();
+    // Totals of every day per hotel, and of all hotels together
+    private final Map<String, long[]> totalsByHotel = new HashMap<>();
+    private final long[] allTotals = new long[4];
+    private final Map<Booking, Contribution> contributions = new IdentityHashMap<>();
+
+    /**
+     * Adds a booking, or updates what it adds after it was changed.
+     * @param booking The booking
+     */
+    public void put(Booking booking) {
+        remove(booking);
+        Contribution contribution = new Contribution(booking);
+        apply(contribution, 1);
+        contributions.put(booking, contribution);
+    }
+
+    /**
+     * Takes a booking out of the totals.
+     * @param booking The booking
+     * @return true if the booking was counted
+     */
+    public boolean remove(Booking booking) {
+        Contribution contribution = contributions.remove(booking);
+        if (contribution == null) {
+            return false;
+        }
+        apply(contribution, -1);
+        return true;
+    }
+
+    /**
+     * Gets the totals of all bookings.
+     * @return The totals
+     */
+    public BookingTotals getTotals() {
+        return toTotals(allTotals);
+    }
+
+    /**
+     * Gets the totals of the bookings of one hotel.
+     * @param hotelId The id of the hotel
+     * @return The totals, all zero if the hotel has no bookings
+     */
+    public BookingTotals getTotals(String hotelId) {
+        return toTotals(totalsByHotel.get(hotelId));
+    }
+
+    /**
+     * Gets the totals of the nights and check-ins on the days of a range.
+     * @param hotelId The id of the hotel, or null for all hotels
+     * @param fromDay The first day, as an epoch day
+     * @param toDay The day after the last day, as an epoch day
+     * @return The totals, all zero if nothing happened on those days
+     */
+    public BookingTotals getTotals(String hotelId, long fromDay, long toDay) {
+        TreeMap<Long, long[]> days = hotelId == null ? allDays : daysByHotel.get(hotelId);
+        long[] sum = new long[4];
+        if (days != null && fromDay < toDay) {
+            for (long[] day : days.subMap(fromDay, toDay).values()) {
+                for (int i = 0; i < sum.length; i++) {
+                    sum[i] += day[i];
+                }
+            }
+        }
+        return toTotals(sum);
+    }
+
+    /**
+     * Gets the number of bookings counted.
+     * @return The number of bookings
+     */
+    public int size() {
+        return contributions.size();
+    }
+
+    /**
+     * Removes all bookings.
+     */
+    public void clear() {
+        daysByHotel.clear();
+        allDays.clear();
+        totalsByHotel.clear();
+        Arrays.fill(allTotals, 0);
+        contributions.clear();
+    }
+
+    /**
+     * Checks that these totals are the same as other totals, e.g. ones just computed from every booking.
+     * @param other The other totals
+     * @return true if every total of every hotel and day is the same
+     */
+    public boolean sameTotals(BookingAggregates other) {
+        if (!Arrays.equals(allTotals, other.allTotals) || !sameDays(allDays, other.allDays)
+                || totalsByHotel.size() != other.totalsByHotel.size() || daysByHotel.size() != other.daysByHotel.size()) {
+            return false;
+        }
+        for (Map.Entry<String, long[]> hotel : totalsByHotel.entrySet()) {
+            if (!Arrays.equals(hotel.getValue(), other.totalsByHotel.get(hotel.getKey()))) {
+                return false;
+            }
+        }
+        for (Map.Entry<String, TreeMap<Long, long[]>> hotel : daysByHotel.entrySet()) {
+            TreeMap<Long, long[]> otherDays = other.daysByHotel.get(hotel.getKey());
+            if (otherDays == null || !sameDays(hotel.getValue(), otherDays)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameDays(TreeMap<Long, long[]> days, TreeMap<Long, long[]> otherDays) {
+        if (days.size() != otherDays.size()) {
+            return false;
+        }
+        for (Map.Entry<Long, long[]> day : days.entrySet()) {
+            if (!Arrays.equals(day.getValue(), otherDays.get(day.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds (sign 1) or subtracts (sign -1) what a booking contributes.
+     */
+    private void apply(Contribution contribution, int sign) {
+        long[] hotelTotals = null;
+        TreeMap<Long, long[]> hotelDays = null;
+        if (contribution.hotelId != null) {
+            hotelTotals = totalsByHotel.computeIfAbsent(contribution.hotelId, k -> new long[4]);
+            hotelDays = daysByHotel.computeIfAbsent(contribution.hotelId, k -> new TreeMap<>());
+        }
+
+        int status = contribution.confirmed ? CONFIRMED : PENDING;
+        add(allTotals, status, sign);
+        add(hotelTotals, status, sign);
+        if (contribution.checkInDay != Long.MIN_VALUE) {
+            addToDay(allDays, contribution.checkInDay, status, sign);
+            addToDay(hotelDays, contribution.checkInDay, status, sign);
+        }
+        for (int night = 0; night < contribution.nights; night++) {
+            long day = contribution.checkInDay + night;
+            long revenue = sign * contribution.nightRevenue(night);
+            add(allTotals, REVENUE, revenue);
+            add(allTotals, NIGHTS, sign);
+            add(hotelTotals, REVENUE, revenue);
+            add(hotelTotals, NIGHTS, sign);
+            addToDay(allDays, day, REVENUE, revenue);
+            addToDay(allDays, day, NIGHTS, sign);
+            addToDay(hotelDays, day, REVENUE, revenue);
+            addToDay(hotelDays, day, NIGHTS, sign);
+        }
+
+        // Hotels and days left without bookings are removed, so equal totals have equal maps
+        if (hotelTotals != null && isEmpty(hotelTotals)) {
+            totalsByHotel.remove(contribution.hotelId);
+        }
+        if (hotelDays != null && hotelDays.isEmpty()) {
+            daysByHotel.remove(contribution.hotelId);
+        }
+    }
+
+    private static void add(long[] totals, int field, long amount) {
+        if (totals != null) {
+            totals[field] += amount;
+        }
+    }
+
+    private static void addToDay(TreeMap<Long, long[]> days, long day, int field, long amount) {
+        if (days == null) {
+            return;
+        }
+        long[] totals = days.computeIfAbsent(day, k -> new long[4]);
+        totals[field] += amount;
+        if (isEmpty(totals)) {
+            days.remove(day);
+        }
+    }
+
+    private static boolean isEmpty(long[] totals) {
+        return totals[REVENUE] == 0 && totals[NIGHTS] == 0 && totals[CONFIRMED] == 0 && totals[PENDING] == 0;
+    }
+
+    private static BookingTotals toTotals(long[] totals) {
+        if (totals == null) {
+            return new BookingTotals(0, 0, 0, 0);
+        }
+        return new BookingTotals(totals[REVENUE], totals[NIGHTS], totals[CONFIRMED], totals[PENDING]);
+    }
+}
@@ -0,0 +1,333 @@
+package Models.Reporting;
+
+import Models.Booking;
+import Models.Room;
+import Models.User;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The bookings stored column by column in primitive arrays, for scans over millions of bookings.
+ * Row i holds one booking: the index of its room and user, its check-in epoch day, its nights,
+ * its total price and, as one bit, whether it is confirmed. A scan reads only the columns it needs,
+ * one after the other in memory, instead of following the references of every Booking object.
+ * Rooms and users are numbered in the order they are first seen and keep their number.
+ * A removed booking's row is filled with the last row, so rows have no fixed order.
+ * Bookings are compared by identity.
+ */
+public class BookingColumns {
+    // Check-in day of a booking without dates; it is outside every range
+    private static final int NO_DATE = Integer.MIN_VALUE;
+
+    private int size;
+    private int[] roomIndexes = new int[16]; // -1 without a room
+    private int[] userIndexes = new int[16]; // -1 without a user
+    private int[] checkInDays = new int[16];
+    private short[] nights = new short[16];
+    private double[] prices = new double[16];
+    private long[] confirmedBits = new long[1];
+    private Booking[] bookingsByRow = new Booking[16]; // To move the last row into a freed one
+
+    private final List<Room> rooms = new ArrayList<>();
+    private final Map<Room, Integer> roomNumbers = new IdentityHashMap<>();
+    private final List<User> users = new ArrayList<>();
+    private final Map<User, Integer> userNumbers = new IdentityHashMap<>();
+    private final Map<Booking, Integer> rows = new IdentityHashMap<>();
+
+    /**
+     * Adds a booking, or copies its current values into its row after it was changed.
+     * @param booking The booking
+     */
+    public void put(Booking booking) {
+        Integer row = rows.get(booking);
+        if (row == null) {
+            row = size++;
+            if (row == roomIndexes.length) {
+                grow();
+            }
+            rows.put(booking, row);
+            bookingsByRow[row] = booking;
+        }
+        write(row, booking);
+    }
+
+    /**
+     * Removes a booking; its row is filled with the last row.
+     * @param booking The booking
+     * @return true if the booking was in the columns
+     */
+    public boolean remove(Booking booking) {
+        Integer row = rows.remove(booking);
+        if (row == null) {
+            return false;
+        }
+        int last = --size;
+        if (row != last) {
+            roomIndexes[row] = roomIndexes[last];
+            userIndexes[row] = userIndexes[last];
+            checkInDays[row] = checkInDays[last];
+            nights[row] = nights[last];
+            prices[row] = prices[last];
+            setConfirmed(row, isConfirmed(last));
+            bookingsByRow[row] = bookingsByRow[last];
+            rows.put(bookingsByRow[row], row);
+        }
+        bookingsByRow[last] = null;
+        setConfirmed(last, false);
+        return true;
+    }
+
+    /**
+     * Counts the bookings checking in on the days of a range.
+     * @param fromDay The first day, as an epoch day
+     * @param toDay The day after the last day, as an epoch day
+     * @param confirmedOnly true to count only confirmed bookings
+     * @return The number of bookings
+     */
+    public int countCheckIns(long fromDay, long toDay, boolean confirmedOnly) {
+        int from = clampDay(fromDay);
+        int to = clampDay(toDay);
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            int day = checkInDays[i];
+            if (day >= from && day < to && (!confirmedOnly || isConfirmed(i))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Sums the total prices of the bookings checking in on the days of a range.
+     * @param fromDay The first day, as an epoch day
+     * @param toDay The day after the last day, as an epoch day
+     * @param confirmedOnly true to count only confirmed bookings
+     * @return The revenue
+     */
+    public double sumRevenue(long fromDay, long toDay, boolean confirmedOnly) {
+        int from = clampDay(fromDay);
+        int to = clampDay(toDay);
+        double revenue = 0;
+        for (int i = 0; i < size; i++) {
+            int day = checkInDays[i];
+            if (day >= from && day < to && (!confirmedOnly || isConfirmed(i))) {
+                revenue += prices[i];
+            }
+        }
+        return revenue;
+    }
+
+    /**
+     * Gets the average number of nights of the bookings checking in on the days of a range.
+     * @param fromDay The first day, as an epoch day
+     * @param toDay The day after the last day, as an epoch day
+     * @return The average length of stay, 0 without bookings
+     */
+    public double averageStay(long fromDay, long toDay) {
+        int from = clampDay(fromDay);
+        int to = clampDay(toDay);
+        long totalNights = 0;
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            int day = checkInDays[i];
+            if (day >= from && day < to) {
+                totalNights += nights[i];
+                count++;
+            }
+        }
+        return count == 0 ? 0 : (double) totalNights / count;
+    }
+
+    /**
+     * Sums the total prices of the bookings checking in on the days of a range per room.
+     * @param fromDay The first day, as an epoch day
+     * @param toDay The day after the last day, as an epoch day
+     * @return The revenue of room number i at index i; see getRoom
+     */
+    public double[] sumRevenueByRoom(long fromDay, long toDay) {
+        int from = clampDay(fromDay);
+        int to = clampDay(toDay);
+        double[] revenue = new double[rooms.size()];
+        for (int i = 0; i < size; i++) {
+            int day = checkInDays[i];
+            int room = roomIndexes[i];
+            if (day >= from && day < to && room >= 0) {
+                revenue[room] += prices[i];
+            }
+        }
+        return revenue;
+    }
+
+    /**
+     * Sums the total prices of the bookings checking in on the days of a range by city and room type.
+     * The bookings are summed per room first; only the rooms are then looked up.
+     * @param fromDay The first day, as an epoch day
+     * @param toDay The day after the last day, as an epoch day
+     * @return The revenue by city, then by room type, both in alphabetical order
+     */
+    public Map<String, Map<String, Double>> sumRevenueByCityAndRoomType(long fromDay, long toDay) {
+        double[] revenueByRoom = sumRevenueByRoom(fromDay, toDay);
+        Map<String, Map<String, Double>> byCity = new TreeMap<>();
+        for (int room = 0; room < revenueByRoom.length; room++) {
+            if (revenueByRoom[room] != 0) {
+                Room value = rooms.get(room);
+                String city = value.getHotel() != null && value.getHotel().getLocation() != null
+                    ? value.getHotel().getLocation() : AnalyticsEngine.UNKNOWN;
+                String type = value.getType() != null ? value.getType() : AnalyticsEngine.UNKNOWN;
+                byCity.computeIfAbsent(city, k -> new TreeMap<>()).merge(type, revenueByRoom[room], Double::sum);
+            }
+        }
+        return byCity;
+    }
+
+    /**
+     * Counts the bookings per group of days between a reference day and their check-in.
+     * @param referenceDay The epoch day lead times are counted from, e.g. today
+     * @param bounds The lower bounds in days of the groups, ascending and starting at 0
+     * @return The number of bookings per group, followed by the number checking in before the reference day
+     */
+    public long[] countLeadTimes(long referenceDay, int[] bounds) {
+        long[] counts = new long[bounds.length + 1];
+        for (int i = 0; i < size; i++) {
+            if (checkInDays[i] == NO_DATE) {
+                continue;
+            }
+            long leadTime = checkInDays[i] - referenceDay;
+            if (leadTime < 0) {
+                counts[bounds.length]++;
+                continue;
+            }
+            int group = bounds.length - 1;
+            while (bounds[group] > leadTime) {
+                group--;
+            }
+            counts[group]++;
+        }
+        return counts;
+    }
+
+    /**
+     * Checks that a booking's row holds its current values.
+     * @param booking The booking
+     * @return true if the booking is in the columns and its row is up to date
+     */
+    public boolean matches(Booking booking) {
+        Integer row = rows.get(booking);
+        if (row == null) {
+            return false;
+        }
+        Integer room = booking.getRoom() != null ? roomNumbers.get(booking.getRoom()) : Integer.valueOf(-1);
+        Integer user = booking.getUser() != null ? userNumbers.get(booking.getUser()) : Integer.valueOf(-1);
+        return room != null && roomIndexes[row] == room && user != null && userIndexes[row] == user
+            && checkInDays[row] == checkInDayOf(booking) && nights[row] == nightsOf(booking)
+            && prices[row] == booking.getTotalPrice() && isConfirmed(row) == booking.isConfirmed();
+    }
+
+    /**
+     * Gets a room by its number in the columns.
+     * @param index The number of the room
+     * @return The room
+     */
+    public Room getRoom(int index) {
+        return rooms.get(index);
+    }
+
+    /**
+     * Gets a user by its number in the columns.
+     * @param index The number of the user
+     * @return The user
+     */
+    public User getUser(int index) {
+        return users.get(index);
+    }
+
+    /**
+     * Gets the number of bookings.
+     * @return The number of rows
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all bookings, rooms and users.
+     */
+    public void clear() {
+        size = 0;
+        Arrays.fill(confirmedBits, 0);
+        Arrays.fill(bookingsByRow, null);
+        rooms.clear();
+        roomNumbers.clear();
+        users.clear();
+        userNumbers.clear();
+        rows.clear();
+    }
+
+    private void write(int row, Booking booking) {
+        roomIndexes[row] = booking.getRoom() != null ? number(booking.getRoom(), rooms, roomNumbers) : -1;
+        userIndexes[row] = booking.getUser() != null ? number(booking.getUser(), users, userNumbers) : -1;
+        checkInDays[row] = checkInDayOf(booking);
+        nights[row] = nightsOf(booking);
+        prices[row] = booking.getTotalPrice();
+        setConfirmed(row, booking.isConfirmed());
+    }
+
+    private static int checkInDayOf(Booking booking) {
+        if (booking.getCheckInDate() == null || booking.getCheckOutDate() == null) {
+            return NO_DATE;
+        }
+        return clampDay(booking.getCheckInDate().toEpochDay());
+    }
+
+    private static short nightsOf(Booking booking) {
+        if (booking.getCheckInDate() == null || booking.getCheckOutDate() == null) {
+            return 0;
+        }
+        long stay = booking.getCheckOutDate().toEpochDay() - booking.getCheckInDate().toEpochDay();
+        return (short) Math.max(0, Math.min(Short.MAX_VALUE, stay));
+    }
+
+    private static <T> int number(T value, List<T> values, Map<T, Integer> numbers) {
+        Integer number = numbers.get(value);
+        if (number == null) {
+            number = values.size();
+            values.add(value);
+            numbers.put(value, number);
+        }
+        return number;
+    }
+
+    private boolean isConfirmed(int row) {
+        return (confirmedBits[row >>> 6] & (1L << row)) != 0;
+    }
+
+    private void setConfirmed(int row, boolean confirmed) {
+        if (confirmed) {
+            confirmedBits[row >>> 6] |= 1L << row;
+        } else {
+            confirmedBits[row >>> 6] &= ~(1L << row);
+        }
+    }
+
+    private void grow() {
+        int capacity = roomIndexes.length * 2;
+        roomIndexes = Arrays.copyOf(roomIndexes, capacity);
+        userIndexes = Arrays.copyOf(userIndexes, capacity);
+        checkInDays = Arrays.copyOf(checkInDays, capacity);
+        nights = Arrays.copyOf(nights, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        confirmedBits = Arrays.copyOf(confirmedBits, (capacity + 63) / 64);
+        bookingsByRow = Arrays.copyOf(bookingsByRow, capacity);
+    }
+
+    /**
+     * Fits an epoch day into an int; days that far away only matter for comparisons.
+     */
+    private static int clampDay(long day) {
+        return (int) Math.max(NO_DATE + 1, Math.min(Integer.MAX_VALUE, day));
+    }
+}
@@ -0,0 +1,122 @@
+package Models.Reporting;
+
+import Models.Booking;
+
+/**
+ * Statistics of a group of bookings that can be filled in parts and merged:
+ * the number of bookings, revenue, nights, and how far ahead of a reference date they check in.
+ * Every total is a whole number (revenue in cents), so the result does not depend on
+ * how the bookings were split up before merging.
+ */
+public class BookingStatistics {
+    /**
+     * Lower bounds in days of the lead-time groups; the last group has no upper bound.
+     * Bookings checking in before the reference date are counted separately.
+     */
+    public static final int[] LEAD_TIME_BOUNDS = {0, 7, 14, 30, 60, 90, 180};
+
+    private long bookings; // Number of bookings added
+    private long confirmed; // Number of those that are confirmed
+    private long revenueCents; // Sum of the total prices
+    private long nights; // Sum of the lengths of stay
+    private long past; // Bookings checking in before the reference date
+    private final long[] leadTimes = new long[LEAD_TIME_BOUNDS.length]; // Bookings per lead-time group
+
+    /**
+     * Adds one booking.
+     * @param booking The booking
+     * @param referenceDay The epoch day lead times are counted from, e.g. today
+     */
+    public void add(Booking booking, long referenceDay) {
+        bookings++;
+        if (booking.isConfirmed()) {
+            confirmed++;
+        }
+        revenueCents += Math.round(booking.getTotalPrice() * 100);
+        if (booking.getCheckInDate() == null) {
+            return;
+        }
+        long checkInDay = booking.getCheckInDate().toEpochDay();
+        if (booking.getCheckOutDate() != null) {
+            nights += Math.max(0, booking.getCheckOutDate().toEpochDay() - checkInDay);
+        }
+        long leadTime = checkInDay - referenceDay;
+        if (leadTime < 0) {
+            past++;
+            return;
+        }
+        // Find the last group that starts at or before the lead time
+        int group = LEAD_TIME_BOUNDS.length - 1;
+        while (LEAD_TIME_BOUNDS[group] > leadTime) {
+            group--;
+        }
+        leadTimes[group]++;
+    }
+
+    /**
+     * Adds the bookings of other statistics, e.g. of another part of the same bookings.
+     * @param other The other statistics; they are not changed
+     */
+    public void merge(BookingStatistics other) {
+        bookings += other.bookings;
+        confirmed += other.confirmed;
+        revenueCents += other.revenueCents;
+        nights += other.nights;
+        past += other.past;
+        for (int i = 0; i < leadTimes.length; i++) {
+            leadTimes[i] += other.leadTimes[i];
+        }
+    }
+
+    // Getters
+    public long getBookings() {
+        return bookings;
+    }
+
+    public long getConfirmedBookings() {
+        return confirmed;
+    }
+
+    public double getRevenue() {
+        return revenueCents / 100.0;
+    }
+
+    public long getRevenueCents() {
+        return revenueCents;
+    }
+
+    public long getNights() {
+        return nights;
+    }
+
+    /**
+     * Gets the average length of stay.
+     * @return The average number of nights per booking, 0 without bookings
+     */
+    public double getAverageStay() {
+        return bookings == 0 ? 0 : (double) nights / bookings;
+    }
+
+    /**
+     * Gets the number of bookings checking in before the reference date.
+     * @return The number of bookings
+     */
+    public long getPastBookings() {
+        return past;
+    }
+
+    /**
+     * Gets the number of bookings per lead-time group; group i holds lead times
+     * from LEAD_TIME_BOUNDS[i] up to the next bound.
+     * @return A new array with one count per group
+     */
+    public long[] getLeadTimeCounts() {
+        return leadTimes.clone();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BookingStatistics{bookings=%d, confirmed=%d, revenue=%.2f, averageStay=%.2f}",
+            bookings, confirmed, getRevenue(), getAverageStay());
+    }
+}
@@ -0,0 +1,67 @@
+package Models.Reporting;
+
+import java.util.Objects;
+
+/**
+ * Totals of a group of bookings, e.g. of one hotel or of one month: revenue, room-nights sold
+ * and the number of confirmed and pending bookings. Revenue is kept in cents so that adding
+ * and removing bookings never accumulates rounding errors.
+ */
+public class BookingTotals {
+    private final long revenueCents; // Revenue of the nights in the group
+    private final long roomNights; // Nights sold in the group
+    private final long confirmedBookings; // Confirmed bookings in the group
+    private final long pendingBookings; // Bookings not confirmed yet
+
+    public BookingTotals(long revenueCents, long roomNights, long confirmedBookings, long pendingBookings) {
+        this.revenueCents = revenueCents;
+        this.roomNights = roomNights;
+        this.confirmedBookings = confirmedBookings;
+        this.pendingBookings = pendingBookings;
+    }
+
+    // Getters
+    public double getRevenue() {
+        return revenueCents / 100.0;
+    }
+
+    public long getRevenueCents() {
+        return revenueCents;
+    }
+
+    public long getRoomNights() {
+        return roomNights;
+    }
+
+    public long getConfirmedBookings() {
+        return confirmedBookings;
+    }
+
+    public long getPendingBookings() {
+        return pendingBookings;
+    }
+
+    public long getBookings() {
+        return confirmedBookings + pendingBookings;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof BookingTotals)) return false;
+        BookingTotals other = (BookingTotals) o;
+        return revenueCents == other.revenueCents && roomNights == other.roomNights
+            && confirmedBookings == other.confirmedBookings && pendingBookings == other.pendingBookings;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(revenueCents, roomNights, confirmedBookings, pendingBookings);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BookingTotals{revenue=%.2f, roomNights=%d, confirmed=%d, pending=%d}",
+            getRevenue(), roomNights, confirmedBookings, pendingBookings);
+    }
+}
@@ -9,12 +9,15 @@ import java.util.List;
  * Has a many-to-one relationship with Hotel and a one-to-many relationship with Booking.
  */
 public class Room implements Serializable {
+    private static final long serialVersionUID = 2869898668866198524L;
+
     private String id; // Unique identifier for the room
     private String roomNumber; // Room number (e.g., "101", "202")
     private String type; // Type of room (e.g., "Single", "Double", "Suite")
     private double pricePerNight; // Price per night in dollars
     private boolean available; // Whether the room is available for booking
     private Hotel hotel; // The hotel this room belongs to (many-to-one relationship)
+    private String hotelId; // Id of the owning hotel, kept when the room is stored without its hotel
     private List<Booking> bookings; // List of bookings for this room (one-to-many relationship)
 
     public Room(String id, String roomNumber, String type, double pricePerNight) {
@@ -74,6 +77,18 @@ public class Room implements Serializable {
 
     public void setHotel(Hotel hotel) {
         this.hotel = hotel;
+        // Keep the foreign key in sync with the reference
+        this.hotelId = hotel != null ? hotel.getId() : null;
+    }
+
+    public String getHotelId() {
+        // Prefer the linked hotel, its id may have changed since the room was loaded
+        return hotel != null ? hotel.getId() : hotelId;
+    }
+
+    public void setHotelId(String hotelId) {
+        // Only the id is known, the hotel is linked later
+        this.hotelId = hotelId;
     }
 
     public List<Booking> getBookings() {
@@ -0,0 +1,97 @@
+package Models;
+
+import java.time.LocalDate;
+
+/**
+ * The filters of a room search across all hotels.
+ * Every filter is optional; a filter that is not set matches every room.
+ */
+public class RoomSearchCriteria {
+    private String location; // City of the hotel, matched ignoring case
+    private LocalDate checkInDate; // First night of the stay
+    private LocalDate checkOutDate; // Day the stay ends
+    private String roomType; // Type of room, matched ignoring case
+    private double minPrice; // Lowest price per night
+    private double maxPrice = Double.MAX_VALUE; // Highest price per night
+    private int minRating; // Lowest hotel rating (1-5 stars)
+
+    public RoomSearchCriteria() {
+    }
+
+    public RoomSearchCriteria(String location, LocalDate checkInDate, LocalDate checkOutDate) {
+        this.location = location;
+        this.checkInDate = checkInDate;
+        this.checkOutDate = checkOutDate;
+    }
+
+    // Getters and setters
+    public String getLocation() {
+        return location;
+    }
+
+    public void setLocation(String location) {
+        this.location = location;
+    }
+
+    public LocalDate getCheckInDate() {
+        return checkInDate;
+    }
+
+    public void setCheckInDate(LocalDate checkInDate) {
+        this.checkInDate = checkInDate;
+    }
+
+    public LocalDate getCheckOutDate() {
+        return checkOutDate;
+    }
+
+    public void setCheckOutDate(LocalDate checkOutDate) {
+        this.checkOutDate = checkOutDate;
+    }
+
+    public String getRoomType() {
+        return roomType;
+    }
+
+    public void setRoomType(String roomType) {
+        this.roomType = roomType;
+    }
+
+    public double getMinPrice() {
+        return minPrice;
+    }
+
+    public void setMinPrice(double minPrice) {
+        this.minPrice = minPrice;
+    }
+
+    public double getMaxPrice() {
+        return maxPrice;
+    }
+
+    public void setMaxPrice(double maxPrice) {
+        this.maxPrice = maxPrice;
+    }
+
+    public int getMinRating() {
+        return minRating;
+    }
+
+    public void setMinRating(int minRating) {
+        this.minRating = minRating;
+    }
+
+    /**
+     * Checks whether the search is limited to a date range.
+     * @return true if both dates are set and check-out is after check-in
+     */
+    public boolean hasDates() {
+        return checkInDate != null && checkOutDate != null && checkOutDate.isAfter(checkInDate);
+    }
+
+    @Override
+    public String toString() {
+        return "RoomSearchCriteria{location=" + location + ", dates=" + checkInDate + " to " + checkOutDate +
+               ", type=" + roomType + ", price=" + minPrice + "-" + maxPrice + ", minRating=" + minRating + "}";
+    }
+}
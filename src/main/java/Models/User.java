@@ -9,6 +9,8 @@ import java.util.List;
  * Has a one-to-many relationship with Booking.
  */
 public class User implements Serializable {
+    private static final long serialVersionUID = -4678549077329979376L;
+
     private String id; // Unique identifier for the user
     private String username; // Username for login
     private String password; // Password for authentication
@@ -2,6 +2,7 @@ package Models.Utils;
 
 import Models.Booking;
 import Models.Hotel;
+import Models.Persistence.EntityCodec;
 import Models.Room;
 import Models.User;
 import javafx.scene.control.Alert;
@@ -12,14 +13,12 @@ import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
 import java.util.List;
 
 /**
  * Utility class for viewing the contents of data files (.dat and .txt).
- * Allows users to read and display serialized objects and text files in a human-readable format.
+ * Allows users to read and display binary snapshots, legacy serialized objects and text files in a human-readable format.
  */
 public class DataFileViewer {
 
@@ -62,107 +61,111 @@ public class DataFileViewer {
      * @param file the data file to read (.dat or .txt)
      * @return a string representation of the file contents
      * @throws IOException if an I/O error occurs
-     * @throws ClassNotFoundException if the class of a serialized object cannot be found
      */
-    private static String readDataFile(File file) throws IOException, ClassNotFoundException {
+    private static String readDataFile(File file) throws IOException {
         // Create a string builder to store formatted content
         StringBuilder content = new StringBuilder();
 
-        // Handle .dat files with serialized objects
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
-            // Read the object from the file
-            Object obj = ois.readObject();
-
-            // Check if the object is a list
-            if (obj instanceof List<?>) {
-                List<?> list = (List<?>) obj;
-                if (!list.isEmpty()) {
-                    // Get the first item to determine the list type
-                    Object firstItem = list.getFirst();
-
-                    // Add file info to content
-                    content.append("File: ").append(file.getName()).append("\n");
-                    content.append("Total items: ").append(list.size()).append("\n\n");
-
-                    // Check what type of data we're dealing with
-                    if (firstItem instanceof User) {
-                        // Format user data
-                        content.append("Users:\n");
-                        for (Object item : list) {
-                            User user = (User) item;
-                            content.append("-----------------------------------\n");
-                            content.append("ID: ").append(user.getId()).append("\n");
-                            content.append("Username: ").append(user.getUsername()).append("\n");
-                            content.append("Full Name: ").append(user.getFullName()).append("\n");
-                            content.append("Email: ").append(user.getEmail()).append("\n");
-                            content.append("Phone: ").append(user.getPhoneNumber()).append("\n");
-                            content.append("Bookings: ").append(user.getBookings().size()).append("\n");
+        // Read the entities from the file (binary snapshot or legacy serialized list)
+        Object obj = EntityCodec.readAny(file);
+
+        // Check if the object is a list
+        if (obj instanceof List<?>) {
+            List<?> list = (List<?>) obj;
+            if (!list.isEmpty()) {
+                // Get the first item to determine the list type
+                Object firstItem = list.getFirst();
+
+                // Add file info to content
+                content.append("File: ").append(file.getName()).append("\n");
+                content.append("Total items: ").append(list.size()).append("\n\n");
+
+                // Check what type of data we're dealing with
+                if (firstItem instanceof User) {
+                    // Format user data
+                    content.append("Users:\n");
+                    for (Object item : list) {
+                        User user = (User) item;
+                        content.append("-----------------------------------\n");
+                        content.append("ID: ").append(user.getId()).append("\n");
+                        content.append("Username: ").append(user.getUsername()).append("\n");
+                        content.append("Full Name: ").append(user.getFullName()).append("\n");
+                        content.append("Email: ").append(user.getEmail()).append("\n");
+                        content.append("Phone: ").append(user.getPhoneNumber()).append("\n");
+                        content.append("Bookings: ").append(user.getBookings().size()).append("\n");
+                    }
+                } else if (firstItem instanceof Hotel) {
+                    // Format hotel data
+                    content.append("Hotels:\n");
+                    for (Object item : list) {
+                        Hotel hotel = (Hotel) item;
+                        content.append("-----------------------------------\n");
+                        content.append("ID: ").append(hotel.getId()).append("\n");
+                        content.append("Name: ").append(hotel.getName()).append("\n");
+                        content.append("Location: ").append(hotel.getLocation()).append("\n");
+                        content.append("Rating: ").append(hotel.getRating()).append(" stars\n");
+                        content.append("Description: ").append(hotel.getDescription()).append("\n");
+                        content.append("Rooms: ").append(hotel.getRooms().size()).append("\n");
+                    }
+                } else if (firstItem instanceof Room) {
+                    // Format room data
+                    content.append("Rooms:\n");
+                    for (Object item : list) {
+                        Room room = (Room) item;
+                        content.append("-----------------------------------\n");
+                        content.append("ID: ").append(room.getId()).append("\n");
+                        content.append("Room Number: ").append(room.getRoomNumber()).append("\n");
+                        content.append("Type: ").append(room.getType()).append("\n");
+                        content.append("Price: $").append(room.getPricePerNight()).append(" per night\n");
+                        content.append("Available: ").append(room.isAvailable() ? "Yes" : "No").append("\n");
+                        if (room.getHotel() != null) {
+                            // Show the hotel name if available
+                            content.append("Hotel: ").append(room.getHotel().getName()).append("\n");
+                        } else if (room.getHotelId() != null) {
+                            // Binary snapshots only store the id of the hotel
+                            content.append("Hotel ID: ").append(room.getHotelId()).append("\n");
                         }
-                    } else if (firstItem instanceof Hotel) {
-                        // Format hotel data
-                        content.append("Hotels:\n");
-                        for (Object item : list) {
-                            Hotel hotel = (Hotel) item;
-                            content.append("-----------------------------------\n");
-                            content.append("ID: ").append(hotel.getId()).append("\n");
-                            content.append("Name: ").append(hotel.getName()).append("\n");
-                            content.append("Location: ").append(hotel.getLocation()).append("\n");
-                            content.append("Rating: ").append(hotel.getRating()).append(" stars\n");
-                            content.append("Description: ").append(hotel.getDescription()).append("\n");
-                            content.append("Rooms: ").append(hotel.getRooms().size()).append("\n");
+                        content.append("Bookings: ").append(room.getBookings().size()).append("\n");
+                    }
+                } else if (firstItem instanceof Booking) {
+                    // Format booking data
+                    content.append("Bookings:\n");
+                    for (Object item : list) {
+                        Booking booking = (Booking) item;
+                        content.append("-----------------------------------\n");
+                        content.append("ID: ").append(booking.getId()).append("\n");
+                        if (booking.getUser() != null) {
+                            // Show user info if available
+                            content.append("User: ").append(booking.getUser().getUsername()).append("\n");
+                        } else if (booking.getUserId() != null) {
+                            content.append("User ID: ").append(booking.getUserId()).append("\n");
                         }
-                    } else if (firstItem instanceof Room) {
-                        // Format room data
-                        content.append("Rooms:\n");
-                        for (Object item : list) {
-                            Room room = (Room) item;
-                            content.append("-----------------------------------\n");
-                            content.append("ID: ").append(room.getId()).append("\n");
-                            content.append("Room Number: ").append(room.getRoomNumber()).append("\n");
-                            content.append("Type: ").append(room.getType()).append("\n");
-                            content.append("Price: $").append(room.getPricePerNight()).append(" per night\n");
-                            content.append("Available: ").append(room.isAvailable() ? "Yes" : "No").append("\n");
-                            if (room.getHotel() != null) {
-                                // Show the hotel name if available
-                                content.append("Hotel: ").append(room.getHotel().getName()).append("\n");
-                            }
-                            content.append("Bookings: ").append(room.getBookings().size()).append("\n");
+                        if (booking.getRoom() == null && booking.getRoomId() != null) {
+                            content.append("Room ID: ").append(booking.getRoomId()).append("\n");
                         }
-                    } else if (firstItem instanceof Booking) {
-                        // Format booking data
-                        content.append("Bookings:\n");
-                        for (Object item : list) {
-                            Booking booking = (Booking) item;
-                            content.append("-----------------------------------\n");
-                            content.append("ID: ").append(booking.getId()).append("\n");
-                            if (booking.getUser() != null) {
-                                // Show user info if available
-                                content.append("User: ").append(booking.getUser().getUsername()).append("\n");
-                            }
-                            if (booking.getRoom() != null) {
-                                // Show room info if available
-                                content.append("Room: ").append(booking.getRoom().getRoomNumber());
-                                if (booking.getRoom().getHotel() != null) {
-                                    // Include hotel name if available
-                                    content.append(" at ").append(booking.getRoom().getHotel().getName());
-                                }
-                                content.append("\n");
+                        if (booking.getRoom() != null) {
+                            // Show room info if available
+                            content.append("Room: ").append(booking.getRoom().getRoomNumber());
+                            if (booking.getRoom().getHotel() != null) {
+                                // Include hotel name if available
+                                content.append(" at ").append(booking.getRoom().getHotel().getName());
                             }
-                            content.append("Check-in: ").append(booking.getCheckInDate()).append("\n");
-                            content.append("Check-out: ").append(booking.getCheckOutDate()).append("\n");
-                            content.append("Total Price: $").append(booking.getTotalPrice()).append("\n");
-                            content.append("Status: ").append(booking.isConfirmed() ? "Confirmed" : "Pending").append("\n");
+                            content.append("\n");
                         }
-                    } else {
-                        // Handle unknown data types
-                        content.append("Unknown data type: ").append(firstItem.getClass().getName()).append("\n");
+                        content.append("Check-in: ").append(booking.getCheckInDate()).append("\n");
+                        content.append("Check-out: ").append(booking.getCheckOutDate()).append("\n");
+                        content.append("Total Price: $").append(booking.getTotalPrice()).append("\n");
+                        content.append("Status: ").append(booking.isConfirmed() ? "Confirmed" : "Pending").append("\n");
                     }
                 } else {
-                    content.append("The file contains an empty list.");
+                    // Handle unknown data types
+                    content.append("Unknown data type: ").append(firstItem.getClass().getName()).append("\n");
                 }
             } else {
-                content.append("The file does not contain a list of objects. Found: ").append(obj.getClass().getName());
+                content.append("The file contains an empty list.");
             }
+        } else {
+            content.append("The file does not contain a list of objects. Found: ").append(obj.getClass().getName());
         }
 
         return content.toString();
@@ -6,6 +6,7 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.PriorityQueue;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -182,6 +183,119 @@ public class SearchAndSort {
         return -1; // key not found
     }
 
+    /**
+     * Finds the k smallest items in comparator order without sorting all of them.
+     * A heap holds the best k items seen so far with the worst of them at the top,
+     * so each further item costs one comparison, or O(log k) if it replaces the top.
+     * Overall O(n log k) time and O(k) extra memory, instead of O(n log n) and O(n) for a full sort.
+     * Equal items are treated like a stable sort does: the ones read first are kept and come first.
+     *
+     * @param <T> the type of the items
+     * @param items the items to choose from
+     * @param k the number of items wanted
+     * @param comparator the order; the first items in this order are returned
+     * @return a new list with at most k items, in comparator order
+     */
+    public static <T> List<T> topK(Iterable<T> items, int k, Comparator<? super T> comparator) {
+        List<T> result = new ArrayList<>();
+        if (k <= 0) {
+            return result;
+        }
+
+        // Items are ranked by the comparator, then by the order they were read in
+        Comparator<Ranked<T>> ranking = (a, b) -> {
+            int order = comparator.compare(a.item, b.item);
+            return order != 0 ? order : Long.compare(a.position, b.position);
+        };
+        // Reversed order: the head of the queue is the worst of the kept items
+        PriorityQueue<Ranked<T>> heap = new PriorityQueue<>(Math.min(k, 1024), ranking.reversed());
+        long position = 0;
+        for (T item : items) {
+            if (heap.size() < k) {
+                heap.add(new Ranked<>(item, position));
+            } else if (comparator.compare(item, heap.peek().item) < 0) {
+                // Better than the worst kept item, which drops out; an equal item read later is worse
+                heap.poll();
+                heap.add(new Ranked<>(item, position));
+            }
+            position++;
+        }
+
+        // Only the k kept items are sorted
+        List<Ranked<T>> kept = new ArrayList<>(heap);
+        kept.sort(ranking);
+        for (Ranked<T> ranked : kept) {
+            result.add(ranked.item);
+        }
+        return result;
+    }
+
+    /**
+     * An item kept by topK with the position it was read at.
+     */
+    private static class Ranked<T> {
+        private final T item;
+        private final long position;
+
+        private Ranked(T item, long position) {
+            this.item = item;
+            this.position = position;
+        }
+    }
+
+    /**
+     * Computes the Levenshtein edit distance between two strings, giving up once it exceeds a bound.
+     * Only the cells within maxDistance of the diagonal are computed, and the computation stops
+     * as soon as a whole row is above the bound, so distant words are rejected quickly.
+     *
+     * @param a the first string
+     * @param b the second string
+     * @param maxDistance the largest distance of interest
+     * @return the number of inserted, deleted or replaced characters, or maxDistance + 1 if it is larger
+     */
+    public static int editDistance(String a, String b, int maxDistance) {
+        // Strings whose lengths differ by more than the bound need more edits than allowed
+        if (Math.abs(a.length() - b.length()) > maxDistance) {
+            return maxDistance + 1;
+        }
+        int tooFar = maxDistance + 1;
+        // previous[j] is the distance between the first i - 1 characters of a and the first j of b
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = Math.min(j, tooFar);
+        }
+
+        for (int i = 1; i <= a.length(); i++) {
+            // Cells outside the band count as too far
+            int from = Math.max(1, i - maxDistance);
+            int to = Math.min(b.length(), i + maxDistance);
+            current[0] = Math.min(i, tooFar);
+            if (from > 1) {
+                current[from - 1] = tooFar;
+            }
+            int rowMin = current[0];
+            for (int j = from; j <= to; j++) {
+                int replace = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                int delete = previous[j] + 1;
+                int insert = current[j - 1] + 1;
+                current[j] = Math.min(tooFar, Math.min(replace, Math.min(delete, insert)));
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (to < b.length()) {
+                current[to + 1] = tooFar;
+            }
+            // Distances never decrease from one row to the next
+            if (rowMin > maxDistance) {
+                return tooFar;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
     /**
      * Sorts a list of hotels by rating (descending).
      *
@@ -0,0 +1,529 @@
+package Models;
+
+import Models.Persistence.DurabilityMode;
+import Models.Persistence.EntityCodec;
+import Models.Reporting.BookingTotals;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for DataManager persistence. Every test works in its own temporary data folder.
+ */
+class DataManagerTest {
+
+    @TempDir
+    File folder;
+
+    @Test
+    void unreadableSnapshotStopsStartupAndIsKept() throws IOException {
+        File usersFile = new File(folder, "users.dat");
+        EntityCodec.writeUsers(usersFile, List.of(new User("user-1", "alice", "password", "Alice", "alice@example.com", "555")));
+        try (RandomAccessFile raf = new RandomAccessFile(usersFile, "rw")) {
+            raf.setLength(raf.length() - 10);
+        }
+        long length = usersFile.length();
+
+        // Starting with an empty user list would add the sample users and overwrite the file
+        assertThrows(UncheckedIOException.class, () -> new DataManager(folder));
+        assertEquals(length, usersFile.length());
+    }
+
+    @Test
+    void failedCheckpointKeepsTheJournal() {
+        DataManager dataManager = new DataManager(folder);
+        User user = dataManager.createUser("checkpointed", "password", "Check Point", "cp@example.com", "555");
+
+        // A folder in the way of the temporary file makes writing users.dat fail
+        File blocker = new File(folder, "users.dat.tmp");
+        assertTrue(blocker.mkdir());
+        assertFalse(dataManager.checkpoint());
+        dataManager.close();
+        assertTrue(blocker.delete());
+
+        DataManager restarted = new DataManager(folder);
+        assertNotNull(restarted.getUserById(user.getId()));
+        restarted.close();
+    }
+
+    @Test
+    void failedCheckpointAtCommitJournalsTheTransaction() {
+        DataManager dataManager = new DataManager(folder);
+        File blocker = new File(folder, "users.dat.tmp");
+        assertTrue(blocker.mkdir());
+
+        // Enough changes (the checkpoint threshold is 5000 records) to make the commit take a snapshot
+        dataManager.inTransaction(data -> {
+            for (int i = 0; i < 5000; i++) {
+                data.createUser("bulk" + i, "password", "Bulk User " + i, "bulk" + i + "@example.com", "555");
+            }
+        });
+        dataManager.close();
+        assertTrue(blocker.delete());
+
+        DataManager restarted = new DataManager(folder);
+        assertNotNull(restarted.getUserByUsername("bulk0"));
+        assertNotNull(restarted.getUserByUsername("bulk4999"));
+        restarted.close();
+    }
+
+    @Test
+    void failedJournalWriteFallsBackToACheckpoint() {
+        DataManager dataManager = new DataManager(folder);
+        dataManager.setDurabilityMode(DurabilityMode.SYNC);
+        assertTrue(dataManager.checkpoint());
+
+        // A folder in the way of the journal makes every journal write fail
+        File journal = new File(folder, "journal.log");
+        assertTrue(!journal.exists() || journal.delete());
+        assertTrue(journal.mkdir());
+        User user = dataManager.createUser("unjournaled", "password", "No Journal", "nj@example.com", "555");
+        dataManager.close();
+        assertTrue(journal.delete());
+
+        DataManager restarted = new DataManager(folder);
+        assertNotNull(restarted.getUserById(user.getId()));
+        restarted.close();
+    }
+
+    @Test
+    void journalReplayRestoresChangesInOrder() {
+        DataManager dataManager = new DataManager(folder);
+        int usersBefore = dataManager.getAllUsers().size();
+        User kept = dataManager.createUser("kept", "password", "Kept User", "kept@example.com", "555");
+        User removed = dataManager.createUser("removed", "password", "Removed User", "removed@example.com", "555");
+        Hotel hotel = dataManager.createHotel("Replay Hotel", "Odesa", 3, "By the sea");
+        Room room = dataManager.createRoom(hotel.getId(), "101", "Double", 70);
+        hotel.setRating(5);
+        dataManager.updateHotel(hotel);
+        kept.setFullName("Kept Renamed");
+        dataManager.updateUser(kept);
+        dataManager.deleteUser(removed.getId());
+        dataManager.close();
+
+        DataManager restarted = new DataManager(folder);
+        assertEquals(usersBefore + 1, restarted.getAllUsers().size());
+        assertEquals("Kept Renamed", restarted.getUserById(kept.getId()).getFullName());
+        assertNull(restarted.getUserById(removed.getId()));
+        assertEquals(5, restarted.getHotelById(hotel.getId()).getRating());
+        assertEquals(hotel.getId(), restarted.getRoomById(room.getId()).getHotel().getId());
+        assertTrue(restarted.verifyIndexes());
+        restarted.close();
+    }
+
+    @Test
+    void nonPositiveLimitGivesAnEmptyPage() {
+        DataManager dataManager = new DataManager(folder);
+        for (int limit : new int[] {0, -1}) {
+            Page<Hotel> hotels = dataManager.pageHotels(HotelSortOrder.RATING, null, limit);
+            assertTrue(hotels.getItems().isEmpty());
+            assertFalse(hotels.hasNext());
+            assertTrue(dataManager.pageUsers(null, limit, null).getItems().isEmpty());
+            assertTrue(dataManager.pageBookings(null, limit, null).getItems().isEmpty());
+            Page<Booking> bookings = dataManager.pageBookings(new BookingQuery(), null, limit);
+            assertTrue(bookings.getItems().isEmpty());
+            assertFalse(bookings.hasNext());
+        }
+        assertEquals(1, dataManager.pageHotels(HotelSortOrder.RATING, null, 1).getItems().size());
+        dataManager.close();
+    }
+
+    @Test
+    void legacyBookingFilesAreImportedOnlyOnce() throws IOException {
+        DataManager dataManager = new DataManager(folder);
+        User user = dataManager.createUser("legacy", "password", "Legacy User", "legacy@example.com", "555");
+        Hotel hotel = dataManager.createHotel("Legacy Hotel", "Kyiv", 4, "Old receipts");
+        Room room = dataManager.createRoom(hotel.getId(), "7", "Single", 40);
+        dataManager.close();
+
+        // A bookings folder as older versions left it: receipts only, no booking store
+        File bookingsFolder = new File(folder, "bookings");
+        for (File file : bookingsFolder.listFiles()) {
+            assertTrue(file.delete());
+        }
+        Files.write(new File(bookingsFolder, "resertlegacy12345.txt").toPath(), List.of(
+                "Booking ID: legacy-booking",
+                "User ID: " + user.getId(),
+                "Room ID: " + room.getId(),
+                "Check-in Date: " + LocalDate.of(2031, 5, 1),
+                "Check-out Date: " + LocalDate.of(2031, 5, 3),
+                "Total Price: 80.0",
+                "Confirmed: false"));
+
+        DataManager imported = new DataManager(folder);
+        assertNotNull(imported.getBookingById("legacy-booking"));
+        imported.deleteBooking("legacy-booking");
+        // Compacting a store without bookings leaves no segments at all
+        imported.compactBookings();
+        imported.close();
+
+        // The receipt is still there, but the deleted booking does not come back
+        DataManager restarted = new DataManager(folder);
+        assertNull(restarted.getBookingById("legacy-booking"));
+        restarted.close();
+    }
+
+    @Test
+    void caseDuplicateUsernameIsFoundAfterTheFirstUserIsDeleted() {
+        DataManager dataManager = new DataManager(folder);
+        User first = dataManager.createUser("Sam", "password", "Sam One", "one@example.com", "555");
+        User second = dataManager.createUser("sam", "password", "Sam Two", "two@example.com", "555");
+        assertSame(first, dataManager.getUserByUsername("SAM"));
+
+        dataManager.deleteUser(first.getId());
+        assertSame(second, dataManager.getUserByUsername("Sam"));
+        assertTrue(dataManager.isUsernameTaken("sam"));
+        assertTrue(dataManager.verifyIndexes());
+
+        second.setUsername("samuel");
+        dataManager.updateUser(second);
+        assertFalse(dataManager.isUsernameTaken("sam"));
+        assertSame(second, dataManager.getUserByUsername("Samuel"));
+        assertTrue(dataManager.verifyIndexes());
+        dataManager.close();
+    }
+
+    @Test
+    void caseDuplicateUserCanKeepItsOwnName() {
+        DataManager dataManager = new DataManager(folder);
+        User first = dataManager.createUser("Kim", "password", "Kim One", "one@example.com", "555");
+        User second = dataManager.createUser("kim", "password", "Kim Two", "two@example.com", "555");
+
+        // The edit form checks the name against every user but the edited one
+        assertTrue(dataManager.isUsernameTaken("KIM", null));
+        assertTrue(dataManager.isUsernameTaken("kim", second));
+        assertTrue(dataManager.isUsernameTaken("Kim", first));
+        assertFalse(dataManager.isUsernameTaken("kimberly", second));
+
+        dataManager.deleteUser(first.getId());
+        assertFalse(dataManager.isUsernameTaken("kim", second));
+        assertTrue(dataManager.isUsernameTaken("kim", null));
+        dataManager.close();
+    }
+
+    @Test
+    void usernameFilterHasNoFalseNegativesAfterRenamesDeletesAndRebuilds() {
+        DataManager dataManager = new DataManager(folder);
+        List<User> created = new ArrayList<>();
+        // More names than the smallest filter holds, so it is rebuilt while users are added
+        for (int i = 0; i < 1500; i++) {
+            created.add(dataManager.createUser("Guest" + i, "password", "Guest " + i, "guest" + i + "@example.com", "555"));
+        }
+        for (int i = 0; i < 1500; i += 3) {
+            User user = created.get(i);
+            user.setUsername("Renamed" + i);
+            dataManager.updateUser(user);
+        }
+        for (int i = 1; i < 1500; i += 3) {
+            dataManager.deleteUser(created.get(i).getId());
+        }
+
+        for (int i = 0; i < 1500; i++) {
+            User user = created.get(i);
+            if (i % 3 == 0) {
+                assertSame(user, dataManager.getUserByUsername("renamed" + i));
+                assertNull(dataManager.getUserByUsername("guest" + i));
+            } else if (i % 3 == 1) {
+                assertNull(dataManager.getUserByUsername("guest" + i));
+            } else {
+                assertSame(user, dataManager.getUserByUsername("GUEST" + i));
+            }
+        }
+        assertTrue(dataManager.verifyIndexes());
+        dataManager.close();
+    }
+
+    @Test
+    void legacyFilesAreMigratedToTheBinaryFormat() throws IOException {
+        User user = new User("user-1", "legacy", "password", "Legacy User", "legacy@example.com", "555");
+        Hotel hotel = new Hotel("hotel-1", "Legacy Hotel", "Lviv", 4, "Serialized by an older version");
+        Room room = new Room("room-1", "12", "Double", 65);
+        hotel.addRoom(room);
+        writeLegacy(new File(folder, "users.dat"), List.of(user));
+        writeLegacy(new File(folder, "hotels.dat"), List.of(hotel));
+        writeLegacy(new File(folder, "rooms.dat"), List.of(room));
+
+        DataManager migrated = new DataManager(folder);
+        assertEquals("Legacy User", migrated.getUserById("user-1").getFullName());
+        assertEquals("hotel-1", migrated.getRoomById("room-1").getHotel().getId());
+        migrated.close();
+        for (String name : new String[] {"users.dat", "hotels.dat", "rooms.dat"}) {
+            assertTrue(EntityCodec.isSnapshot(new File(folder, name)), name);
+        }
+
+        // The second start reads the binary files
+        DataManager restarted = new DataManager(folder);
+        assertEquals("legacy", restarted.getUserById("user-1").getUsername());
+        assertEquals("Lviv", restarted.getHotelById("hotel-1").getLocation());
+        assertEquals(1, restarted.getRoomsByHotel("hotel-1").size());
+        assertTrue(restarted.verifyIndexes());
+        restarted.close();
+    }
+
+    @Test
+    void indexesStayConsistentThroughCreateUpdateAndDelete() {
+        DataManager dataManager = new DataManager(folder);
+        User user = dataManager.createUser("indexed", "password", "Indexed User", "indexed@example.com", "555");
+        Hotel hotel = dataManager.createHotel("Index Hotel", "Kharkiv", 3, "Central");
+        Room first = dataManager.createRoom(hotel.getId(), "1", "Single", 50);
+        Room second = dataManager.createRoom(hotel.getId(), "2", "Suite", 120);
+        Booking booking = dataManager.createBooking(user.getId(), first.getId(), LocalDate.of(2031, 3, 1), LocalDate.of(2031, 3, 4));
+        Booking other = dataManager.createBooking(user.getId(), second.getId(), LocalDate.of(2031, 4, 1), LocalDate.of(2031, 4, 2));
+        assertTrue(dataManager.verifyIndexes());
+        assertEquals(2, dataManager.getBookingsByUser(user.getId()).size());
+        assertEquals(2, dataManager.getBookingsByHotel(hotel.getId()).size());
+
+        user.setUsername("renamed");
+        dataManager.updateUser(user);
+        hotel.setRating(5);
+        dataManager.updateHotel(hotel);
+        second.setPricePerNight(150);
+        dataManager.updateRoom(second);
+        booking.setConfirmed(true);
+        dataManager.updateBooking(booking);
+        assertTrue(dataManager.verifyIndexes());
+        assertSame(user, dataManager.getUserByUsername("renamed"));
+        assertFalse(dataManager.isUsernameTaken("indexed"));
+
+        dataManager.deleteBooking(other.getId());
+        assertTrue(dataManager.verifyIndexes());
+        assertEquals(List.of(booking), dataManager.getBookingsByUser(user.getId()));
+        assertTrue(dataManager.getBookingsByRoom(second.getId()).isEmpty());
+
+        dataManager.deleteRoom(second.getId());
+        assertTrue(dataManager.verifyIndexes());
+        assertNull(dataManager.getRoomById(second.getId()));
+        assertEquals(1, dataManager.getRoomsByHotel(hotel.getId()).size());
+
+        dataManager.deleteBooking(booking.getId());
+        assertTrue(dataManager.verifyIndexes());
+        assertTrue(dataManager.getBookingsByRoom(first.getId()).isEmpty());
+        assertTrue(dataManager.getBookingsByHotel(hotel.getId()).isEmpty());
+
+        dataManager.deleteUser(user.getId());
+        assertTrue(dataManager.verifyIndexes());
+        assertNull(dataManager.getUserByUsername("renamed"));
+
+        dataManager.deleteRoom(first.getId());
+        dataManager.deleteHotel(hotel.getId());
+        assertTrue(dataManager.verifyIndexes());
+        assertNull(dataManager.getHotelById(hotel.getId()));
+        assertTrue(dataManager.getRoomsByHotel(hotel.getId()).isEmpty());
+        dataManager.close();
+    }
+
+    @Test
+    void searchRankingFollowsRatingAndLocationChanges() {
+        DataManager dataManager = new DataManager(folder);
+        Hotel good = dataManager.createHotel("Good Hotel", "Rankville", 3, "");
+        Hotel best = dataManager.createHotel("Best Hotel", "Rankville", 4, "");
+        Room goodRoom = dataManager.createRoom(good.getId(), "1", "Rank Suite", 80);
+        Room bestRoom = dataManager.createRoom(best.getId(), "1", "Rank Suite", 90);
+        RoomSearchCriteria inRankville = new RoomSearchCriteria("Rankville", null, null);
+        RoomSearchCriteria inOtherville = new RoomSearchCriteria("Otherville", null, null);
+        RoomSearchCriteria suites = new RoomSearchCriteria();
+        suites.setRoomType("Rank Suite");
+        // Fill the cached lists before anything changes
+        assertEquals(List.of(bestRoom, goodRoom), dataManager.searchAvailableRooms(inRankville, 0, 10));
+        assertEquals(List.of(bestRoom, goodRoom), dataManager.searchAvailableRooms(suites, 0, 10));
+        assertTrue(dataManager.searchAvailableRooms(inOtherville, 0, 10).isEmpty());
+
+        good.setRating(5);
+        dataManager.updateHotel(good);
+        assertEquals(List.of(goodRoom, bestRoom), dataManager.searchAvailableRooms(inRankville, 0, 10));
+        assertEquals(List.of(goodRoom, bestRoom), dataManager.searchAvailableRooms(suites, 0, 10));
+
+        // Equal ratings are ranked by price
+        best.setRating(5);
+        dataManager.updateHotel(best);
+        bestRoom.setPricePerNight(60);
+        dataManager.updateRoom(bestRoom);
+        assertEquals(List.of(bestRoom, goodRoom), dataManager.searchAvailableRooms(suites, 0, 10));
+
+        best.setLocation("Otherville");
+        dataManager.updateHotel(best);
+        assertEquals(List.of(bestRoom), dataManager.searchAvailableRooms(inOtherville, 0, 10));
+        assertEquals(List.of(goodRoom), dataManager.searchAvailableRooms(inRankville, 0, 10));
+
+        dataManager.deleteRoom(bestRoom.getId());
+        assertTrue(dataManager.searchAvailableRooms(inOtherville, 0, 10).isEmpty());
+        assertEquals(List.of(goodRoom), dataManager.searchAvailableRooms(suites, 0, 10));
+        dataManager.close();
+    }
+
+    @Test
+    void availabilityPastTheOccupancyHorizonComesFromTheIntervals() {
+        DataManager dataManager = new DataManager(folder);
+        User user = dataManager.createUser("traveller", "password", "Far Ahead", "far@example.com", "555");
+        Hotel hotel = dataManager.createHotel("Horizon Hotel", "Lviv", 4, "");
+        Room room = dataManager.createRoom(hotel.getId(), "1", "Double", 70);
+        // The calendars cover 768 nights from today
+        LocalDate horizonEnd = LocalDate.now().plusDays(768);
+        assertNotNull(dataManager.createBooking(user.getId(), room.getId(), horizonEnd.minusDays(10), horizonEnd));
+        assertNotNull(dataManager.createBooking(user.getId(), room.getId(), horizonEnd.plusDays(3), horizonEnd.plusDays(8)));
+        assertNotNull(dataManager.createBooking(user.getId(), room.getId(), horizonEnd.plusDays(300), horizonEnd.plusDays(302)));
+
+        // A check-out on the horizon day is answered from the calendar, the next night is free
+        assertFalse(dataManager.isRoomAvailable(room.getId(), horizonEnd.minusDays(1), horizonEnd));
+        assertTrue(dataManager.isRoomAvailable(room.getId(), horizonEnd, horizonEnd.plusDays(3)));
+        // Stays crossing the horizon or past it are answered from the interval index
+        assertFalse(dataManager.isRoomAvailable(room.getId(), horizonEnd.minusDays(1), horizonEnd.plusDays(1)));
+        assertFalse(dataManager.isRoomAvailable(room.getId(), horizonEnd.plusDays(2), horizonEnd.plusDays(4)));
+        assertTrue(dataManager.isRoomAvailable(room.getId(), horizonEnd.plusDays(8), horizonEnd.plusDays(300)));
+        assertFalse(dataManager.isRoomAvailable(room.getId(), horizonEnd.plusDays(301), horizonEnd.plusDays(310)));
+        assertNull(dataManager.createBooking(user.getId(), room.getId(), horizonEnd.minusDays(3), horizonEnd.plusDays(4)));
+
+        assertEquals(10 + 5, dataManager.countOccupiedNights(room.getId(), horizonEnd.minusDays(20), horizonEnd.plusDays(20)));
+        assertEquals(2, dataManager.countOccupiedNights(room.getId(), horizonEnd.plusDays(100), horizonEnd.plusDays(400)));
+        assertTrue(dataManager.verifyIndexes());
+        dataManager.close();
+    }
+
+    @Test
+    void bookingQueriesReadTheCheapestIndexAndMatchAFullScan() {
+        DataManager dataManager = new DataManager(folder);
+        Hotel big = dataManager.createHotel("Big Hotel", "Planville", 4, "");
+        Hotel small = dataManager.createHotel("Small Inn", "Quietplace", 2, "");
+        List<Room> bigRooms = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            bigRooms.add(dataManager.createRoom(big.getId(), String.valueOf(i), i % 2 == 0 ? "Double" : "Single", 50 + i));
+        }
+        Room smallRoom = dataManager.createRoom(small.getId(), "1", "Loft", 40);
+        List<User> guests = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            guests.add(dataManager.createUser("guest" + i, "password", "Guest " + i, "guest" + i + "@example.com", "555"));
+        }
+        User rare = dataManager.createUser("rare", "password", "Rare Guest", "rare@example.com", "555");
+        LocalDate start = LocalDate.of(2032, 1, 1);
+        for (int i = 0; i < 300; i++) {
+            LocalDate checkIn = start.plusDays((i / 10) * 3L);
+            assertNotNull(dataManager.createBooking(guests.get(i % 20).getId(), bigRooms.get(i % 10).getId(), checkIn, checkIn.plusDays(2)));
+        }
+        assertNotNull(dataManager.createBooking(rare.getId(), smallRoom.getId(), start, start.plusDays(1)));
+        assertNotNull(dataManager.createBooking(rare.getId(), smallRoom.getId(), start.plusDays(40), start.plusDays(42)));
+
+        // A guest with few bookings is read from the by-user index
+        BookingQuery byUser = new BookingQuery();
+        byUser.setUserId(rare.getId());
+        assertQueryMatchesScan(dataManager, byUser, DataManager.BookingSource.USER);
+
+        BookingQuery byHotel = new BookingQuery();
+        byHotel.setHotelId(small.getId());
+        assertQueryMatchesScan(dataManager, byHotel, DataManager.BookingSource.HOTEL);
+
+        // One check-in day out of ninety is read from the check-in order
+        BookingQuery oneDay = new BookingQuery();
+        oneDay.setCheckInFrom(start.plusDays(30));
+        oneDay.setCheckInTo(start.plusDays(30));
+        assertQueryMatchesScan(dataManager, oneDay, DataManager.BookingSource.CHECK_IN);
+
+        // Nearly every booking is in the big hotel: all of them would be sorted, but reading
+        // in check-in order finds a small page at once
+        BookingQuery common = new BookingQuery();
+        common.setHotelId(big.getId());
+        Page<Booking> page = dataManager.pageBookings(common, null, 3);
+        assertEquals(DataManager.BookingSource.ALL, dataManager.getLastBookingSource());
+        assertEquals(scan(dataManager, common).subList(0, 3), page.getItems());
+        // Even for all of them, sorting an index that holds nearly every booking costs more than a scan
+        assertQueryMatchesScan(dataManager, common, DataManager.BookingSource.ALL);
+
+        BookingQuery typeAndText = new BookingQuery();
+        typeAndText.setRoomType("double");
+        typeAndText.setText("guest 1");
+        typeAndText.setConfirmed(false);
+        assertQueryMatchesScan(dataManager, typeAndText, null);
+        assertQueryMatchesScan(dataManager, new BookingQuery(), DataManager.BookingSource.ALL);
+        dataManager.close();
+    }
+
+    /**
+     * Checks that a query finds the same bookings in the same order as a filter over all bookings,
+     * and that the planner read them from the given index (any index if null).
+     */
+    private static void assertQueryMatchesScan(DataManager dataManager, BookingQuery query, DataManager.BookingSource source) {
+        List<Booking> found = dataManager.queryBookings(query).collect(Collectors.toList());
+        if (source != null) {
+            assertEquals(source, dataManager.getLastBookingSource(), query.toString());
+        }
+        assertEquals(scan(dataManager, query), found, query.toString());
+    }
+
+    /**
+     * Filters every booking by the query, in check-in order.
+     */
+    private static List<Booking> scan(DataManager dataManager, BookingQuery query) {
+        String text = query.getText() != null ? query.getText().toLowerCase(Locale.ROOT) : null;
+        return dataManager.getAllBookings().stream()
+            .filter(booking -> query.getUserId() == null || query.getUserId().equals(booking.getUser().getId()))
+            .filter(booking -> query.getHotelId() == null || query.getHotelId().equals(booking.getRoom().getHotel().getId()))
+            .filter(booking -> query.getRoomType() == null || query.getRoomType().equalsIgnoreCase(booking.getRoom().getType()))
+            .filter(booking -> query.getConfirmed() == null || query.getConfirmed() == booking.isConfirmed())
+            .filter(booking -> query.getCheckInFrom() == null || !booking.getCheckInDate().isBefore(query.getCheckInFrom()))
+            .filter(booking -> query.getCheckInTo() == null || !booking.getCheckInDate().isAfter(query.getCheckInTo()))
+            .filter(booking -> text == null
+                || booking.getUser().getUsername().toLowerCase(Locale.ROOT).contains(text)
+                || booking.getUser().getFullName().toLowerCase(Locale.ROOT).contains(text)
+                || booking.getRoom().getHotel().getName().toLowerCase(Locale.ROOT).contains(text))
+            .sorted(Comparator.comparing(Booking::getCheckInDate).thenComparing(Booking::getId))
+            .collect(Collectors.toList());
+    }
+
+    @Test
+    void bookingTotalsFollowBookingUpdatesAndDeletes() {
+        DataManager dataManager = new DataManager(folder);
+        User user = dataManager.createUser("totals", "password", "Totals Guest", "totals@example.com", "555");
+        Hotel first = dataManager.createHotel("First Totals Hotel", "Dnipro", 3, "");
+        Hotel second = dataManager.createHotel("Second Totals Hotel", "Dnipro", 3, "");
+        Room firstRoom = dataManager.createRoom(first.getId(), "1", "Double", 100);
+        Room secondRoom = dataManager.createRoom(second.getId(), "1", "Double", 70);
+        LocalDate march = LocalDate.of(2033, 3, 1);
+        Booking booking = dataManager.createBooking(user.getId(), firstRoom.getId(), march, march.plusDays(2));
+        Booking other = dataManager.createBooking(user.getId(), firstRoom.getId(), march.plusDays(5), march.plusDays(6));
+        // The totals are built on first use and kept up to date from then on
+        assertEquals(new BookingTotals(30000, 3, 0, 2), dataManager.getBookingTotals(first.getId()));
+
+        booking.setConfirmed(true);
+        booking.setCheckOutDate(march.plusDays(4));
+        dataManager.updateBooking(booking);
+        assertEquals(new BookingTotals(50000, 5, 1, 1), dataManager.getBookingTotals(first.getId()));
+        assertEquals(new BookingTotals(20000, 2, 0, 0), dataManager.getBookingTotals(first.getId(), march.plusDays(2), march.plusDays(4)));
+
+        // Moved to a room of another hotel; the booking keeps the price it was made for
+        booking.setRoom(secondRoom);
+        dataManager.updateBooking(booking);
+        assertEquals(new BookingTotals(10000, 1, 0, 1), dataManager.getBookingTotals(first.getId()));
+        assertEquals(new BookingTotals(40000, 4, 1, 0), dataManager.getBookingTotals(second.getId()));
+        assertTrue(dataManager.verifyIndexes());
+
+        dataManager.deleteBooking(other.getId());
+        assertEquals(new BookingTotals(0, 0, 0, 0), dataManager.getBookingTotals(first.getId()));
+        dataManager.deleteBooking(booking.getId());
+        assertEquals(new BookingTotals(0, 0, 0, 0), dataManager.getBookingTotals(second.getId()));
+        assertTrue(dataManager.verifyIndexes());
+        dataManager.close();
+    }
+
+    /**
+     * Writes a list the way older versions saved their data files.
+     */
+    private static void writeLegacy(File file, List<?> items) throws IOException {
+        try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(file))) {
+            out.writeObject(new ArrayList<>(items));
+        }
+    }
+}
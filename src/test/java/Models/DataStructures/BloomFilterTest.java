@@ -0,0 +1,50 @@
+package Models.DataStructures;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for BloomFilter: no false negatives, also past the expected size, and the false positive rate.
+ */
+class BloomFilterTest {
+
+    @Test
+    void addedValuesAreAlwaysFound() {
+        BloomFilter filter = new BloomFilter(1000, 0.01);
+        // Three times the size the filter was made for
+        for (int i = 0; i < 3000; i++) {
+            filter.add("user-" + i);
+            assertTrue(filter.mightContain("user-" + i));
+        }
+        for (int i = 0; i < 3000; i++) {
+            assertTrue(filter.mightContain("user-" + i), "user-" + i);
+        }
+        assertEquals(3000, filter.getInsertions());
+        assertEquals(1000, filter.getExpectedInsertions());
+    }
+
+    @Test
+    void emptyFilterFindsNothing() {
+        BloomFilter filter = new BloomFilter(16, 0.01);
+        assertFalse(filter.mightContain("anyone"));
+        assertFalse(filter.mightContain(""));
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTheTarget() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("user-" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("other-" + i)) {
+                falsePositives++;
+            }
+        }
+        // 1% is the target; the hashes are fixed, so the result does not change between runs
+        assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+    }
+}
@@ -0,0 +1,101 @@
+package Models.DataStructures;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for IntervalIndex: half-open boundaries, removal and free ranges.
+ */
+class IntervalIndexTest {
+
+    @Test
+    void intervalsTouchingAtABoundaryDoNotOverlap() {
+        IntervalIndex<String> index = new IntervalIndex<>();
+        index.add(10, 13, "stay");
+
+        // [7, 10) ends where the stay starts, [13, 15) starts where it ends
+        assertFalse(index.overlaps(7, 10));
+        assertFalse(index.overlaps(13, 15));
+        assertTrue(index.overlaps(12, 13));
+        assertTrue(index.overlaps(9, 11));
+        assertEquals(List.of("stay"), index.findOverlapping(0, 100));
+        assertTrue(index.findOverlapping(13, 20).isEmpty());
+        // An empty range overlaps nothing
+        assertFalse(index.overlaps(11, 11));
+    }
+
+    @Test
+    void removedIntervalsNoLongerOverlap() {
+        IntervalIndex<String> index = new IntervalIndex<>();
+        index.add(0, 100, "long");
+        index.add(40, 42, "short");
+        index.add(200, 203, "later");
+        assertEquals(List.of("long", "short"), index.findOverlapping(41, 42));
+
+        assertTrue(index.remove("long"));
+        assertFalse(index.remove("long"));
+        assertEquals(List.of("short"), index.findOverlapping(41, 42));
+        assertFalse(index.overlaps(50, 60));
+        assertNull(index.getInterval("long"));
+        assertEquals(2, index.size());
+
+        // Moving a value replaces its interval
+        index.add(300, 305, "short");
+        assertFalse(index.overlaps(40, 42));
+        assertArrayEquals(new long[] {300, 305}, index.getInterval("short"));
+    }
+
+    @Test
+    void longestLengthShrinksWhenTheLongestIntervalIsRemoved() {
+        IntervalIndex<String> index = new IntervalIndex<>();
+        index.add(0, 365, "season");
+        index.add(10, 12, "weekend");
+        index.add(20, 22, "other weekend");
+        assertEquals(365, index.maxLength());
+
+        index.remove("season");
+        assertEquals(2, index.maxLength());
+        // Two intervals share the length, so one of them going leaves it in place
+        index.remove("weekend");
+        assertEquals(2, index.maxLength());
+        index.remove("other weekend");
+        assertEquals(0, index.maxLength());
+
+        index.add(5, 9, "again");
+        index.clear();
+        assertEquals(0, index.maxLength());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void nextFreeSkipsBookedRanges() {
+        IntervalIndex<String> index = new IntervalIndex<>();
+        index.add(10, 13, "a");
+        index.add(13, 15, "b");
+        index.add(20, 25, "c");
+
+        assertEquals(0, index.nextFree(0, 10));
+        assertEquals(25, index.nextFree(0, 11));
+        assertEquals(15, index.nextFree(10, 2));
+        // [15, 20) ends where "c" starts
+        assertEquals(15, index.nextFree(15, 5));
+        assertEquals(25, index.nextFree(15, 6));
+        assertEquals(25, index.nextFree(21, 1));
+        assertEquals(40, index.nextFree(40, 3));
+    }
+
+    @Test
+    void nextFreeStillSeesLongIntervalsAfterShortOnesAreRemoved() {
+        IntervalIndex<String> index = new IntervalIndex<>();
+        index.add(0, 50, "long");
+        index.add(60, 61, "short");
+        index.remove("short");
+
+        // The long interval starts well before the requested point
+        assertEquals(50, index.nextFree(30, 5));
+        assertTrue(index.overlaps(45, 46));
+    }
+}
@@ -0,0 +1,118 @@
+package Models.DataStructures;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for InvertedIndex: TF-IDF ranking, the posting list intersection and removed documents.
+ */
+class InvertedIndexTest {
+
+    @Test
+    void rarerTermsAndHeavierFieldsRankFirst() {
+        // A name counts three times as much as a description; values are compared by identity
+        InvertedIndex<String> index = new InvertedIndex<>(3.0, 1.0);
+        index.put("alpha in name", "alpha", "beta");
+        index.put("beta in name", "beta", "alpha");
+        // Only the field weights differ, so the name decides
+        assertEquals(List.of("alpha in name", "beta in name"), index.search("alpha"));
+        assertEquals(List.of("beta in name", "alpha in name"), index.search("beta"));
+
+        // Make alpha common: now beta is the rarer term and outweighs it
+        List<String> others = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            String other = "other " + i;
+            others.add(other);
+            index.put(other, "alpha");
+        }
+        assertEquals(List.of("beta in name", "alpha in name"), index.search("alpha beta"));
+
+        // Removed values no longer count as containing alpha, and beta becomes the common term
+        for (String other : others) {
+            assertTrue(index.remove(other));
+        }
+        for (int i = 0; i < 3; i++) {
+            index.put("beta " + i, "beta");
+        }
+        assertEquals(List.of("alpha in name", "beta in name"), index.search("alpha beta"));
+    }
+
+    @Test
+    void equalMatchesKeepTheOrderTheyWereAddedIn() {
+        InvertedIndex<String> index = new InvertedIndex<>(1.0);
+        index.put("first", "same words");
+        index.put("second", "same words");
+        index.put("third", "same words");
+        // Updating a value keeps its place
+        index.put("first", "same words again");
+        assertEquals(List.of("first", "second", "third"), index.search("same wor"));
+    }
+
+    @Test
+    void intersectionMatchesABruteForceSearch() {
+        InvertedIndex<Integer> index = new InvertedIndex<>(1.0);
+        List<Integer> values = new ArrayList<>();
+        List<String> texts = new ArrayList<>();
+        // Every value has "all"; some have "even", "third" or "hundred", so the lists have very different lengths
+        for (int i = 0; i < 3000; i++) {
+            String text = "all" + (i % 2 == 0 ? " even" : "") + (i % 3 == 0 ? " third" : "")
+                + (i % 100 == 7 ? " hundred" : "") + " word" + (i % 10);
+            values.add(i);
+            texts.add(text);
+            index.put(i, text);
+        }
+
+        for (String query : new String[] {"all even", "even third", "hundred all", "third hundred", "hundred even third", "even third word"}) {
+            List<String> terms = InvertedIndex.tokenize(query);
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < values.size(); i++) {
+                List<String> words = InvertedIndex.tokenize(texts.get(i));
+                boolean all = true;
+                for (int t = 0; t < terms.size() && all; t++) {
+                    String term = terms.get(t);
+                    all = t < terms.size() - 1 ? words.contains(term) : words.stream().anyMatch(word -> word.startsWith(term));
+                }
+                if (all) {
+                    expected.add(values.get(i));
+                }
+            }
+            List<Integer> found = index.search(query);
+            found.sort(null);
+            assertEquals(expected, found, query);
+        }
+    }
+
+    @Test
+    void removedDocumentsAreRenumberedAway() {
+        InvertedIndex<String> index = new InvertedIndex<>(1.0);
+        for (int round = 0; round < 50; round++) {
+            String[] values = new String[100];
+            for (int i = 0; i < 100; i++) {
+                values[i] = "round " + round + " value " + i;
+                index.put(values[i], "hotel number" + i);
+            }
+            for (int i = 0; i < 100; i++) {
+                if (round < 49 || i % 10 != 0) {
+                    assertTrue(index.remove(values[i]));
+                }
+            }
+        }
+        assertEquals(10, index.size());
+        // 5000 values were added, but the removed ones do not keep their numbers
+        assertTrue(index.getDocumentSlots() < 200, "slots: " + index.getDocumentSlots());
+
+        // The values left are still found, in the order they were added
+        List<String> hotels = index.search("hotel");
+        assertEquals(10, hotels.size());
+        assertEquals("round 49 value 0", hotels.get(0));
+        assertEquals("round 49 value 90", hotels.get(9));
+        assertEquals(List.of("round 49 value 30"), index.search("hotel number30"));
+        assertTrue(index.search("number31").isEmpty());
+        // "hotel" and the ten numbers left
+        assertEquals(11, index.getTermCount());
+    }
+}
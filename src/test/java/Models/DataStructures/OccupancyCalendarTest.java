@@ -0,0 +1,86 @@
+package Models.DataStructures;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for OccupancyCalendar: word boundaries and the edges of the horizon.
+ */
+class OccupancyCalendarTest {
+
+    // The horizon DataManager uses, twelve whole words
+    private static final int HORIZON = 768;
+    private static final long ORIGIN = 20_000;
+
+    @Test
+    void rangesAcrossWordBoundariesAreMarkedAndCleared() {
+        OccupancyCalendar calendar = new OccupancyCalendar(ORIGIN, HORIZON);
+        // Nights 60 to 130 touch three words
+        calendar.mark(ORIGIN + 60, ORIGIN + 131);
+        assertEquals(71, calendar.countOccupied(ORIGIN, ORIGIN + HORIZON));
+        assertTrue(calendar.isFree(ORIGIN, ORIGIN + 60));
+        assertTrue(calendar.isFree(ORIGIN + 131, ORIGIN + HORIZON));
+        assertFalse(calendar.isFree(ORIGIN + 63, ORIGIN + 64));
+        assertFalse(calendar.isFree(ORIGIN + 128, ORIGIN + 140));
+
+        // Free the nights around the first word boundary only
+        calendar.clear(ORIGIN + 62, ORIGIN + 66);
+        assertTrue(calendar.isFree(ORIGIN + 62, ORIGIN + 66));
+        assertFalse(calendar.isFree(ORIGIN + 61, ORIGIN + 62));
+        assertFalse(calendar.isFree(ORIGIN + 66, ORIGIN + 67));
+        assertEquals(67, calendar.countOccupied(ORIGIN, ORIGIN + HORIZON));
+        // An empty range is always free
+        assertTrue(calendar.isFree(ORIGIN + 70, ORIGIN + 70));
+        assertEquals(0, calendar.countOccupied(ORIGIN + 70, ORIGIN + 70));
+    }
+
+    @Test
+    void checkOutOnTheLastDayOfTheHorizonIsCovered() {
+        OccupancyCalendar calendar = new OccupancyCalendar(ORIGIN, HORIZON);
+        long horizonEnd = ORIGIN + HORIZON;
+        assertTrue(calendar.covers(ORIGIN, horizonEnd));
+        assertTrue(calendar.covers(horizonEnd - 3, horizonEnd));
+        assertFalse(calendar.covers(horizonEnd - 3, horizonEnd + 1));
+        assertFalse(calendar.covers(ORIGIN - 1, ORIGIN + 2));
+
+        // The stay ends on the first day after the horizon, so its last night is the last bit
+        calendar.mark(horizonEnd - 3, horizonEnd);
+        assertFalse(calendar.isFree(horizonEnd - 1, horizonEnd));
+        assertTrue(calendar.isFree(horizonEnd - 4, horizonEnd - 3));
+        assertEquals(3, calendar.countOccupied(ORIGIN, horizonEnd));
+    }
+
+    @Test
+    void nightsOutsideTheHorizonAreIgnored() {
+        OccupancyCalendar calendar = new OccupancyCalendar(ORIGIN, HORIZON);
+        long horizonEnd = ORIGIN + HORIZON;
+        // A stay crossing the end of the horizon only marks the nights inside it
+        calendar.mark(horizonEnd - 2, horizonEnd + 5);
+        assertEquals(2, calendar.countOccupied(ORIGIN, horizonEnd));
+        assertEquals(2, calendar.countOccupied(horizonEnd - 10, horizonEnd + 10));
+        // The calendar does not know about the nights after the horizon, callers check covers() first
+        assertTrue(calendar.isFree(horizonEnd, horizonEnd + 5));
+
+        // The same at the start of the horizon
+        calendar.mark(ORIGIN - 5, ORIGIN + 1);
+        assertFalse(calendar.isFree(ORIGIN, ORIGIN + 1));
+        assertTrue(calendar.isFree(ORIGIN - 5, ORIGIN));
+        assertEquals(3, calendar.countOccupied(ORIGIN - 5, horizonEnd + 5));
+
+        // Ranges entirely outside change nothing
+        calendar.mark(horizonEnd + 10, horizonEnd + 20);
+        calendar.clear(ORIGIN - 20, ORIGIN - 10);
+        assertEquals(3, calendar.countOccupied(ORIGIN, horizonEnd));
+    }
+
+    @Test
+    void horizonThatIsNotAWholeNumberOfWordsStopsAtItsLastNight() {
+        OccupancyCalendar calendar = new OccupancyCalendar(ORIGIN, 100);
+        calendar.mark(ORIGIN + 90, ORIGIN + 200);
+        assertEquals(10, calendar.countOccupied(ORIGIN, ORIGIN + 200));
+        assertFalse(calendar.isFree(ORIGIN + 99, ORIGIN + 100));
+        calendar.clear(ORIGIN, ORIGIN + 200);
+        assertEquals(0, calendar.countOccupied(ORIGIN, ORIGIN + 100));
+    }
+}
@@ -0,0 +1,82 @@
+package Models.DataStructures;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for OrderedIndex with values that are changed in place and put again.
+ */
+class OrderedIndexTest {
+
+    /**
+     * A value with a field the order uses and one it ignores.
+     */
+    private static final class Item {
+        String name;
+        int rating;
+
+        Item(String name, int rating) {
+            this.name = name;
+            this.rating = rating;
+        }
+    }
+
+    /**
+     * Copy of an item's fields, ordered by name only.
+     */
+    private static final class Key {
+        final String name;
+        final int rating;
+
+        Key(Item item) {
+            this.name = item.name;
+            this.rating = item.rating;
+        }
+    }
+
+    private static OrderedIndex<Key, Item> byName() {
+        return new OrderedIndex<>(Key::new, Comparator.comparing((Key key) -> key.name));
+    }
+
+    @Test
+    void putMovesAChangedValue() {
+        OrderedIndex<Key, Item> index = byName();
+        Item apple = new Item("apple", 1);
+        Item cherry = new Item("cherry", 2);
+        index.put(apple);
+        index.put(cherry);
+
+        apple.name = "date";
+        index.put(apple);
+        assertEquals(List.of(cherry, apple), index.getAll());
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void putKeepsTheNewKeyWhenTheOrderDoesNotChange() {
+        OrderedIndex<Key, Item> index = byName();
+        Item apple = new Item("apple", 1);
+        index.put(apple);
+
+        // The rating is not part of the order, but the stored copy must follow it
+        apple.rating = 5;
+        index.put(apple);
+        assertEquals(5, index.getKey(apple).rating);
+        assertEquals(List.of(apple), index.getAll());
+    }
+
+    @Test
+    void removeForgetsTheValue() {
+        OrderedIndex<Key, Item> index = byName();
+        Item apple = new Item("apple", 1);
+        index.put(apple);
+        assertTrue(index.remove(apple));
+        assertFalse(index.remove(apple));
+        assertNull(index.getKey(apple));
+        assertEquals(0, index.size());
+    }
+}
@@ -0,0 +1,77 @@
+package Models.DataStructures;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for PrefixIndex: word starts, accents, ranks and removal.
+ */
+class PrefixIndexTest {
+
+    @Test
+    void everyWordOfATextCanBeCompleted() {
+        PrefixIndex<String> index = new PrefixIndex<>();
+        index.put("castle", 3, List.of("Lviv Castle Hotel", "Lviv"));
+        assertEquals(List.of("castle"), index.suggest("lv", 10));
+        assertEquals(List.of("castle"), index.suggest("CAS", 10));
+        assertEquals(List.of("castle"), index.suggest("castle ho", 10));
+        // Only word starts match
+        assertTrue(index.suggest("astle", 10).isEmpty());
+        // A prefix without letters or digits matches nothing
+        assertTrue(index.suggest(" - ", 10).isEmpty());
+        assertTrue(index.suggest("lv", 0).isEmpty());
+    }
+
+    @Test
+    void accentsAndPunctuationAreIgnored() {
+        assertEquals("cafe muller s", PrefixIndex.normalize("  Caf\u00e9 M\u00fcller's!"));
+        PrefixIndex<String> index = new PrefixIndex<>();
+        index.put("cafe", 1, List.of("Caf\u00e9 M\u00fcller"));
+        assertEquals(List.of("cafe"), index.suggest("cafe", 10));
+        assertEquals(List.of("cafe"), index.suggest("M\u00dcL", 10));
+        assertEquals(List.of("cafe"), index.suggest("mu", 10));
+    }
+
+    @Test
+    void higherRanksComeFirstAndEachValueOnce() {
+        PrefixIndex<String> index = new PrefixIndex<>();
+        index.put("budget", 2, List.of("Sea Breeze", "Odesa"));
+        index.put("luxury", 5, List.of("Seaside Palace", "Odesa"));
+        index.put("middle", 3, List.of("Sunny Sea Hotel", "Odesa"));
+        // Within a rank, the matching texts are in alphabetical order
+        index.put("another", 5, List.of("Sea Anchor", "Odesa"));
+
+        assertEquals(List.of("another", "luxury", "middle", "budget"), index.suggest("se", 10));
+        // Values under the same text keep the order they were added in
+        assertEquals(List.of("luxury", "another", "middle", "budget"), index.suggest("o", 10));
+        // Two words of one text start with "sea", the value is still suggested once
+        index.put("twice", 1, List.of("Sea View Sea"));
+        assertEquals(List.of("another", "luxury", "middle", "budget", "twice"), index.suggest("sea", 10));
+        assertEquals(List.of("another", "luxury"), index.suggest("se", 2));
+
+        // A new rank moves the value
+        index.put("budget", 9, List.of("Sea Breeze", "Odesa"));
+        assertEquals(List.of("budget", "another"), index.suggest("sea", 2));
+    }
+
+    @Test
+    void removedValuesAreNoLongerSuggested() {
+        PrefixIndex<String> index = new PrefixIndex<>();
+        index.put("first", 1, List.of("Grand Hotel"));
+        index.put("second", 1, List.of("Grand Hotel"));
+        assertTrue(index.remove("first"));
+        assertFalse(index.remove("first"));
+        assertEquals(List.of("second"), index.suggest("grand", 10));
+        assertEquals(1, index.size());
+
+        // Replacing the texts drops the old keys
+        index.put("second", 1, List.of("Small Inn"));
+        assertTrue(index.suggest("grand", 10).isEmpty());
+        index.clear();
+        assertTrue(index.suggest("small", 10).isEmpty());
+        assertEquals(0, index.size());
+    }
+}
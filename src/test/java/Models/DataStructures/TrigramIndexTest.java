@@ -0,0 +1,124 @@
+package Models.DataStructures;
+
+import Models.Utils.SearchAndSort;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for TrigramIndex: misspellings, accents, the edit budget and the trigram filter.
+ */
+class TrigramIndexTest {
+
+    @Test
+    void misspelledWordsFindTheirValues() {
+        TrigramIndex<String> index = new TrigramIndex<>();
+        index.put("kharkiv", "Kharkiv Palace", "Kharkiv");
+        index.put("odesa", "Black Sea Hotel", "Odesa");
+        assertEquals(List.of("kharkiv"), index.search("Kharkov"));
+        assertEquals(List.of("odesa"), index.search("odessa"));
+        // Every word must match, the distances add up
+        assertEquals(List.of("kharkiv"), index.search("kharkov palase"));
+        assertTrue(index.search("kharkov hotel").isEmpty());
+        assertTrue(index.search("").isEmpty());
+    }
+
+    @Test
+    void accentsAreIgnored() {
+        assertEquals(List.of("cafe", "muller"), TrigramIndex.tokenize("Caf\u00e9 M\u00fcller"));
+        TrigramIndex<String> index = new TrigramIndex<>();
+        index.put("cafe", "Caf\u00e9 M\u00fcller");
+        assertEquals(List.of("cafe"), index.search("cafe muller"));
+        assertEquals(List.of("cafe"), index.search("K\u00e4fe"));
+    }
+
+    @Test
+    void shortWordsGetASmallEditBudget() {
+        assertEquals(0, TrigramIndex.maxDistance(2));
+        assertEquals(1, TrigramIndex.maxDistance(3));
+        assertEquals(1, TrigramIndex.maxDistance(5));
+        assertEquals(2, TrigramIndex.maxDistance(6));
+        assertEquals(2, TrigramIndex.maxDistance(20));
+
+        TrigramIndex<String> index = new TrigramIndex<>();
+        index.put("kyiv", "Kyiv");
+        index.put("lviv", "Lviv");
+        // Two edits apart: with two edits allowed for four letters, each city would find the other
+        assertEquals(List.of("kyiv"), index.search("kyiv"));
+        assertEquals(List.of("lviv"), index.search("lviv"));
+        assertEquals(List.of("lviv"), index.search("lvov"));
+        // Two-letter words must be exact
+        index.put("ab", "ab");
+        assertEquals(List.of("ab"), index.search("ab"));
+        assertTrue(index.search("ac").isEmpty());
+    }
+
+    @Test
+    void closerMatchesComeFirstThenTheOrderTheyWereAddedIn() {
+        TrigramIndex<String> index = new TrigramIndex<>();
+        index.put("two edits", "sunrize hotell");
+        index.put("exact", "sunrise hotel");
+        index.put("one edit", "sunrise hotels");
+        index.put("also exact", "hotel sunrise");
+        assertEquals(List.of("exact", "also exact", "one edit", "two edits"), index.search("sunrise hotel"));
+    }
+
+    @Test
+    void unusedWordsAreRemoved() {
+        TrigramIndex<String> index = new TrigramIndex<>();
+        index.put("first", "grand hotel");
+        index.put("second", "grand inn");
+        assertEquals(3, index.getTermCount());
+        assertTrue(index.remove("first"));
+        assertEquals(2, index.getTermCount());
+        assertTrue(index.search("hotel").isEmpty());
+        // A new word reuses the freed number
+        index.put("third", "palace");
+        assertEquals(List.of("third"), index.search("palase"));
+        assertEquals(List.of("second"), index.search("grand"));
+    }
+
+    @Test
+    void trigramFilterFindsEveryWordWithinTheBudget() {
+        // Only words sharing a trigram with the query are checked; with two edits for four letters,
+        // "bb" is within the budget of "cbcb" without sharing one and would be missed
+        Random random = new Random(5);
+        TrigramIndex<Integer> index = new TrigramIndex<>();
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            words.add(randomWord(random));
+            index.put(i, words.get(i));
+        }
+
+        for (int i = 0; i < 300; i++) {
+            String query = randomWord(random);
+            int maxDistance = TrigramIndex.maxDistance(query.length());
+            List<Integer> expected = new ArrayList<>();
+            for (int j = 0; j < words.size(); j++) {
+                if (SearchAndSort.editDistance(query, words.get(j), maxDistance) <= maxDistance) {
+                    expected.add(j);
+                }
+            }
+            List<Integer> found = index.search(query);
+            Collections.sort(found);
+            assertEquals(expected, found, query);
+        }
+    }
+
+    /**
+     * A word of one to eight letters from a small alphabet, so many words are a few edits apart.
+     */
+    private static String randomWord(Random random) {
+        StringBuilder word = new StringBuilder();
+        int length = 1 + random.nextInt(8);
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(4)));
+        }
+        return word.toString();
+    }
+}
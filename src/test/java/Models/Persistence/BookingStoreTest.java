@@ -0,0 +1,165 @@
+package Models.Persistence;
+
+import Models.Booking;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the segmented booking store: reloading, compaction and reopening after compaction.
+ */
+class BookingStoreTest {
+
+    @TempDir
+    File folder;
+
+    private static Booking booking(String id, int day) {
+        LocalDate checkIn = LocalDate.of(2030, 1, 1).plusDays(day);
+        Booking booking = new Booking(id, null, null, checkIn, checkIn.plusDays(2));
+        booking.setUserId("user-" + id);
+        booking.setRoomId("room-" + id);
+        booking.setTotalPrice(100 + day);
+        return booking;
+    }
+
+    private static List<String> ids(List<Booking> bookings) {
+        List<String> ids = new ArrayList<>();
+        for (Booking booking : bookings) {
+            ids.add(booking.getId());
+        }
+        return ids;
+    }
+
+    @Test
+    void reloadKeepsTheLatestStateOfEachBooking() {
+        try (BookingStore store = new BookingStore(folder, BookingStore.DEFAULT_SEGMENT_SIZE)) {
+            store.append(booking("a", 1), true);
+            store.append(booking("b", 2), true);
+            store.append(booking("a", 5), true);
+            store.delete("b", true);
+        }
+
+        List<Booking> loaded = new BookingStore(folder, BookingStore.DEFAULT_SEGMENT_SIZE).load();
+        assertEquals(List.of("a"), ids(loaded));
+        assertEquals(LocalDate.of(2030, 1, 6), loaded.get(0).getCheckInDate());
+    }
+
+    @Test
+    void compactKeepsLiveBookingsAfterReopen() {
+        List<Booking> live = new ArrayList<>();
+        try (BookingStore store = new BookingStore(folder, BookingStore.DEFAULT_SEGMENT_SIZE)) {
+            for (int i = 0; i < 6; i++) {
+                Booking booking = booking("booking-" + i, i);
+                store.append(booking, true);
+                live.add(booking);
+            }
+            // Compacted while the active segment is still open for appending
+            store.compact(live);
+        }
+
+        BookingStore reopened = new BookingStore(folder, BookingStore.DEFAULT_SEGMENT_SIZE);
+        assertEquals(ids(live), ids(reopened.load()));
+        assertEquals(6, reopened.getRecordCount());
+    }
+
+    @Test
+    void compactDropsSupersededRecords() {
+        List<Booking> live;
+        try (BookingStore store = new BookingStore(folder, BookingStore.DEFAULT_SEGMENT_SIZE)) {
+            for (int i = 0; i < 6; i++) {
+                store.append(booking("booking-" + i, i), true);
+            }
+            // Two updates and a delete leave superseded records behind
+            store.append(booking("booking-1", 10), true);
+            store.append(booking("booking-2", 11), true);
+            store.delete("booking-5", true);
+            live = store.load();
+
+            assertEquals(5, live.size());
+            assertEquals(4, store.compact(live));
+            assertEquals(5, store.getRecordCount());
+        }
+
+        List<Booking> loaded = new BookingStore(folder, BookingStore.DEFAULT_SEGMENT_SIZE).load();
+        assertEquals(ids(live), ids(loaded));
+        assertEquals(LocalDate.of(2030, 1, 11), loaded.get(1).getCheckInDate());
+    }
+
+    @Test
+    void appendsAfterCompactionSurviveReopen() {
+        try (BookingStore store = new BookingStore(folder, 1024)) {
+            // Small segments, so the store holds sealed segments before compacting
+            for (int i = 0; i < 50; i++) {
+                store.append(booking("booking-" + i, i), true);
+            }
+            assertTrue(store.getSegmentCount() > 1);
+            List<Booking> live = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                live.add(booking("booking-" + i, i));
+            }
+            store.compact(live);
+            store.append(booking("booking-50", 50), true);
+        }
+
+        List<Booking> loaded = new BookingStore(folder, 1024).load();
+        assertEquals(51, loaded.size());
+        assertEquals("booking-50", loaded.get(50).getId());
+    }
+
+    @Test
+    void compactWithoutBookingsLeavesAnEmptyStore() {
+        try (BookingStore store = new BookingStore(folder, BookingStore.DEFAULT_SEGMENT_SIZE)) {
+            store.append(booking("a", 1), true);
+            store.delete("a", true);
+            store.compact(store.load());
+        }
+
+        assertTrue(new BookingStore(folder, BookingStore.DEFAULT_SEGMENT_SIZE).load().isEmpty());
+    }
+
+    @Test
+    void impossibleRecordLengthIsTreatedAsATornTail() throws IOException {
+        try (BookingStore store = new BookingStore(folder, BookingStore.DEFAULT_SEGMENT_SIZE)) {
+            store.append(booking("a", 1), true);
+            store.append(booking("b", 2), true);
+        }
+        File segment = new File(folder, "segment-00001.log");
+        long valid = segment.length();
+        for (int length : new int[] {-7, Integer.MAX_VALUE}) {
+            try (DataOutputStream out = new DataOutputStream(new FileOutputStream(segment, true))) {
+                out.writeInt(length);
+                out.write(new byte[16]);
+            }
+
+            assertEquals(List.of("a", "b"), ids(new BookingStore(folder, BookingStore.DEFAULT_SEGMENT_SIZE).load()));
+            assertEquals(valid, segment.length());
+        }
+    }
+
+    @Test
+    void legacyImportMarkSurvivesReopenAndCompaction() {
+        try (BookingStore store = new BookingStore(folder, BookingStore.DEFAULT_SEGMENT_SIZE)) {
+            assertFalse(store.isLegacyImported());
+            store.append(booking("a", 1), true);
+            store.load();
+            store.markLegacyImported();
+            store.delete("a", true);
+            store.compact(store.load());
+            assertTrue(store.isEmpty());
+        }
+
+        BookingStore reopened = new BookingStore(folder, BookingStore.DEFAULT_SEGMENT_SIZE);
+        assertTrue(reopened.isLegacyImported());
+        reopened.clear();
+        assertFalse(reopened.isLegacyImported());
+    }
+}
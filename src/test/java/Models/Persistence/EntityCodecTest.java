@@ -0,0 +1,64 @@
+package Models.Persistence;
+
+import Models.User;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the binary snapshot format.
+ */
+class EntityCodecTest {
+
+    @TempDir
+    File folder;
+
+    private static List<User> users(int count) {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            users.add(new User("user-" + i, "name" + i, "password", "Full Name " + i, "mail" + i + "@example.com", "555", i == 0));
+        }
+        return users;
+    }
+
+    @Test
+    void snapshotRoundTrip() throws IOException {
+        File file = new File(folder, "users.dat");
+        EntityCodec.writeUsers(file, users(3));
+
+        List<User> loaded = EntityCodec.readUsers(file);
+        assertEquals(3, loaded.size());
+        assertEquals("name2", loaded.get(2).getUsername());
+        assertEquals("mail1@example.com", loaded.get(1).getEmail());
+        assertTrue(loaded.get(0).isAdmin());
+        assertFalse(loaded.get(1).isAdmin());
+    }
+
+    @Test
+    void rewritingReplacesTheSnapshotWithoutLeavingATemporaryFile() throws IOException {
+        File file = new File(folder, "users.dat");
+        EntityCodec.writeUsers(file, users(5));
+        EntityCodec.writeUsers(file, users(2));
+
+        assertEquals(2, EntityCodec.readUsers(file).size());
+        assertFalse(new File(folder, "users.dat.tmp").exists());
+    }
+
+    @Test
+    void truncatedSnapshotFailsToRead() throws IOException {
+        File file = new File(folder, "users.dat");
+        EntityCodec.writeUsers(file, users(10));
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() / 2);
+        }
+
+        assertThrows(IOException.class, () -> EntityCodec.readUsers(file));
+    }
+}
@@ -0,0 +1,201 @@
+package Models.Persistence;
+
+import Models.Hotel;
+import Models.Persistence.EntityCodec.EntityType;
+import Models.Room;
+import Models.User;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for journal replay, in particular of journals with a torn or corrupted tail or a record that cannot be decoded.
+ */
+class JournalTest {
+
+    @TempDir
+    File folder;
+
+    /**
+     * Collects the ids of the replayed records.
+     */
+    private static class Recorder implements Journal.Handler {
+        private final List<String> ids = new ArrayList<>();
+
+        @Override
+        public void onUser(User user) {
+            ids.add(user.getId());
+        }
+
+        @Override
+        public void onHotel(Hotel hotel) {
+            ids.add(hotel.getId());
+        }
+
+        @Override
+        public void onRoom(Room room) {
+            ids.add(room.getId());
+        }
+
+        @Override
+        public void onDelete(EntityType type, String id) {
+            ids.add("-" + id);
+        }
+    }
+
+    private File file() {
+        return new File(folder, "journal.log");
+    }
+
+    private Journal journalWithThreeRecords() throws IOException {
+        Journal journal = new Journal(file().getPath());
+        journal.append(List.of(
+                Journal.encodeUser(new User("user-1", "alice", "password", "Alice", "alice@example.com", "555")),
+                Journal.encodeHotel(new Hotel("hotel-1", "Grand", "Lviv", 4, "Old town")),
+                Journal.encodeDelete(EntityType.ROOM, "room-1")), true);
+        journal.close();
+        return journal;
+    }
+
+    private List<String> replay() {
+        Recorder recorder = new Recorder();
+        new Journal(file().getPath()).replay(recorder);
+        return recorder.ids;
+    }
+
+    private void appendRaw(int length, int bodyBytes) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file(), true))) {
+            out.writeInt(length);
+            out.write(new byte[bodyBytes]);
+        }
+    }
+
+    /**
+     * Appends a complete record with a valid checksum around the given body.
+     */
+    private void appendFrame(byte[] body) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file(), true))) {
+            out.writeInt(body.length);
+            out.write(body);
+            out.writeInt((int) crc.getValue());
+        }
+    }
+
+    @Test
+    void replaysRecordsInOrder() throws IOException {
+        journalWithThreeRecords();
+        assertEquals(List.of("user-1", "hotel-1", "-room-1"), replay());
+    }
+
+    @Test
+    void incompleteLastRecordIsCutOff() throws IOException {
+        journalWithThreeRecords();
+        long valid = file().length();
+        try (RandomAccessFile raf = new RandomAccessFile(file(), "rw")) {
+            raf.setLength(valid - 3);
+        }
+
+        assertEquals(List.of("user-1", "hotel-1"), replay());
+        assertTrue(file().length() < valid - 3);
+    }
+
+    @Test
+    void negativeLengthIsTreatedAsATornTail() throws IOException {
+        journalWithThreeRecords();
+        long valid = file().length();
+        appendRaw(-5, 16);
+
+        assertEquals(List.of("user-1", "hotel-1", "-room-1"), replay());
+        assertEquals(valid, file().length());
+    }
+
+    @Test
+    void hugeLengthIsTreatedAsATornTail() throws IOException {
+        journalWithThreeRecords();
+        long valid = file().length();
+        appendRaw(Integer.MAX_VALUE, 16);
+
+        assertEquals(List.of("user-1", "hotel-1", "-room-1"), replay());
+        assertEquals(valid, file().length());
+    }
+
+    @Test
+    void checksumMismatchIsTreatedAsATornTail() throws IOException {
+        journalWithThreeRecords();
+        long valid = file().length();
+        // A complete frame whose checksum does not match its body
+        appendRaw(8, 12);
+
+        assertEquals(List.of("user-1", "hotel-1", "-room-1"), replay());
+        assertEquals(valid, file().length());
+    }
+
+    @Test
+    void undecodableRecordStopsReplayAndKeepsTheJournal() throws IOException {
+        // An unknown operation, and a record written by a newer version
+        for (int[] header : new int[][] {{9, EntityType.USER.ordinal(), EntityCodec.VERSION},
+                {Journal.Operation.UPSERT.ordinal(), EntityType.USER.ordinal(), EntityCodec.VERSION + 1}}) {
+            Files.deleteIfExists(file().toPath());
+            journalWithThreeRecords();
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            DataOutputStream body = new DataOutputStream(buffer);
+            body.writeByte(header[0]);
+            body.writeByte(header[1]);
+            body.writeShort(header[2]);
+            appendFrame(buffer.toByteArray());
+            long length = file().length();
+
+            // Cutting it off would also drop every change written after it
+            assertThrows(UncheckedIOException.class, this::replay);
+            assertEquals(length, file().length());
+        }
+    }
+
+    @Test
+    void failedAppendIsReported() {
+        // A folder in the way of the journal file makes the write fail
+        assertTrue(file().mkdir());
+        Journal journal = new Journal(file().getPath());
+
+        assertThrows(IOException.class, () -> journal.append(List.of(Journal.encodeDelete(EntityType.USER, "user-1")), true));
+        assertEquals(0, journal.getRecordCount());
+    }
+
+    @Test
+    void appendsAfterATornTailAreReplayed() throws IOException {
+        journalWithThreeRecords();
+        appendRaw(-1, 3);
+        Journal journal = new Journal(file().getPath());
+        journal.replay(new Recorder());
+
+        journal.append(List.of(Journal.encodeRoom(new Room("room-2", "12", "Suite", 80))), true);
+        journal.close();
+
+        assertEquals(List.of("user-1", "hotel-1", "-room-1", "room-2"), replay());
+    }
+
+    @Test
+    void truncateEmptiesTheJournal() throws IOException {
+        Journal journal = journalWithThreeRecords();
+        journal.truncate();
+
+        assertEquals(0, file().length());
+        assertEquals(0, journal.getRecordCount());
+        assertTrue(replay().isEmpty());
+    }
+}
@@ -0,0 +1,109 @@
+package Models.Persistence;
+
+import Models.Hotel;
+import Models.Persistence.EntityCodec.EntityType;
+import Models.Room;
+import Models.User;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the write-behind queue: the BATCH timer, and records the journal cannot take.
+ */
+class WriteBehindQueueTest {
+
+    @TempDir
+    File folder;
+
+    private static User user(String id, String fullName) {
+        return new User(id, "name-" + id, "password", fullName, id + "@example.com", "555");
+    }
+
+    /**
+     * Replays the journal file and returns the full names of the users in it.
+     */
+    private static List<String> replayedNames(File file) {
+        List<String> names = new ArrayList<>();
+        new Journal(file.getPath()).replay(new Journal.Handler() {
+            @Override
+            public void onUser(User user) {
+                names.add(user.getFullName());
+            }
+
+            @Override
+            public void onHotel(Hotel hotel) {
+            }
+
+            @Override
+            public void onRoom(Room room) {
+            }
+
+            @Override
+            public void onDelete(EntityType type, String id) {
+            }
+        });
+        return names;
+    }
+
+    @Test
+    void batchThatDoesNotFillUpIsFlushedAfterTheInterval() throws InterruptedException {
+        Journal journal = new Journal(new File(folder, "journal.log").getPath());
+        WriteBehindQueue queue = new WriteBehindQueue(journal, DurabilityMode.BATCH, 64, 20);
+
+        // One record of a batch of 64 is written by the timer alone
+        queue.submit(Journal.encodeUser(user("user-1", "Only")));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (journal.getRecordCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, journal.getRecordCount());
+        assertEquals(0, queue.getPendingCount());
+        queue.close();
+    }
+
+    @Test
+    void recordThatCannotBeWrittenStaysQueuedInSyncMode() {
+        File file = new File(folder, "journal.log");
+        // A folder in the way of the journal file makes every write fail
+        assertTrue(file.mkdir());
+        WriteBehindQueue queue = new WriteBehindQueue(new Journal(file.getPath()), DurabilityMode.SYNC, 1, 1000);
+
+        assertFalse(queue.submit(Journal.encodeUser(user("user-1", "First"))));
+        assertEquals(1, queue.getPendingCount());
+
+        assertTrue(file.delete());
+        // The next write takes the queued record first
+        assertTrue(queue.submit(Journal.encodeUser(user("user-2", "Second"))));
+        assertEquals(0, queue.getPendingCount());
+        queue.close();
+
+        assertEquals(List.of("First", "Second"), replayedNames(file));
+    }
+
+    @Test
+    void failedFlushKeepsTheBatchBehindNewerRecords() {
+        File file = new File(folder, "journal.log");
+        assertTrue(file.mkdir());
+        // A long interval, so only the explicit flushes write
+        WriteBehindQueue queue = new WriteBehindQueue(new Journal(file.getPath()), DurabilityMode.ASYNC, 64, 60_000);
+
+        queue.submit(Journal.encodeUser(user("user-1", "Old Name")));
+        queue.submit(Journal.encodeUser(user("user-2", "Other")));
+        assertFalse(queue.flush());
+        assertEquals(2, queue.getPendingCount());
+
+        // A change made after the failed flush replaces the record of the failed batch
+        queue.submit(Journal.encodeUser(user("user-1", "New Name")));
+        assertTrue(file.delete());
+        assertTrue(queue.flush());
+        queue.close();
+
+        assertEquals(List.of("New Name", "Other"), replayedNames(file));
+    }
+}
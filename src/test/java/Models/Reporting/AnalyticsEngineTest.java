@@ -0,0 +1,133 @@
+package Models.Reporting;
+
+import Models.Booking;
+import Models.Hotel;
+import Models.Room;
+import Models.User;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for AnalyticsEngine: parallel results are the same as counting the bookings one by one.
+ */
+class AnalyticsEngineTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2030, 6, 1);
+
+    /**
+     * Enough bookings to be split over several levels of tasks, in a few cities and room types.
+     */
+    private static List<Booking> bookings(int count) {
+        User guest = new User("user-1", "guest", "password", "Guest", "guest@example.com", "555");
+        String[] cities = {"Kyiv", "Lviv", "Odesa", null};
+        String[] types = {"Single", "Double", "Suite", null};
+        List<Room> rooms = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            Hotel hotel = new Hotel("hotel-" + i, "Hotel " + i, cities[i % cities.length], 3, "");
+            Room room = new Room("room-" + i, "1", types[(i / 4) % types.length], 40 + i * 7.5);
+            room.setHotel(hotel);
+            rooms.add(room);
+        }
+        // A room without a hotel
+        rooms.add(new Room("room-x", "1", "Double", 55));
+
+        Random random = new Random(11);
+        List<Booking> bookings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            LocalDate checkIn = TODAY.plusDays(random.nextInt(400) - 100);
+            Booking booking = new Booking("b" + i, guest, rooms.get(random.nextInt(rooms.size())), checkIn, checkIn.plusDays(1 + random.nextInt(10)));
+            booking.setConfirmed(random.nextBoolean());
+            bookings.add(booking);
+        }
+        return bookings;
+    }
+
+    private static BookingStatistics sequential(List<Booking> bookings) {
+        BookingStatistics statistics = new BookingStatistics();
+        for (Booking booking : bookings) {
+            statistics.add(booking, TODAY.toEpochDay());
+        }
+        return statistics;
+    }
+
+    private static void assertSameStatistics(BookingStatistics expected, BookingStatistics actual, String group) {
+        assertNotNull(actual, group);
+        assertEquals(expected.getBookings(), actual.getBookings(), group);
+        assertEquals(expected.getConfirmedBookings(), actual.getConfirmedBookings(), group);
+        assertEquals(expected.getRevenueCents(), actual.getRevenueCents(), group);
+        assertEquals(expected.getNights(), actual.getNights(), group);
+        assertEquals(expected.getPastBookings(), actual.getPastBookings(), group);
+        assertArrayEquals(expected.getLeadTimeCounts(), actual.getLeadTimeCounts(), group);
+    }
+
+    @Test
+    void parallelSummaryMatchesASequentialCount() {
+        List<Booking> bookings = bookings(100_000);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            BookingStatistics expected = sequential(bookings);
+            assertSameStatistics(expected, new AnalyticsEngine(pool).summarize(bookings, TODAY), "all");
+            assertSameStatistics(expected, new AnalyticsEngine(new ForkJoinPool(1)).summarize(bookings, TODAY), "one thread");
+            assertEquals(100_000, expected.getBookings());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void parallelGroupsMatchASequentialCount() {
+        List<Booking> bookings = bookings(70_000);
+        Map<String, Map<String, List<Booking>>> byCity = new HashMap<>();
+        for (Booking booking : bookings) {
+            byCity.computeIfAbsent(AnalyticsEngine.cityOf(booking), k -> new HashMap<>())
+                .computeIfAbsent(AnalyticsEngine.roomTypeOf(booking), k -> new ArrayList<>()).add(booking);
+        }
+
+        Map<String, Map<String, BookingStatistics>> found = new AnalyticsEngine().byCityAndRoomType(bookings, TODAY);
+        assertEquals(byCity.keySet(), found.keySet());
+        assertTrue(found.containsKey(AnalyticsEngine.UNKNOWN));
+        for (Map.Entry<String, Map<String, List<Booking>>> city : byCity.entrySet()) {
+            assertEquals(city.getValue().keySet(), found.get(city.getKey()).keySet(), city.getKey());
+            for (Map.Entry<String, List<Booking>> type : city.getValue().entrySet()) {
+                assertSameStatistics(sequential(type.getValue()), found.get(city.getKey()).get(type.getKey()), city.getKey() + "/" + type.getKey());
+            }
+        }
+
+        Map<Boolean, BookingStatistics> byStatus = new AnalyticsEngine().groupBy(bookings, Booking::isConfirmed, TODAY);
+        List<Booking> confirmed = new ArrayList<>();
+        for (Booking booking : bookings) {
+            if (booking.isConfirmed()) {
+                confirmed.add(booking);
+            }
+        }
+        assertSameStatistics(sequential(confirmed), byStatus.get(true), "confirmed");
+    }
+
+    @Test
+    void aggregateMergesNeighbouringRangesInOrder() {
+        List<Booking> bookings = bookings(50_000);
+        // A result whose merge is not commutative shows the ranges are merged in list order
+        List<String> ids = new AnalyticsEngine().aggregate(bookings, ArrayList::new,
+            (list, booking) -> list.add(booking.getId()),
+            (first, second) -> {
+                first.addAll(second);
+                return first;
+            });
+        assertEquals(bookings.size(), ids.size());
+        for (int i = 0; i < bookings.size(); i++) {
+            assertEquals(bookings.get(i).getId(), ids.get(i));
+        }
+
+        BookingStatistics empty = new AnalyticsEngine().summarize(new ArrayList<>(), TODAY);
+        assertEquals(0, empty.getBookings());
+    }
+}
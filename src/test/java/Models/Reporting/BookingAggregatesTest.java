@@ -0,0 +1,109 @@
+package Models.Reporting;
+
+import Models.Booking;
+import Models.Hotel;
+import Models.Room;
+import Models.User;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for BookingAggregates: totals per hotel and day after bookings are added, changed and removed.
+ */
+class BookingAggregatesTest {
+
+    private static final User GUEST = new User("user-1", "guest", "password", "Guest", "guest@example.com", "555");
+    private static final LocalDate MAY_1 = LocalDate.of(2031, 5, 1);
+
+    private static Room room(String id, Hotel hotel, double price) {
+        Room room = new Room(id, id, "Double", price);
+        room.setHotel(hotel);
+        return room;
+    }
+
+    /**
+     * Totals counted from scratch from the current state of the bookings.
+     */
+    private static BookingAggregates recomputed(List<Booking> bookings) {
+        BookingAggregates aggregates = new BookingAggregates();
+        for (Booking booking : bookings) {
+            aggregates.put(booking);
+        }
+        return aggregates;
+    }
+
+    @Test
+    void totalsAreSplitOverTheNightsAndHotels() {
+        Hotel north = new Hotel("hotel-1", "North", "Kyiv", 4, "");
+        Hotel south = new Hotel("hotel-2", "South", "Odesa", 3, "");
+        BookingAggregates aggregates = new BookingAggregates();
+        // 100.00 over three nights: the first night gets the cent that does not divide evenly
+        Booking three = new Booking("b1", GUEST, room("r1", north, 100.0 / 3), MAY_1, MAY_1.plusDays(3));
+        three.setTotalPrice(100);
+        Booking two = new Booking("b2", GUEST, room("r2", south, 50), MAY_1.plusDays(1), MAY_1.plusDays(3));
+        two.setConfirmed(true);
+        aggregates.put(three);
+        aggregates.put(two);
+
+        assertEquals(new BookingTotals(20000, 5, 1, 1), aggregates.getTotals());
+        assertEquals(new BookingTotals(10000, 3, 0, 1), aggregates.getTotals("hotel-1"));
+        assertEquals(new BookingTotals(10000, 2, 1, 0), aggregates.getTotals("hotel-2"));
+        assertEquals(new BookingTotals(3334, 1, 0, 1), aggregates.getTotals("hotel-1", MAY_1.toEpochDay(), MAY_1.toEpochDay() + 1));
+        // The second night of both bookings; only the second one checks in that day
+        assertEquals(new BookingTotals(3333 + 5000, 2, 1, 0), aggregates.getTotals(null, MAY_1.toEpochDay() + 1, MAY_1.toEpochDay() + 2));
+        assertEquals(new BookingTotals(0, 0, 0, 0), aggregates.getTotals("hotel-3"));
+        assertEquals(new BookingTotals(0, 0, 0, 0), aggregates.getTotals(null, MAY_1.toEpochDay() + 3, MAY_1.toEpochDay() + 10));
+    }
+
+    @Test
+    void changedBookingsReplaceWhatTheyAddedBefore() {
+        Hotel north = new Hotel("hotel-1", "North", "Kyiv", 4, "");
+        Hotel south = new Hotel("hotel-2", "South", "Odesa", 3, "");
+        Room northRoom = room("r1", north, 80);
+        Room southRoom = room("r2", south, 60);
+        List<Booking> bookings = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            bookings.add(new Booking("b" + i, GUEST, i % 2 == 0 ? northRoom : southRoom, MAY_1.plusDays(i), MAY_1.plusDays(i + 2)));
+        }
+        BookingAggregates aggregates = recomputed(bookings);
+
+        // Changed in place, then put again, as DataManager does
+        Booking moved = bookings.get(0);
+        moved.setRoom(southRoom);
+        moved.setCheckOutDate(MAY_1.plusDays(5));
+        moved.setTotalPrice(5 * 60);
+        moved.setConfirmed(true);
+        aggregates.put(moved);
+        Booking longer = bookings.get(3);
+        longer.setCheckInDate(MAY_1.minusDays(10));
+        aggregates.put(longer);
+        assertTrue(aggregates.sameTotals(recomputed(bookings)));
+        assertEquals(10, aggregates.size());
+        assertEquals(new BookingTotals(4 * 2 * 8000, 8, 0, 4), aggregates.getTotals("hotel-1"));
+
+        // Removing every booking of a hotel leaves nothing of it behind
+        for (int i = 2; i < 10; i += 2) {
+            assertTrue(aggregates.remove(bookings.get(i)));
+        }
+        assertFalse(aggregates.remove(bookings.get(2)));
+        List<Booking> left = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            if (i == 0 || i % 2 == 1) {
+                left.add(bookings.get(i));
+            }
+        }
+        assertTrue(aggregates.sameTotals(recomputed(left)));
+        assertEquals(new BookingTotals(0, 0, 0, 0), aggregates.getTotals("hotel-1"));
+
+        for (Booking booking : left) {
+            aggregates.remove(booking);
+        }
+        assertTrue(aggregates.sameTotals(new BookingAggregates()));
+        assertEquals(0, aggregates.size());
+    }
+}
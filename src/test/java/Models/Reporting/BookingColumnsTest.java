@@ -0,0 +1,150 @@
+package Models.Reporting;
+
+import Models.Booking;
+import Models.Hotel;
+import Models.Room;
+import Models.User;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for BookingColumns: every scan agrees with the Booking objects after adds, changes and removals.
+ */
+class BookingColumnsTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2030, 1, 1);
+    private static final long FROM = TODAY.toEpochDay() - 30;
+    private static final long TO = TODAY.toEpochDay() + 60;
+
+    private static boolean checksInBetween(Booking booking, long fromDay, long toDay) {
+        if (booking.getCheckInDate() == null || booking.getCheckOutDate() == null) {
+            return false;
+        }
+        long day = booking.getCheckInDate().toEpochDay();
+        return day >= fromDay && day < toDay;
+    }
+
+    /**
+     * Checks every scan of the columns against the same computation over the bookings.
+     */
+    private static void assertColumnsMatch(BookingColumns columns, List<Booking> bookings) {
+        assertEquals(bookings.size(), columns.size());
+        int checkIns = 0;
+        int confirmedCheckIns = 0;
+        double revenue = 0;
+        double confirmedRevenue = 0;
+        long nights = 0;
+        Map<String, Map<String, Double>> byCity = new TreeMap<>();
+        long[] leadTimes = new long[BookingStatistics.LEAD_TIME_BOUNDS.length + 1];
+        for (Booking booking : bookings) {
+            assertTrue(columns.matches(booking), booking.getId());
+            if (booking.getCheckInDate() != null && booking.getCheckOutDate() != null) {
+                BookingStatistics one = new BookingStatistics();
+                one.add(booking, TODAY.toEpochDay());
+                long[] groups = one.getLeadTimeCounts();
+                for (int i = 0; i < groups.length; i++) {
+                    leadTimes[i] += groups[i];
+                }
+                leadTimes[groups.length] += one.getPastBookings();
+            }
+            if (!checksInBetween(booking, FROM, TO)) {
+                continue;
+            }
+            checkIns++;
+            revenue += booking.getTotalPrice();
+            nights += booking.getCheckOutDate().toEpochDay() - booking.getCheckInDate().toEpochDay();
+            if (booking.isConfirmed()) {
+                confirmedCheckIns++;
+                confirmedRevenue += booking.getTotalPrice();
+            }
+            if (booking.getRoom() != null) {
+                byCity.computeIfAbsent(AnalyticsEngine.cityOf(booking), k -> new TreeMap<>())
+                    .merge(AnalyticsEngine.roomTypeOf(booking), booking.getTotalPrice(), Double::sum);
+            }
+        }
+        assertEquals(checkIns, columns.countCheckIns(FROM, TO, false));
+        assertEquals(confirmedCheckIns, columns.countCheckIns(FROM, TO, true));
+        assertEquals(revenue, columns.sumRevenue(FROM, TO, false), 0.001);
+        assertEquals(confirmedRevenue, columns.sumRevenue(FROM, TO, true), 0.001);
+        assertEquals(checkIns == 0 ? 0 : (double) nights / checkIns, columns.averageStay(FROM, TO), 1e-9);
+        assertArrayEquals(leadTimes, columns.countLeadTimes(TODAY.toEpochDay(), BookingStatistics.LEAD_TIME_BOUNDS));
+
+        Map<String, Map<String, Double>> found = columns.sumRevenueByCityAndRoomType(FROM, TO);
+        assertEquals(byCity.keySet(), found.keySet());
+        for (Map.Entry<String, Map<String, Double>> city : byCity.entrySet()) {
+            assertEquals(city.getValue().keySet(), found.get(city.getKey()).keySet());
+            for (Map.Entry<String, Double> type : city.getValue().entrySet()) {
+                assertEquals(type.getValue(), found.get(city.getKey()).get(type.getKey()), 0.001);
+            }
+        }
+    }
+
+    @Test
+    void scansFollowAddsChangesAndRemovals() {
+        User guest = new User("user-1", "guest", "password", "Guest", "guest@example.com", "555");
+        User other = new User("user-2", "other", "password", "Other", "other@example.com", "555");
+        List<Room> rooms = new ArrayList<>();
+        String[] cities = {"Kyiv", "Lviv", null};
+        for (int i = 0; i < 6; i++) {
+            Hotel hotel = new Hotel("hotel-" + i, "Hotel " + i, cities[i % 3], 3, "");
+            Room room = new Room("room-" + i, "1", i < 3 ? "Double" : "Suite", 30 + 10 * i);
+            room.setHotel(hotel);
+            rooms.add(room);
+        }
+
+        Random random = new Random(23);
+        BookingColumns columns = new BookingColumns();
+        List<Booking> bookings = new ArrayList<>();
+        int next = 0;
+        // More than 64 rows, so rows move between words of the confirmed bits
+        for (int step = 0; step < 3000; step++) {
+            int action = random.nextInt(10);
+            if (action < 5 || bookings.isEmpty()) {
+                LocalDate checkIn = TODAY.plusDays(random.nextInt(150) - 60);
+                Booking booking = new Booking("b" + next++, random.nextBoolean() ? guest : other,
+                    rooms.get(random.nextInt(rooms.size())), checkIn, checkIn.plusDays(1 + random.nextInt(7)));
+                booking.setConfirmed(random.nextInt(3) == 0);
+                if (random.nextInt(50) == 0) {
+                    // Bookings without dates are in no range
+                    booking.setCheckOutDate(null);
+                }
+                bookings.add(booking);
+                columns.put(booking);
+            } else if (action < 8) {
+                // Changed in place, then put again, as DataManager does
+                Booking booking = bookings.get(random.nextInt(bookings.size()));
+                booking.setConfirmed(!booking.isConfirmed());
+                if (booking.getCheckOutDate() != null) {
+                    booking.setCheckInDate(booking.getCheckInDate().plusDays(random.nextInt(11) - 5));
+                    booking.setCheckOutDate(booking.getCheckInDate().plusDays(1 + random.nextInt(7)));
+                }
+                booking.setRoom(rooms.get(random.nextInt(rooms.size())));
+                columns.put(booking);
+            } else {
+                Booking booking = bookings.remove(random.nextInt(bookings.size()));
+                assertTrue(columns.remove(booking));
+                assertFalse(columns.remove(booking));
+                assertFalse(columns.matches(booking));
+            }
+            if (step % 250 == 0) {
+                assertColumnsMatch(columns, bookings);
+            }
+        }
+        assertColumnsMatch(columns, bookings);
+
+        for (Booking booking : new ArrayList<>(bookings)) {
+            assertTrue(columns.remove(booking));
+            bookings.remove(booking);
+        }
+        assertColumnsMatch(columns, bookings);
+        assertEquals(0, columns.countCheckIns(Long.MIN_VALUE, Long.MAX_VALUE, false));
+    }
+}
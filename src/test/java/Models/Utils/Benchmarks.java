@@ -0,0 +1,1174 @@
+package Models.Utils;
+
+import Models.Booking;
+import Models.BookingQuery;
+import Models.DataManager;
+import Models.DataStructures.TrigramIndex;
+import Models.Hotel;
+import Models.HotelSortOrder;
+import Models.Page;
+import Models.Persistence.BookingStore;
+import Models.Persistence.EntityCodec;
+import Models.Reporting.AnalyticsEngine;
+import Models.Reporting.BookingColumns;
+import Models.Reporting.BookingStatistics;
+import Models.Room;
+import Models.RoomSearchCriteria;
+import Models.User;
+import java.io.*;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+
+/**
+ * Command-line benchmarks for the data layer.
+ * Lives with the test sources so it is not shipped with the application.
+ * Run after "mvn test-compile", for example:
+ * java -cp target/classes:target/test-classes Models.Utils.Benchmarks codec 10000 100000 1000000
+ * java -cp target/classes:target/test-classes Models.Utils.Benchmarks startup 10000 100000 1000000
+ * java -Xmx8g -cp target/classes:target/test-classes Models.Utils.Benchmarks search 1000000 5000000
+ * java -cp target/classes:target/test-classes Models.Utils.Benchmarks text 10000 100000
+ * java -cp target/classes:target/test-classes Models.Utils.Benchmarks fuzzy 10000 100000
+ * java -cp target/classes:target/test-classes Models.Utils.Benchmarks suggest 10000 100000
+ * java -cp target/classes:target/test-classes Models.Utils.Benchmarks order 10000 100000
+ * java -cp target/classes:target/test-classes Models.Utils.Benchmarks page 100000 1000000
+ * java -cp target/classes:target/test-classes Models.Utils.Benchmarks topk 100000 1000000
+ * java -Xmx8g -cp target/classes:target/test-classes Models.Utils.Benchmarks query 100000 1000000
+ * java -Xmx8g -cp target/classes:target/test-classes Models.Utils.Benchmarks report 100000 1000000
+ * java -Xmx8g -cp target/classes:target/test-classes Models.Utils.Benchmarks analytics 1000000 10000000
+ * java -Xmx8g -cp target/classes:target/test-classes Models.Utils.Benchmarks columns 1000000 10000000
+ */
+public class Benchmarks {
+    private static final String[] LOCATIONS = {"Kyiv", "Lviv", "Odesa", "Kharkiv", "Dnipro", "Paris", "London", "Rome"};
+    private static final String[] ROOM_TYPES = {"Single", "Double", "Suite", "Deluxe", "Standard", "Family Suite"};
+    private static final int ROOMS_PER_HOTEL = 10;
+    private static final int BOOKINGS_PER_USER = 100;
+    private static final int BOOKINGS_PER_ROOM = 10;
+    // The old nested-loop relinking is only measured up to this many bookings, it is quadratic
+    private static final int NESTED_RELINK_LIMIT = 100_000;
+    private static final int SEARCH_ROOMS = 100_000;
+    private static final int SEARCH_QUERIES = 10_000;
+    private static final int TEXT_QUERIES = 2_000;
+    private static final String[] NAME_WORDS = {"Grand", "Royal", "Palace", "Plaza", "Castle", "Garden", "River", "Lake",
+        "Park", "Central", "Harbor", "Mountain", "Sunset", "Ocean", "Forest", "Golden", "Silver", "Imperial", "Boutique", "Inn"};
+    private static final String[] DESCRIPTION_WORDS = {"luxury", "cozy", "modern", "historic", "spa", "pool", "beach",
+        "views", "downtown", "quiet", "family", "business", "rooftop", "breakfast", "parking", "gym", "sauna", "terrace"};
+
+    public static void main(String[] args) throws Exception {
+        String scenario = args.length > 0 ? args[0] : "codec";
+        switch (scenario) {
+            case "codec":
+                codec(sizes(args, 10_000, 100_000, 1_000_000));
+                break;
+            case "startup":
+                startup(sizes(args, 10_000, 100_000, 1_000_000));
+                break;
+            case "search":
+                search(sizes(args, 1_000_000));
+                break;
+            case "text":
+                text(sizes(args, 10_000, 100_000));
+                break;
+            case "fuzzy":
+                fuzzy(sizes(args, 10_000, 100_000));
+                break;
+            case "order":
+                order(sizes(args, 10_000, 100_000));
+                break;
+            case "page":
+                page(sizes(args, 100_000, 1_000_000));
+                break;
+            case "suggest":
+                suggest(sizes(args, 10_000, 100_000));
+                break;
+            case "topk":
+                topK(sizes(args, 100_000, 1_000_000));
+                break;
+            case "query":
+                query(sizes(args, 100_000, 1_000_000));
+                break;
+            case "report":
+                report(sizes(args, 100_000, 1_000_000));
+                break;
+            case "analytics":
+                analytics(sizes(args, 1_000_000, 10_000_000));
+                break;
+            case "columns":
+                columns(sizes(args, 1_000_000, 10_000_000));
+                break;
+            default:
+                System.out.println("Unknown benchmark: " + scenario);
+                System.out.println("Available: codec, startup, search, text, fuzzy, suggest, order, page, topk, query, report, analytics, columns");
+        }
+    }
+
+    /**
+     * Compares Java serialization with the binary codec for the rooms snapshot.
+     * Rooms are the largest table and, with Java serialization, also drag their hotels along.
+     */
+    private static void codec(int[] sizes) throws IOException {
+        File dir = Files.createTempDirectory("codec-bench").toFile();
+        File legacyFile = new File(dir, "rooms-legacy.dat");
+        File binaryFile = new File(dir, "rooms-binary.dat");
+
+        // Warm up both code paths so the first measured size is not dominated by JIT compilation
+        List<Room> warmUp = generateRooms(10_000);
+        writeLegacy(legacyFile, warmUp);
+        EntityCodec.<Room>readLegacy(legacyFile);
+        EntityCodec.writeRooms(binaryFile, warmUp);
+        EntityCodec.readRooms(binaryFile);
+
+        System.out.println(String.format(Locale.ROOT, "%-10s %-8s %12s %12s %14s",
+                "rooms", "format", "save ms", "load ms", "file bytes"));
+        for (int size : sizes) {
+            List<Room> rooms = generateRooms(size);
+
+            long start = System.nanoTime();
+            writeLegacy(legacyFile, rooms);
+            long legacySave = System.nanoTime() - start;
+            start = System.nanoTime();
+            EntityCodec.<Room>readLegacy(legacyFile);
+            long legacyLoad = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            EntityCodec.writeRooms(binaryFile, rooms);
+            long binarySave = System.nanoTime() - start;
+            start = System.nanoTime();
+            EntityCodec.readRooms(binaryFile);
+            long binaryLoad = System.nanoTime() - start;
+
+            printRow(size, "java", legacySave, legacyLoad, legacyFile.length());
+            printRow(size, "binary", binarySave, binaryLoad, binaryFile.length());
+        }
+
+        legacyFile.delete();
+        binaryFile.delete();
+        dir.delete();
+    }
+
+    /**
+     * Measures a full DataManager startup on generated data files with the given numbers of bookings.
+     * There is one user per 100 bookings and one room per 10 bookings.
+     * The relink phase is compared with the nested-loop relinking used before it was replaced with hash maps.
+     */
+    private static void startup(int[] sizes) throws IOException {
+        System.out.println(String.format(Locale.ROOT, "%-10s %12s %12s %16s  %s",
+                "bookings", "startup ms", "relink ms", "nested relink ms", "phases"));
+        for (int size : sizes) {
+            File dir = Files.createTempDirectory("startup-bench").toFile();
+            List<Room> rooms = generateRooms(Math.max(ROOMS_PER_HOTEL, size / BOOKINGS_PER_ROOM));
+            List<Hotel> hotels = new ArrayList<>();
+            for (Room room : rooms) {
+                if (hotels.isEmpty() || hotels.get(hotels.size() - 1) != room.getHotel()) {
+                    hotels.add(room.getHotel());
+                }
+            }
+            List<User> users = generateUsers(Math.max(1, size / BOOKINGS_PER_USER));
+            List<Booking> bookings = generateBookings(size, users, rooms);
+
+            EntityCodec.writeUsers(new File(dir, "users.dat"), users);
+            EntityCodec.writeHotels(new File(dir, "hotels.dat"), hotels);
+            EntityCodec.writeRooms(new File(dir, "rooms.dat"), rooms);
+            BookingStore store = new BookingStore(new File(dir, "bookings"), BookingStore.DEFAULT_SEGMENT_SIZE);
+            store.append(bookings, false);
+            store.close();
+
+            String nested = "-";
+            if (size <= NESTED_RELINK_LIMIT) {
+                long start = System.nanoTime();
+                nestedRelink(users, hotels, rooms, bookings);
+                nested = String.format(Locale.ROOT, "%.1f", (System.nanoTime() - start) / 1e6);
+            }
+            // Drop the generated objects before the data manager loads its own copies
+            users = null;
+            hotels = null;
+            rooms = null;
+            bookings = null;
+
+            long start = System.nanoTime();
+            DataManager dataManager = new DataManager(dir);
+            long startup = System.nanoTime() - start;
+            Map<String, Long> phases = dataManager.getLoadTimings();
+            dataManager.close();
+
+            System.out.println(String.format(Locale.ROOT, "%-10d %12.1f %12d %16s  %s",
+                    size, startup / 1e6, phases.get("relink"), nested, phases));
+            deleteRecursively(dir);
+        }
+    }
+
+    /**
+     * Measures the latency of cross-hotel room searches on 100k rooms with the given numbers of bookings.
+     * Every query filters by location and dates; half also filter by room type, half by maximum price.
+     */
+    private static void search(int[] sizes) throws IOException {
+        System.out.println(String.format(Locale.ROOT, "%-10s %-8s %10s %10s %10s %10s %12s",
+                "bookings", "rooms", "p50 ms", "p99 ms", "max ms", "avg ms", "avg matches"));
+        for (int size : sizes) {
+            File dir = Files.createTempDirectory("search-bench").toFile();
+            List<Room> rooms = generateRooms(SEARCH_ROOMS);
+            List<Hotel> hotels = new ArrayList<>();
+            for (Room room : rooms) {
+                if (hotels.isEmpty() || hotels.get(hotels.size() - 1) != room.getHotel()) {
+                    hotels.add(room.getHotel());
+                }
+            }
+            List<User> users = generateUsers(Math.max(1, size / BOOKINGS_PER_USER));
+            EntityCodec.writeUsers(new File(dir, "users.dat"), users);
+            EntityCodec.writeHotels(new File(dir, "hotels.dat"), hotels);
+            EntityCodec.writeRooms(new File(dir, "rooms.dat"), rooms);
+            BookingStore store = new BookingStore(new File(dir, "bookings"), BookingStore.DEFAULT_SEGMENT_SIZE);
+            store.append(generateBookings(size, users, rooms), false);
+            store.close();
+            users = null;
+            hotels = null;
+            rooms = null;
+
+            DataManager dataManager = new DataManager(dir);
+            Random random = new Random(42);
+            LocalDate firstDay = LocalDate.now();
+            long[] latencies = new long[SEARCH_QUERIES];
+            long matches = 0;
+            // The first half of the queries warms up the JIT and is not measured
+            for (int i = -SEARCH_QUERIES; i < SEARCH_QUERIES; i++) {
+                RoomSearchCriteria criteria = new RoomSearchCriteria();
+                criteria.setLocation(LOCATIONS[random.nextInt(LOCATIONS.length)]);
+                criteria.setCheckInDate(firstDay.plusDays(random.nextInt(365)));
+                criteria.setCheckOutDate(criteria.getCheckInDate().plusDays(1 + random.nextInt(7)));
+                if (random.nextBoolean()) {
+                    criteria.setRoomType(ROOM_TYPES[random.nextInt(ROOM_TYPES.length)]);
+                }
+                if (random.nextBoolean()) {
+                    criteria.setMaxPrice(100 + random.nextInt(300));
+                }
+                criteria.setMinRating(1 + random.nextInt(5));
+
+                long start = System.nanoTime();
+                List<Room> page = dataManager.searchAvailableRooms(criteria, 0, 20);
+                long elapsed = System.nanoTime() - start;
+                if (i >= 0) {
+                    latencies[i] = elapsed;
+                    matches += page.size();
+                }
+            }
+            dataManager.close();
+
+            Arrays.sort(latencies);
+            long total = 0;
+            for (long latency : latencies) {
+                total += latency;
+            }
+            System.out.println(String.format(Locale.ROOT, "%-10d %-8d %10.3f %10.3f %10.3f %10.3f %12.1f",
+                    size, SEARCH_ROOMS, latencies[SEARCH_QUERIES / 2] / 1e6, latencies[SEARCH_QUERIES * 99 / 100] / 1e6,
+                    latencies[SEARCH_QUERIES - 1] / 1e6, total / 1e6 / SEARCH_QUERIES, (double) matches / SEARCH_QUERIES));
+            deleteRecursively(dir);
+        }
+    }
+
+    /**
+     * Compares the full-text hotel search with a contains() scan over name and location
+     * for the given numbers of hotels. Queries are one or two words, the last one sometimes cut short.
+     */
+    private static void text(int[] sizes) throws IOException {
+        System.out.println(String.format(Locale.ROOT, "%-10s %10s %10s %10s %14s %12s",
+                "hotels", "p50 ms", "p99 ms", "avg ms", "scan avg ms", "avg matches"));
+        for (int size : sizes) {
+            File dir = Files.createTempDirectory("text-bench").toFile();
+            Random random = new Random(42);
+            DataManager dataManager = createHotelsOnly(dir, size, random);
+            List<Hotel> allHotels = dataManager.getAllHotels();
+
+            long[] latencies = new long[TEXT_QUERIES];
+            long scanTotal = 0;
+            long matches = 0;
+            // The first half of the queries warms up the JIT and is not measured
+            for (int i = -TEXT_QUERIES; i < TEXT_QUERIES; i++) {
+                String query = random.nextBoolean()
+                        ? LOCATIONS[random.nextInt(LOCATIONS.length)] + " " + DESCRIPTION_WORDS[random.nextInt(DESCRIPTION_WORDS.length)]
+                        : NAME_WORDS[random.nextInt(NAME_WORDS.length)];
+                if (random.nextInt(4) == 0) {
+                    query = query.substring(0, query.length() - 2);
+                }
+
+                long start = System.nanoTime();
+                List<Hotel> found = dataManager.searchHotels(query);
+                long elapsed = System.nanoTime() - start;
+                if (i >= 0) {
+                    latencies[i] = elapsed;
+                    matches += found.size();
+                    // The former search: a substring scan over every hotel
+                    String lowerQuery = query.toLowerCase();
+                    start = System.nanoTime();
+                    List<Hotel> scanned = new ArrayList<>();
+                    for (Hotel hotel : allHotels) {
+                        if (hotel.getName().toLowerCase().contains(lowerQuery) || hotel.getLocation().toLowerCase().contains(lowerQuery)) {
+                            scanned.add(hotel);
+                        }
+                    }
+                    scanTotal += System.nanoTime() - start;
+                }
+            }
+            dataManager.close();
+
+            Arrays.sort(latencies);
+            long total = 0;
+            for (long latency : latencies) {
+                total += latency;
+            }
+            System.out.println(String.format(Locale.ROOT, "%-10d %10.3f %10.3f %10.3f %14.3f %12.1f",
+                    size, latencies[TEXT_QUERIES / 2] / 1e6, latencies[TEXT_QUERIES * 99 / 100] / 1e6,
+                    total / 1e6 / TEXT_QUERIES, scanTotal / 1e6 / TEXT_QUERIES, (double) matches / TEXT_QUERIES));
+            deleteRecursively(dir);
+        }
+    }
+
+    /**
+     * Measures the latency of fuzzy hotel searches for misspelled names and cities,
+     * and compares it with computing the edit distance to the words of every hotel.
+     */
+    private static void fuzzy(int[] sizes) throws IOException {
+        System.out.println(String.format(Locale.ROOT, "%-10s %10s %10s %10s %14s %12s",
+                "hotels", "p50 ms", "p99 ms", "avg ms", "scan avg ms", "avg matches"));
+        for (int size : sizes) {
+            File dir = Files.createTempDirectory("fuzzy-bench").toFile();
+            Random random = new Random(42);
+            DataManager dataManager = createHotelsOnly(dir, size, random);
+            List<Hotel> allHotels = dataManager.getAllHotels();
+
+            long[] latencies = new long[TEXT_QUERIES];
+            long scanTotal = 0;
+            long matches = 0;
+            // The first half of the queries warms up the JIT and is not measured
+            for (int i = -TEXT_QUERIES; i < TEXT_QUERIES; i++) {
+                String word = random.nextBoolean()
+                        ? LOCATIONS[random.nextInt(LOCATIONS.length)]
+                        : NAME_WORDS[random.nextInt(NAME_WORDS.length)];
+                String query = misspell(word.toLowerCase(Locale.ROOT), random);
+
+                long start = System.nanoTime();
+                List<Hotel> found = dataManager.fuzzySearchHotels(query);
+                long elapsed = System.nanoTime() - start;
+                if (i >= 0) {
+                    latencies[i] = elapsed;
+                    matches += found.size();
+                    // Without the index: the edit distance to every word of every hotel
+                    int maxDistance = TrigramIndex.maxDistance(query.length());
+                    start = System.nanoTime();
+                    List<Hotel> scanned = new ArrayList<>();
+                    for (Hotel hotel : allHotels) {
+                        for (String hotelWord : TrigramIndex.tokenize(hotel.getName() + " " + hotel.getLocation())) {
+                            if (SearchAndSort.editDistance(query, hotelWord, maxDistance) <= maxDistance) {
+                                scanned.add(hotel);
+                                break;
+                            }
+                        }
+                    }
+                    scanTotal += System.nanoTime() - start;
+                }
+            }
+            dataManager.close();
+
+            Arrays.sort(latencies);
+            long total = 0;
+            for (long latency : latencies) {
+                total += latency;
+            }
+            System.out.println(String.format(Locale.ROOT, "%-10d %10.3f %10.3f %10.3f %14.3f %12.1f",
+                    size, latencies[TEXT_QUERIES / 2] / 1e6, latencies[TEXT_QUERIES * 99 / 100] / 1e6,
+                    total / 1e6 / TEXT_QUERIES, scanTotal / 1e6 / TEXT_QUERIES, (double) matches / TEXT_QUERIES));
+            deleteRecursively(dir);
+        }
+    }
+
+    /**
+     * Makes one typo in a word: a replaced, missing, extra or swapped letter.
+     */
+    private static String misspell(String word, Random random) {
+        int at = random.nextInt(word.length() - 1);
+        char letter = (char) ('a' + random.nextInt(26));
+        switch (random.nextInt(4)) {
+            case 0:
+                return word.substring(0, at) + letter + word.substring(at + 1);
+            case 1:
+                return word.substring(0, at) + word.substring(at + 1);
+            case 2:
+                return word.substring(0, at) + letter + word.substring(at);
+            default:
+                return word.substring(0, at) + word.charAt(at + 1) + word.charAt(at) + word.substring(at + 2);
+        }
+    }
+
+    /**
+     * Compares listing hotels by rating from the ordered index with sorting the whole list,
+     * and measures the cost of moving a hotel in the ordered indexes when its rating changes.
+     */
+    private static void order(int[] sizes) throws IOException {
+        System.out.println(String.format(Locale.ROOT, "%-10s %14s %14s %16s",
+                "hotels", "index list ms", "sort list ms", "update hotel us"));
+        for (int size : sizes) {
+            File dir = Files.createTempDirectory("order-bench").toFile();
+            Random random = new Random(42);
+            DataManager dataManager = createHotelsOnly(dir, size, random);
+            List<Hotel> allHotels = dataManager.getAllHotels();
+            int rounds = 50;
+
+            long indexTotal = 0;
+            long sortTotal = 0;
+            // The first half of the rounds warms up the JIT and is not measured
+            for (int i = -rounds; i < rounds; i++) {
+                long start = System.nanoTime();
+                dataManager.getHotelsSorted(HotelSortOrder.RATING);
+                long indexed = System.nanoTime() - start;
+                // The former listing: a merge sort of every hotel; shuffled so the sort cache misses
+                List<Hotel> unsorted = new ArrayList<>(allHotels);
+                Collections.shuffle(unsorted, random);
+                start = System.nanoTime();
+                SearchAndSort.sortHotelsByRating(unsorted);
+                long sorted = System.nanoTime() - start;
+                if (i >= 0) {
+                    indexTotal += indexed;
+                    sortTotal += sorted;
+                }
+            }
+
+            long updateTotal = 0;
+            int updates = Math.min(size, 10_000);
+            for (int i = 0; i < updates; i++) {
+                Hotel hotel = allHotels.get(random.nextInt(size));
+                hotel.setRating(1 + random.nextInt(5));
+                long start = System.nanoTime();
+                dataManager.updateHotel(hotel);
+                updateTotal += System.nanoTime() - start;
+            }
+            dataManager.close();
+
+            System.out.println(String.format(Locale.ROOT, "%-10d %14.3f %14.3f %16.1f",
+                    size, indexTotal / 1e6 / rounds, sortTotal / 1e6 / rounds, updateTotal / 1e3 / updates));
+            deleteRecursively(dir);
+        }
+    }
+
+    /**
+     * Compares reading bookings in pages of 50 with copying the whole list as getAllBookings does.
+     * The first page also builds the bookings-in-order index, so it is reported on its own.
+     */
+    private static void page(int[] sizes) throws IOException {
+        System.out.println(String.format(Locale.ROOT, "%-10s %14s %12s %12s %14s",
+                "bookings", "first page ms", "page p50 us", "page p99 us", "copy all ms"));
+        for (int size : sizes) {
+            File dir = Files.createTempDirectory("page-bench").toFile();
+            List<Room> rooms = generateRooms(Math.max(ROOMS_PER_HOTEL, size / BOOKINGS_PER_ROOM));
+            List<Hotel> hotels = new ArrayList<>();
+            for (Room room : rooms) {
+                if (hotels.isEmpty() || hotels.get(hotels.size() - 1) != room.getHotel()) {
+                    hotels.add(room.getHotel());
+                }
+            }
+            List<User> users = generateUsers(Math.max(1, size / BOOKINGS_PER_USER));
+            EntityCodec.writeUsers(new File(dir, "users.dat"), users);
+            EntityCodec.writeHotels(new File(dir, "hotels.dat"), hotels);
+            EntityCodec.writeRooms(new File(dir, "rooms.dat"), rooms);
+            BookingStore store = new BookingStore(new File(dir, "bookings"), BookingStore.DEFAULT_SEGMENT_SIZE);
+            store.append(generateBookings(size, users, rooms), false);
+            store.close();
+            users = null;
+            hotels = null;
+            rooms = null;
+            DataManager dataManager = new DataManager(dir);
+
+            long start = System.nanoTime();
+            Page<Booking> page = dataManager.pageBookings(null, 50, null);
+            long firstPage = System.nanoTime() - start;
+
+            int pages = 2_000;
+            long[] latencies = new long[pages];
+            // The first half of the pages warms up the JIT and is not measured
+            for (int i = -pages; i < pages; i++) {
+                String cursor = page.hasNext() ? page.getNextCursor() : null;
+                start = System.nanoTime();
+                page = dataManager.pageBookings(cursor, 50, null);
+                long elapsed = System.nanoTime() - start;
+                if (i >= 0) {
+                    latencies[i] = elapsed;
+                }
+            }
+
+            int copies = 20;
+            long copyTotal = 0;
+            for (int i = 0; i < copies; i++) {
+                start = System.nanoTime();
+                dataManager.getAllBookings();
+                copyTotal += System.nanoTime() - start;
+            }
+            dataManager.close();
+
+            Arrays.sort(latencies);
+            System.out.println(String.format(Locale.ROOT, "%-10d %14.1f %12.1f %12.1f %14.3f",
+                    size, firstPage / 1e6, latencies[pages / 2] / 1e3, latencies[pages * 99 / 100] / 1e3,
+                    copyTotal / 1e6 / copies));
+            deleteRecursively(dir);
+        }
+    }
+
+    /**
+     * Measures the latency of hotel autocomplete suggestions for prefixes of one to four letters.
+     */
+    private static void suggest(int[] sizes) throws IOException {
+        System.out.println(String.format(Locale.ROOT, "%-10s %10s %10s %10s %12s",
+                "hotels", "p50 us", "p99 us", "avg us", "avg matches"));
+        for (int size : sizes) {
+            File dir = Files.createTempDirectory("suggest-bench").toFile();
+            Random random = new Random(42);
+            DataManager dataManager = createHotelsOnly(dir, size, random);
+
+            long[] latencies = new long[SEARCH_QUERIES];
+            long matches = 0;
+            // The first half of the queries warms up the JIT and is not measured
+            for (int i = -SEARCH_QUERIES; i < SEARCH_QUERIES; i++) {
+                String word = random.nextBoolean()
+                        ? LOCATIONS[random.nextInt(LOCATIONS.length)]
+                        : NAME_WORDS[random.nextInt(NAME_WORDS.length)];
+                String prefix = word.substring(0, Math.min(word.length(), 1 + random.nextInt(4)));
+
+                long start = System.nanoTime();
+                List<Hotel> suggestions = dataManager.suggestHotels(prefix, 8);
+                long elapsed = System.nanoTime() - start;
+                if (i >= 0) {
+                    latencies[i] = elapsed;
+                    matches += suggestions.size();
+                }
+            }
+            dataManager.close();
+
+            Arrays.sort(latencies);
+            long total = 0;
+            for (long latency : latencies) {
+                total += latency;
+            }
+            System.out.println(String.format(Locale.ROOT, "%-10d %10.1f %10.1f %10.1f %12.1f",
+                    size, latencies[SEARCH_QUERIES / 2] / 1e3, latencies[SEARCH_QUERIES * 99 / 100] / 1e3,
+                    total / 1e3 / SEARCH_QUERIES, (double) matches / SEARCH_QUERIES));
+            deleteRecursively(dir);
+        }
+    }
+
+    /**
+     * Compares top-10 queries with a merge sort of all candidates followed by subList(0, 10),
+     * for the given numbers of rooms: the 10 cheapest of all rooms with SearchAndSort.topK,
+     * and the DataManager queries for the 10 cheapest suites and the 10 best hotels of a city.
+     * Candidates are shuffled before every sort so the merge sort cache misses.
+     */
+    private static void topK(int[] sizes) throws IOException {
+        System.out.println(String.format(Locale.ROOT, "%-10s %12s %12s %14s %14s %14s %14s",
+                "rooms", "topK ms", "sort ms", "suites ms", "sort suites ms", "hotels ms", "sort hotels ms"));
+        int k = 10;
+        Comparator<Room> byPrice = Comparator.comparingDouble(Room::getPricePerNight)
+                .thenComparingInt(room -> -room.getHotel().getRating())
+                .thenComparing(Room::getId);
+        for (int size : sizes) {
+            File dir = Files.createTempDirectory("topk-bench").toFile();
+            List<Room> rooms = generateRooms(size);
+            List<Hotel> hotels = new ArrayList<>();
+            for (Room room : rooms) {
+                if (hotels.isEmpty() || hotels.get(hotels.size() - 1) != room.getHotel()) {
+                    hotels.add(room.getHotel());
+                }
+            }
+            EntityCodec.writeUsers(new File(dir, "users.dat"), generateUsers(1));
+            EntityCodec.writeHotels(new File(dir, "hotels.dat"), hotels);
+            EntityCodec.writeRooms(new File(dir, "rooms.dat"), rooms);
+            DataManager dataManager = new DataManager(dir);
+
+            // The merge sort baselines get the same candidates the DataManager queries start from
+            List<Room> suites = new ArrayList<>();
+            for (Room room : rooms) {
+                if (room.getType().equals("Suite") && room.isAvailable()) {
+                    suites.add(room);
+                }
+            }
+            String city = LOCATIONS[0];
+            List<Hotel> cityHotels = new ArrayList<>();
+            for (Hotel hotel : hotels) {
+                if (hotel.getLocation().equals(city)) {
+                    cityHotels.add(hotel);
+                }
+            }
+            Map<Hotel, Double> cheapestPrices = new IdentityHashMap<>();
+            for (Room room : rooms) {
+                if (room.isAvailable()) {
+                    cheapestPrices.merge(room.getHotel(), room.getPricePerNight(), Math::min);
+                }
+            }
+            Comparator<Hotel> byRating = Comparator.comparingInt((Hotel hotel) -> -hotel.getRating())
+                    .thenComparingDouble(hotel -> cheapestPrices.getOrDefault(hotel, Double.POSITIVE_INFINITY))
+                    .thenComparing(Hotel::getName)
+                    .thenComparing(Hotel::getId);
+
+            Random random = new Random(42);
+            int rounds = 20;
+            long[] totals = new long[6];
+            // The first half of the rounds warms up the JIT and is not measured
+            for (int i = -rounds; i < rounds; i++) {
+                long[] times = new long[6];
+                List<Room> shuffledRooms = new ArrayList<>(rooms);
+                Collections.shuffle(shuffledRooms, random);
+                long start = System.nanoTime();
+                SearchAndSort.topK(shuffledRooms, k, byPrice);
+                times[0] = System.nanoTime() - start;
+                start = System.nanoTime();
+                SearchAndSort.mergeSort(shuffledRooms, byPrice).subList(0, k);
+                times[1] = System.nanoTime() - start;
+
+                List<Room> shuffledSuites = new ArrayList<>(suites);
+                Collections.shuffle(shuffledSuites, random);
+                start = System.nanoTime();
+                dataManager.cheapestRooms("Suite", k);
+                times[2] = System.nanoTime() - start;
+                start = System.nanoTime();
+                SearchAndSort.mergeSort(shuffledSuites, byPrice).subList(0, Math.min(k, shuffledSuites.size()));
+                times[3] = System.nanoTime() - start;
+
+                List<Hotel> shuffledHotels = new ArrayList<>(cityHotels);
+                Collections.shuffle(shuffledHotels, random);
+                start = System.nanoTime();
+                dataManager.topHotels(city, k);
+                times[4] = System.nanoTime() - start;
+                start = System.nanoTime();
+                SearchAndSort.mergeSort(shuffledHotels, byRating).subList(0, Math.min(k, shuffledHotels.size()));
+                times[5] = System.nanoTime() - start;
+
+                if (i >= 0) {
+                    for (int t = 0; t < times.length; t++) {
+                        totals[t] += times[t];
+                    }
+                }
+            }
+            dataManager.close();
+
+            System.out.println(String.format(Locale.ROOT, "%-10d %12.3f %12.3f %14.3f %14.3f %14.3f %14.3f",
+                    size, totals[0] / 1e6 / rounds, totals[1] / 1e6 / rounds, totals[2] / 1e6 / rounds,
+                    totals[3] / 1e6 / rounds, totals[4] / 1e6 / rounds, totals[5] / 1e6 / rounds));
+            deleteRecursively(dir);
+        }
+    }
+
+    /**
+     * Compares reading the first page of 50 bookings of the admin bookings list with a BookingQuery
+     * and with the former filter, which walks the bookings in order and lower-cases the user,
+     * hotel and room fields of each one, for the given numbers of bookings.
+     */
+    private static void query(int[] sizes) throws IOException {
+        System.out.println(String.format(Locale.ROOT, "%-10s %-28s %14s %14s %10s",
+                "bookings", "query", "filter ms", "query ms", "matches"));
+        for (int size : sizes) {
+            File dir = Files.createTempDirectory("query-bench").toFile();
+            List<Room> rooms = generateRooms(Math.max(ROOMS_PER_HOTEL, size / BOOKINGS_PER_ROOM));
+            List<Hotel> hotels = new ArrayList<>();
+            for (Room room : rooms) {
+                if (hotels.isEmpty() || hotels.get(hotels.size() - 1) != room.getHotel()) {
+                    hotels.add(room.getHotel());
+                }
+            }
+            List<User> users = generateUsers(Math.max(1, size / BOOKINGS_PER_USER));
+            EntityCodec.writeUsers(new File(dir, "users.dat"), users);
+            EntityCodec.writeHotels(new File(dir, "hotels.dat"), hotels);
+            EntityCodec.writeRooms(new File(dir, "rooms.dat"), rooms);
+            BookingStore store = new BookingStore(new File(dir, "bookings"), BookingStore.DEFAULT_SEGMENT_SIZE);
+            store.append(generateBookings(size, users, rooms), false);
+            store.close();
+            users = null;
+            hotels = null;
+            rooms = null;
+            DataManager dataManager = new DataManager(dir);
+            // Builds the bookings-in-order index, which both ways read
+            dataManager.pageBookings(null, 1, null);
+
+            String[] names = {"pending", "text: user1234", "text: hotel 4321", "text: lviv", "user + pending", "next week + suite"};
+            for (int q = 0; q < names.length; q++) {
+                BookingQuery query = new BookingQuery();
+                switch (q) {
+                    case 0:
+                        query.setConfirmed(false);
+                        break;
+                    case 1:
+                        query.setText("user1234");
+                        break;
+                    case 2:
+                        query.setText("hotel 4321");
+                        break;
+                    case 3:
+                        query.setText("lviv");
+                        break;
+                    case 4:
+                        query.setUserId("user-7");
+                        query.setConfirmed(false);
+                        break;
+                    default:
+                        query.setCheckInFrom(LocalDate.now().plusDays(7));
+                        query.setCheckInTo(LocalDate.now().plusDays(13));
+                        query.setRoomType("Suite");
+                        break;
+                }
+                Predicate<Booking> filter = formerBookingFilter(query);
+
+                int rounds = 50;
+                long filterTotal = 0;
+                long queryTotal = 0;
+                int matches = 0;
+                // The first half of the rounds warms up the JIT and is not measured
+                for (int i = -rounds; i < rounds; i++) {
+                    long start = System.nanoTime();
+                    dataManager.pageBookings(null, 50, filter);
+                    long filtered = System.nanoTime() - start;
+                    start = System.nanoTime();
+                    matches = dataManager.pageBookings(query, null, 50).getItems().size();
+                    long queried = System.nanoTime() - start;
+                    if (i >= 0) {
+                        filterTotal += filtered;
+                        queryTotal += queried;
+                    }
+                }
+                System.out.println(String.format(Locale.ROOT, "%-10d %-28s %14.3f %14.3f %10d",
+                        size, names[q], filterTotal / 1e6 / rounds, queryTotal / 1e6 / rounds, matches));
+            }
+            dataManager.close();
+            deleteRecursively(dir);
+        }
+    }
+
+    /**
+     * Compares reading the totals of a hotel and month from the maintained booking totals with computing
+     * them from every booking, for the given numbers of bookings. Also times building the totals
+     * on the first report and keeping them up to date when a booking is confirmed.
+     */
+    private static void report(int[] sizes) throws IOException {
+        System.out.println(String.format(Locale.ROOT, "%-10s %10s %12s %12s %14s",
+                "bookings", "build ms", "update us", "read us", "recompute ms"));
+        for (int size : sizes) {
+            File dir = Files.createTempDirectory("report-bench").toFile();
+            List<Room> rooms = generateRooms(Math.max(ROOMS_PER_HOTEL, size / BOOKINGS_PER_ROOM));
+            List<Hotel> hotels = new ArrayList<>();
+            for (Room room : rooms) {
+                if (hotels.isEmpty() || hotels.get(hotels.size() - 1) != room.getHotel()) {
+                    hotels.add(room.getHotel());
+                }
+            }
+            List<User> users = generateUsers(Math.max(1, size / BOOKINGS_PER_USER));
+            EntityCodec.writeUsers(new File(dir, "users.dat"), users);
+            EntityCodec.writeHotels(new File(dir, "hotels.dat"), hotels);
+            EntityCodec.writeRooms(new File(dir, "rooms.dat"), rooms);
+            BookingStore store = new BookingStore(new File(dir, "bookings"), BookingStore.DEFAULT_SEGMENT_SIZE);
+            store.append(generateBookings(size, users, rooms), false);
+            store.close();
+            int hotelCount = hotels.size();
+            users = null;
+            hotels = null;
+            rooms = null;
+            DataManager dataManager = new DataManager(dir);
+            List<Booking> bookings = dataManager.getAllBookings();
+
+            long start = System.nanoTime();
+            dataManager.getBookingTotals();
+            long build = System.nanoTime() - start;
+
+            Random random = new Random(42);
+            YearMonth month = YearMonth.from(LocalDate.now().plusMonths(1));
+            int reads = 10_000;
+            long readTotal = 0;
+            // The first half of the reads warms up the JIT and is not measured
+            for (int i = -reads; i < reads; i++) {
+                String hotelId = "hotel-" + random.nextInt(hotelCount);
+                start = System.nanoTime();
+                dataManager.getBookingTotals(hotelId, month);
+                long elapsed = System.nanoTime() - start;
+                if (i >= 0) {
+                    readTotal += elapsed;
+                }
+            }
+
+            // Without the totals, a report looks at every booking and splits its price over its nights
+            int recomputes = 10;
+            long recomputeTotal = 0;
+            for (int i = -recomputes; i < recomputes; i++) {
+                String hotelId = "hotel-" + random.nextInt(hotelCount);
+                start = System.nanoTime();
+                double revenue = 0;
+                for (Booking booking : bookings) {
+                    if (!booking.getRoom().getHotel().getId().equals(hotelId)) {
+                        continue;
+                    }
+                    long nights = booking.getCheckOutDate().toEpochDay() - booking.getCheckInDate().toEpochDay();
+                    for (long night = 0; night < nights; night++) {
+                        if (YearMonth.from(booking.getCheckInDate().plusDays(night)).equals(month)) {
+                            revenue += booking.getTotalPrice() / nights;
+                        }
+                    }
+                }
+                long elapsed = System.nanoTime() - start;
+                if (i >= 0 && revenue >= 0) {
+                    recomputeTotal += elapsed;
+                }
+            }
+
+            // Confirming a booking takes it out of the totals and adds it again; only the update itself is timed
+            int updates = Math.min(size, 10_000);
+            long updateTotal = 0;
+            for (int i = 0; i < updates; i++) {
+                Booking booking = bookings.get(random.nextInt(bookings.size()));
+                booking.setConfirmed(!booking.isConfirmed());
+                start = System.nanoTime();
+                dataManager.updateBooking(booking);
+                updateTotal += System.nanoTime() - start;
+            }
+            boolean consistent = dataManager.verifyIndexes();
+            dataManager.close();
+
+            System.out.println(String.format(Locale.ROOT, "%-10d %10.1f %12.1f %12.2f %14.3f%s",
+                    size, build / 1e6, updateTotal / 1e3 / updates, readTotal / 1e3 / reads,
+                    recomputeTotal / 1e6 / recomputes, consistent ? "" : "  (totals differ from recompute)"));
+            deleteRecursively(dir);
+        }
+    }
+
+    /**
+     * Compares grouping bookings by city and room type on one thread with the AnalyticsEngine
+     * on 1, 2, 4, ... threads up to the number of cores, for the given numbers of bookings.
+     * The bookings are generated in memory, linked to their rooms, without a DataManager.
+     */
+    private static void analytics(int[] sizes) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println(String.format(Locale.ROOT, "%-10s %-10s %10s %10s", "bookings", "threads", "ms", "speedup"));
+        LocalDate today = LocalDate.now();
+        for (int size : sizes) {
+            List<Room> rooms = generateRooms(Math.max(ROOMS_PER_HOTEL, size / BOOKINGS_PER_ROOM));
+            List<Booking> bookings = new ArrayList<>(size);
+            LocalDate firstDay = today.minusDays(365);
+            for (int i = 0; i < size; i++) {
+                LocalDate checkIn = firstDay.plusDays(i % 730);
+                Booking booking = new Booking("booking-" + i, null, rooms.get(i % rooms.size()), checkIn, checkIn.plusDays(1 + i % 7));
+                booking.setConfirmed(i % 2 == 0);
+                bookings.add(booking);
+            }
+            rooms = null;
+
+            int rounds = 5;
+            // The loop a controller would run: one thread, one map
+            long sequential = 0;
+            for (int i = -rounds; i < rounds; i++) {
+                long start = System.nanoTime();
+                Map<String, Map<String, BookingStatistics>> groups = new HashMap<>();
+                for (Booking booking : bookings) {
+                    groups.computeIfAbsent(AnalyticsEngine.cityOf(booking), k -> new HashMap<>())
+                        .computeIfAbsent(AnalyticsEngine.roomTypeOf(booking), k -> new BookingStatistics())
+                        .add(booking, today.toEpochDay());
+                }
+                long elapsed = System.nanoTime() - start;
+                if (i >= 0) {
+                    sequential += elapsed;
+                }
+            }
+            System.out.println(String.format(Locale.ROOT, "%-10d %-10s %10.1f %10s", size, "loop", sequential / 1e6 / rounds, "1.00"));
+
+            for (int threads = 1; threads <= cores; threads = threads < cores && threads * 2 > cores ? cores : threads * 2) {
+                ForkJoinPool pool = new ForkJoinPool(threads);
+                AnalyticsEngine engine = new AnalyticsEngine(pool);
+                long total = 0;
+                // The first half of the rounds warms up the JIT and is not measured
+                for (int i = -rounds; i < rounds; i++) {
+                    long start = System.nanoTime();
+                    engine.byCityAndRoomType(bookings, today);
+                    long elapsed = System.nanoTime() - start;
+                    if (i >= 0) {
+                        total += elapsed;
+                    }
+                }
+                pool.shutdown();
+                System.out.println(String.format(Locale.ROOT, "%-10d %-10d %10.1f %10.2f",
+                        size, threads, total / 1e6 / rounds, (double) sequential / total));
+                if (threads == cores) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Compares scans over the Booking objects with the same scans over BookingColumns: the confirmed revenue
+     * of 30 days, and the revenue of 90 days by city and room type. Also times building the columns
+     * and changing one booking in them. The bookings are generated in memory, as for analytics.
+     */
+    private static void columns(int[] sizes) {
+        System.out.println(String.format(Locale.ROOT, "%-10s %-28s %12s %12s %10s", "bookings", "scan", "objects ms", "columns ms", "speedup"));
+        LocalDate today = LocalDate.now();
+        for (int size : sizes) {
+            List<Room> rooms = generateRooms(Math.max(ROOMS_PER_HOTEL, size / BOOKINGS_PER_ROOM));
+            List<Booking> bookings = new ArrayList<>(size);
+            LocalDate firstDay = today.minusDays(365);
+            Random random = new Random(42);
+            for (int i = 0; i < size; i++) {
+                // Random rooms and days, so bookings next to each other in the list are not next to each other in memory
+                LocalDate checkIn = firstDay.plusDays(random.nextInt(730));
+                Booking booking = new Booking("booking-" + i, null, rooms.get(random.nextInt(rooms.size())), checkIn, checkIn.plusDays(1 + random.nextInt(7)));
+                booking.setConfirmed(random.nextBoolean());
+                bookings.add(booking);
+            }
+            rooms = null;
+            Collections.shuffle(bookings, random);
+
+            long start = System.nanoTime();
+            BookingColumns columns = new BookingColumns();
+            for (Booking booking : bookings) {
+                columns.put(booking);
+            }
+            System.out.println(String.format(Locale.ROOT, "%-10d %-28s %12s %12.1f", size, "build", "", (System.nanoTime() - start) / 1e6));
+
+            LocalDate from = today.minusDays(30);
+            LocalDate to = today;
+            long fromDay = from.toEpochDay();
+            long toDay = to.toEpochDay();
+            int rounds = 10;
+            double[] result = new double[2];
+            long objects = 0;
+            long scanned = 0;
+            // The first half of the rounds warms up the JIT and is not measured
+            for (int i = -rounds; i < rounds; i++) {
+                start = System.nanoTime();
+                double revenue = 0;
+                for (Booking booking : bookings) {
+                    if (booking.isConfirmed() && !booking.getCheckInDate().isBefore(from) && booking.getCheckInDate().isBefore(to)) {
+                        revenue += booking.getTotalPrice();
+                    }
+                }
+                long middle = System.nanoTime();
+                result[0] = revenue;
+                result[1] = columns.sumRevenue(fromDay, toDay, true);
+                if (i >= 0) {
+                    objects += middle - start;
+                    scanned += System.nanoTime() - middle;
+                }
+            }
+            if (Math.abs(result[0] - result[1]) > 0.01) {
+                System.err.println("Different revenue: " + result[0] + " and " + result[1]);
+            }
+            System.out.println(String.format(Locale.ROOT, "%-10d %-28s %12.1f %12.1f %10.2f",
+                    size, "confirmed revenue, 30 days", objects / 1e6 / rounds, scanned / 1e6 / rounds, (double) objects / scanned));
+
+            LocalDate groupFrom = today.minusDays(90);
+            long groupFromDay = groupFrom.toEpochDay();
+            objects = 0;
+            scanned = 0;
+            for (int i = -rounds; i < rounds; i++) {
+                start = System.nanoTime();
+                Map<String, Map<String, Double>> groups = new HashMap<>();
+                for (Booking booking : bookings) {
+                    if (!booking.getCheckInDate().isBefore(groupFrom) && booking.getCheckInDate().isBefore(to)) {
+                        groups.computeIfAbsent(AnalyticsEngine.cityOf(booking), k -> new HashMap<>())
+                            .merge(AnalyticsEngine.roomTypeOf(booking), booking.getTotalPrice(), Double::sum);
+                    }
+                }
+                long middle = System.nanoTime();
+                columns.sumRevenueByCityAndRoomType(groupFromDay, toDay);
+                if (i >= 0) {
+                    objects += middle - start;
+                    scanned += System.nanoTime() - middle;
+                }
+            }
+            System.out.println(String.format(Locale.ROOT, "%-10d %-28s %12.1f %12.1f %10.2f",
+                    size, "revenue by city and type", objects / 1e6 / rounds, scanned / 1e6 / rounds, (double) objects / scanned));
+
+            // One booking changed and one removed and added again, as DataManager does on update and delete
+            int changes = 100_000;
+            start = System.nanoTime();
+            for (int i = 0; i < changes; i++) {
+                Booking booking = bookings.get(random.nextInt(size));
+                booking.setConfirmed(!booking.isConfirmed());
+                columns.put(booking);
+                Booking removed = bookings.get(random.nextInt(size));
+                columns.remove(removed);
+                columns.put(removed);
+            }
+            System.out.println(String.format(Locale.ROOT, "%-10d %-28s %12s %12.2f", size, "change (us)", "",
+                    (System.nanoTime() - start) / 1e3 / changes));
+        }
+    }
+
+    /**
+     * The admin bookings filter used before BookingQuery, extended to the same filters.
+     */
+    private static Predicate<Booking> formerBookingFilter(BookingQuery query) {
+        return booking -> {
+            if (query.getConfirmed() != null && booking.isConfirmed() != query.getConfirmed()) {
+                return false;
+            }
+            if (query.getUserId() != null && !query.getUserId().equals(booking.getUser().getId())) {
+                return false;
+            }
+            if (query.getRoomType() != null && !booking.getRoom().getType().equalsIgnoreCase(query.getRoomType())) {
+                return false;
+            }
+            if (query.getCheckInFrom() != null && booking.getCheckInDate().isBefore(query.getCheckInFrom())) {
+                return false;
+            }
+            if (query.getCheckInTo() != null && booking.getCheckInDate().isAfter(query.getCheckInTo())) {
+                return false;
+            }
+            if (query.getText() != null) {
+                String searchTerm = query.getText().toLowerCase();
+                return booking.getUser().getUsername().toLowerCase().contains(searchTerm) ||
+                       booking.getUser().getFullName().toLowerCase().contains(searchTerm) ||
+                       booking.getRoom().getHotel().getName().toLowerCase().contains(searchTerm) ||
+                       booking.getRoom().getHotel().getLocation().toLowerCase().contains(searchTerm) ||
+                       booking.getRoom().getRoomNumber().toLowerCase().contains(searchTerm) ||
+                       booking.getRoom().getType().toLowerCase().contains(searchTerm);
+            }
+            return true;
+        };
+    }
+
+    /**
+     * Writes generated hotels (and one user, so no sample data is added) and loads them.
+     * Names are two random words and a number, descriptions six random words.
+     */
+    private static DataManager createHotelsOnly(File dir, int count, Random random) throws IOException {
+        List<Hotel> hotels = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String name = NAME_WORDS[random.nextInt(NAME_WORDS.length)] + " " + NAME_WORDS[random.nextInt(NAME_WORDS.length)] + " " + i;
+            StringBuilder description = new StringBuilder();
+            for (int word = 0; word < 6; word++) {
+                description.append(DESCRIPTION_WORDS[random.nextInt(DESCRIPTION_WORDS.length)]).append(' ');
+            }
+            hotels.add(new Hotel("hotel-" + i, name, LOCATIONS[i % LOCATIONS.length], 1 + i % 5, description.toString().trim()));
+        }
+        EntityCodec.writeHotels(new File(dir, "hotels.dat"), hotels);
+        EntityCodec.writeUsers(new File(dir, "users.dat"), generateUsers(1));
+        return new DataManager(dir);
+    }
+
+    /**
+     * The relinking DataManager used before hash maps: every room scans all hotels,
+     * every booking scans all users and all rooms, and every add checks List.contains.
+     */
+    private static void nestedRelink(List<User> users, List<Hotel> hotels, List<Room> rooms, List<Booking> bookings) {
+        for (Hotel hotel : hotels) {
+            hotel.getRooms().clear();
+        }
+        for (Room room : rooms) {
+            for (Hotel hotel : hotels) {
+                if (hotel.getId().equals(room.getHotelId())) {
+                    room.setHotel(hotel);
+                    if (!hotel.getRooms().contains(room)) {
+                        hotel.getRooms().add(room);
+                    }
+                    break;
+                }
+            }
+        }
+        for (Booking booking : bookings) {
+            for (User user : users) {
+                if (user.getId().equals(booking.getUserId())) {
+                    booking.setUser(user);
+                    if (!user.getBookings().contains(booking)) {
+                        user.getBookings().add(booking);
+                    }
+                    break;
+                }
+            }
+            for (Room room : rooms) {
+                if (room.getId().equals(booking.getRoomId())) {
+                    booking.setRoom(room);
+                    if (!room.getBookings().contains(booking)) {
+                        room.getBookings().add(booking);
+                    }
+                    break;
+                }
+            }
+        }
+    }
+
+    private static void writeLegacy(File file, List<Room> rooms) throws IOException {
+        try (ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            oos.writeObject(rooms);
+        }
+    }
+
+    private static List<Room> generateRooms(int count) {
+        List<Room> rooms = new ArrayList<>(count);
+        Hotel hotel = null;
+        for (int i = 0; i < count; i++) {
+            if (i % ROOMS_PER_HOTEL == 0) {
+                int hotelNumber = i / ROOMS_PER_HOTEL;
+                hotel = new Hotel("hotel-" + hotelNumber, "Hotel " + hotelNumber,
+                        LOCATIONS[hotelNumber % LOCATIONS.length], 1 + hotelNumber % 5, "Generated hotel " + hotelNumber);
+            }
+            Room room = new Room("room-" + i, String.valueOf(100 + i % ROOMS_PER_HOTEL),
+                    ROOM_TYPES[i % ROOM_TYPES.length], 50 + (i % 40) * 10);
+            hotel.addRoom(room);
+            rooms.add(room);
+        }
+        return rooms;
+    }
+
+    private static List<User> generateUsers(int count) {
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            users.add(new User("user-" + i, "user" + i, "password", "User " + i, "user" + i + "@hotel.com", "000-000-0000"));
+        }
+        return users;
+    }
+
+    /**
+     * Generates bookings spread evenly over the users and rooms, linked by id only.
+     */
+    private static List<Booking> generateBookings(int count, List<User> users, List<Room> rooms) {
+        List<Booking> bookings = new ArrayList<>(count);
+        LocalDate firstDay = LocalDate.now();
+        for (int i = 0; i < count; i++) {
+            LocalDate checkIn = firstDay.plusDays(i % 365);
+            Booking booking = new Booking("booking-" + i, null, null, checkIn, checkIn.plusDays(1 + i % 7));
+            booking.setUserId(users.get(i % users.size()).getId());
+            booking.setRoomId(rooms.get(i % rooms.size()).getId());
+            booking.setTotalPrice(100.0 * (1 + i % 7));
+            booking.setConfirmed(i % 2 == 0);
+            bookings.add(booking);
+        }
+        return bookings;
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static void printRow(int size, String format, long saveNanos, long loadNanos, long bytes) {
+        System.out.println(String.format(Locale.ROOT, "%-10d %-8s %12.1f %12.1f %14d",
+                size, format, saveNanos / 1e6, loadNanos / 1e6, bytes));
+    }
+
+    private static int[] sizes(String[] args, int... defaults) {
+        if (args.length <= 1) {
+            return defaults;
+        }
+        int[] sizes = new int[args.length - 1];
+        for (int i = 1; i < args.length; i++) {
+            sizes[i - 1] = Integer.parseInt(args[i]);
+        }
+        return sizes;
+    }
+}
@@ -0,0 +1,112 @@
+package Models.Utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for SearchAndSort: top-k selection and the bounded edit distance.
+ */
+class SearchAndSortTest {
+
+    /**
+     * The full Levenshtein distance, computed over the whole table.
+     */
+    private static int fullDistance(String a, String b) {
+        int[][] distance = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            for (int j = 0; j <= b.length(); j++) {
+                if (i == 0 || j == 0) {
+                    distance[i][j] = i + j;
+                } else {
+                    int replace = distance[i - 1][j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                    distance[i][j] = Math.min(replace, Math.min(distance[i - 1][j], distance[i][j - 1]) + 1);
+                }
+            }
+        }
+        return distance[a.length()][b.length()];
+    }
+
+    private static String randomWord(Random random, int maxLength) {
+        StringBuilder word = new StringBuilder();
+        int length = random.nextInt(maxLength + 1);
+        for (int i = 0; i < length; i++) {
+            // A small alphabet gives many close words
+            word.append((char) ('a' + random.nextInt(3)));
+        }
+        return word.toString();
+    }
+
+    @Test
+    void topKKeepsTheFirstOfEqualItems() {
+        // Sorted by length only, so words of the same length are equal
+        Comparator<String> byLength = Comparator.comparingInt(String::length);
+        List<String> words = List.of("ccc", "a", "bb", "b", "dd", "c", "eee", "aa");
+        assertEquals(List.of("a", "b", "c", "bb"), SearchAndSort.topK(words, 4, byLength));
+        assertEquals(List.of("a", "b"), SearchAndSort.topK(words, 2, byLength));
+
+        // The same as a stable sort followed by the first k, for many ties
+        Random random = new Random(3);
+        List<int[]> items = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            items.add(new int[] {random.nextInt(20), i});
+        }
+        Comparator<int[]> byValue = Comparator.comparingInt(item -> item[0]);
+        List<int[]> sorted = new ArrayList<>(items);
+        sorted.sort(byValue);
+        for (int k : new int[] {1, 10, 99, 100, 1999}) {
+            // Compare the positions the items were read at
+            List<Integer> expected = new ArrayList<>();
+            for (int[] item : sorted.subList(0, k)) {
+                expected.add(item[1]);
+            }
+            List<Integer> found = new ArrayList<>();
+            for (int[] item : SearchAndSort.topK(items, k, byValue)) {
+                found.add(item[1]);
+            }
+            assertEquals(expected, found, "k=" + k);
+        }
+    }
+
+    @Test
+    void topKOfFewerThanKItemsSortsThemAll() {
+        List<Integer> numbers = List.of(5, 3, 9, 1);
+        assertEquals(List.of(1, 3, 5, 9), SearchAndSort.topK(numbers, 10, Comparator.naturalOrder()));
+        assertEquals(List.of(9, 5, 3, 1), SearchAndSort.topK(numbers, 4, Comparator.reverseOrder()));
+        assertTrue(SearchAndSort.topK(List.<Integer>of(), 3, Comparator.naturalOrder()).isEmpty());
+        assertTrue(SearchAndSort.topK(numbers, 0, Comparator.naturalOrder()).isEmpty());
+        assertTrue(SearchAndSort.topK(numbers, -1, Comparator.naturalOrder()).isEmpty());
+    }
+
+    @Test
+    void editDistanceOfKnownWords() {
+        assertEquals(0, SearchAndSort.editDistance("kyiv", "kyiv", 2));
+        assertEquals(1, SearchAndSort.editDistance("odessa", "odesa", 2));
+        assertEquals(1, SearchAndSort.editDistance("kharkov", "kharkiv", 2));
+        assertEquals(2, SearchAndSort.editDistance("kiev", "kyiv", 2));
+        assertEquals(3, SearchAndSort.editDistance("", "abc", 3));
+        // Above the bound the result is the bound plus one
+        assertEquals(2, SearchAndSort.editDistance("kiev", "kyiv", 1));
+        assertEquals(2, SearchAndSort.editDistance("kyiv", "odesa", 1));
+        assertEquals(1, SearchAndSort.editDistance("a", "abcdef", 0));
+    }
+
+    @Test
+    void boundedDistanceAgreesWithTheFullTable() {
+        Random random = new Random(17);
+        for (int i = 0; i < 5000; i++) {
+            String a = randomWord(random, 9);
+            String b = randomWord(random, 9);
+            int full = fullDistance(a, b);
+            for (int bound = 0; bound <= 4; bound++) {
+                assertEquals(Math.min(full, bound + 1), SearchAndSort.editDistance(a, b, bound),
+                    a + " / " + b + " within " + bound);
+            }
+        }
+    }
+}